@@ -588,7 +588,7 @@ public class ChatViewerBot extends PircBot
         privmsg.incrementPostCount();
 
         // Finally, construct the message and send it on to the chat display
-        Message msg = new Message(type, casedUsername, message, privmsg);
+        Message msg = new Message(type, casedUsername, message, privmsg, chat.getClock());
         chat.addMessage(msg);
     }
 
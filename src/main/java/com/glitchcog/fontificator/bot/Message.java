@@ -1,5 +1,6 @@
 package com.glitchcog.fontificator.bot;
 
+import java.awt.Color;
 import java.net.MalformedURLException;
 import java.util.ArrayList;
 import java.util.Date;
@@ -19,6 +20,11 @@ import com.glitchcog.fontificator.emoji.EmojiManager;
 import com.glitchcog.fontificator.emoji.EmojiType;
 import com.glitchcog.fontificator.emoji.LazyLoadEmoji;
 import com.glitchcog.fontificator.emoji.TypedEmojiMap;
+import com.glitchcog.fontificator.gui.chat.clock.ChatClock;
+import com.glitchcog.fontificator.gui.chat.clock.RealChatClock;
+import com.glitchcog.fontificator.sprite.ColorRuns;
+import com.glitchcog.fontificator.sprite.MessageLayout;
+import com.glitchcog.fontificator.sprite.MessageText;
 import com.glitchcog.fontificator.sprite.SpriteCharacterKey;
 
 /**
@@ -32,6 +38,11 @@ public class Message
 
     private static final long UNCOMPLETED_TIME = 0L;
 
+    /**
+     * The clock for messages constructed without one, which keeps the actual time
+     */
+    private static final ChatClock DEFAULT_CLOCK = new RealChatClock();
+
     /**
      * A regex for checking for emoji keys in the text. Used in a String.split to divide the message into an array of
      * words and the spaces between them.
@@ -92,15 +103,42 @@ public class Message
 
     /**
      * The badges to draw, the size of which is used to keep track of the position of the username, which is used for
-     * coloring. This value is calculated when the text is parsed into SpriteCharacterKeys and will be null if all
+     * coloring. This value is calculated when the text is parsed into the packed text and will be null if all
      * badges are switched off.
      */
     private Map<String, LazyLoadEmoji> badges;
 
     /**
-     * The String of the message put into text
+     * The String of the message put into text, packed into codepoints with the emoji and badges kept apart
+     */
+    private MessageText text;
+
+    /**
+     * The positions of the characters of the text once wrapped for drawing, cached here by the SpriteFont so it only
+     * needs to be recalculated when the wrap width or configuration changes
+     */
+    private MessageLayout layout;
+
+    /**
+     * The colors of the characters of the text, cached here by the SpriteFont so they only need to be worked out again
+     * when the text, the configuration or the user color changes
+     */
+    private ColorRuns colorRuns;
+
+    /**
+     * The color unique to the poster of this message, cached here by the ChatRenderer along with the version of the color
+     * configuration it was picked with
      */
-    private SpriteCharacterKey[] text;
+    private Color usernameColor;
+
+    private int usernameColorVersion;
+
+    /**
+     * The timestamp formatted for display, along with the version of the message configuration it was formatted with
+     */
+    private String timestampString;
+
+    private int timestampVersion;
 
     /**
      * The text that goes between a time stamp and a username
@@ -119,22 +157,27 @@ public class Message
     private float drawCursor;
 
     /**
-     * Keep track of the configuration the last time this message was parsed, so if no configuration has changed (check
-     * using ConfigMessage.equals), then there's no need to re-parse it
+     * The version of the message configuration the last time this message was parsed, so if it hasn't changed since,
+     * then there's no need to re-parse it
      */
-    private ConfigMessage lastMessageConfig;
+    private int textMessageVersion;
 
     /**
-     * Keep track of the configuration the last time this message was parsed, so if no configuration has changed (check
-     * using ConfigEmoji.equals), then there's no need to re-parse it
+     * The version of the emoji configuration the last time this message was parsed, so if it hasn't changed since, then
+     * there's no need to re-parse it
      */
-    private ConfigEmoji lastEmojiConfig;
+    private int textEmojiVersion;
 
     /**
      * The moment in time the message was completely drawn
      */
     private long completedTime;
 
+    /**
+     * The clock used to time stamp the moment the message was completely drawn
+     */
+    private final ChatClock clock;
+
     /**
      * Construct a message specifying the type, username and content, but set the time stamp to the current local time
      * 
@@ -149,7 +192,27 @@ public class Message
      */
     public Message(MessageType type, String rawUsername, String content, TwitchPrivmsg privmsg)
     {
-        this(type, rawUsername, new Date(), content, privmsg);
+        this(type, rawUsername, content, privmsg, DEFAULT_CLOCK);
+    }
+
+    /**
+     * Construct a message specifying the type, username and content, setting the time stamp to the current time of the
+     * specified clock
+     * 
+     * @param type
+     *            The type of this message
+     * @param rawUsername
+     *            The username of whomever posted this message
+     * @param content
+     *            The text of the message
+     * @param privmsg
+     *            The Twitch Privmsg object, will not be null
+     * @param clock
+     *            The clock of the chat the message is posted to
+     */
+    public Message(MessageType type, String rawUsername, String content, TwitchPrivmsg privmsg, ChatClock clock)
+    {
+        this(type, rawUsername, new Date(clock.currentTimeMillis()), content, privmsg, clock);
     }
 
     /**
@@ -167,16 +230,37 @@ public class Message
      *            The Twitch Privmsg object, will not be null
      */
     public Message(MessageType type, String rawUsername, Date timestamp, String content, TwitchPrivmsg privmsg)
+    {
+        this(type, rawUsername, timestamp, content, privmsg, DEFAULT_CLOCK);
+    }
+
+    /**
+     * Construct a message specifying everything, including the clock used to time how long it's been since the message
+     * was completely drawn
+     * 
+     * @param type
+     *            The type of this message
+     * @param rawUsername
+     *            The username of whomever posted this message
+     * @param timestamp
+     *            When the message was posted (local time)
+     * @param content
+     *            The text of the message
+     * @param privmsg
+     *            The Twitch Privmsg object, will not be null
+     * @param clock
+     *            The clock of the chat the message is posted to
+     */
+    public Message(MessageType type, String rawUsername, Date timestamp, String content, TwitchPrivmsg privmsg, ChatClock clock)
     {
         this.type = type;
         this.rawUsername = rawUsername;
         this.timestamp = timestamp;
         this.content = content;
         this.drawCursor = 0.0f;
-        this.lastMessageConfig = new ConfigMessage();
-        this.lastEmojiConfig = new ConfigEmoji();
         this.privmsg = privmsg;
         this.completedTime = UNCOMPLETED_TIME;
+        this.clock = clock;
     }
 
     /**
@@ -217,6 +301,19 @@ public class Message
      * @param emojiConfig
      */
     public void incrementDrawCursor(EmojiManager emojiManager, ConfigMessage messageConfig, ConfigEmoji emojiConfig)
+    {
+        incrementDrawCursor(emojiManager, messageConfig, emojiConfig, 1.0f);
+    }
+
+    /**
+     * Increment the draw cursor based on the message text as defined by the specified messageConfig and its message
+     * speed setting, but by no fewer than the specified number of characters, for when the rollout is catching up
+     * 
+     * @param messageConfig
+     * @param emojiConfig
+     * @param minimumCharacterCount
+     */
+    public void incrementDrawCursor(EmojiManager emojiManager, ConfigMessage messageConfig, ConfigEmoji emojiConfig, float minimumCharacterCount)
     {
         float characterCount = 1.0f;
 
@@ -231,7 +328,7 @@ public class Message
             characterCount = (float) messageConfig.getMessageSpeed() * (float) ConfigMessage.SHORTEST_DELAY / 1000.0f;
         }
 
-        drawCursor += characterCount;
+        drawCursor += Math.max(characterCount, minimumCharacterCount);
 
         // Whether the message is completely drawn yet needs to be calculated
         // and set as a member variable once true so that configuration changes
@@ -239,7 +336,7 @@ public class Message
         // of past messages
         if (drawCursor >= getMessageLength(emojiManager, messageConfig, emojiConfig))
         {
-            completedTime = System.currentTimeMillis();
+            completedTime = clock.currentTimeMillis();
         }
     }
 
@@ -253,7 +350,7 @@ public class Message
      */
     public int getMessageLength(EmojiManager emojiManager, ConfigMessage messageConfig, ConfigEmoji emojiConfig)
     {
-        return getText(emojiManager, messageConfig, emojiConfig).length;
+        return getText(emojiManager, messageConfig, emojiConfig).length();
     }
 
     /**
@@ -278,10 +375,27 @@ public class Message
         return completedTime != 0;
     }
 
+    /**
+     * Finish drawing the message all at once. If it was already completely drawn, it keeps the time it was completed, so
+     * it doesn't expire any later than it would have.
+     */
     public void setCompletelyDrawn()
     {
         drawCursor = Integer.MAX_VALUE;
-        completedTime = System.currentTimeMillis();
+        if (!isCompletelyDrawn())
+        {
+            completedTime = clock.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Get the moment in time the message was completely drawn
+     * 
+     * @return completed time, or zero if it isn't yet completed
+     */
+    public long getCompletedTime()
+    {
+        return completedTime;
     }
 
     /**
@@ -302,7 +416,12 @@ public class Message
      */
     public String getTimestampString(ConfigMessage messageConfig)
     {
-        return messageConfig.getTimerFormatter().format(timestamp);
+        if (timestampString == null || timestampVersion != messageConfig.getVersion())
+        {
+            timestampVersion = messageConfig.getVersion();
+            timestampString = messageConfig.getTimerFormatter().format(timestamp);
+        }
+        return timestampString;
     }
 
     /**
@@ -377,54 +496,122 @@ public class Message
      * @param emojiConfig
      * @return message text
      */
-    public SpriteCharacterKey[] getText(EmojiManager emojiManager, ConfigMessage messageConfig, ConfigEmoji emojiConfig)
+    public MessageText getText(EmojiManager emojiManager, ConfigMessage messageConfig, ConfigEmoji emojiConfig)
     {
-        if (text != null && !isConfigChanged(messageConfig, emojiConfig))
+        // Read the versions before parsing, so any change made during the parse will have it parsed again next time
+        final int messageVersion = messageConfig.getVersion();
+        final int emojiVersion = emojiConfig.getVersion();
+        if (text != null && !isConfigChanged(messageVersion, emojiVersion))
         {
             return text;
         }
         else
         {
             text = parseIntoText(emojiManager, messageConfig, emojiConfig);
-            this.lastMessageConfig.deepCopy(messageConfig);
-            this.lastEmojiConfig.deepCopy(emojiConfig);
+            this.textMessageVersion = messageVersion;
+            this.textEmojiVersion = emojiVersion;
             return text;
         }
     }
 
     /**
-     * Get whether the configuration has changed
+     * Get the cached layout of the text of this message, which may be null or out of date
      * 
-     * @param messageConfig
-     * @param emojiConfig
+     * @return layout
+     */
+    public MessageLayout getLayout()
+    {
+        return layout;
+    }
+
+    /**
+     * Cache the layout of the text of this message
+     * 
+     * @param layout
+     */
+    public void setLayout(MessageLayout layout)
+    {
+        this.layout = layout;
+    }
+
+    /**
+     * Get the cached colors of the text of this message, which may be null or out of date
+     * 
+     * @return color runs
+     */
+    public ColorRuns getColorRuns()
+    {
+        return colorRuns;
+    }
+
+    /**
+     * Cache the colors of the text of this message
+     * 
+     * @param colorRuns
+     */
+    public void setColorRuns(ColorRuns colorRuns)
+    {
+        this.colorRuns = colorRuns;
+    }
+
+    /**
+     * Get the cached color unique to the poster of this message
+     * 
+     * @param colorVersion
+     *            The version of the current color configuration
+     * @return username color, or null if it isn't cached or was picked with a different color configuration
+     */
+    public Color getUsernameColor(int colorVersion)
+    {
+        return usernameColorVersion == colorVersion ? usernameColor : null;
+    }
+
+    /**
+     * Cache the color unique to the poster of this message
+     * 
+     * @param usernameColor
+     * @param colorVersion
+     *            The version of the color configuration it was picked with
+     */
+    public void setUsernameColor(Color usernameColor, int colorVersion)
+    {
+        this.usernameColor = usernameColor;
+        this.usernameColorVersion = colorVersion;
+    }
+
+    /**
+     * Get whether the configuration has changed since the text was parsed
+     * 
+     * @param messageVersion
+     *            The version of the current message configuration
+     * @param emojiVersion
+     *            The version of the current emoji configuration
      * @return changed
      */
-    private boolean isConfigChanged(ConfigMessage messageConfig, ConfigEmoji emojiConfig)
+    private boolean isConfigChanged(int messageVersion, int emojiVersion)
     {
-        final boolean messageConfigChanged = !messageConfig.equals(lastMessageConfig);
-        final boolean emojiConfigChanged = !emojiConfig.equals(lastEmojiConfig);
-        return messageConfigChanged || emojiConfigChanged;
+        return messageVersion != textMessageVersion || emojiVersion != textEmojiVersion;
     }
 
     /**
-     * Compile the array of SpriteCharacterKeys using the specified configuration. This can be a bit memory intensive
-     * since each character is a new albeit small object, so this should not be done many times a second, rather only if
+     * Compile the packed text using the specified configuration. Characters are packed as codepoints, and only the emoji
+     * and badges are objects of their own, but this should still not be done many times a second, rather only if
      * something has changed in the configuration to warrant a re-translation.
      * 
      * @param emojiManager
      * @param messageConfig
      * @param emojiConfig
-     * @return spriteCharacterKeys
+     * @return text
      */
-    private SpriteCharacterKey[] parseIntoText(EmojiManager emojiManager, ConfigMessage messageConfig, ConfigEmoji emojiConfig)
+    private MessageText parseIntoText(EmojiManager emojiManager, ConfigMessage messageConfig, ConfigEmoji emojiConfig)
     {
-        List<SpriteCharacterKey> keyList = new ArrayList<SpriteCharacterKey>();
+        MessageText.Builder builder = new MessageText.Builder();
 
         if (messageConfig.showTimestamps())
         {
-            String timeStampStr = messageConfig.getTimerFormatter().format(timestamp);
+            String timeStampStr = getTimestampString(messageConfig);
             timeStampStr = applyCasing(timeStampStr, messageConfig.getMessageCasing());
-            keyList.addAll(toSpriteArray(timeStampStr));
+            builder.append(timeStampStr);
         }
 
         // Add badges to be placed right before the username
@@ -506,7 +693,7 @@ public class Message
                 badges.put(primeStr, twitchBadgeBank.getEmoji(primeStr));
             }
 
-            // Add each badges map item onto the sprite character key list
+            // Add each badges map item onto the text
             for (LazyLoadEmoji lle : badges.values())
             {
                 SpriteCharacterKey sck = new SpriteCharacterKey(lle, true);
@@ -514,7 +701,7 @@ public class Message
                 {
                     sck.setEmojiBgColorOverride(ConfigEmoji.MOD_BADGE_COLOR);
                 }
-                keyList.add(sck);
+                builder.append(sck);
             }
         }
 
@@ -522,36 +709,36 @@ public class Message
         {
             if (messageConfig.showTimestamps())
             {
-                keyList.addAll(toSpriteArray(TIMESTAMP_USERNAME_SPACER));
+                builder.append(TIMESTAMP_USERNAME_SPACER);
             }
             String casedUsername = getFormattedUsername(messageConfig);
-            keyList.addAll(toSpriteArray(casedUsername));
+            builder.append(casedUsername);
         }
         if (messageConfig.showUsernames() || messageConfig.showTimestamps() || (emojiConfig.isAnyBadgesEnabled() && badges != null && !badges.isEmpty()))
         {
             if (type == MessageType.NORMAL || type == MessageType.MANUAL)
             {
-                keyList.addAll(toSpriteArray(messageConfig.getContentBreaker()));
+                builder.append(messageConfig.getContentBreaker());
             }
             else
             {
-                keyList.addAll(toSpriteArray(type.getContentBreaker()));
+                builder.append(type.getContentBreaker());
             }
         }
 
         // Parse out the emoji, if enabled
         if (emojiConfig.isEmojiEnabled())
         {
-            processEmoji(content, privmsg, keyList, emojiManager, emojiConfig, MessageType.MANUAL.equals(type), messageConfig.getMessageCasing());
+            processEmoji(content, privmsg, builder, emojiManager, emojiConfig, MessageType.MANUAL.equals(type), messageConfig.getMessageCasing());
         }
         // Configured for no emoji, so just chars
         else
         {
-            keyList.addAll(toSpriteArray(applyCasing(content, messageConfig.getMessageCasing())));
+            builder.append(applyCasing(content, messageConfig.getMessageCasing()));
         }
 
-        // Return the list as an array, to be kept until configuration is modified requiring a reprocessing
-        return keyList.toArray(new SpriteCharacterKey[keyList.size()]);
+        // Return the packed text, to be kept until configuration is modified requiring a reprocessing
+        return builder.build();
     }
 
     private static String[] codePointSpaceSplit(String content)
@@ -584,17 +771,17 @@ public class Message
 
     /**
      * Convert the content of the message into the appropriate emoji. Add those emoji and the remaining characters
-     * between them to the specified keyList array.
+     * between them to the specified text builder.
      * 
      * @param content
      * @param privmsg
-     * @param keyList
-     *            The array to add the emoji and remaining characters to
+     * @param builder
+     *            The text to add the emoji and remaining characters to
      * @param emojiManager
      * @param emojiConfig
      * @param isManualMessage
      */
-    private static void processEmoji(String content, TwitchPrivmsg privmsg, List<SpriteCharacterKey> keyList, EmojiManager emojiManager, ConfigEmoji emojiConfig, boolean isManualMessage, MessageCasing casing)
+    private static void processEmoji(String content, TwitchPrivmsg privmsg, MessageText.Builder builder, EmojiManager emojiManager, ConfigEmoji emojiConfig, boolean isManualMessage, MessageCasing casing)
     {
         Map<Integer, EmoteAndIndices> emotes = privmsg.getEmotes();
 
@@ -672,25 +859,25 @@ public class Message
                         }
                         final String wordBit = words[w].substring(i, matcher.start());
 
-                        keyList.addAll(toSpriteArray(applyCasing(wordBit, casing)));
+                        builder.append(applyCasing(wordBit, casing));
                         if (lle != null)
                         {
-                            keyList.add(new SpriteCharacterKey(lle, false));
+                            builder.append(new SpriteCharacterKey(lle, false));
                         }
                         i = matcher.end();
                     }
                     final String wordBit = words[w].substring(i, words[w].length());
-                    keyList.addAll(toSpriteArray(applyCasing(wordBit, casing)));
+                    builder.append(applyCasing(wordBit, casing));
                 }
                 else
                 {
-                    keyList.addAll(toSpriteArray(applyCasing(words[w], casing)));
+                    builder.append(applyCasing(words[w], casing));
                 }
             }
 
             if (emoji != null)
             {
-                keyList.add(new SpriteCharacterKey(emoji, false));
+                builder.append(new SpriteCharacterKey(emoji, false));
             }
 
             // Increment the codeIndex by the current word's code point count
@@ -807,6 +994,18 @@ public class Message
         return completedTime == UNCOMPLETED_TIME ? 0L : (currentTime - completedTime) / 1000L;
     }
 
+    /**
+     * Get the moment in time the message expires
+     * 
+     * @param expirationTime
+     *            How many seconds a message is displayed once it is completely drawn
+     * @return expiration deadline, or Long.MAX_VALUE if it isn't yet completed
+     */
+    public long getExpirationDeadline(int expirationTime)
+    {
+        return completedTime == UNCOMPLETED_TIME ? Long.MAX_VALUE : completedTime + expirationTime * 1000L;
+    }
+
     private static String applyCasing(String str, MessageCasing casing)
     {
         if (casing == null)
@@ -826,28 +1025,6 @@ public class Message
         }
     }
 
-    /**
-     * Convert the string to a list of SpriteCharacterKeys by codepoint.
-     *
-     * @param str
-     * @returns A List of SpriteCharacterKeys
-     */
-    private static List<SpriteCharacterKey> toSpriteArray(String str)
-    {
-        // TODO java 1.8: We could use CharSequence and call codePoints method
-        List<SpriteCharacterKey> keyList = new ArrayList<SpriteCharacterKey>();
-
-        int i = 0;
-        while (i < str.length())
-        {
-            final int codepoint = str.codePointAt(i);
-            keyList.add(new SpriteCharacterKey(codepoint));
-            i += Character.charCount(codepoint);
-        }
-
-        return keyList;
-    }
-
     private String getFormattedUsername(ConfigMessage messageConfig)
     {
         final String usernameFormat = messageConfig.getUsernameFormat();
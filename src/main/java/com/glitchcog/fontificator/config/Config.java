@@ -2,6 +2,7 @@ package com.glitchcog.fontificator.config;
 
 import java.awt.Color;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.glitchcog.fontificator.config.loadreport.LoadConfigErrorType;
 import com.glitchcog.fontificator.config.loadreport.LoadConfigReport;
@@ -19,6 +20,36 @@ public abstract class Config
      */
     protected Properties props;
 
+    /**
+     * Source of version numbers shared by all configuration objects, so that no two configurations, nor two states of
+     * the same configuration, are ever given the same version
+     */
+    private static final AtomicInteger VERSION_SOURCE = new AtomicInteger();
+
+    /**
+     * Changes every time a value in this configuration is modified, so anything cached based on this configuration can
+     * tell whether it is stale with a simple comparison
+     */
+    private volatile int version = VERSION_SOURCE.incrementAndGet();
+
+    /**
+     * Get the version of this configuration, which changes every time a value is modified
+     * 
+     * @return version
+     */
+    public int getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * Should be called by anything that modifies a value in this configuration
+     */
+    protected void markChanged()
+    {
+        version = VERSION_SOURCE.incrementAndGet();
+    }
+
     /**
      * Loads all fields from a Properties object
      * 
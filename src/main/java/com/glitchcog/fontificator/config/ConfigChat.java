@@ -15,6 +15,10 @@ public class ConfigChat extends Config
     public static final int MIN_CHROMA_CORNER_RADIUS = 0;
     public static final int MAX_CHROMA_CORNER_RADIUS = 128;
 
+    public static final int MIN_FRAME_RATE = 1;
+    public static final int MAX_FRAME_RATE = 120;
+    public static final int DEFAULT_FRAME_RATE = 60;
+
     /**
      * Whether the chat is scrollable by rolling the mouse wheel
      */
@@ -102,6 +106,11 @@ public class ConfigChat extends Config
      */
     private Boolean antiAlias;
 
+    /**
+     * The most times per second the chat is redrawn, however many messages are rolling out or emoji are animating
+     */
+    private Integer frameRate;
+
     @Override
     public void reset()
     {
@@ -122,6 +131,8 @@ public class ConfigChat extends Config
         this.reverseScrolling = null;
         this.alwaysOnTop = null;
         this.antiAlias = null;
+        this.frameRate = null;
+        markChanged();
     }
 
     public LoadConfigReport validateDimStrings(LoadConfigReport report, String widthStr, String heightStr)
@@ -140,7 +151,7 @@ public class ConfigChat extends Config
         return report;
     }
 
-    public LoadConfigReport validateStrings(LoadConfigReport report, String widthStr, String heightStr, String windowWidthStr, String windowHeightStr, String chromaLeftStr, String chromaTopStr, String chromaRightStr, String chromaBottomStr, String chromaCornerStr, String scrollBool, String reverseScrollBool, String resizeBool, String remPosBool, String fromBottomBool, String chromaBool, String invertBool, String topBool)
+    public LoadConfigReport validateStrings(LoadConfigReport report, String widthStr, String heightStr, String windowWidthStr, String windowHeightStr, String chromaLeftStr, String chromaTopStr, String chromaRightStr, String chromaBottomStr, String chromaCornerStr, String frameRateStr, String scrollBool, String reverseScrollBool, String resizeBool, String remPosBool, String fromBottomBool, String chromaBool, String invertBool, String topBool)
     {
         validateBooleanStrings(report, scrollBool, reverseScrollBool, resizeBool, remPosBool, fromBottomBool, chromaBool, invertBool, topBool);
 
@@ -154,6 +165,7 @@ public class ConfigChat extends Config
         }
         validateChromaDimStrings(report, chromaLeftStr, chromaTopStr, chromaRightStr, chromaBottomStr);
         validateIntegerWithLimitString(FontificatorProperties.KEY_CHAT_CHROMA_CORNER, chromaCornerStr, 0, report);
+        validateIntegerWithLimitString(FontificatorProperties.KEY_CHAT_FRAME_RATE, frameRateStr, MIN_FRAME_RATE, MAX_FRAME_RATE, report);
 
         return report;
     }
@@ -180,6 +192,7 @@ public class ConfigChat extends Config
             final String chromaBottomStr = props.getProperty(FontificatorProperties.KEY_CHAT_CHROMA_BOTTOM);
 
             final String chromaCornerStr = props.getProperty(FontificatorProperties.KEY_CHAT_CHROMA_CORNER);
+            final String frameRateStr = props.getProperty(FontificatorProperties.KEY_CHAT_FRAME_RATE);
 
             final String scrollBool = props.getProperty(FontificatorProperties.KEY_CHAT_SCROLL);
             final String resizeBool = props.getProperty(FontificatorProperties.KEY_CHAT_RESIZABLE);
@@ -191,7 +204,7 @@ public class ConfigChat extends Config
             final String topBool = props.getProperty(FontificatorProperties.KEY_CHAT_ALWAYS_ON_TOP);
 
             // Check that the values are valid
-            validateStrings(report, widthStr, heightStr, windowWidthStr, windowHeightStr, chromaLeftStr, chromaTopStr, chromaRightStr, chromaBottomStr, chromaCornerStr, scrollBool, reverseScrollBool, resizeBool, remPosBool, fromBottomBool, chromaBool, invertBool, topBool);
+            validateStrings(report, widthStr, heightStr, windowWidthStr, windowHeightStr, chromaLeftStr, chromaTopStr, chromaRightStr, chromaBottomStr, chromaCornerStr, frameRateStr, scrollBool, reverseScrollBool, resizeBool, remPosBool, fromBottomBool, chromaBool, invertBool, topBool);
 
             // Fill the values
             if (report.isErrorFree())
@@ -208,6 +221,7 @@ public class ConfigChat extends Config
                 }
 
                 chromaCornerRadius = Integer.parseInt(chromaCornerStr);
+                frameRate = Integer.parseInt(frameRateStr);
 
                 int left = Integer.parseInt(chromaLeftStr);
                 int top = Integer.parseInt(chromaTopStr);
@@ -241,6 +255,7 @@ public class ConfigChat extends Config
     {
         this.scrollable = scrollable;
         props.setProperty(FontificatorProperties.KEY_CHAT_SCROLL, Boolean.toString(scrollable));
+        markChanged();
     }
 
     public boolean isResizable()
@@ -252,6 +267,7 @@ public class ConfigChat extends Config
     {
         this.resizable = resizable;
         props.setProperty(FontificatorProperties.KEY_CHAT_RESIZABLE, Boolean.toString(resizable));
+        markChanged();
     }
 
     public boolean isRememberPosition()
@@ -263,6 +279,7 @@ public class ConfigChat extends Config
     {
         this.rememberPosition = rememberPosition;
         props.setProperty(FontificatorProperties.KEY_CHAT_POSITION, Boolean.toString(rememberPosition));
+        markChanged();
     }
 
     public int getChatWindowPositionX()
@@ -274,6 +291,7 @@ public class ConfigChat extends Config
     {
         this.chatWindowPositionX = chatWindowPositionX;
         props.setProperty(FontificatorProperties.KEY_CHAT_POSITION_X, Integer.toString(chatWindowPositionX));
+        markChanged();
     }
 
     public int getChatWindowPositionY()
@@ -285,6 +303,7 @@ public class ConfigChat extends Config
     {
         this.chatWindowPositionY = chatWindowPositionY;
         props.setProperty(FontificatorProperties.KEY_CHAT_POSITION_Y, Integer.toString(chatWindowPositionY));
+        markChanged();
     }
 
     public boolean isChatFromBottom()
@@ -296,6 +315,7 @@ public class ConfigChat extends Config
     {
         this.chatFromBottom = chatFromBottom;
         props.setProperty(FontificatorProperties.KEY_CHAT_FROM_BOTTOM, Boolean.toString(chatFromBottom));
+        markChanged();
     }
 
     public boolean isReverseScrolling()
@@ -307,6 +327,7 @@ public class ConfigChat extends Config
     {
         this.reverseScrolling = reverseScrolling;
         props.setProperty(FontificatorProperties.KEY_CHAT_REVERSE_SCROLLING, Boolean.toString(reverseScrolling));
+        markChanged();
     }
 
     public Integer getWidth()
@@ -318,6 +339,7 @@ public class ConfigChat extends Config
     {
         this.width = width;
         props.setProperty(FontificatorProperties.KEY_CHAT_WIDTH, Integer.toString(width));
+        markChanged();
     }
 
     public Integer getHeight()
@@ -329,6 +351,7 @@ public class ConfigChat extends Config
     {
         this.height = height;
         props.setProperty(FontificatorProperties.KEY_CHAT_HEIGHT, Integer.toString(height));
+        markChanged();
     }
 
     public Integer getWindowWidth()
@@ -339,6 +362,7 @@ public class ConfigChat extends Config
     public void setWindowWidth(Integer windowWidth)
     {
         this.windowWidth = windowWidth;
+        markChanged();
     }
 
     public Integer getWindowHeight()
@@ -349,6 +373,7 @@ public class ConfigChat extends Config
     public void setWindowHeight(Integer windowHeight)
     {
         this.windowHeight = windowHeight;
+        markChanged();
     }
 
     public boolean isAlwaysOnTop()
@@ -360,6 +385,7 @@ public class ConfigChat extends Config
     {
         this.alwaysOnTop = alwaysOnTop;
         props.setProperty(FontificatorProperties.KEY_CHAT_ALWAYS_ON_TOP, Boolean.toString(alwaysOnTop));
+        markChanged();
     }
 
     public boolean isAntiAlias()
@@ -371,6 +397,7 @@ public class ConfigChat extends Config
     {
         this.antiAlias = antiAlias;
         props.setProperty(FontificatorProperties.KEY_CHAT_ANTIALIAS, Boolean.toString(antiAlias));
+        markChanged();
     }
 
     public Boolean isChromaEnabled()
@@ -382,6 +409,7 @@ public class ConfigChat extends Config
     {
         this.chromaEnabled = chromaEnabled;
         props.setProperty(FontificatorProperties.KEY_CHAT_CHROMA_ENABLED, Boolean.toString(chromaEnabled));
+        markChanged();
     }
 
     public boolean isChromaInvert()
@@ -393,6 +421,7 @@ public class ConfigChat extends Config
     {
         this.chromaInvert = chromaInvert;
         props.setProperty(FontificatorProperties.KEY_CHAT_INVERT_CHROMA, Boolean.toString(chromaInvert));
+        markChanged();
     }
 
     public Rectangle getChromaBorder()
@@ -412,6 +441,7 @@ public class ConfigChat extends Config
         props.setProperty(FontificatorProperties.KEY_CHAT_CHROMA_TOP, Integer.toString(chromaBorder.y));
         props.setProperty(FontificatorProperties.KEY_CHAT_CHROMA_RIGHT, Integer.toString(chromaBorder.width));
         props.setProperty(FontificatorProperties.KEY_CHAT_CHROMA_BOTTOM, Integer.toString(chromaBorder.height));
+        markChanged();
     }
 
     public int getChromaCornerRadius()
@@ -423,6 +453,19 @@ public class ConfigChat extends Config
     {
         this.chromaCornerRadius = chromaCornerRadius;
         props.setProperty(FontificatorProperties.KEY_CHAT_CHROMA_CORNER, Integer.toString(chromaCornerRadius));
+        markChanged();
+    }
+
+    public int getFrameRate()
+    {
+        return frameRate;
+    }
+
+    public void setFrameRate(int frameRate)
+    {
+        this.frameRate = frameRate;
+        props.setProperty(FontificatorProperties.KEY_CHAT_FRAME_RATE, Integer.toString(frameRate));
+        markChanged();
     }
 
     /**
@@ -40,6 +40,17 @@ public class ConfigColor extends Config
 
     private Boolean useTwitchColors;
 
+    /**
+     * Whether to round Twitch username colors to a limited set of colors, so fewer distinct tints of the font need to be
+     * made and cached
+     */
+    private Boolean quantizeTwitchColors;
+
+    /**
+     * The number of bits of each color channel kept when Twitch username colors are quantized
+     */
+    private static final int QUANTIZED_CHANNEL_BITS = 3;
+
     @Override
     public void reset()
     {
@@ -54,9 +65,11 @@ public class ConfigColor extends Config
         this.colorMessage = null;
         this.colorJoin = null;
         this.useTwitchColors = null;
+        this.quantizeTwitchColors = null;
+        markChanged();
     }
 
-    private void validateStrings(LoadConfigReport report, String palStr, String userBool, String timeBool, String msgBool, String joinBool, String twitchBool)
+    private void validateStrings(LoadConfigReport report, String palStr, String userBool, String timeBool, String msgBool, String joinBool, String twitchBool, String quantizeBool)
     {
         evaluateColorString(props, FontificatorProperties.KEY_COLOR_BG, report);
         evaluateColorString(props, FontificatorProperties.KEY_COLOR_FG, report);
@@ -64,7 +77,7 @@ public class ConfigColor extends Config
         evaluateColorString(props, FontificatorProperties.KEY_COLOR_HIGHLIGHT, report);
         evaluateColorString(props, FontificatorProperties.KEY_COLOR_CHROMA_KEY, report);
 
-        validateBooleanStrings(report, userBool, timeBool, msgBool, joinBool, twitchBool);
+        validateBooleanStrings(report, userBool, timeBool, msgBool, joinBool, twitchBool, quantizeBool);
 
         // An empty palette is allowed
         if (!palStr.trim().isEmpty())
@@ -98,9 +111,10 @@ public class ConfigColor extends Config
             final String msgBool = props.getProperty(FontificatorProperties.KEY_COLOR_MESSAGE);
             final String joinBool = props.getProperty(FontificatorProperties.KEY_COLOR_JOIN);
             final String twitchBool = props.getProperty(FontificatorProperties.KEY_COLOR_TWITCH);
+            final String quantizeBool = props.getProperty(FontificatorProperties.KEY_COLOR_TWITCH_QUANTIZE);
 
             // Check that the values are valid
-            validateStrings(report, paletteStr, userBool, timeBool, msgBool, joinBool, twitchBool);
+            validateStrings(report, paletteStr, userBool, timeBool, msgBool, joinBool, twitchBool, quantizeBool);
 
             // Fill the values
             if (report.isErrorFree())
@@ -127,6 +141,7 @@ public class ConfigColor extends Config
                 colorMessage = evaluateBooleanString(props, FontificatorProperties.KEY_COLOR_MESSAGE, report);
                 colorJoin = evaluateBooleanString(props, FontificatorProperties.KEY_COLOR_JOIN, report);
                 useTwitchColors = evaluateBooleanString(props, FontificatorProperties.KEY_COLOR_TWITCH, report);
+                quantizeTwitchColors = evaluateBooleanString(props, FontificatorProperties.KEY_COLOR_TWITCH_QUANTIZE, report);
             }
         }
 
@@ -142,6 +157,7 @@ public class ConfigColor extends Config
     {
         this.bgColor = bgColor;
         props.setProperty(FontificatorProperties.KEY_COLOR_BG, getColorHex(bgColor));
+        markChanged();
     }
 
     public Color getFgColor()
@@ -153,6 +169,7 @@ public class ConfigColor extends Config
     {
         this.fgColor = fgColor;
         props.setProperty(FontificatorProperties.KEY_COLOR_FG, getColorHex(fgColor));
+        markChanged();
     }
 
     public Color getBorderColor()
@@ -164,6 +181,7 @@ public class ConfigColor extends Config
     {
         this.borderColor = borderColor;
         props.setProperty(FontificatorProperties.KEY_COLOR_BORDER, getColorHex(borderColor));
+        markChanged();
     }
 
     public Color getHighlight()
@@ -175,6 +193,7 @@ public class ConfigColor extends Config
     {
         this.highlight = highlight;
         props.setProperty(FontificatorProperties.KEY_COLOR_HIGHLIGHT, getColorHex(highlight));
+        markChanged();
     }
 
     public Color getChromaColor()
@@ -186,6 +205,7 @@ public class ConfigColor extends Config
     {
         this.chromaColor = chromaColor;
         props.setProperty(FontificatorProperties.KEY_COLOR_CHROMA_KEY, getColorHex(chromaColor));
+        markChanged();
     }
 
     public List<Color> getPalette()
@@ -202,6 +222,7 @@ public class ConfigColor extends Config
             paletteString += (i == 0 ? "" : ",") + getColorHex(palette.get(i));
         }
         props.setProperty(FontificatorProperties.KEY_COLOR_PALETTE, paletteString);
+        markChanged();
     }
 
     public boolean isColorUsername()
@@ -213,6 +234,7 @@ public class ConfigColor extends Config
     {
         this.colorUsername = colorUsername;
         props.setProperty(FontificatorProperties.KEY_COLOR_USERNAME, Boolean.toString(colorUsername));
+        markChanged();
     }
 
     public boolean isColorTimestamp()
@@ -224,6 +246,7 @@ public class ConfigColor extends Config
     {
         this.colorTimestamp = colorTimestamp;
         props.setProperty(FontificatorProperties.KEY_COLOR_TIMESTAMP, Boolean.toString(colorTimestamp));
+        markChanged();
     }
 
     public boolean isColorMessage()
@@ -235,6 +258,7 @@ public class ConfigColor extends Config
     {
         this.colorMessage = colorMessage;
         props.setProperty(FontificatorProperties.KEY_COLOR_MESSAGE, Boolean.toString(colorMessage));
+        markChanged();
     }
 
     public boolean isColorJoin()
@@ -246,6 +270,7 @@ public class ConfigColor extends Config
     {
         this.colorJoin = colorJoin;
         props.setProperty(FontificatorProperties.KEY_COLOR_JOIN, Boolean.toString(colorJoin));
+        markChanged();
     }
 
     public boolean isUseTwitchColors()
@@ -257,6 +282,35 @@ public class ConfigColor extends Config
     {
         this.useTwitchColors = useTwitchColors;
         props.setProperty(FontificatorProperties.KEY_COLOR_TWITCH, Boolean.toString(useTwitchColors));
+        markChanged();
+    }
+
+    public boolean isQuantizeTwitchColors()
+    {
+        return quantizeTwitchColors;
+    }
+
+    public void setQuantizeTwitchColors(Boolean quantizeTwitchColors)
+    {
+        this.quantizeTwitchColors = quantizeTwitchColors;
+        props.setProperty(FontificatorProperties.KEY_COLOR_TWITCH_QUANTIZE, Boolean.toString(quantizeTwitchColors));
+        markChanged();
+    }
+
+    /**
+     * Round each channel of the specified color to the middle of one of a handful of evenly spaced levels. Twitch users
+     * can pick any color at all, and every distinct color needs its own tinted copy of the font characters, so this caps
+     * the number of tints a busy chat can call for.
+     * 
+     * @param c
+     * @return quantized color
+     */
+    public static Color quantize(Color c)
+    {
+        final int shift = 8 - QUANTIZED_CHANNEL_BITS;
+        final int mask = 0xFF << shift & 0xFF;
+        final int half = 1 << (shift - 1);
+        return new Color((c.getRed() & mask) | half, (c.getGreen() & mask) | half, (c.getBlue() & mask) | half);
     }
 
     public static String getColorHex(Color c)
@@ -196,6 +196,7 @@ public class ConfigEmoji extends Config
         bttvGlobalLoaded = null;
         bttvCached = null;
         twitterEnabled = null;
+        markChanged();
     }
 
     public boolean isEmojiEnabled()
@@ -207,6 +208,7 @@ public class ConfigEmoji extends Config
     {
         this.emojiEnabled = emojiEnabled;
         props.setProperty(FontificatorProperties.KEY_EMOJI_ENABLED, Boolean.toString(emojiEnabled));
+        markChanged();
     }
 
     public boolean isAnimationEnabled()
@@ -218,6 +220,7 @@ public class ConfigEmoji extends Config
     {
         this.animationEnabled = animationEnabled;
         props.setProperty(FontificatorProperties.KEY_EMOJI_ANIMATION, Boolean.toString(animationEnabled));
+        markChanged();
     }
 
     public boolean isTwitchBadgesEnabled()
@@ -229,6 +232,7 @@ public class ConfigEmoji extends Config
     {
         this.twitchBadgesEnabled = twitchBadgesEnabled;
         props.setProperty(FontificatorProperties.KEY_EMOJI_TWITCH_BADGES, Boolean.toString(twitchBadgesEnabled));
+        markChanged();
     }
 
     public boolean isFfzBadgesEnabled()
@@ -240,6 +244,7 @@ public class ConfigEmoji extends Config
     {
         this.ffzBadgesEnabled = ffzBadgesEnabled;
         props.setProperty(FontificatorProperties.KEY_EMOJI_FFZ_BADGES, Boolean.toString(ffzBadgesEnabled));
+        markChanged();
     }
 
     /**
@@ -261,6 +266,7 @@ public class ConfigEmoji extends Config
     {
         this.emojiScaleToLine = emojiScaleToLine;
         props.setProperty(FontificatorProperties.KEY_EMOJI_SCALE_TO_LINE, Boolean.toString(emojiScaleToLine));
+        markChanged();
     }
 
     public boolean isBadgeScaleToLine()
@@ -272,6 +278,7 @@ public class ConfigEmoji extends Config
     {
         this.badgeScaleToLine = badgeScaleToLine;
         props.setProperty(FontificatorProperties.KEY_EMOJI_BADGE_SCALE_TO_LINE, Boolean.toString(badgeScaleToLine));
+        markChanged();
     }
 
     public int getBadgeHeightOffset()
@@ -283,6 +290,7 @@ public class ConfigEmoji extends Config
     {
         this.badgeHeightOffset = badgeHeightOffset;
         props.setProperty(FontificatorProperties.KEY_EMOJI_BADGE_HEIGHT_OFFSET, Integer.toString(badgeHeightOffset));
+        markChanged();
     }
 
     public Integer getEmojiScale()
@@ -294,6 +302,7 @@ public class ConfigEmoji extends Config
     {
         this.emojiScale = emojiScale;
         props.setProperty(FontificatorProperties.KEY_EMOJI_SCALE, Integer.toString(emojiScale));
+        markChanged();
     }
 
     public Integer getBadgeScale()
@@ -305,6 +314,7 @@ public class ConfigEmoji extends Config
     {
         this.badgeScale = badgeScale;
         props.setProperty(FontificatorProperties.KEY_EMOJI_BADGE_SCALE, Integer.toString(badgeScale));
+        markChanged();
     }
 
     public EmojiLoadingDisplayStragegy getDisplayStrategy()
@@ -316,6 +326,7 @@ public class ConfigEmoji extends Config
     {
         this.displayStrategy = displayStrategy;
         props.setProperty(FontificatorProperties.KEY_EMOJI_DISPLAY_STRAT, displayStrategy.name());
+        markChanged();
     }
 
     public boolean isTwitchEnabled()
@@ -327,6 +338,7 @@ public class ConfigEmoji extends Config
     {
         this.twitchEnabled = twitchEnabled;
         props.setProperty(FontificatorProperties.KEY_EMOJI_TWITCH_ENABLE, Boolean.toString(twitchEnabled));
+        markChanged();
     }
 
     public boolean isTwitchCacheEnabled()
@@ -338,6 +350,7 @@ public class ConfigEmoji extends Config
     {
         this.twitchCacheEnabled = twitchCacheEnabled;
         props.setProperty(FontificatorProperties.KEY_EMOJI_TWITCH_CACHE, Boolean.toString(twitchCacheEnabled));
+        markChanged();
     }
 
     public boolean isFfzEnabled()
@@ -349,6 +362,7 @@ public class ConfigEmoji extends Config
     {
         this.ffzEnabled = ffzEnabled;
         props.setProperty(FontificatorProperties.KEY_EMOJI_FFZ_ENABLE, Boolean.toString(ffzEnabled));
+        markChanged();
     }
 
     public boolean isFfzCacheEnabled()
@@ -360,6 +374,7 @@ public class ConfigEmoji extends Config
     {
         this.ffzCacheEnabled = ffzCacheEnabled;
         props.setProperty(FontificatorProperties.KEY_EMOJI_FFZ_CACHE, Boolean.toString(ffzCacheEnabled));
+        markChanged();
     }
 
     public Boolean isBttvEnabled()
@@ -376,6 +391,7 @@ public class ConfigEmoji extends Config
     {
         this.bttvCacheEnabled = bttvCacheEnabled;
         props.setProperty(FontificatorProperties.KEY_EMOJI_BTTV_CACHE, Boolean.toString(bttvCacheEnabled));
+        markChanged();
     }
 
     /**
@@ -741,37 +757,6 @@ public class ConfigEmoji extends Config
         return true;
     }
 
-    /**
-     * Perform a deep copy of the emoji config, used to compare against the previous one used to generated the string of
-     * characters and emojis that are stored in a Message object
-     * 
-     * @param copy
-     */
-    public void deepCopy(ConfigEmoji copy)
-    {
-        this.emojiEnabled = copy.emojiEnabled;
-        this.twitchBadgesEnabled = copy.twitchBadgesEnabled;
-        this.ffzBadgesEnabled = copy.ffzBadgesEnabled;
-        this.emojiScaleToLine = copy.emojiScaleToLine;
-        this.emojiScale = copy.emojiScale;
-        this.badgeScaleToLine = copy.badgeScaleToLine;
-        this.badgeHeightOffset = copy.badgeHeightOffset;
-        this.badgeScale = copy.badgeScale;
-        this.displayStrategy = copy.displayStrategy;
-        this.twitchEnabled = copy.twitchEnabled;
-        this.ffzEnabled = copy.ffzEnabled;
-        this.twitchLoaded = copy.twitchLoaded;
-        this.twitchBadgesLoadedChannel = copy.twitchBadgesLoadedChannel;
-        this.ffzLoadedChannel = copy.ffzLoadedChannel;
-        this.ffzGlobalLoaded = copy.ffzGlobalLoaded;
-        this.bttvEnabled = copy.bttvEnabled;
-        this.bttvCacheEnabled = copy.bttvCacheEnabled;
-        this.bttvLoadedChannel = copy.bttvLoadedChannel;
-        this.bttvGlobalLoaded = copy.bttvGlobalLoaded;
-        this.bttvCached = copy.bttvCached;
-        this.twitterEnabled = copy.twitterEnabled;
-    }
-
     /**
      * Get whether the Twitch emotes have been loaded
      * 
@@ -790,6 +775,7 @@ public class ConfigEmoji extends Config
     public void setTwitchLoaded(Boolean twitchLoaded)
     {
         this.twitchLoaded = twitchLoaded;
+        markChanged();
     }
 
     /**
@@ -810,6 +796,7 @@ public class ConfigEmoji extends Config
     public void setTwitchCached(Boolean twitchCached)
     {
         this.twitchCached = twitchCached;
+        markChanged();
     }
 
     /**
@@ -841,6 +828,7 @@ public class ConfigEmoji extends Config
     public void setTwitchBadgesLoaded(String twitchBadgesLoadedChannel)
     {
         this.twitchBadgesLoadedChannel = twitchBadgesLoadedChannel;
+        markChanged();
     }
 
     /**
@@ -852,6 +840,7 @@ public class ConfigEmoji extends Config
     public void setFfzBadgesLoaded(String ffzBadgesLoadedChannel)
     {
         this.ffzBadgesLoadedChannel = ffzBadgesLoadedChannel;
+        markChanged();
     }
 
     /**
@@ -873,6 +862,7 @@ public class ConfigEmoji extends Config
     public void setFfzLoaded(String ffzLoadedChannel)
     {
         this.ffzLoadedChannel = ffzLoadedChannel;
+        markChanged();
     }
 
     /**
@@ -893,6 +883,7 @@ public class ConfigEmoji extends Config
     public void setFfzGlobalLoaded(Boolean ffzGlobalLoaded)
     {
         this.ffzGlobalLoaded = ffzGlobalLoaded;
+        markChanged();
     }
 
     /**
@@ -913,12 +904,14 @@ public class ConfigEmoji extends Config
     public void setFfzCached(Boolean ffzCached)
     {
         this.ffzCached = ffzCached;
+        markChanged();
     }
 
     public void setBttvEnabled(Boolean bttvEnabled)
     {
         this.bttvEnabled = bttvEnabled;
         props.setProperty(FontificatorProperties.KEY_EMOJI_BTTV_ENABLE, Boolean.toString(bttvEnabled));
+        markChanged();
     }
 
     public String getBttvLoadedChannel()
@@ -929,11 +922,13 @@ public class ConfigEmoji extends Config
     public void setBttvLoadedChannel(String bttvLoadedChannel)
     {
         this.bttvLoadedChannel = bttvLoadedChannel;
+        markChanged();
     }
 
     public void setBttvGlobalLoaded(Boolean bttvGlobalLoaded)
     {
         this.bttvGlobalLoaded = bttvGlobalLoaded;
+        markChanged();
     }
 
     public boolean isBttvLoaded(String testChannel)
@@ -944,6 +939,7 @@ public class ConfigEmoji extends Config
     public void setBttfLoaded(String bttvLoadedChannel)
     {
         this.bttvLoadedChannel = bttvLoadedChannel;
+        markChanged();
     }
 
     public Boolean isBttvGlobalLoaded()
@@ -954,6 +950,7 @@ public class ConfigEmoji extends Config
     public void setBttfGlobalLoaded(Boolean bttvGlobalLoaded)
     {
         this.bttvGlobalLoaded = bttvGlobalLoaded;
+        markChanged();
     }
 
     public boolean isBttvCached()
@@ -964,6 +961,7 @@ public class ConfigEmoji extends Config
     public void setBttvCached(Boolean bttvCached)
     {
         this.bttvCached = bttvCached;
+        markChanged();
     }
 
     public boolean isTwitterEnabled()
@@ -975,6 +973,7 @@ public class ConfigEmoji extends Config
     {
         this.twitterEnabled = twitterEnabled;
         props.setProperty(FontificatorProperties.KEY_EMOJI_TWITTER_ENABLE, Boolean.toString(twitterEnabled));
+        markChanged();
     }
 
     /**
@@ -1045,6 +1044,7 @@ public class ConfigEmoji extends Config
                 this.bttvCached = true;
             }
         }
+        markChanged();
     }
 
     /**
@@ -1063,6 +1063,7 @@ public class ConfigEmoji extends Config
         this.bttvLoadedChannel = null;
         this.bttvGlobalLoaded = false;
         this.bttvCached = null;
+        markChanged();
     }
 
     /**
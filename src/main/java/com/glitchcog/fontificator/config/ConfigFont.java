@@ -107,6 +107,7 @@ public class ConfigFont extends Config
         lineSpacing = 0;
         charSpacing = 0;
         messageSpacing = 0;
+        markChanged();
     }
 
     public void validateFontFile(LoadConfigReport report, String fontFilename)
@@ -271,6 +272,7 @@ public class ConfigFont extends Config
     {
         this.fontFilename = fontFilename;
         props.setProperty(FontificatorProperties.KEY_FONT_FILE_FONT, fontFilename);
+        markChanged();
     }
 
     public String getBorderFilename()
@@ -282,6 +284,7 @@ public class ConfigFont extends Config
     {
         this.borderFilename = borderFilename;
         props.setProperty(FontificatorProperties.KEY_FONT_FILE_BORDER, borderFilename);
+        markChanged();
     }
 
     public int getGridWidth()
@@ -293,6 +296,7 @@ public class ConfigFont extends Config
     {
         this.gridWidth = gridWidth;
         props.setProperty(FontificatorProperties.KEY_FONT_GRID_WIDTH, Integer.toString(gridWidth));
+        markChanged();
     }
 
     public int getGridHeight()
@@ -304,6 +308,7 @@ public class ConfigFont extends Config
     {
         this.gridHeight = gridHeight;
         props.setProperty(FontificatorProperties.KEY_FONT_GRID_HEIGHT, Integer.toString(gridHeight));
+        markChanged();
     }
 
     public float getFontScale()
@@ -315,6 +320,7 @@ public class ConfigFont extends Config
     {
         this.fontScale = fontScale;
         props.setProperty(FontificatorProperties.KEY_FONT_SCALE, Float.toString(fontScale));
+        markChanged();
     }
 
     public float getBorderScale()
@@ -326,6 +332,7 @@ public class ConfigFont extends Config
     {
         this.borderScale = borderScale;
         props.setProperty(FontificatorProperties.KEY_FONT_BORDER_SCALE, Float.toString(borderScale));
+        markChanged();
     }
 
     public int getBorderInsetX()
@@ -337,6 +344,7 @@ public class ConfigFont extends Config
     {
         this.borderInsetX = borderInsetX;
         props.setProperty(FontificatorProperties.KEY_FONT_BORDER_INSET_X, Integer.toString(borderInsetX));
+        markChanged();
     }
 
     public int getBorderInsetY()
@@ -348,6 +356,7 @@ public class ConfigFont extends Config
     {
         this.borderInsetY = borderInsetY;
         props.setProperty(FontificatorProperties.KEY_FONT_BORDER_INSET_Y, Integer.toString(borderInsetY));
+        markChanged();
     }
 
     public int getSpaceWidth()
@@ -359,6 +368,7 @@ public class ConfigFont extends Config
     {
         this.spaceWidth = spaceWidth;
         props.setProperty(FontificatorProperties.KEY_FONT_SPACE_WIDTH, Integer.toString(spaceWidth));
+        markChanged();
     }
 
     public int getBaselineOffset()
@@ -370,6 +380,7 @@ public class ConfigFont extends Config
     {
         this.baselineOffset = baselineOffset;
         props.getProperty(FontificatorProperties.KEY_FONT_BASELINE_OFFSET, Integer.toString(baselineOffset));
+        markChanged();
     }
 
     public String getCharacterKey()
@@ -381,6 +392,7 @@ public class ConfigFont extends Config
     {
         this.characterKey = characterKey;
         props.setProperty(FontificatorProperties.KEY_FONT_CHARACTERS, characterKey);
+        markChanged();
     }
 
     public char getUnknownChar()
@@ -392,6 +404,7 @@ public class ConfigFont extends Config
     {
         this.unknownChar = unknownChar;
         props.setProperty(FontificatorProperties.KEY_FONT_UNKNOWN_CHAR, Character.toString(unknownChar));
+        markChanged();
     }
 
     public boolean isExtendedCharEnabled()
@@ -403,6 +416,7 @@ public class ConfigFont extends Config
     {
         this.extendedCharEnabled = extendedCharEnabled;
         props.setProperty(FontificatorProperties.KEY_FONT_EXTENDED_CHAR, Boolean.toString(extendedCharEnabled));
+        markChanged();
     }
 
     public int getLineSpacing()
@@ -414,6 +428,7 @@ public class ConfigFont extends Config
     {
         this.lineSpacing = lineSpacing;
         props.setProperty(FontificatorProperties.KEY_FONT_SPACING_LINE, Integer.toString(lineSpacing));
+        markChanged();
     }
 
     public int getCharSpacing()
@@ -425,6 +440,7 @@ public class ConfigFont extends Config
     {
         this.charSpacing = charSpacing;
         props.setProperty(FontificatorProperties.KEY_FONT_SPACING_CHAR, Integer.toString(charSpacing));
+        markChanged();
     }
 
     public int getMessageSpacing()
@@ -436,6 +452,7 @@ public class ConfigFont extends Config
     {
         this.messageSpacing = messageSpacing;
         props.setProperty(FontificatorProperties.KEY_FONT_SPACING_MESSAGE, Integer.toString(messageSpacing));
+        markChanged();
     }
 
     public FontType getFontType()
@@ -447,6 +464,7 @@ public class ConfigFont extends Config
     {
         this.fontType = fontType;
         props.setProperty(FontificatorProperties.KEY_FONT_TYPE, fontType.name());
+        markChanged();
     }
 
 }
@@ -32,6 +32,9 @@ public class ConfigMessage extends Config
     public static final int MIN_MESSAGE_EXPIRATION = 0;
     public static final int MAX_MESSAGE_EXPIRATION = 720;
 
+    public static final int MIN_CATCH_UP_TIME = 0;
+    public static final int MAX_CATCH_UP_TIME = 300;
+
     public static final String USERNAME_REPLACE = "%user%";
     public static final String DEFAULT_CONTENT_BREAKER = ": ";
 
@@ -87,6 +90,12 @@ public class ConfigMessage extends Config
      */
     private Integer expirationTime;
 
+    /**
+     * The longest a message can wait to be completely drawn, in seconds, before the rollout speeds up or finishes it
+     * all at once to catch up, or zero if the rollout never catches up
+     */
+    private Integer catchUpTime;
+
     /**
      * Whether the border should be hidden if there are no messages to display
      */
@@ -125,11 +134,13 @@ public class ConfigMessage extends Config
         this.queueSize = null;
         this.messageSpeed = null;
         this.expirationTime = null;
+        this.catchUpTime = null;
         this.hideEmptyBorder = null;
         this.hideEmptyBackground = null;
         this.caseResolutionType = null;
         this.specifyCaseAllowed = null;
         this.messageCasing = null;
+        markChanged();
     }
 
     public LoadConfigReport validateTimeFormat(LoadConfigReport report, String timeFormatStr)
@@ -146,20 +157,21 @@ public class ConfigMessage extends Config
         return report;
     }
 
-    public LoadConfigReport validateStrings(LoadConfigReport report, String timeFormatStr, String queueSizeStr, String messageSpeedStr, String expirationTimeStr)
+    public LoadConfigReport validateStrings(LoadConfigReport report, String timeFormatStr, String queueSizeStr, String messageSpeedStr, String expirationTimeStr, String catchUpTimeStr)
     {
         validateTimeFormat(report, timeFormatStr);
 
         validateIntegerWithLimitString(FontificatorProperties.KEY_MESSAGE_QUEUE_SIZE, queueSizeStr, MIN_QUEUE_SIZE, MAX_QUEUE_SIZE, report);
         validateIntegerWithLimitString(FontificatorProperties.KEY_MESSAGE_SPEED, messageSpeedStr, MIN_MESSAGE_SPEED, MAX_MESSAGE_SPEED, report);
         validateIntegerWithLimitString(FontificatorProperties.KEY_MESSAGE_EXPIRATION_TIME, expirationTimeStr, MIN_MESSAGE_EXPIRATION, MAX_MESSAGE_EXPIRATION, report);
+        validateIntegerWithLimitString(FontificatorProperties.KEY_MESSAGE_CATCH_UP_TIME, catchUpTimeStr, MIN_CATCH_UP_TIME, MAX_CATCH_UP_TIME, report);
 
         return report;
     }
 
-    public LoadConfigReport validateStrings(LoadConfigReport report, String userFormatStr, String timeFormatStr, String contentBreakStr, String queueSizeStr, String messageSpeedStr, String expirationTimerStr, String hideEmptyBorderBool, String hideEmptyBgBool, String caseTypeStr, String joinBool, String userBool, String timestampBool, String specifyCaseBool, String msgCasingStr)
+    public LoadConfigReport validateStrings(LoadConfigReport report, String userFormatStr, String timeFormatStr, String contentBreakStr, String queueSizeStr, String messageSpeedStr, String expirationTimerStr, String catchUpTimeStr, String hideEmptyBorderBool, String hideEmptyBgBool, String caseTypeStr, String joinBool, String userBool, String timestampBool, String specifyCaseBool, String msgCasingStr)
     {
-        validateStrings(report, timeFormatStr, queueSizeStr, messageSpeedStr, expirationTimerStr);
+        validateStrings(report, timeFormatStr, queueSizeStr, messageSpeedStr, expirationTimerStr, catchUpTimeStr);
 
         validateBooleanStrings(report, joinBool, userBool, timestampBool, specifyCaseBool, hideEmptyBorderBool, hideEmptyBgBool);
 
@@ -201,9 +213,10 @@ public class ConfigMessage extends Config
             final String specifyCaseBool = props.getProperty(FontificatorProperties.KEY_MESSAGE_CASE_SPECIFY);
             final String msgCaseStr = props.getProperty(FontificatorProperties.KEY_MESSAGE_CASING);
             final String expTimerStr = props.getProperty(FontificatorProperties.KEY_MESSAGE_EXPIRATION_TIME);
+            final String catchUpTimeStr = props.getProperty(FontificatorProperties.KEY_MESSAGE_CATCH_UP_TIME);
             final String hideEmptyBorderStr = props.getProperty(FontificatorProperties.KEY_MESSAGE_HIDE_EMPTY_BORDER);
             final String hideEmptyBgStr = props.getProperty(FontificatorProperties.KEY_MESSAGE_HIDE_EMPTY_BACKGROUND);
-            validateStrings(report, usrString, tfString, cbString, quSizeStr, msgSpeedStr, expTimerStr, hideEmptyBorderStr, hideEmptyBgStr, caseTpStr, joinBool, userBool, timestampBool, specifyCaseBool, msgCaseStr);
+            validateStrings(report, usrString, tfString, cbString, quSizeStr, msgSpeedStr, expTimerStr, catchUpTimeStr, hideEmptyBorderStr, hideEmptyBgStr, caseTpStr, joinBool, userBool, timestampBool, specifyCaseBool, msgCaseStr);
 
             // Fill the values
             if (report.isErrorFree())
@@ -217,6 +230,7 @@ public class ConfigMessage extends Config
                 this.queueSize = evaluateIntegerString(props, FontificatorProperties.KEY_MESSAGE_QUEUE_SIZE, report);
                 this.messageSpeed = evaluateIntegerString(props, FontificatorProperties.KEY_MESSAGE_SPEED, report);
                 this.expirationTime = evaluateIntegerString(props, FontificatorProperties.KEY_MESSAGE_EXPIRATION_TIME, report);
+                this.catchUpTime = evaluateIntegerString(props, FontificatorProperties.KEY_MESSAGE_CATCH_UP_TIME, report);
                 this.hideEmptyBorder = evaluateBooleanString(props, FontificatorProperties.KEY_MESSAGE_HIDE_EMPTY_BORDER, report);
                 this.hideEmptyBackground = evaluateBooleanString(props, FontificatorProperties.KEY_MESSAGE_HIDE_EMPTY_BACKGROUND, report);
                 this.caseResolutionType = UsernameCaseResolutionType.valueOf(caseTpStr);
@@ -240,6 +254,7 @@ public class ConfigMessage extends Config
     {
         this.joinMessages = joinMessages;
         props.setProperty(FontificatorProperties.KEY_MESSAGE_JOIN, Boolean.toString(joinMessages));
+        markChanged();
     }
 
     /**
@@ -254,6 +269,7 @@ public class ConfigMessage extends Config
     {
         this.usernames = usernames;
         props.setProperty(FontificatorProperties.KEY_MESSAGE_USERNAME, Boolean.toString(usernames));
+        markChanged();
     }
 
     /**
@@ -268,6 +284,7 @@ public class ConfigMessage extends Config
     {
         this.timestamps = timestamps;
         props.setProperty(FontificatorProperties.KEY_MESSAGE_TIMESTAMP, Boolean.toString(timestamps));
+        markChanged();
     }
 
     /**
@@ -282,6 +299,7 @@ public class ConfigMessage extends Config
     {
         this.usernameFormat = usernameFormat;
         props.setProperty(FontificatorProperties.KEY_MESSAGE_USERFORMAT, usernameFormat);
+        markChanged();
     }
 
     /**
@@ -302,6 +320,7 @@ public class ConfigMessage extends Config
         this.timeFormat = timeFormat;
         this.timeFormatter = new SimpleDateFormat(timeFormat);
         props.setProperty(FontificatorProperties.KEY_MESSAGE_TIMEFORMAT, timeFormat);
+        markChanged();
     }
 
     /**
@@ -316,6 +335,7 @@ public class ConfigMessage extends Config
     {
         this.contentBreaker = contentBreaker;
         props.setProperty(FontificatorProperties.KEY_MESSAGE_CONTENT_BREAK, contentBreaker);
+        markChanged();
     }
 
     /**
@@ -330,6 +350,7 @@ public class ConfigMessage extends Config
     {
         this.queueSize = queueSize;
         props.setProperty(FontificatorProperties.KEY_MESSAGE_QUEUE_SIZE, Integer.toString(queueSize));
+        markChanged();
     }
 
     /**
@@ -361,6 +382,7 @@ public class ConfigMessage extends Config
         {
             progressor.refreshTimer(getMessageDelay());
         }
+        markChanged();
     }
 
     public Integer getExpirationTime()
@@ -383,6 +405,7 @@ public class ConfigMessage extends Config
                 expirer.startClock();
             }
         }
+        markChanged();
     }
 
     public boolean isMessageExpirable()
@@ -390,6 +413,29 @@ public class ConfigMessage extends Config
         return expirationTime != null && expirationTime != 0;
     }
 
+    public int getCatchUpTime()
+    {
+        return catchUpTime == null ? MIN_CATCH_UP_TIME : catchUpTime;
+    }
+
+    /**
+     * Set the longest a message can wait to be completely drawn before the rollout catches up
+     * 
+     * @param catchUpTime
+     *            In seconds, or zero to never catch up
+     */
+    public void setCatchUpTime(int catchUpTime)
+    {
+        this.catchUpTime = catchUpTime;
+        props.setProperty(FontificatorProperties.KEY_MESSAGE_CATCH_UP_TIME, Integer.toString(catchUpTime));
+        markChanged();
+    }
+
+    public boolean isCatchUpEnabled()
+    {
+        return catchUpTime != null && catchUpTime != MIN_CATCH_UP_TIME;
+    }
+
     public boolean isHideEmptyBorder()
     {
         return hideEmptyBorder;
@@ -399,6 +445,7 @@ public class ConfigMessage extends Config
     {
         this.hideEmptyBorder = hideEmptyBorder;
         props.setProperty(FontificatorProperties.KEY_MESSAGE_HIDE_EMPTY_BORDER, Boolean.toString(hideEmptyBorder));
+        markChanged();
     }
 
     public boolean isHideEmptyBackground()
@@ -410,6 +457,7 @@ public class ConfigMessage extends Config
     {
         this.hideEmptyBackground = hideEmptyBackground;
         props.setProperty(FontificatorProperties.KEY_MESSAGE_HIDE_EMPTY_BACKGROUND, Boolean.toString(hideEmptyBackground));
+        markChanged();
     }
 
     public UsernameCaseResolutionType getCaseResolutionType()
@@ -421,6 +469,7 @@ public class ConfigMessage extends Config
     {
         this.caseResolutionType = caseResolutionType;
         props.setProperty(FontificatorProperties.KEY_MESSAGE_CASE_TYPE, caseResolutionType.name());
+        markChanged();
     }
 
     public Boolean isSpecifyCaseAllowed()
@@ -432,6 +481,7 @@ public class ConfigMessage extends Config
     {
         this.specifyCaseAllowed = specifyCaseAllowed;
         props.setProperty(FontificatorProperties.KEY_MESSAGE_CASE_SPECIFY, Boolean.toString(specifyCaseAllowed));
+        markChanged();
     }
 
     public MessageCasing getMessageCasing()
@@ -443,6 +493,7 @@ public class ConfigMessage extends Config
     {
         this.messageCasing = messageCasing;
         props.setProperty(FontificatorProperties.KEY_MESSAGE_CASING, messageCasing.name());
+        markChanged();
     }
 
     @Override
@@ -517,21 +568,4 @@ public class ConfigMessage extends Config
         return true;
     }
 
-    /**
-     * Perform a deep copy of the message config, used to compare against the previous one used to generated the string
-     * of characters and emojis that are stored in a Message object
-     * 
-     * @param copy
-     */
-    public void deepCopy(ConfigMessage copy)
-    {
-        this.joinMessages = copy.joinMessages;
-        this.usernameFormat = copy.usernameFormat;
-        this.timeFormat = copy.timeFormat;
-        this.contentBreaker = copy.contentBreaker;
-        this.timestamps = copy.timestamps;
-        this.usernames = copy.usernames;
-        this.messageCasing = copy.messageCasing;
-    }
-
 }
@@ -5,6 +5,7 @@ import java.awt.Graphics;
 import java.awt.Image;
 import java.awt.Toolkit;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.net.URL;
@@ -52,9 +53,16 @@ public class AnimatedGifUtil
     public static final String IMAGE_WIDTH = "imageWidth";
     public static final String IMAGE_HEIGHT = "imageHeight";
 
-    public static Image loadAnimatedGif(final URL url)
+    /**
+     * Load an animated GIF from bytes already fetched
+     * 
+     * @param data
+     *            The bytes of the animated GIF
+     * @return The loaded animated GIF
+     */
+    public static Image loadAnimatedGif(final byte[] data)
     {
-        return new ImageIcon(url).getImage();
+        return new ImageIcon(data).getImage();
     }
 
     /**
@@ -63,21 +71,23 @@ public class AnimatedGifUtil
      * Adapted from http://stackoverflow.com/questions/26801433/fix-frame-rate-of-animated-gif-in-java#answer-26829534
      * 
      * @param url
-     *            The URL for the animated GIF to be loaded
+     *            The URL the animated GIF was fetched from, for logging
+     * @param data
+     *            The bytes of the animated GIF
      * @param dim
      *            The dimension object to be filled by the width and height of the loaded animated GIF
      * @return The loaded animated GIF
      * @throws Exception
      */
-    public static Image loadDittoAnimatedGif(final URL url, Dimension dim)
+    public static Image loadDittoAnimatedGif(final URL url, final byte[] data, Dimension dim)
     {
-        final Image dimImage = new ImageIcon(url).getImage();
+        final Image dimImage = new ImageIcon(data).getImage();
 
         Image image = null;
         try
         {
             ImageReader gifReader = ImageIO.getImageReadersByFormatName(GIF_EXTENSION).next();
-            InputStream imageStream = url.openStream();
+            InputStream imageStream = new ByteArrayInputStream(data);
             gifReader.setInput(ImageIO.createImageInputStream(imageStream));
             IIOMetadata imageMetaData = gifReader.getImageMetadata(0);
             String metaFormatName = imageMetaData.getNativeMetadataFormatName();
@@ -143,7 +153,7 @@ public class AnimatedGifUtil
         {
             // If anything goes wrong, just load it normally
             logger.error("Error loading animated GIF (ditto) from " + url, e);
-            image = new ImageIcon(url).getImage();
+            image = new ImageIcon(data).getImage();
             dim.setSize(image.getWidth(null), image.getHeight(null));
         }
 
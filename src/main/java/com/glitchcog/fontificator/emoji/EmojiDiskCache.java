@@ -0,0 +1,624 @@
+package com.glitchcog.fontificator.emoji;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.log4j.Logger;
+
+/**
+ * A cache on disk of the bytes of emoji images, keyed by URL, so emoji seen in an earlier run don't have to be
+ * downloaded again. Each image is saved in a file named for the SHA-1 hash of its URL, next to a small properties file
+ * holding the URL, the ETag and Last-Modified headers it was served with, and when it was last checked with the server.
+ * Cached files holding a different URL than the one asked for are treated as not cached. Images checked recently
+ * enough are served straight from disk without touching the network; older ones are checked with a conditional request,
+ * so an unchanged image isn't downloaded again. The total size of the images is held under a byte budget by evicting
+ * the least recently used first.
+ *
+ * Nothing about the cache is important enough to warrant a popup: if the disk can't be read or written, images are
+ * just downloaded as if there were no cache.
+ *
+ * @author Matt Yanos
+ */
+public class EmojiDiskCache
+{
+    private static final Logger logger = Logger.getLogger(EmojiDiskCache.class);
+
+    /**
+     * The default number of bytes of emoji images to keep on disk
+     */
+    public static final long DEFAULT_BYTE_BUDGET = 64L * 1024L * 1024L;
+
+    /**
+     * The default directory to keep emoji images in, relative to the working directory like the last used
+     * configuration file
+     */
+    public static final String DEFAULT_DIRECTORY = ".fontificator_emoji";
+
+    /**
+     * The default time to serve an image from disk before checking it with the server again
+     */
+    public static final long DEFAULT_REVALIDATE_MILLIS = 7L * 24L * 60L * 60L * 1000L;
+
+    private static final String DATA_EXTENSION = ".img";
+
+    private static final String META_EXTENSION = ".meta";
+
+    private static final String META_URL = "url";
+
+    private static final String META_ETAG = "etag";
+
+    private static final String META_LAST_MODIFIED = "lastModified";
+
+    private static final String META_VALIDATED = "validated";
+
+    /**
+     * The browser user agent sent with each image download, the same one emoji images have always been requested with
+     */
+    private static final String USER_AGENT = "Mozilla/5.0 (Windows; U; Windows NT 6.0; en-US; rv:1.9.1.2) Gecko/20090729 Firefox/3.5.2 (.NET CLR 3.5.30729)";
+
+    /**
+     * How long to wait to connect to a host, and then for each read, before giving up on an image, so a stalled host
+     * can't hold on to the emoji loading threads forever
+     */
+    private static final int CONNECT_TIMEOUT_MILLIS = 10000;
+
+    private static final int READ_TIMEOUT_MILLIS = 20000;
+
+    private final File directory;
+
+    private final long revalidateMillis;
+
+    /**
+     * The cached images by key, in order from least to most recently used, read from the directory the first time the
+     * cache is used
+     */
+    private LinkedHashMap<String, Entry> entries;
+
+    private long byteBudget;
+
+    private long byteCount;
+
+    private long hits;
+
+    private long revalidations;
+
+    private long misses;
+
+    private long evictions;
+
+    /**
+     * @param directory
+     *            Where to keep the images, or null to not keep them at all
+     * @param byteBudget
+     *            The maximum number of bytes of images to keep
+     * @param revalidateMillis
+     *            How long to serve an image from disk before checking it with the server again
+     */
+    public EmojiDiskCache(File directory, long byteBudget, long revalidateMillis)
+    {
+        this.directory = directory;
+        this.byteBudget = byteBudget;
+        this.revalidateMillis = revalidateMillis;
+    }
+
+    /**
+     * Get the bytes of the image at the URL, from disk if it's cached and either recent or unchanged on the server, or
+     * downloaded otherwise. Only HTTP URLs are cached; anything else is just read.
+     *
+     * @param url
+     * @return bytes
+     * @throws IOException
+     *             If the image can't be read from the cache or downloaded
+     */
+    public byte[] fetch(URL url) throws IOException
+    {
+        if (directory == null || !url.getProtocol().startsWith("http"))
+        {
+            return download(url, null, false);
+        }
+
+        final String key = getKey(url.toString());
+        Entry cached = getEntry(key);
+        if (cached != null && !url.toString().equals(cached.url))
+        {
+            // Only the hash of the URL names the files, so make sure they're really for this URL, in case of a hash
+            // collision or a cache directory edited by hand
+            logger.debug("Cached emoji " + key + " is for " + cached.url + ", not " + url);
+            cached = null;
+        }
+        if (cached != null && System.currentTimeMillis() - cached.validated < revalidateMillis)
+        {
+            byte[] data = readData(key);
+            if (data != null)
+            {
+                synchronized (this)
+                {
+                    hits++;
+                }
+                return data;
+            }
+        }
+
+        Entry fresh = new Entry(url.toString());
+        if (cached != null)
+        {
+            fresh.revalidating(cached);
+        }
+        byte[] data = download(url, fresh, cached != null);
+        if (data == null)
+        {
+            // Not modified, so the cached image is still good
+            data = readData(key);
+            if (data != null)
+            {
+                synchronized (this)
+                {
+                    revalidations++;
+                }
+                fresh.size = cached.size;
+                writeMeta(key, fresh);
+                putEntry(key, fresh);
+                return data;
+            }
+            // The cached image went missing after it was checked, so get it again without asking about the cached one
+            data = download(url, fresh, false);
+        }
+
+        synchronized (this)
+        {
+            misses++;
+        }
+        fresh.size = data.length;
+        if (writeData(key, data) && writeMeta(key, fresh))
+        {
+            putEntry(key, fresh);
+        }
+        return data;
+    }
+
+    /**
+     * Download the image, with a conditional request if there's a cached copy to check
+     *
+     * @param url
+     * @param served
+     *            Updated with the validators the image is served with, holding those of the cached copy to send if the
+     *            request is conditional, or null if the image isn't to be cached
+     * @param conditional
+     *            Whether to ask the server to only send the image if it's changed since the cached copy
+     * @return bytes, or null if the server says the cached copy is unchanged
+     * @throws IOException
+     */
+    private byte[] download(URL url, Entry served, boolean conditional) throws IOException
+    {
+        URLConnection connection = url.openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+        connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+        if (!(connection instanceof HttpURLConnection))
+        {
+            return readAll(connection.getInputStream());
+        }
+
+        HttpURLConnection http = (HttpURLConnection) connection;
+        http.setRequestProperty("User-Agent", USER_AGENT);
+        if (conditional)
+        {
+            if (served.etag != null)
+            {
+                http.setRequestProperty("If-None-Match", served.etag);
+            }
+            if (served.lastModified > 0L)
+            {
+                http.setIfModifiedSince(served.lastModified);
+            }
+        }
+
+        final int responseCode = http.getResponseCode();
+        if (conditional && responseCode == HttpURLConnection.HTTP_NOT_MODIFIED)
+        {
+            http.disconnect();
+            return null;
+        }
+        if (responseCode != HttpURLConnection.HTTP_OK)
+        {
+            http.disconnect();
+            throw new IOException("Unable to download emoji, HTTP " + responseCode + ": " + url);
+        }
+
+        byte[] data = readAll(http.getInputStream());
+        if (served != null)
+        {
+            served.etag = http.getHeaderField("ETag");
+            served.lastModified = http.getLastModified();
+        }
+        return data;
+    }
+
+    private synchronized Entry getEntry(String key)
+    {
+        indexDirectory();
+        return entries.get(key);
+    }
+
+    private synchronized void putEntry(String key, Entry entry)
+    {
+        indexDirectory();
+        Entry old = entries.put(key, entry);
+        if (old != null)
+        {
+            byteCount -= old.size;
+        }
+        byteCount += entry.size;
+        evict(key);
+    }
+
+    /**
+     * Read the properties files in the directory the first time the cache is used, so it knows what's cached from earlier
+     * runs. The images are ordered by when their files were last used, oldest first.
+     */
+    private synchronized void indexDirectory()
+    {
+        if (entries != null)
+        {
+            return;
+        }
+        entries = new LinkedHashMap<String, Entry>(256, 0.75f, true);
+
+        File[] metaFiles = directory.listFiles();
+        if (metaFiles == null)
+        {
+            return;
+        }
+
+        List<Entry> found = new ArrayList<Entry>();
+        for (File metaFile : metaFiles)
+        {
+            final String name = metaFile.getName();
+            if (!name.endsWith(META_EXTENSION))
+            {
+                continue;
+            }
+            final String key = name.substring(0, name.length() - META_EXTENSION.length());
+            File dataFile = new File(directory, key + DATA_EXTENSION);
+            Entry entry = readMeta(metaFile);
+            if (entry == null || !dataFile.isFile())
+            {
+                metaFile.delete();
+                dataFile.delete();
+                continue;
+            }
+            entry.key = key;
+            entry.size = dataFile.length();
+            entry.used = dataFile.lastModified();
+            found.add(entry);
+        }
+
+        Collections.sort(found, new Comparator<Entry>()
+        {
+            @Override
+            public int compare(Entry a, Entry b)
+            {
+                return a.used < b.used ? -1 : (a.used == b.used ? 0 : 1);
+            }
+        });
+        for (Entry entry : found)
+        {
+            entries.put(entry.key, entry);
+            byteCount += entry.size;
+        }
+        evict(null);
+    }
+
+    /**
+     * Evict the least recently used images until the cache is within its budget, but never evict the one just added
+     *
+     * @param keep
+     *            The key of the image just added, or null
+     */
+    private synchronized void evict(String keep)
+    {
+        Iterator<Map.Entry<String, Entry>> iter = entries.entrySet().iterator();
+        while (byteCount > byteBudget && iter.hasNext())
+        {
+            Map.Entry<String, Entry> eldest = iter.next();
+            if (eldest.getKey().equals(keep))
+            {
+                continue;
+            }
+            byteCount -= eldest.getValue().size;
+            iter.remove();
+            new File(directory, eldest.getKey() + META_EXTENSION).delete();
+            new File(directory, eldest.getKey() + DATA_EXTENSION).delete();
+            evictions++;
+        }
+    }
+
+    private byte[] readData(String key)
+    {
+        File dataFile = new File(directory, key + DATA_EXTENSION);
+        try
+        {
+            byte[] data = readAll(new FileInputStream(dataFile));
+            // Mark it used, so the order of use survives to the next run
+            dataFile.setLastModified(System.currentTimeMillis());
+            return data;
+        }
+        catch (IOException e)
+        {
+            logger.error("Unable to read cached emoji " + dataFile.getPath(), e);
+            return null;
+        }
+    }
+
+    private boolean writeData(String key, byte[] data)
+    {
+        OutputStream out = null;
+        try
+        {
+            if (!directory.isDirectory() && !directory.mkdirs())
+            {
+                logger.error("Unable to create emoji cache directory " + directory.getPath());
+                return false;
+            }
+            File temp = new File(directory, key + DATA_EXTENSION + ".tmp");
+            out = new FileOutputStream(temp);
+            out.write(data);
+            out.close();
+            out = null;
+            return replace(temp, new File(directory, key + DATA_EXTENSION));
+        }
+        catch (IOException e)
+        {
+            logger.error("Unable to cache emoji " + key, e);
+            return false;
+        }
+        finally
+        {
+            close(out);
+        }
+    }
+
+    private Entry readMeta(File metaFile)
+    {
+        InputStream in = null;
+        try
+        {
+            in = new FileInputStream(metaFile);
+            Properties props = new Properties();
+            props.load(in);
+            Entry entry = new Entry(props.getProperty(META_URL));
+            entry.etag = props.getProperty(META_ETAG);
+            entry.lastModified = Long.parseLong(props.getProperty(META_LAST_MODIFIED, "0"));
+            entry.validated = Long.parseLong(props.getProperty(META_VALIDATED, "0"));
+            return entry.url == null ? null : entry;
+        }
+        catch (Exception e)
+        {
+            logger.error("Unable to read cached emoji information " + metaFile.getPath(), e);
+            return null;
+        }
+        finally
+        {
+            close(in);
+        }
+    }
+
+    private boolean writeMeta(String key, Entry entry)
+    {
+        Properties props = new Properties();
+        props.setProperty(META_URL, entry.url);
+        if (entry.etag != null)
+        {
+            props.setProperty(META_ETAG, entry.etag);
+        }
+        props.setProperty(META_LAST_MODIFIED, Long.toString(entry.lastModified));
+        props.setProperty(META_VALIDATED, Long.toString(entry.validated));
+
+        OutputStream out = null;
+        try
+        {
+            File temp = new File(directory, key + META_EXTENSION + ".tmp");
+            out = new FileOutputStream(temp);
+            props.store(out, null);
+            out.close();
+            out = null;
+            return replace(temp, new File(directory, key + META_EXTENSION));
+        }
+        catch (IOException e)
+        {
+            logger.error("Unable to cache emoji information " + key, e);
+            return false;
+        }
+        finally
+        {
+            close(out);
+        }
+    }
+
+    /**
+     * Move a finished temporary file into place, so a file is never seen half written
+     */
+    private static boolean replace(File temp, File target)
+    {
+        if (temp.renameTo(target))
+        {
+            return true;
+        }
+        target.delete();
+        if (temp.renameTo(target))
+        {
+            return true;
+        }
+        temp.delete();
+        return false;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException
+    {
+        try
+        {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1)
+            {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+        finally
+        {
+            close(in);
+        }
+    }
+
+    private static void close(Closeable closeable)
+    {
+        if (closeable != null)
+        {
+            try
+            {
+                closeable.close();
+            }
+            catch (IOException e)
+            {
+                logger.debug(e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Get the name of the files for a URL, the hex SHA-1 hash of the URL
+     *
+     * @param url
+     * @return key
+     */
+    private static String getKey(String url)
+    {
+        try
+        {
+            byte[] hash = MessageDigest.getInstance("SHA-1").digest(url.getBytes("UTF-8"));
+            StringBuilder sb = new StringBuilder(hash.length * 2);
+            for (byte b : hash)
+            {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+                sb.append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        }
+        catch (Exception e)
+        {
+            // SHA-1 and UTF-8 are always available
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public synchronized void setByteBudget(long byteBudget)
+    {
+        this.byteBudget = byteBudget;
+        if (entries != null)
+        {
+            evict(null);
+        }
+    }
+
+    public synchronized long getByteBudget()
+    {
+        return byteBudget;
+    }
+
+    public synchronized long getByteCount()
+    {
+        return byteCount;
+    }
+
+    public synchronized long getHits()
+    {
+        return hits;
+    }
+
+    public synchronized long getRevalidations()
+    {
+        return revalidations;
+    }
+
+    public synchronized long getMisses()
+    {
+        return misses;
+    }
+
+    public synchronized long getEvictions()
+    {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return (byteCount / 1024L) + " / " + (byteBudget / 1024L) + " KB, hits " + hits + ", revalidated " + revalidations + ", misses " + misses + ", evictions " + evictions;
+    }
+
+    /**
+     * What's known about a cached image
+     */
+    private static class Entry
+    {
+        private final String url;
+
+        private String key;
+
+        private String etag;
+
+        /**
+         * The Last-Modified time the image was served with, or zero if none was
+         */
+        private long lastModified;
+
+        /**
+         * When the image was last downloaded or confirmed unchanged by the server
+         */
+        private long validated;
+
+        /**
+         * When the image was last used, only for ordering the images read from disk
+         */
+        private long used;
+
+        private long size;
+
+        private Entry(String url)
+        {
+            this.url = url;
+            this.validated = System.currentTimeMillis();
+        }
+
+        /**
+         * Start with the validators of the cached copy, to send with a conditional request and keep if the server says
+         * it's unchanged
+         *
+         * @param cached
+         */
+        private void revalidating(Entry cached)
+        {
+            this.etag = cached.etag;
+            this.lastModified = cached.lastModified;
+        }
+    }
+}
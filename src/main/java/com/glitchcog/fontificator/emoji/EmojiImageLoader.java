@@ -0,0 +1,432 @@
+package com.glitchcog.fontificator.emoji;
+
+import java.awt.Image;
+import java.awt.image.ImageObserver;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Loads emoji images in the background, so drawing or measuring an emoji that isn't loaded yet never waits on the
+ * network. Emoji waiting on the same URL share a single fetch. Each time an emoji finishes loading, the load version is
+ * incremented, which tells message layouts that measured an emoji still loading that they are out of date, and the
+ * observer is told so the chat can be repainted.
+ *
+ * Emoji being cached ahead of time are loaded by the same threads, but only once every emoji waiting to be drawn has
+ * started loading, and channel emoji go ahead of global ones. No more than a few images are fetched from any one host
+ * at a time, so caching a whole emote set never floods a CDN, and an emote set on one host doesn't hold up emoji from
+ * another.
+ *
+ * @author Matt Yanos
+ */
+public class EmojiImageLoader
+{
+    private static final Logger logger = Logger.getLogger(EmojiImageLoader.class);
+
+    /**
+     * The priority of emoji waiting to be drawn
+     */
+    public static final int PRIORITY_VISIBLE = 0;
+
+    /**
+     * The priority of channel emoji being cached ahead of time
+     */
+    public static final int PRIORITY_CHANNEL = 1;
+
+    /**
+     * The priority of global emoji being cached ahead of time
+     */
+    public static final int PRIORITY_GLOBAL = 2;
+
+    private static final int THREAD_COUNT = 6;
+
+    /**
+     * The most images fetched from a single host at once
+     */
+    private static final int HOST_LIMIT = 3;
+
+    private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+    /**
+     * Told each time an emoji queued to be cached has finished loading, whether or not it loaded successfully
+     */
+    public interface Listener
+    {
+        public void loaded(LazyLoadEmoji emoji);
+    }
+
+    /**
+     * The loads queued or running, by URL. Everything that schedules loads is synchronized on this.
+     */
+    private final Map<String, Load> waiting;
+
+    /**
+     * The loads queued but not yet running, by host, in the order they should run
+     */
+    private final Map<String, TreeSet<Load>> queued;
+
+    /**
+     * The number of loads running for each host
+     */
+    private final Map<String, Integer> runningByHost;
+
+    private int running;
+
+    /**
+     * Keeps loads of the same priority in the order they were queued
+     */
+    private long sequence;
+
+    /**
+     * Incremented each time an emoji finishes loading
+     */
+    private final AtomicInteger loadVersion;
+
+    private final ExecutorService executor;
+
+    /**
+     * Told whenever an emoji finishes loading, or null if nothing needs to be told
+     */
+    private volatile ImageObserver observer;
+
+    public EmojiImageLoader()
+    {
+        this.waiting = new HashMap<String, Load>();
+        this.queued = new HashMap<String, TreeSet<Load>>();
+        this.runningByHost = new HashMap<String, Integer>();
+        this.running = 0;
+        this.sequence = 0L;
+        this.loadVersion = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(THREAD_COUNT, new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable r)
+            {
+                Thread thread = new Thread(r, "EmojiLoader-" + THREAD_NUMBER.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Set what to tell when an emoji finishes loading. It is told on a loading thread, with the ALLBITS flag, just like
+     * an observer of a Toolkit image.
+     *
+     * @param observer
+     */
+    public void setObserver(ImageObserver observer)
+    {
+        this.observer = observer;
+    }
+
+    /**
+     * Get the number of times an emoji has finished loading, to compare against to tell if anything has loaded since
+     *
+     * @return load version
+     */
+    public int getLoadVersion()
+    {
+        return loadVersion.get();
+    }
+
+    /**
+     * Queue the emoji to be loaded ahead of anything being cached, unless it is already waiting on its URL, in which
+     * case its URL is moved ahead of anything being cached if it hasn't started loading yet
+     *
+     * @param emoji
+     */
+    public void request(LazyLoadEmoji emoji)
+    {
+        queue(emoji, PRIORITY_VISIBLE, null);
+    }
+
+    /**
+     * Queue the emoji to be cached ahead of time
+     *
+     * @param emoji
+     * @param priority
+     *            PRIORITY_CHANNEL or PRIORITY_GLOBAL
+     * @param listener
+     *            Told once the emoji has finished loading
+     */
+    public void cache(LazyLoadEmoji emoji, int priority, Listener listener)
+    {
+        queue(emoji, priority, listener);
+    }
+
+    /**
+     * Drop every emoji the listener is waiting on that hasn't started loading yet, unless something else is waiting on
+     * the same URL. The listener isn't told about the emoji dropped.
+     *
+     * @param listener
+     */
+    public void cancel(Listener listener)
+    {
+        synchronized (waiting)
+        {
+            for (Iterator<Load> i = waiting.values().iterator(); i.hasNext();)
+            {
+                Load load = i.next();
+                if (load.started)
+                {
+                    continue;
+                }
+                for (Iterator<Waiter> w = load.waiters.iterator(); w.hasNext();)
+                {
+                    if (w.next().listener == listener)
+                    {
+                        w.remove();
+                    }
+                }
+                if (load.waiters.isEmpty())
+                {
+                    queued.get(load.host).remove(load);
+                    i.remove();
+                }
+            }
+        }
+    }
+
+    private void queue(LazyLoadEmoji emoji, int priority, Listener listener)
+    {
+        final String key = emoji.getUrl().toString();
+        synchronized (waiting)
+        {
+            Load load = waiting.get(key);
+            if (load == null)
+            {
+                load = new Load(key, emoji.getUrl().getHost().toLowerCase(), priority, sequence++);
+                waiting.put(key, load);
+            }
+            else if (listener == null && load.isWaiting(emoji))
+            {
+                return;
+            }
+            else if (!load.started && priority < load.priority)
+            {
+                // Move it up, which means taking it out of the ordered set and putting it back once reordered
+                queued.get(load.host).remove(load);
+                load.priority = priority;
+            }
+            load.waiters.add(new Waiter(emoji, listener));
+
+            if (!load.started)
+            {
+                TreeSet<Load> hostQueue = queued.get(load.host);
+                if (hostQueue == null)
+                {
+                    hostQueue = new TreeSet<Load>(LOAD_ORDER);
+                    queued.put(load.host, hostQueue);
+                }
+                hostQueue.add(load);
+            }
+
+            dispatch();
+        }
+    }
+
+    /**
+     * Start the first queued load of any host that isn't at its limit, until every thread is busy. Must be called
+     * synchronized on the waiting map.
+     */
+    private void dispatch()
+    {
+        while (running < THREAD_COUNT)
+        {
+            Load next = null;
+            for (Map.Entry<String, TreeSet<Load>> hostQueue : queued.entrySet())
+            {
+                if (hostQueue.getValue().isEmpty() || getRunning(hostQueue.getKey()) >= HOST_LIMIT)
+                {
+                    continue;
+                }
+                Load first = hostQueue.getValue().first();
+                if (next == null || LOAD_ORDER.compare(first, next) < 0)
+                {
+                    next = first;
+                }
+            }
+
+            if (next == null)
+            {
+                return;
+            }
+
+            queued.get(next.host).remove(next);
+            next.started = true;
+            running++;
+            runningByHost.put(next.host, getRunning(next.host) + 1);
+            executor.execute(next);
+        }
+    }
+
+    private int getRunning(String host)
+    {
+        Integer count = runningByHost.get(host);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Load the first emoji waiting on the URL, then hand its images to any other emoji that joined it while it was
+     * loading. Called on a loading thread.
+     *
+     * @param load
+     */
+    private void load(Load load)
+    {
+        final LazyLoadEmoji first;
+        synchronized (waiting)
+        {
+            first = load.waiters.get(0).emoji;
+        }
+
+        try
+        {
+            first.load();
+        }
+        catch (Exception e)
+        {
+            logger.error("Unable to load emoji: " + load.key, e);
+        }
+
+        final List<Waiter> waiters;
+        synchronized (waiting)
+        {
+            waiting.remove(load.key);
+            waiters = new ArrayList<Waiter>(load.waiters);
+        }
+        for (Waiter waiter : waiters)
+        {
+            if (waiter.emoji == first)
+            {
+                continue;
+            }
+            try
+            {
+                waiter.emoji.loadFrom(first);
+            }
+            catch (Exception e)
+            {
+                logger.error("Unable to load emoji: " + load.key, e);
+            }
+        }
+
+        loadVersion.incrementAndGet();
+
+        final ImageObserver notify = observer;
+        final Image image = first.getLoadedImage();
+        if (notify != null && image != null)
+        {
+            notify.imageUpdate(image, ImageObserver.ALLBITS, 0, 0, first.getWidth(), first.getHeight());
+        }
+
+        for (Waiter waiter : waiters)
+        {
+            if (waiter.listener != null)
+            {
+                waiter.listener.loaded(waiter.emoji);
+            }
+        }
+    }
+
+    /**
+     * Loads run by priority, then in the order they were queued
+     */
+    private static final Comparator<Load> LOAD_ORDER = new Comparator<Load>()
+    {
+        @Override
+        public int compare(Load a, Load b)
+        {
+            if (a.priority != b.priority)
+            {
+                return a.priority < b.priority ? -1 : 1;
+            }
+            return a.order < b.order ? -1 : (a.order == b.order ? 0 : 1);
+        }
+    };
+
+    /**
+     * An emoji waiting on a load, and what to tell when it's done, which is null if it's waiting to be drawn
+     */
+    private static class Waiter
+    {
+        private final LazyLoadEmoji emoji;
+
+        private final Listener listener;
+
+        private Waiter(LazyLoadEmoji emoji, Listener listener)
+        {
+            this.emoji = emoji;
+            this.listener = listener;
+        }
+    }
+
+    /**
+     * The fetch of a single URL, shared by every emoji waiting on it
+     */
+    private class Load implements Runnable
+    {
+        private final String key;
+
+        private final String host;
+
+        private final long order;
+
+        private int priority;
+
+        private boolean started;
+
+        private final List<Waiter> waiters;
+
+        private Load(String key, String host, int priority, long order)
+        {
+            this.key = key;
+            this.host = host;
+            this.priority = priority;
+            this.order = order;
+            this.started = false;
+            this.waiters = new ArrayList<Waiter>(1);
+        }
+
+        private boolean isWaiting(LazyLoadEmoji emoji)
+        {
+            for (Waiter waiter : waiters)
+            {
+                if (waiter.emoji == emoji && waiter.listener == null)
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                load(this);
+            }
+            finally
+            {
+                synchronized (waiting)
+                {
+                    running--;
+                    runningByHost.put(host, getRunning(host) - 1);
+                    dispatch();
+                }
+            }
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.glitchcog.fontificator.emoji;
 
+import java.io.File;
 import java.net.MalformedURLException;
 import java.util.HashMap;
 import java.util.Map;
@@ -62,13 +63,19 @@ public class EmojiManager
     /**
      * Map keyed off of FrankerFaceZ badge IDs that returns a set of users that have that badge
      */
-    private Map<Integer, Set<String>> ffzBadgeUsers;
+    private volatile Map<Integer, Set<String>> ffzBadgeUsers;
+
+    /**
+     * Saves what each emoji load job loaded, so the next run can start with it instead of waiting on the emote APIs
+     */
+    private EmojiSnapshot snapshot;
 
     /**
      * Construct an emoji manager object, instantiates the map of maps keyed off of all the possible emoji types
      */
     public EmojiManager()
     {
+        snapshot = new EmojiSnapshot(new File(EmojiDiskCache.DEFAULT_DIRECTORY));
         ffzBadgeUsers = new HashMap<Integer, Set<String>>();
         preloadedEmoji = new HashMap<EmojiType, TypedEmojiMap>();
         for (EmojiType type : EmojiType.values())
@@ -206,6 +213,55 @@ public class EmojiManager
         return "FfzRep" + Integer.toString(emojiId);
     }
 
+    /**
+     * Put the emoji saved by the last run of the specified load job into this manager, so they can be used right away
+     * while the job runs again to refresh them. Called on the job's worker thread, which is safe because each map is
+     * swapped in whole, just as it is when the job refreshes them.
+     * 
+     * @param job
+     * @return whether there was a snapshot to put in
+     */
+    public boolean loadSnapshot(EmojiJob job)
+    {
+        EmojiManager saved = new EmojiManager();
+        if (!snapshot.read(job, saved))
+        {
+            return false;
+        }
+        refresh(job.getType(), saved);
+        return true;
+    }
+
+    /**
+     * Replace the emoji of the specified load job's type with those the job just loaded into a fresh manager, keeping
+     * any that are unchanged along with their images, and save them for the next run
+     * 
+     * @param job
+     * @param fresh
+     *            the manager the job loaded its emoji into
+     * @return the number of emoji added, changed, or removed
+     */
+    public int refresh(EmojiJob job, EmojiManager fresh)
+    {
+        final int changes = refresh(job.getType(), fresh);
+        snapshot.write(job, fresh);
+        return changes;
+    }
+
+    private int refresh(EmojiType type, EmojiManager fresh)
+    {
+        if (type == EmojiType.FRANKERFACEZ_BADGE)
+        {
+            ffzBadgeUsers = fresh.ffzBadgeUsers;
+        }
+        return preloadedEmoji.get(type).refresh(fresh.getEmojiByType(type));
+    }
+
+    public void setSnapshot(EmojiSnapshot snapshot)
+    {
+        this.snapshot = snapshot;
+    }
+
     public void setFfzBadgeUsers(Map<Integer, Set<String>> ffzBadgeUsers)
     {
         this.ffzBadgeUsers = ffzBadgeUsers;
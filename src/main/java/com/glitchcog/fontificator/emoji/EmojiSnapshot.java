@@ -0,0 +1,282 @@
+package com.glitchcog.fontificator.emoji;
+
+import java.awt.Color;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Saves the emoji loaded by each emoji load job to a compact binary file, so the next run can put them back in the
+ * emoji manager in a few milliseconds instead of waiting to download and parse the emote API JSON again. Only the data
+ * needed to rebuild each emoji is saved, not its image, because the images are kept by the EmojiDiskCache. There is one
+ * file per type of emoji and channel, so a snapshot for one channel is never used for another. The V1 Twitch emoji
+ * looked up by ID aren't saved, because they aren't loaded by any job: each one is made from the emote ID in the IRC
+ * tags of the first message it appears in, which takes no download to rebuild.
+ *
+ * Nothing about the snapshots is important enough to warrant a popup: if one can't be read or written, the emoji are
+ * just loaded from the emote APIs as if there were no snapshot.
+ *
+ * @author Matt Yanos
+ */
+public class EmojiSnapshot
+{
+    private static final Logger logger = Logger.getLogger(EmojiSnapshot.class);
+
+    /**
+     * Marks the start of a snapshot file
+     */
+    private static final int MAGIC = 0x46454D53;
+
+    /**
+     * Increment whenever the layout of the snapshot file changes, so snapshots saved by an older version are not used
+     */
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private static final String SNAPSHOT_PREFIX = "snapshot_";
+
+    private static final String SNAPSHOT_EXTENSION = ".bin";
+
+    private final File directory;
+
+    /**
+     * @param directory
+     *            The directory to keep the snapshot files in
+     */
+    public EmojiSnapshot(File directory)
+    {
+        this.directory = directory;
+    }
+
+    /**
+     * Read the snapshot saved for the specified job into the specified emoji manager
+     *
+     * @param job
+     * @param manager
+     *            A manager to read into, which should be empty
+     * @return whether a snapshot was read
+     */
+    public boolean read(EmojiJob job, EmojiManager manager)
+    {
+        File file = getFile(job);
+        if (!file.isFile())
+        {
+            return false;
+        }
+
+        DataInputStream in = null;
+        try
+        {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != MAGIC || in.readInt() != SNAPSHOT_VERSION || !job.getType().name().equals(in.readUTF()))
+            {
+                logger.debug("Ignoring out of date emoji snapshot " + file.getPath());
+                return false;
+            }
+
+            TypedEmojiMap emojiMap = manager.getEmojiByType(job.getType());
+            readEmoji(in, emojiMap.getNormalMap(), job.getType());
+            readEmoji(in, emojiMap.getRegexMap(), job.getType());
+
+            if (job.getType() == EmojiType.FRANKERFACEZ_BADGE)
+            {
+                final int badgeCount = in.readInt();
+                Map<Integer, Set<String>> badgeUsers = new HashMap<Integer, Set<String>>(badgeCount * 4 / 3 + 1);
+                for (int b = 0; b < badgeCount; b++)
+                {
+                    final int badgeId = in.readInt();
+                    final int userCount = in.readInt();
+                    Set<String> users = new HashSet<String>(userCount * 4 / 3 + 1);
+                    for (int u = 0; u < userCount; u++)
+                    {
+                        users.add(in.readUTF());
+                    }
+                    badgeUsers.put(badgeId, users);
+                }
+                manager.setFfzBadgeUsers(badgeUsers);
+            }
+            return true;
+        }
+        catch (Exception e)
+        {
+            // The emoji will just be loaded from the emote API, so not important enough to warrant a popup
+            logger.error("Unable to read emoji snapshot " + file.getPath(), e);
+            return false;
+        }
+        finally
+        {
+            close(in);
+        }
+    }
+
+    /**
+     * Save the emoji the specified job loaded into the specified emoji manager
+     *
+     * @param job
+     * @param manager
+     */
+    public void write(EmojiJob job, EmojiManager manager)
+    {
+        File file = getFile(job);
+        File temp = new File(directory, file.getName() + ".tmp");
+        DataOutputStream out = null;
+        try
+        {
+            if (!directory.isDirectory() && !directory.mkdirs())
+            {
+                logger.error("Unable to create emoji snapshot directory " + directory.getPath());
+                return;
+            }
+
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            out.writeInt(MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeUTF(job.getType().name());
+
+            TypedEmojiMap emojiMap = manager.getEmojiByType(job.getType());
+            writeEmoji(out, emojiMap.getNormalMap());
+            writeEmoji(out, emojiMap.getRegexMap());
+
+            if (job.getType() == EmojiType.FRANKERFACEZ_BADGE)
+            {
+                Map<Integer, Set<String>> badgeUsers = manager.getFfzBadgeUsers();
+                if (badgeUsers == null)
+                {
+                    badgeUsers = new HashMap<Integer, Set<String>>();
+                }
+                out.writeInt(badgeUsers.size());
+                for (Map.Entry<Integer, Set<String>> badge : badgeUsers.entrySet())
+                {
+                    Set<String> users = badge.getValue() == null ? new HashSet<String>() : badge.getValue();
+                    out.writeInt(badge.getKey());
+                    out.writeInt(users.size());
+                    for (String user : users)
+                    {
+                        out.writeUTF(user);
+                    }
+                }
+            }
+            out.close();
+            out = null;
+
+            // Written to a temporary file first, so the next run never reads half a snapshot
+            if (!temp.renameTo(file))
+            {
+                file.delete();
+                if (!temp.renameTo(file))
+                {
+                    temp.delete();
+                }
+            }
+        }
+        catch (Exception e)
+        {
+            // The emoji will just be loaded from the emote API next time, so not important enough to warrant a popup
+            logger.error("Unable to save emoji snapshot " + file.getPath(), e);
+            close(out);
+            temp.delete();
+        }
+    }
+
+    private static void readEmoji(DataInputStream in, Map<String, LazyLoadEmoji> emojiMap, EmojiType type) throws IOException
+    {
+        final int count = in.readInt();
+        for (int i = 0; i < count; i++)
+        {
+            final String key = in.readUTF();
+            final String identifier = readNullableUTF(in);
+            final String replaces = readNullableUTF(in);
+            final String url = in.readUTF();
+            final int width = in.readInt();
+            final int height = in.readInt();
+            final Color bgColor = in.readBoolean() ? new Color(in.readInt(), true) : null;
+
+            LazyLoadEmoji emoji = new LazyLoadEmoji(identifier, replaces, url, width, height, bgColor, type);
+            emoji.setAnimatedGif(in.readBoolean());
+            emoji.setSubscriber(in.readBoolean());
+            emoji.setState(readNullableUTF(in));
+
+            // The keys are saved as already fixed by TypedEmojiMap.put, so they go straight in the map
+            emojiMap.put(key, emoji);
+        }
+    }
+
+    private static void writeEmoji(DataOutputStream out, Map<String, LazyLoadEmoji> emojiMap) throws IOException
+    {
+        out.writeInt(emojiMap.size());
+        for (Map.Entry<String, LazyLoadEmoji> entry : emojiMap.entrySet())
+        {
+            LazyLoadEmoji emoji = entry.getValue();
+            out.writeUTF(entry.getKey());
+            writeNullableUTF(out, emoji.getIdentifier());
+            writeNullableUTF(out, emoji.getReplaces());
+            out.writeUTF(emoji.getUrl().toString());
+            out.writeInt(emoji.getWidth());
+            out.writeInt(emoji.getHeight());
+            out.writeBoolean(emoji.getBgColor() != null);
+            if (emoji.getBgColor() != null)
+            {
+                out.writeInt(emoji.getBgColor().getRGB());
+            }
+            out.writeBoolean(emoji.isAnimatedGif());
+            out.writeBoolean(emoji.isSubscriber());
+            writeNullableUTF(out, emoji.getState());
+        }
+    }
+
+    private static String readNullableUTF(DataInputStream in) throws IOException
+    {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeNullableUTF(DataOutputStream out, String str) throws IOException
+    {
+        out.writeBoolean(str != null);
+        if (str != null)
+        {
+            out.writeUTF(str);
+        }
+    }
+
+    /**
+     * Get the snapshot file for a job, named for its type of emoji and, if it has one, its channel
+     *
+     * @param job
+     * @return file
+     */
+    private File getFile(EmojiJob job)
+    {
+        String name = SNAPSHOT_PREFIX + job.getType().name().toLowerCase();
+        if (job.getChannel() != null)
+        {
+            name += "_" + job.getChannel().toLowerCase().replaceAll("[^a-z0-9_]", "_");
+        }
+        return new File(directory, name + SNAPSHOT_EXTENSION);
+    }
+
+    private static void close(Closeable closeable)
+    {
+        if (closeable != null)
+        {
+            try
+            {
+                closeable.close();
+            }
+            catch (IOException e)
+            {
+                logger.debug(e.getMessage(), e);
+            }
+        }
+    }
+}
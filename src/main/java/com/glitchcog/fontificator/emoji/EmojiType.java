@@ -60,6 +60,16 @@ public enum EmojiType
         return group == EmojiGroup.BTTV;
     }
 
+    /**
+     * Whether emoji of this type belong to a particular channel, rather than being available in every channel
+     * 
+     * @return channel specific
+     */
+    public boolean isChannelSpecific()
+    {
+        return this == FRANKERFACEZ_CHANNEL || this == BETTER_TTV_CHANNEL || badge;
+    }
+
     public boolean isBadge()
     {
         return badge;
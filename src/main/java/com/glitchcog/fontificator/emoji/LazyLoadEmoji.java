@@ -4,12 +4,15 @@ import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Image;
 import java.awt.image.BufferedImage;
+import java.awt.image.ImageObserver;
+import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
-import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 
 import javax.imageio.ImageIO;
 
@@ -33,7 +36,17 @@ public class LazyLoadEmoji
     /**
      * Keep track of any failed URLs so we don't clobber the display trying to reload them over and over
      */
-    private static List<String> BUSTED_URLS = new ArrayList<String>();
+    private static final Set<String> BUSTED_URLS = Collections.synchronizedSet(new HashSet<String>());
+
+    /**
+     * Loads the images of emoji in the background the first time they're drawn or measured
+     */
+    private static final EmojiImageLoader LOADER = new EmojiImageLoader();
+
+    /**
+     * Keeps the bytes of emoji images on disk, so they don't need to be downloaded again in the next run
+     */
+    private static volatile EmojiDiskCache diskCache = new EmojiDiskCache(new File(EmojiDiskCache.DEFAULT_DIRECTORY), EmojiDiskCache.DEFAULT_BYTE_BUDGET, EmojiDiskCache.DEFAULT_REVALIDATE_MILLIS);
 
     /**
      * The word or regex that identifies this emoji
@@ -47,9 +60,18 @@ public class LazyLoadEmoji
 
     private final EmojiType type;
 
-    private Image image;
+    /**
+     * Set by a loading thread and read while drawing, so it's volatile
+     */
+    private volatile Image image;
+
+    private volatile Image animatedGifImage;
 
-    private Image animatedGifImage;
+    /**
+     * Whether the animated GIF image couldn't be loaded, in which case the still image is drawn instead of fetching it
+     * again every time it's drawn
+     */
+    private volatile boolean animatedGifFailed;
 
     private URL url;
 
@@ -57,9 +79,9 @@ public class LazyLoadEmoji
 
     private String state;
 
-    private int width;
+    private volatile int width;
 
-    private int height;
+    private volatile int height;
 
     private boolean animated;
 
@@ -106,55 +128,148 @@ public class LazyLoadEmoji
         this.bgColor = bgColor;
     }
 
-    public void cacheImage()
+    /**
+     * Queue the image to be loaded in the background ahead of time, behind any emoji waiting to be drawn
+     * 
+     * @param priority
+     *            EmojiImageLoader.PRIORITY_CHANNEL or EmojiImageLoader.PRIORITY_GLOBAL
+     * @param listener
+     *            Told once the image has finished loading
+     * @return whether it was queued, which it isn't if it's already loaded or can't be
+     */
+    public boolean cacheImage(int priority, EmojiImageLoader.Listener listener)
+    {
+        if (!isImagePending(true))
+        {
+            return false;
+        }
+        LOADER.cache(this, priority, listener);
+        return true;
+    }
+
+    /**
+     * Drop any images queued to be cached for the listener that haven't started loading yet
+     * 
+     * @param listener
+     */
+    public static void cancelCaching(EmojiImageLoader.Listener listener)
+    {
+        LOADER.cancel(listener);
+    }
+
+    /**
+     * Set what to tell when an emoji finishes loading in the background, so whatever is drawing it can be repainted
+     * 
+     * @param observer
+     */
+    public static void setLoadObserver(ImageObserver observer)
+    {
+        LOADER.setObserver(observer);
+    }
+
+    /**
+     * Set the cache the bytes of emoji images are fetched through
+     * 
+     * @param cache
+     */
+    public static void setDiskCache(EmojiDiskCache cache)
+    {
+        diskCache = cache;
+    }
+
+    public static EmojiDiskCache getDiskCache()
     {
-        getImage(isAnimatedGif());
+        return diskCache;
     }
 
     /**
-     * Lazy-loaded image
+     * Get the number of times an emoji has finished loading in the background, to tell if anything measured while an
+     * emoji was still loading is out of date
      * 
-     * @return image
+     * @return load version
+     */
+    public static int getLoadVersion()
+    {
+        return LOADER.getLoadVersion();
+    }
+
+    /**
+     * Get the image if it's loaded. If it isn't, it's queued to be loaded in the background and this returns right away,
+     * so the emoji loading display strategy can be drawn in its place until it's ready. While an animated GIF loads, or
+     * if it couldn't be loaded, the still image is returned if it's there.
+     * 
+     * @return image, or null if it isn't loaded
      */
     public Image getImage(boolean animated)
     {
-        if (url == null || BUSTED_URLS.contains(url.toString()))
+        final Image still = image;
+        final Image loaded = isAnimatedGifLoadable(animated) ? animatedGifImage : still;
+        if (loaded == null && isLoadable())
+        {
+            LOADER.request(this);
+        }
+        return loaded == null ? still : loaded;
+    }
+
+    /**
+     * Get whether the image isn't loaded yet but is expected to be, meaning anything measured with the size of the
+     * emoji loading display strategy will be out of date once it is
+     * 
+     * @param animated
+     * @return pending
+     */
+    public boolean isImagePending(boolean animated)
+    {
+        return (image == null || (isAnimatedGifLoadable(animated) && animatedGifImage == null)) && isLoadable();
+    }
+
+    private boolean isAnimatedGifLoadable(boolean animated)
+    {
+        return animated && animatedGif && !animatedGifFailed;
+    }
+
+    private boolean isLoadable()
+    {
+        return url != null && !BUSTED_URLS.contains(url.toString());
+    }
+
+    /**
+     * Get the still image, without queuing it to be loaded
+     * 
+     * @return image, or null if it isn't loaded
+     */
+    Image getLoadedImage()
+    {
+        return image;
+    }
+
+    /**
+     * Load the still image, and the animated GIF image if this emoji is an animated GIF, waiting for them
+     */
+    synchronized void load()
+    {
+        if (!isLoadable())
         {
-            return null;
+            return;
         }
-        // Lazy load the still image whether or not the emoji is animated
+        byte[] data = null;
+        // Load the still image whether or not the emoji is animated
         if (image == null)
         {
-            if (!checkUrl(url))
-            {
-                BUSTED_URLS.add(url.toString());
-                return null;
-            }
-
             try
             {
-                BufferedImage imageFromTwitch = ImageIO.read(url);
+                data = diskCache.fetch(url);
+                BufferedImage imageFromTwitch = ImageIO.read(new ByteArrayInputStream(data));
+                if (imageFromTwitch == null)
+                {
+                    throw new IOException("Unrecognized image format");
+                }
 
                 // Hack to make image background transparent because Twitch emote V1 of sizes 2.0 and 3.0 sometimes are
                 // not of the correct type for transparency. Kappa (ID 25) is an example of a non transparent emoji in
                 // sizes 2.0 and 3.0. Seriously. Download a Kappa size 2.0 image from the V1 URL and open it in an
                 // editor. The background is solid, but when Twitch displays it in their chat, it displays transparent.
-                if (EmojiOpacityHandler.isCandidateForModification(type, imageFromTwitch.getType(), identifier))
-                {
-                    image = EmojiOpacityHandler.fixOpaqueEmote(identifier, imageFromTwitch);
-                }
-                // No hack required
-                else
-                {
-                    image = imageFromTwitch;
-                }
-
-                if (image != null)
-                {
-                    this.width = this.image.getWidth(null);
-                    this.height = this.image.getHeight(null);
-                }
-
+                setImage(fixImage(imageFromTwitch));
             }
             catch (IOException e)
             {
@@ -162,30 +277,136 @@ public class LazyLoadEmoji
                 {
                     logger.error("Unable to load emoji: " + url, e);
                     firstLoadFailureReported = true;
-                    image = null;
                 }
+                // Don't keep fetching it in the background every time it's drawn
+                BUSTED_URLS.add(url.toString());
+                return;
+            }
+        }
+
+        loadAnimatedGif(data);
+    }
+
+    /**
+     * Take the images of another emoji that was just loaded from the same URL, rather than fetching them again. The
+     * still image only needs fixing again if this emoji is a different type, and the animated GIF only needs loading
+     * again if the other emoji didn't load one.
+     * 
+     * @param loaded
+     */
+    synchronized void loadFrom(LazyLoadEmoji loaded)
+    {
+        if (image == null)
+        {
+            final Image loadedImage = loaded.getLoadedImage();
+            if (loadedImage == null || type != loaded.type || !identifier.equals(loaded.identifier))
+            {
+                load();
+                return;
+            }
+            setImage(loadedImage);
+        }
+        if (animatedGif && animatedGifImage == null && loaded.animatedGif && identifier.equals(loaded.identifier))
+        {
+            if (loaded.animatedGifFailed)
+            {
+                animatedGifFailed = true;
+                return;
             }
+            this.width = loaded.width;
+            this.height = loaded.height;
+            animatedGifImage = loaded.animatedGifImage;
+        }
+        loadAnimatedGif(null);
+    }
+
+    private Image fixImage(BufferedImage imageFromTwitch)
+    {
+        if (imageFromTwitch != null && EmojiOpacityHandler.isCandidateForModification(type, imageFromTwitch.getType(), identifier))
+        {
+            return EmojiOpacityHandler.fixOpaqueEmote(identifier, imageFromTwitch);
+        }
+        // No hack required
+        return imageFromTwitch;
+    }
+
+    /**
+     * Set the still image along with its size. The size is set first, so anything that sees the image also sees its
+     * size.
+     * 
+     * @param loadedImage
+     */
+    private void setImage(Image loadedImage)
+    {
+        if (loadedImage != null)
+        {
+            this.width = loadedImage.getWidth(null);
+            this.height = loadedImage.getHeight(null);
         }
+        image = loadedImage;
+    }
 
-        // Only lazy load the animated GIF image if the image is an animatedGif type
-        if (animatedGif && animatedGifImage == null)
+    /**
+     * Only load the animated GIF image if the image is an animatedGif type
+     * 
+     * @param data
+     *            The bytes of the image if they've already been fetched, or null to fetch them
+     */
+    private void loadAnimatedGif(byte[] data)
+    {
+        if (animatedGif && animatedGifImage == null && !animatedGifFailed)
         {
+            if (data == null)
+            {
+                try
+                {
+                    data = diskCache.fetch(url);
+                }
+                catch (IOException e)
+                {
+                    logger.error("Unable to load animated emoji: " + url, e);
+                    // Fall back on the still image rather than fetching it again every time it's drawn
+                    animatedGifFailed = true;
+                    return;
+                }
+            }
+
             // BTTV emote (ditto) gets special care
             if ("(ditto)".equals(identifier))
             {
                 Dimension dim = new Dimension();
-                animatedGifImage = AnimatedGifUtil.loadDittoAnimatedGif(url, dim);
+                Image loadedGif = AnimatedGifUtil.loadDittoAnimatedGif(url, data, dim);
                 this.width = (int) dim.getWidth();
                 this.height = (int) dim.getHeight();
+                animatedGifImage = loadedGif;
             }
             else
             {
-                animatedGifImage = AnimatedGifUtil.loadAnimatedGif(url);
+                animatedGifImage = AnimatedGifUtil.loadAnimatedGif(data);
             }
         }
+    }
 
-        // Return the animated GIF image only if animated is requested AND this emoji is an animated GIF
-        return animated && animatedGif ? animatedGifImage : image;
+    public String getIdentifier()
+    {
+        return identifier;
+    }
+
+    /**
+     * Whether the other emoji was made from the same emote data as this one, so this one can stand in for it, along with
+     * any image this one has already loaded. The size isn't compared, because loading the image changes it.
+     * 
+     * @param other
+     * @return same emote
+     */
+    public boolean isSameEmote(LazyLoadEmoji other)
+    {
+        return other != null && type == other.type && animatedGif == other.animatedGif && subscriber == other.subscriber && isEqual(identifier, other.identifier) && isEqual(replaces, other.replaces) && isEqual(url.toString(), other.url.toString()) && isEqual(bgColor, other.bgColor) && isEqual(state, other.state);
+    }
+
+    private static boolean isEqual(Object a, Object b)
+    {
+        return a == null ? b == null : a.equals(b);
     }
 
     public boolean isSubscriber()
@@ -282,22 +503,4 @@ public class LazyLoadEmoji
     {
         return replaces;
     }
-
-    public static boolean checkUrl(URL url)
-    {
-        try
-        {
-            HttpURLConnection.setFollowRedirects(true); // Does not work for http to https redirects
-            HttpURLConnection httpURLConnection = (HttpURLConnection) url.openConnection();
-            httpURLConnection.setRequestMethod("HEAD");
-            httpURLConnection.setRequestProperty("User-Agent", "Mozilla/5.0 (Windows; U; Windows NT 6.0; en-US; rv:1.9.1.2) Gecko/20090729 Firefox/3.5.2 (.NET CLR 3.5.30729)");
-            int responseCode = httpURLConnection.getResponseCode();
-            return responseCode == HttpURLConnection.HTTP_OK;
-        }
-        catch (Exception e)
-        {
-            logger.debug(e.getMessage(), e);
-            return false;
-        }
-    }
 }
@@ -24,9 +24,12 @@ public class TypedEmojiMap
 {
     private final EmojiType type;
 
-    private Map<String, LazyLoadEmoji> normalMap;
+    /**
+     * Replaced whole rather than modified when refreshed, so the chat can keep reading the old map while a refresh runs
+     */
+    private volatile Map<String, LazyLoadEmoji> normalMap;
 
-    private Map<String, LazyLoadEmoji> regexMap;
+    private volatile Map<String, LazyLoadEmoji> regexMap;
 
     public TypedEmojiMap(EmojiType type)
     {
@@ -102,6 +105,60 @@ public class TypedEmojiMap
         }
     }
 
+    /**
+     * Make this map hold the same emoji as the specified freshly loaded map of the same type. Emoji that haven't changed
+     * are kept rather than replaced, so any images they've already loaded don't need to be loaded again; changed emoji
+     * are replaced and emoji no longer in the fresh map are removed.
+     * 
+     * @param fresh
+     * @return the number of emoji added, changed, or removed
+     */
+    public int refresh(TypedEmojiMap fresh)
+    {
+        Map<String, LazyLoadEmoji> refreshedNormal = refresh(normalMap, fresh.normalMap);
+        Map<String, LazyLoadEmoji> refreshedRegex = refresh(regexMap, fresh.regexMap);
+        final int changes = countChanges(normalMap, refreshedNormal) + countChanges(regexMap, refreshedRegex);
+        normalMap = refreshedNormal;
+        regexMap = refreshedRegex;
+        return changes;
+    }
+
+    private static Map<String, LazyLoadEmoji> refresh(Map<String, LazyLoadEmoji> current, Map<String, LazyLoadEmoji> fresh)
+    {
+        Map<String, LazyLoadEmoji> refreshed = new HashMap<String, LazyLoadEmoji>(fresh.size() * 4 / 3 + 1);
+        for (Map.Entry<String, LazyLoadEmoji> entry : fresh.entrySet())
+        {
+            LazyLoadEmoji kept = current.get(entry.getKey());
+            refreshed.put(entry.getKey(), kept != null && kept.isSameEmote(entry.getValue()) ? kept : entry.getValue());
+        }
+        return refreshed;
+    }
+
+    private static int countChanges(Map<String, LazyLoadEmoji> before, Map<String, LazyLoadEmoji> after)
+    {
+        int changes = 0;
+        for (Map.Entry<String, LazyLoadEmoji> entry : after.entrySet())
+        {
+            if (before.get(entry.getKey()) != entry.getValue())
+            {
+                changes++;
+            }
+        }
+        for (String key : before.keySet())
+        {
+            if (!after.containsKey(key))
+            {
+                changes++;
+            }
+        }
+        return changes;
+    }
+
+    public boolean isEmpty()
+    {
+        return normalMap.isEmpty() && regexMap.isEmpty();
+    }
+
     public Collection<String> keySet()
     {
         Set<String> keys = new HashSet<String>(normalMap.keySet().size() + regexMap.keySet().size());
@@ -1,8 +1,9 @@
 package com.glitchcog.fontificator.emoji.loader;
 
-import java.io.BufferedReader;
 import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.MalformedURLException;
 import java.net.URL;
@@ -11,9 +12,11 @@ import java.net.URLConnection;
 import org.apache.log4j.Logger;
 
 import com.glitchcog.fontificator.emoji.EmojiType;
+import com.google.gson.stream.JsonReader;
 
 /**
- * Loads emoji JSON information from an API
+ * Loads emoji JSON information from an API. The JSON is handed over as a stream to be parsed as it's downloaded, rather
+ * than collected into a string first, so even the largest responses never need to be held in memory whole.
  * 
  * @author Matt Yanos
  */
@@ -65,19 +68,33 @@ public class EmojiApiLoader
      */
     private static final String BTTV_BASE_URL = "https://api.betterttv.net/2/channels/" + CHANNEL_NAME_REPLACE;
 
-    private static final int BUFFER_SIZE = 512;
-
-    private final char[] buffer;
+    /**
+     * The most often the progress listener is told how much has been read
+     */
+    private static final long PROGRESS_INTERVAL_MILLIS = 250L;
 
-    private StringBuilder jsonStringBuilder;
+    /**
+     * Told how much of the JSON has been read while it's being parsed
+     */
+    public interface ProgressListener
+    {
+        /**
+         * Called on the thread parsing the JSON, a few times a second at most
+         * 
+         * @param bytesRead
+         * @param contentLength
+         *            The total number of bytes, or -1 if the server didn't say
+         * @throws IOException
+         *             To stop reading
+         */
+        public void progress(long bytesRead, long contentLength) throws IOException;
+    }
 
     private String url;
 
-    private float jsonLength;
-
-    private BufferedReader reader;
+    private long contentLength;
 
-    private boolean loadComplete;
+    private JsonReader reader;
 
     /**
      * Get the URL for a V1 Twitch emote URL with the default size. The specified ID is the value given by the IRC tags
@@ -115,22 +132,32 @@ public class EmojiApiLoader
 
     public EmojiApiLoader()
     {
-        buffer = new char[BUFFER_SIZE];
+        reset();
     }
 
+    /**
+     * Close the connection, if one is open, and forget the prepared URL
+     */
     public void reset()
     {
-        this.jsonStringBuilder = null;
+        if (reader != null)
+        {
+            try
+            {
+                reader.close();
+            }
+            catch (IOException e)
+            {
+                logger.debug(e.getMessage(), e);
+            }
+        }
         this.url = null;
-        this.jsonLength = 0.0f;
+        this.contentLength = -1L;
         this.reader = null;
-        this.loadComplete = false;
     }
 
     public void prepLoad(String url)
     {
-        this.loadComplete = false;
-        this.jsonStringBuilder = new StringBuilder();
         this.url = url;
     }
 
@@ -183,56 +210,95 @@ public class EmojiApiLoader
         return oauth;
     }
 
-    public boolean initLoad() throws IOException, MalformedURLException, FileNotFoundException
+    /**
+     * Open a connection to the prepared URL
+     * 
+     * @param listener
+     *            Told how much has been read as the JSON is parsed, or null
+     * @return a reader for parsing the JSON as it downloads, or null if no URL was prepared
+     * @throws IOException
+     * @throws MalformedURLException
+     * @throws FileNotFoundException
+     */
+    public JsonReader initLoad(ProgressListener listener) throws IOException, MalformedURLException, FileNotFoundException
     {
         if (this.url != null)
         {
             URL url = new URL(this.url);
             URLConnection conn = url.openConnection();
-            this.jsonLength = conn.getContentLengthLong();
-            this.reader = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-            return true;
+            // -1 if the length isn't known, in which case progress is shown in KB rather than a percent
+            this.contentLength = conn.getContentLength();
+            this.reader = new JsonReader(new InputStreamReader(new CountingInputStream(conn.getInputStream(), contentLength, listener), "UTF-8"));
+            // Just as forgiving as the JsonParser the JSON used to be parsed with
+            this.reader.setLenient(true);
+            return reader;
         }
         else
         {
-            return false;
+            return null;
         }
     }
 
     public boolean isPercentCalculationPossible()
     {
-        return jsonLength > 0.0f;
+        return contentLength > 0L;
     }
 
     /**
-     * Loads piecemeal to permit reporting to the user how much work has been done
-     * 
-     * @return percent loaded, or byte count loaded depending on isPercentCalculationPossible()
-     * @throws IOException
-     * @throws MalformedURLException
+     * Counts the bytes read from the connection, and tells the listener every so often
      */
-    public int loadChunk() throws IOException, MalformedURLException
+    private static class CountingInputStream extends FilterInputStream
     {
-        int n = reader.read(buffer);
-        if (n == -1)
+        private final long contentLength;
+
+        private final ProgressListener listener;
+
+        private long count;
+
+        private long lastReported;
+
+        private CountingInputStream(InputStream in, long contentLength, ProgressListener listener)
         {
-            loadComplete = true;
+            super(in);
+            this.contentLength = contentLength;
+            this.listener = listener;
+            this.count = 0L;
+            this.lastReported = System.currentTimeMillis();
         }
-        else
+
+        @Override
+        public int read() throws IOException
         {
-            jsonStringBuilder.append(buffer, 0, n);
+            int b = super.read();
+            counted(b == -1 ? 0 : 1);
+            return b;
         }
-        return isPercentCalculationPossible() ? (int) (100.0f * (jsonStringBuilder.length() / jsonLength)) : jsonStringBuilder.length();
-    }
 
-    public boolean isLoadComplete()
-    {
-        return loadComplete;
-    }
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+            int n = super.read(b, off, len);
+            counted(Math.max(n, 0));
+            return n;
+        }
 
-    public String getLoadedJson()
-    {
-        return jsonStringBuilder == null ? null : jsonStringBuilder.toString();
-    }
+        @Override
+        public long skip(long n) throws IOException
+        {
+            long skipped = super.skip(n);
+            counted(skipped);
+            return skipped;
+        }
 
+        private void counted(long n) throws IOException
+        {
+            count += n;
+            final long now = System.currentTimeMillis();
+            if (listener != null && now - lastReported >= PROGRESS_INTERVAL_MILLIS)
+            {
+                lastReported = now;
+                listener.progress(count, contentLength);
+            }
+        }
+    }
 }
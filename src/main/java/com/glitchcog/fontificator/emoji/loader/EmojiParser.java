@@ -5,9 +5,11 @@ import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.Set;
 
 import com.glitchcog.fontificator.bot.UserType;
 import com.glitchcog.fontificator.config.ConfigEmoji;
@@ -18,18 +20,17 @@ import com.glitchcog.fontificator.emoji.LazyLoadEmoji;
 import com.glitchcog.fontificator.emoji.TypedEmojiMap;
 import com.glitchcog.fontificator.emoji.loader.betterttv.BttvEmote;
 import com.glitchcog.fontificator.emoji.loader.frankerfacez.Badge;
-import com.glitchcog.fontificator.emoji.loader.frankerfacez.FfzBadgesAndUsers;
 import com.glitchcog.fontificator.emoji.loader.frankerfacez.FfzEmote;
 import com.glitchcog.fontificator.emoji.loader.frankerfacez.Room;
 import com.glitchcog.fontificator.emoji.loader.twitch.TwitchBadges;
 import com.glitchcog.fontificator.emoji.loader.twitch.TwitchIdSetLink;
 import com.glitchcog.fontificator.gui.controls.panel.LogBox;
 import com.google.gson.Gson;
-import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
 /**
  * Parses emote JSON data for Twitch V2, V3, FrankerFaceZ, and BetterTTV
@@ -52,27 +53,28 @@ public class EmojiParser
     }
 
     /**
+     * Parse emoji JSON data straight from a stream, without ever holding the whole document in memory, so the memory
+     * needed is about the size of the emoji and badge users parsed out of it
+     * 
      * @param manager
      *            the emoji manager to load the parsed emoji into
      * @param type
      *            the type of the emoji
-     * @param jsonData
+     * @param reader
      *            the JSON data of the emoji to parse
-     * @param mapData
-     *            can be null for non-Twitch emoji
      * @throws IOException
      */
-    public void putJsonEmojiIntoManager(EmojiManager manager, EmojiType type, String jsonData) throws IOException
+    public void putJsonEmojiIntoManager(EmojiManager manager, EmojiType type, JsonReader reader) throws IOException
     {
         TypedEmojiMap emojiMap = manager.getEmojiByType(type);
         switch (type)
         {
         case FRANKERFACEZ_CHANNEL:
         case FRANKERFACEZ_GLOBAL:
-            parseFrankerFaceZEmoteJson(emojiMap, jsonData, type == EmojiType.FRANKERFACEZ_GLOBAL);
+            parseFrankerFaceZEmoteJson(emojiMap, reader, type == EmojiType.FRANKERFACEZ_GLOBAL);
             break;
         case FRANKERFACEZ_BADGE:
-            parseFrankerFaceZBadges(manager, jsonData);
+            parseFrankerFaceZBadges(manager, reader);
             break;
         // case TWITCH_V2:
         //     parseTwitchEmoteJsonV2(manager, jsonData, jsonMapData);
@@ -81,13 +83,14 @@ public class EmojiParser
         //     parseTwitchEmoteJsonV3(manager, jsonData, jsonMapData);
         //     break;
         case TWITCH_BADGE:
-            parseTwitchBadges(emojiMap, jsonData);
+            parseTwitchBadges(emojiMap, reader);
             break;
         case BETTER_TTV_CHANNEL:
         case BETTER_TTV_GLOBAL:
-            parseBetterTtvEmoteJson(emojiMap, jsonData, type == EmojiType.BETTER_TTV_GLOBAL);
+            parseBetterTtvEmoteJson(emojiMap, reader, type == EmojiType.BETTER_TTV_GLOBAL);
             break;
         default:
+            reader.skipValue();
             break;
         }
     }
@@ -120,69 +123,194 @@ public class EmojiParser
         return setIdByEmoteId;
     }
 
-    private void parseTwitchBadges(TypedEmojiMap badgeMap, String jsonData) throws IOException
+    private void parseTwitchBadges(TypedEmojiMap badgeMap, JsonReader reader) throws IOException
     {
-        JsonElement jsonElement = new JsonParser().parse(jsonData);
-
-        Gson gson = new Gson();
-
-        Type emoteType = new TypeToken<Map<String, TwitchBadges>>()
-        {
-        }.getType();
-        Map<String, TwitchBadges> jsonMap = gson.fromJson(jsonElement, emoteType);
-
         final Color subBgColor = new Color(0x6441A4);
         int badgeCount = 0;
-        for (Entry<String, TwitchBadges> badge : jsonMap.entrySet())
+
+        // Each badge is keyed by its name, next to a _links object that isn't a badge
+        reader.beginObject();
+        while (reader.hasNext())
         {
-            if (badge.getValue() != null && badge.getValue().getImage() != null)
+            final String badgeName = reader.nextName();
+            TwitchBadges badge = null;
+            if (reader.peek() == JsonToken.BEGIN_OBJECT)
+            {
+                badge = new TwitchBadges();
+                reader.beginObject();
+                while (reader.hasNext())
+                {
+                    final String name = reader.nextName();
+                    if ("image".equals(name))
+                    {
+                        badge.setImage(nextStringOrNull(reader));
+                    }
+                    else
+                    {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            }
+            else
+            {
+                reader.skipValue();
+            }
+
+            if (badge != null && badge.getImage() != null)
             {
                 // Sub badge color is a background color hack to make the sub badge visible against black backgrounds until the new Twitch badge system is implemented
-                final boolean isSubBadge = "subscriber".equals(badge.getKey());
+                final boolean isSubBadge = "subscriber".equals(badgeName);
                 badgeCount++;
-                LazyLoadEmoji llBadge = new LazyLoadEmoji(badge.getKey(), badge.getValue().getImage(), TWITCH_BADGE_PIXEL_SIZE, TWITCH_BADGE_PIXEL_SIZE, isSubBadge ? subBgColor : null, EmojiType.TWITCH_BADGE);
-                badgeMap.put(badge.getKey(), llBadge);
+                LazyLoadEmoji llBadge = new LazyLoadEmoji(badgeName, badge.getImage(), TWITCH_BADGE_PIXEL_SIZE, TWITCH_BADGE_PIXEL_SIZE, isSubBadge ? subBgColor : null, EmojiType.TWITCH_BADGE);
+                badgeMap.put(badgeName, llBadge);
             }
         }
+        reader.endObject();
 
         logBox.log(badgeCount + " Twitch badge" + (badgeCount == 1 ? "" : "s") + " loaded");
     }
 
-    private void parseFrankerFaceZBadges(EmojiManager manager, String jsonData) throws IOException
+    /**
+     * Parse the FrankerFaceZ badges and the users that have each one. The user lists are by far the largest emoji data
+     * loaded, which is why they are read straight into the map of badge users rather than into a model first.
+     * 
+     * @param manager
+     * @param reader
+     * @throws IOException
+     */
+    private void parseFrankerFaceZBadges(EmojiManager manager, JsonReader reader) throws IOException
     {
-        JsonElement ffzBadgesAndUsersElement = new JsonParser().parse(jsonData);
+        Map<Integer, Set<String>> badgeUsers = new LinkedHashMap<Integer, Set<String>>();
 
-        Gson gson = new Gson();
-
-        Type emoteType = new TypeToken<FfzBadgesAndUsers>()
+        reader.beginObject();
+        while (reader.hasNext())
         {
-        }.getType();
-        FfzBadgesAndUsers badgesAndUsers = gson.fromJson(ffzBadgesAndUsersElement, emoteType);
+            final String name = reader.nextName();
+            if ("badges".equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY)
+            {
+                reader.beginArray();
+                while (reader.hasNext())
+                {
+                    Badge b = readFrankerFaceZBadge(reader);
+                    if (b.getId() != null && b.getImage() != null)
+                    {
+                        manager.getEmojiByType(EmojiType.FRANKERFACEZ_BADGE).put("" + b.getId(), new LazyLoadEmoji(b.getName(), "moderator".equals(b.getReplaces()) ? UserType.MOD.getKey() : b.getReplaces(), "https:" + b.getImage(), b.getColorParsed(), EmojiType.FRANKERFACEZ_BADGE));
+                    }
+                }
+                reader.endArray();
+            }
+            else if ("users".equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT)
+            {
+                reader.beginObject();
+                while (reader.hasNext())
+                {
+                    final Integer badgeId = Integer.valueOf(reader.nextName());
+                    Set<String> users = new HashSet<String>();
+                    if (reader.peek() == JsonToken.BEGIN_ARRAY)
+                    {
+                        reader.beginArray();
+                        while (reader.hasNext())
+                        {
+                            final String user = nextStringOrNull(reader);
+                            if (user != null)
+                            {
+                                users.add(user);
+                            }
+                        }
+                        reader.endArray();
+                    }
+                    else
+                    {
+                        reader.skipValue();
+                    }
+                    badgeUsers.put(badgeId, users);
+                }
+                reader.endObject();
+            }
+            else
+            {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
 
-        for (Badge b : badgesAndUsers.getBadges())
+        manager.setFfzBadgeUsers(badgeUsers);
+    }
+
+    private static Badge readFrankerFaceZBadge(JsonReader reader) throws IOException
+    {
+        Badge badge = new Badge();
+        reader.beginObject();
+        while (reader.hasNext())
         {
-            manager.getEmojiByType(EmojiType.FRANKERFACEZ_BADGE).put("" + b.getId(), new LazyLoadEmoji(b.getName(), "moderator".equals(b.getReplaces()) ? UserType.MOD.getKey() : b.getReplaces(), "https:" + b.getImage(), b.getColorParsed(), EmojiType.FRANKERFACEZ_BADGE));
+            final String name = reader.nextName();
+            if ("id".equals(name) && reader.peek() == JsonToken.NUMBER)
+            {
+                badge.setId(reader.nextInt());
+            }
+            else if ("name".equals(name))
+            {
+                badge.setName(nextStringOrNull(reader));
+            }
+            else if ("replaces".equals(name))
+            {
+                badge.setReplaces(nextStringOrNull(reader));
+            }
+            else if ("image".equals(name))
+            {
+                badge.setImage(nextStringOrNull(reader));
+            }
+            else if ("color".equals(name))
+            {
+                badge.setColor(nextStringOrNull(reader));
+            }
+            else
+            {
+                reader.skipValue();
+            }
         }
-
-        manager.setFfzBadgeUsers(badgesAndUsers.getUsers());
+        reader.endObject();
+        return badge;
     }
 
     /**
      * Parse the FrankerFaceZ room data for the optional moderator badge
      * 
      * @param manager
-     * @param jsonData
+     * @param reader
      * @throws IOException
      */
-    public void parseFrankerFaceZModBadge(EmojiManager manager, String jsonData) throws IOException
+    public void parseFrankerFaceZModBadge(EmojiManager manager, JsonReader reader) throws IOException
     {
-        Gson gson = new Gson();
-
-        Type roomType = new TypeToken<Room>()
+        Room room = null;
+        reader.beginObject();
+        while (reader.hasNext())
         {
-        }.getType();
-        JsonObject jsonObject = new JsonParser().parse(jsonData).getAsJsonObject();
-        Room room = gson.fromJson(jsonObject.get("room"), roomType);
+            final String name = reader.nextName();
+            if ("room".equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT)
+            {
+                room = new Room();
+                reader.beginObject();
+                while (reader.hasNext())
+                {
+                    if ("moderator_badge".equals(reader.nextName()))
+                    {
+                        room.setModerator_badge(nextStringOrNull(reader));
+                    }
+                    else
+                    {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            }
+            else
+            {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
 
         final boolean customFfzModBadgeExists = room != null && room.getModerator_badge() != null;
         if (customFfzModBadgeExists)
@@ -197,121 +325,204 @@ public class EmojiParser
      * Parse emotes loaded using the FrankerFaceZ emote API
      * 
      * @param emoji
-     * @param jsonData
+     * @param reader
      * @param isGlobal
      *            Whether the FFZ emotes to be loaded are the FFZ global emotes
      * @throws IOException
      */
-    private void parseFrankerFaceZEmoteJson(TypedEmojiMap emoji, String jsonData, boolean isGlobal) throws IOException
+    private void parseFrankerFaceZEmoteJson(TypedEmojiMap emoji, JsonReader reader, boolean isGlobal) throws IOException
     {
-        JsonParser jp = new JsonParser();
+        String error = null;
+        String message = null;
+        boolean setsFound = false;
 
-        JsonObject root = jp.parse(jsonData).getAsJsonObject();
+        int frankerCount = 0;
+        int eMultiCount = 0;
+        List<String> setNames = new ArrayList<String>();
 
-        if (root.get("error") != null)
+        reader.beginObject();
+        while (reader.hasNext())
         {
-            String errorMessage = "Unable to load FrankerFaceZ emotes";
-            if (!root.get("message").isJsonNull())
+            final String name = reader.nextName();
+            if ("error".equals(name))
             {
-                errorMessage += ": " + root.get("message");
+                error = reader.peek() == JsonToken.NULL ? null : nextStringOrNull(reader);
+            }
+            else if ("message".equals(name))
+            {
+                message = nextStringOrNull(reader);
+            }
+            else if ("sets".equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT)
+            {
+                setsFound = true;
+                reader.beginObject();
+                while (reader.hasNext())
+                {
+                    setNames.add(reader.nextName());
+                    if (reader.peek() != JsonToken.BEGIN_OBJECT)
+                    {
+                        reader.skipValue();
+                        continue;
+                    }
+
+                    reader.beginObject();
+                    while (reader.hasNext())
+                    {
+                        if (!"emoticons".equals(reader.nextName()) || reader.peek() != JsonToken.BEGIN_ARRAY)
+                        {
+                            reader.skipValue();
+                            continue;
+                        }
+
+                        reader.beginArray();
+                        while (reader.hasNext())
+                        {
+                            FfzEmote e = readFrankerFaceZEmote(reader);
+                            LazyLoadEmoji lle = null;
+                            for (String key : e.getUrls().keySet())
+                            {
+                                lle = new LazyLoadEmoji(e.getName(), "https:" + e.getUrls().get(key), e.getWidth(), e.getHeight(), isGlobal ? EmojiType.FRANKERFACEZ_GLOBAL : EmojiType.FRANKERFACEZ_CHANNEL);
+                                break;
+                            }
+                            if (e.getUrls().size() > 1)
+                            {
+                                eMultiCount++;
+                            }
+                            if (lle != null)
+                            {
+                                emoji.put(e.getName(), lle);
+                            }
+                            frankerCount++;
+                        }
+                        reader.endArray();
+                    }
+                    reader.endObject();
+                }
+                reader.endObject();
+            }
+            else
+            {
+                reader.skipValue();
             }
-            logBox.log(errorMessage);
-            return;
-        }
-        else if (root.get("sets").isJsonNull() || (isGlobal && root.get("default_sets").isJsonNull()))
-        {
-            logBox.log("Unable to load FrankerFaceZ global emotes");
-            return;
         }
+        reader.endObject();
 
-        List<String> setsToLoad;
-
-        if (isGlobal)
+        if (error != null)
         {
-            setsToLoad = new ArrayList<String>();
-            JsonArray defaultSetsArray = root.get("default_sets").getAsJsonArray();
-            for (int i = 0; i < defaultSetsArray.size(); i++)
+            String errorMessage = "Unable to load FrankerFaceZ emotes";
+            if (message != null)
             {
-                setsToLoad.add(defaultSetsArray.get(i).getAsString());
+                errorMessage += ": " + message;
             }
+            logBox.log(errorMessage);
+            return;
         }
-        else
+        else if (!setsFound)
         {
-            setsToLoad = null;
+            logBox.log("Unable to load FrankerFaceZ " + (isGlobal ? "global " : "") + "emotes");
+            return;
         }
 
-        JsonObject sets = root.get("sets").getAsJsonObject();
-
-        Gson gson = new Gson();
-        Type emoteType = new TypeToken<FfzEmote[]>()
+        String allSets = "";
+        for (int n = 0; n < setNames.size(); n++)
         {
-        }.getType();
+            allSets += (n == 0 ? "" : ", ") + setNames.get(n);
+        }
+        logBox.log(setNames.size() + " FrankerFaceZ set" + (setNames.size() == 1 ? "" : "s") + " found: {" + allSets + "}");
+        logBox.log(frankerCount + " FrankerFaceZ emote" + (frankerCount == 1 ? "" : "s") + " loaded (" + eMultiCount + " multi-image emote" + (eMultiCount == 1 ? "" : "s") + ")");
+    }
 
-        int frankerCount = 0;
-        int eMultiCount = 0;
-        List<String> setNames = new ArrayList<String>();
-        for (Map.Entry<String, JsonElement> entry : sets.entrySet())
+    private static FfzEmote readFrankerFaceZEmote(JsonReader reader) throws IOException
+    {
+        FfzEmote emote = new FfzEmote();
+        Map<String, String> urls = new LinkedHashMap<String, String>();
+        emote.setUrls(urls);
+        reader.beginObject();
+        while (reader.hasNext())
         {
-            setNames.add(entry.getKey());
-
-            JsonElement emoteElement = entry.getValue().getAsJsonObject().get("emoticons");
-
-            FfzEmote[] jsonEmoteObjects = gson.fromJson(emoteElement, emoteType);
-            for (FfzEmote e : jsonEmoteObjects)
+            final String name = reader.nextName();
+            if ("name".equals(name))
             {
-                LazyLoadEmoji lle = null;
-                for (String key : e.getUrls().keySet())
-                {
-                    lle = new LazyLoadEmoji(e.getName(), "https:" + e.getUrls().get(key), e.getWidth(), e.getHeight(), isGlobal ? EmojiType.FRANKERFACEZ_GLOBAL : EmojiType.FRANKERFACEZ_CHANNEL);
-                    break;
-                }
-                if (e.getUrls().size() > 1)
+                emote.setName(nextStringOrNull(reader));
+            }
+            else if ("width".equals(name) && reader.peek() == JsonToken.NUMBER)
+            {
+                emote.setWidth(reader.nextInt());
+            }
+            else if ("height".equals(name) && reader.peek() == JsonToken.NUMBER)
+            {
+                emote.setHeight(reader.nextInt());
+            }
+            else if ("urls".equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT)
+            {
+                reader.beginObject();
+                while (reader.hasNext())
                 {
-                    eMultiCount++;
+                    final String size = reader.nextName();
+                    final String url = nextStringOrNull(reader);
+                    if (url != null)
+                    {
+                        urls.put(size, url);
+                    }
                 }
-                emoji.put(e.getName(), lle);
-                frankerCount++;
+                reader.endObject();
+            }
+            else
+            {
+                reader.skipValue();
             }
         }
-
-        String allSets = "";
-        for (int n = 0; n < setNames.size(); n++)
-        {
-            allSets += (n == 0 ? "" : ", ") + setNames.get(n);
-        }
-        logBox.log(setNames.size() + " FrankerFaceZ set" + (setNames.size() == 1 ? "" : "s") + " found: {" + allSets + "}");
-        logBox.log(frankerCount + " FrankerFaceZ emote" + (frankerCount == 1 ? "" : "s") + " loaded (" + eMultiCount + " multi-image emote" + (eMultiCount == 1 ? "" : "s") + ")");
+        reader.endObject();
+        return emote;
     }
 
     /**
      * Parse emotes loaded using the BetterTTV emote API
      * 
      * @param emoji
-     * @param jsonData
+     * @param reader
      * @param isGlobal
      *            Whether the BetterTTV emotes to be loaded are the BetterTTV global emotes
      * @throws IOException
      */
-    private void parseBetterTtvEmoteJson(TypedEmojiMap emoji, String jsonData, boolean isGlobal) throws IOException
+    private void parseBetterTtvEmoteJson(TypedEmojiMap emoji, JsonReader reader, boolean isGlobal) throws IOException
     {
-        JsonParser jp = new JsonParser();
-
-        JsonObject root = jp.parse(jsonData).getAsJsonObject();
+        String urlTemplateRaw = null;
+        // Kept until the end, because nothing promises the URL template comes before the emotes
+        List<BttvEmote> bttvEmotes = null;
 
-        if (root.get("emotes").isJsonNull())
+        reader.beginObject();
+        while (reader.hasNext())
         {
-            logBox.log("Unable to load Better TTV global emotes");
-            return;
+            final String name = reader.nextName();
+            if ("urlTemplate".equals(name))
+            {
+                urlTemplateRaw = nextStringOrNull(reader);
+            }
+            else if ("emotes".equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY)
+            {
+                bttvEmotes = new ArrayList<BttvEmote>();
+                reader.beginArray();
+                while (reader.hasNext())
+                {
+                    bttvEmotes.add(readBetterTtvEmote(reader));
+                }
+                reader.endArray();
+            }
+            else
+            {
+                reader.skipValue();
+            }
         }
+        reader.endObject();
 
-        Gson gson = new Gson();
-        Type emoteType = new TypeToken<BttvEmote[]>()
+        if (bttvEmotes == null || urlTemplateRaw == null)
         {
-        }.getType();
-
-        final String urlTemplate = "https:" + root.get("urlTemplate").getAsString().replace("{{image}}", "2x");
+            logBox.log("Unable to load Better TTV " + (isGlobal ? "global " : "") + "emotes");
+            return;
+        }
 
-        BttvEmote[] bttvEmotes = gson.fromJson(root.get("emotes").getAsJsonArray(), emoteType);
+        final String urlTemplate = "https:" + urlTemplateRaw.replace("{{image}}", "2x");
 
         int bttvCount = 0;
         for (BttvEmote be : bttvEmotes)
@@ -325,4 +536,50 @@ public class EmojiParser
         logBox.log(bttvCount + " Better TTV emote" + (bttvCount == 1 ? "" : "s") + " found");
     }
 
+    private static BttvEmote readBetterTtvEmote(JsonReader reader) throws IOException
+    {
+        BttvEmote emote = new BttvEmote();
+        reader.beginObject();
+        while (reader.hasNext())
+        {
+            final String name = reader.nextName();
+            if ("id".equals(name))
+            {
+                emote.setId(nextStringOrNull(reader));
+            }
+            else if ("code".equals(name))
+            {
+                emote.setCode(nextStringOrNull(reader));
+            }
+            else if ("imageType".equals(name))
+            {
+                emote.setImageType(nextStringOrNull(reader));
+            }
+            else
+            {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return emote;
+    }
+
+    /**
+     * Read a string, or a number as a string, skipping anything else
+     * 
+     * @param reader
+     * @return string, or null if the value isn't a string or a number
+     * @throws IOException
+     */
+    private static String nextStringOrNull(JsonReader reader) throws IOException
+    {
+        final JsonToken token = reader.peek();
+        if (token == JsonToken.STRING || token == JsonToken.NUMBER)
+        {
+            return reader.nextString();
+        }
+        reader.skipValue();
+        return null;
+    }
+
 }
@@ -1,20 +1,13 @@
 package com.glitchcog.fontificator.gui.chat;
 
-import java.awt.Color;
-import java.awt.Dimension;
-import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
-import java.awt.Point;
+import java.awt.Image;
 import java.awt.Rectangle;
-import java.awt.RenderingHints;
 import java.awt.event.MouseWheelEvent;
 import java.awt.event.MouseWheelListener;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.ConcurrentLinkedQueue;
 
 import javax.swing.JPanel;
 
@@ -23,22 +16,22 @@ import org.apache.log4j.Logger;
 import com.glitchcog.fontificator.bot.Message;
 import com.glitchcog.fontificator.config.ConfigCensor;
 import com.glitchcog.fontificator.config.ConfigChat;
-import com.glitchcog.fontificator.config.ConfigColor;
 import com.glitchcog.fontificator.config.ConfigEmoji;
 import com.glitchcog.fontificator.config.ConfigFont;
 import com.glitchcog.fontificator.config.ConfigMessage;
 import com.glitchcog.fontificator.config.FontificatorProperties;
 import com.glitchcog.fontificator.emoji.EmojiManager;
+import com.glitchcog.fontificator.gui.chat.clock.ChatClock;
+import com.glitchcog.fontificator.gui.chat.clock.FrameScheduler;
 import com.glitchcog.fontificator.gui.chat.clock.MessageExpirer;
 import com.glitchcog.fontificator.gui.chat.clock.MessageProgressor;
+import com.glitchcog.fontificator.gui.chat.clock.RealChatClock;
 import com.glitchcog.fontificator.gui.controls.panel.ControlPanelDebug;
 import com.glitchcog.fontificator.gui.controls.panel.ControlPanelFont;
 import com.glitchcog.fontificator.gui.controls.panel.MessageCensorPanel;
-import com.glitchcog.fontificator.sprite.Sprite;
-import com.glitchcog.fontificator.sprite.SpriteFont;
 
 /**
- * This panel contains the entire visualization of the chat, so it handles all the drawing. It also handles scrolling
+ * This panel contains the entire visualization of the chat, which it has a ChatRenderer draw. It also handles scrolling
  * through the chat.
  * 
  * @author Matt Yanos
@@ -52,7 +45,7 @@ public class ChatPanel extends JPanel implements MouseWheelListener
     /**
      * The cache of messages to be displayed
      */
-    private ConcurrentLinkedQueue<Message> messages;
+    private final MessageStore messages;
 
     private MessageCensorPanel censor;
 
@@ -68,22 +61,6 @@ public class ChatPanel extends JPanel implements MouseWheelListener
      */
     private MessageExpirer messageExpirer;
 
-    /**
-     * The sprite used to draw the border around the chat, to be displayed if the border scale is greater than zero
-     */
-    private Sprite border;
-
-    /**
-     * The number of lines for all the messages in the chat buffer. This is not the number of messages, but the number
-     * of lines the messages will take up once drawn.
-     */
-    private int lineCount;
-
-    /**
-     * The number of lines that fit on the screen between the top border and bottom border.
-     */
-    private int onScreenLineCount;
-
     /**
      * Configuration for the font and the border
      */
@@ -95,11 +72,6 @@ public class ChatPanel extends JPanel implements MouseWheelListener
      */
     private ConfigChat chatConfig;
 
-    /**
-     * Configuration for which colors to use to draw the chat
-     */
-    private ConfigColor colorConfig;
-
     /**
      * Configuration for how to draw the messages, what parts of the messages to display, the rate to display new
      * messages, the format for the timestamps, and the queue size
@@ -122,11 +94,6 @@ public class ChatPanel extends JPanel implements MouseWheelListener
      */
     private ControlPanelDebug debugSettings;
 
-    /**
-     * The font used to draw the chat messages
-     */
-    private SpriteFont font;
-
     /**
      * This indicates whether the configuration has been loaded. Before this is true, no call to any methods that draw
      * should be called because they all rely on the configuration. Once it is set to true, it will remain true- it is
@@ -140,21 +107,48 @@ public class ChatPanel extends JPanel implements MouseWheelListener
     private EmojiManager emojiManager;
 
     /**
-     * Construct the ChatPanel, which contains the entire visualization of the chat
+     * Draws the chat into this panel
+     */
+    private ChatRenderer renderer;
+
+    /**
+     * The source of the time for the chat, used to time stamp, roll out and expire messages
+     */
+    private final ChatClock clock;
+
+    /**
+     * Repaints the chat for the message rollout, message expiration and emoji animation together, at most once a frame
+     */
+    private final FrameScheduler frameScheduler;
+
+    /**
+     * Construct the ChatPanel, which contains the entire visualization of the chat, keeping the actual time
      * 
-     * @param censor
-     *            The message popup dialog from the Control Window to be updated when a message is posted so the censor
-     *            list is current
      * @throws IOException
      */
     public ChatPanel() throws IOException
     {
+        this(new RealChatClock());
+    }
+
+    /**
+     * Construct the ChatPanel, which contains the entire visualization of the chat, keeping time with the specified
+     * clock
+     * 
+     * @param clock
+     *            The source of the time for the chat
+     * @throws IOException
+     */
+    public ChatPanel(ChatClock clock) throws IOException
+    {
+        this.clock = clock;
         loaded = false;
-        lineCount = Integer.MAX_VALUE;
-        onScreenLineCount = 0;
-        messages = new ConcurrentLinkedQueue<Message>();
+        messages = new MessageStore();
 
         emojiManager = new EmojiManager();
+        renderer = new ChatRenderer(emojiManager, clock);
+        renderer.setEmojiObserver(this);
+        frameScheduler = new FrameScheduler(this, clock);
         messageProgressor = new MessageProgressor(this);
         messageExpirer = new MessageExpirer(this);
     }
@@ -186,15 +180,13 @@ public class ChatPanel extends JPanel implements MouseWheelListener
         logger.trace("Setting chat panel config via fontificator properties object");
         this.fontConfig = fProps.getFontConfig();
         this.chatConfig = fProps.getChatConfig();
-        this.colorConfig = fProps.getColorConfig();
         this.messageConfig = fProps.getMessageConfig();
         this.emojiConfig = fProps.getEmojiConfig();
         this.censorConfig = fProps.getCensorConfig();
 
-        font = new SpriteFont(fontConfig);
-        reloadFontFromConfig();
-        // This initializes the border
-        reloadBorderFromConfig();
+        // This instantiates the font and border
+        renderer.setConfig(fProps);
+        frameScheduler.setConfig(chatConfig);
 
         // This indicates that the chat panel is ready to be drawn
         loaded = true;
@@ -224,379 +216,139 @@ public class ChatPanel extends JPanel implements MouseWheelListener
             return;
         }
 
-        Graphics2D g2d = (Graphics2D) g;
-
-        if (chatConfig.isAntiAlias())
-        {
-            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-            g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
-        }
-
-        // Fits in the line height.
-        boolean stillFits = true;
-        int fontSize = 0;
-        while (stillFits)
-        {
-            fontSize++;
-            g2d.setFont(new Font(g2d.getFont().getName(), Font.PLAIN, fontSize));
-            stillFits = (font.getFontHeight() - fontConfig.getBaselineOffset()) * fontConfig.getFontScale() > g2d.getFontMetrics().getStringBounds("A", 0, 1, g2d).getHeight();
-        }
-
-        logger.trace("Calulated font size: " + fontSize);
-
-        List<Message> drawMessages = new ArrayList<Message>();
-
-        // Make a copy of the actual cache that only includes the messages that are completely drawn and possibly the
-        // one message currently being drawn
-        long drawTime = System.currentTimeMillis();
-        for (Message msg : messages)
-        {
-            final boolean censored = censorConfig.isCensorshipEnabled() && msg.isCensored();
-            final boolean expired = messageConfig.isMessageExpirable() && msg.getAge(drawTime) > messageConfig.getExpirationTime();
-            if (!censored && !expired)
-            {
-                drawMessages.add(msg);
-            }
-            if (!censored && !expired && !msg.isCompletelyDrawn())
-            {
-                // No need to check any further messages because this is the one currently being rolled out
-                break;
-            }
-        }
-
-        // Draws the background color and the chroma key border
-        if (messageConfig.isHideEmptyBackground() && drawMessages.isEmpty())
-        {
-            // If the messages are empty and the background should be hidden, draw the chroma color regardless of whether it's enabled
-            g2d.setColor(colorConfig.getChromaColor());
-            g2d.fillRect(0, 0, getWidth(), getHeight());
-        }
-        else
-        {
-            drawBackgroundAndChroma(g2d);
-        }
-
-        // This offset represents how far inward in the x and y directions the messages should be drawn
-        Point offset = new Point();
-
-        // If border scale is zero, just skip this. The drawBorder method won't draw a zero scale border, but if these
-        // calculations are attempted with a zero scale it will throw a divide by zero exception
-        // Also check if no messages are visible whether the border should be hidden
-        if (fontConfig.getBorderScale() > 0.0f && !(messageConfig.isHideEmptyBorder() && drawMessages.isEmpty()))
-        {
-            final int gridWidth = getWidth() / border.getSpriteDrawWidth(fontConfig.getBorderScale());
-            final int gridHeight = getHeight() / border.getSpriteDrawHeight(fontConfig.getBorderScale());
-
-            final int leftOffset = (getWidth() - gridWidth * border.getSpriteDrawWidth(fontConfig.getBorderScale())) / 2;
-            final int topOffset = (getHeight() - gridHeight * border.getSpriteDrawHeight(fontConfig.getBorderScale())) / 2;
-
-            offset = new Point(leftOffset, topOffset);
-
-            drawBorder(g2d, gridWidth, gridHeight, offset, colorConfig.getBorderColor(), debugSettings.isDrawBorderGrid(), debugSettings.getBorderGridColor());
-        }
-
-        drawChat(g2d, drawMessages, offset, debugSettings.isDrawTextGrid(), debugSettings.getTextGridColor());
+        renderer.setDebugGrids(debugSettings.isDrawTextGrid(), debugSettings.getTextGridColor(), debugSettings.isDrawBorderGrid(), debugSettings.getBorderGridColor());
+        renderer.render((Graphics2D) g, getWidth(), getHeight(), messages);
     }
 
     /**
-     * Draws a test grid for debugging purposes
+     * Draw the chat as it is now at the specified size, for drawing it somewhere other than this panel, like the frames
+     * of a ChatReplay. Only the configuration needs to be set, not the censor or debug settings, and no debug grids are
+     * drawn.
      * 
-     * @param g
-     * @param one
-     * @param two
-     * @param x
-     * @param y
+     * @param g2d
      * @param width
      * @param height
-     * @param squareSize
      */
-    protected void drawGrid(Graphics g, Color one, Color two, int x, int y, int width, int height, int squareSize)
+    public void render(Graphics2D g2d, int width, int height)
     {
-        for (int r = 0; r < height / squareSize + 1; r++)
-        {
-            for (int c = 0; c < width / squareSize + 1; c++)
-            {
-                boolean colorOne = r % 2 == 1 && c % 2 == 0 || r % 2 == 0 && c % 2 == 1;
-                g.setColor(colorOne ? one : two);
-                g.fillRect(x + c * squareSize, y + r * squareSize, squareSize, squareSize);
-            }
-        }
+        renderer.setDebugGrids(false, null, false, null);
+        renderer.render(g2d, width, height, messages);
     }
 
     /**
-     * Draw the background and the chroma key border
-     * 
-     * @param g2d
+     * Repaint the whole chat in the next frame, along with anything else that needs repainting then
      */
-    private void drawBackgroundAndChroma(Graphics2D g2d)
+    public void requestRepaint()
     {
-        if (chatConfig.isChromaEnabled())
-        {
-            g2d.setColor(chatConfig.isChromaInvert() ? colorConfig.getBgColor() : colorConfig.getChromaColor());
-            g2d.fillRect(0, 0, getWidth(), getHeight());
-            g2d.setColor(chatConfig.isChromaInvert() ? colorConfig.getChromaColor() : colorConfig.getBgColor());
-            Rectangle border = chatConfig.getChromaBorder();
-            g2d.fillRoundRect(Math.min(getWidth(), border.x), Math.min(getHeight(), border.y), Math.max(0, getWidth() - border.width - border.x), Math.max(0, getHeight() - border.height - border.y), chatConfig.getChromaCornerRadius(), chatConfig.getChromaCornerRadius());
-        }
-        else
-        {
-            // Just draw the background
-            g2d.setColor(colorConfig.getBgColor());
-            g2d.fillRect(0, 0, getWidth(), getHeight());
-        }
+        frameScheduler.requestRepaint();
     }
 
     /**
-     * Draw the words in the messages in the chat
-     * 
-     * @param g2d
-     * @param messages
-     * @param offset
+     * Animated emoji report each new frame here, which is repainted in the next frame of the chat rather than right
+     * away, so any number of animations only repaint the chat at the frame rate
      */
-    private void drawChat(Graphics2D g2d, List<Message> drawMessages, Point offset, boolean debug, Color debugColor)
+    @Override
+    public boolean imageUpdate(Image img, int infoflags, int x, int y, int w, int h)
     {
-        final int lineWrapLength = (border == null || fontConfig.getBorderScale() <= 0.0f ? getWidth() : border.getSpriteDrawWidth(fontConfig.getBorderScale()) * (getWidth() / border.getSpriteDrawWidth(fontConfig.getBorderScale()) - 2)) - fontConfig.getBorderInsetX() * 2;
-        final int leftEdge = offset.x + (border == null || fontConfig.getBorderScale() <= 0.0f ? 0 : border.getSpriteDrawWidth(fontConfig.getBorderScale())) + fontConfig.getBorderInsetX();
-
-        // totalHeight is the height of all the messages
-        int totalHeight = 0;
-        for (int i = 0; i < drawMessages.size(); i++)
-        {
-            Message msg = drawMessages.get(i);
-            final boolean lastMessage = i >= drawMessages.size() - 1;
-            Dimension dim = font.getMessageDimensions(msg, g2d.getFontMetrics(), messageConfig, emojiConfig, emojiManager, lineWrapLength, lastMessage);
-            totalHeight += dim.getHeight();
-        }
-
-        // Used for scrolling
-        int lineHeight = font.getLineHeightScaled();
-        if (lineHeight == 0)
-        {
-            lineHeight = 1;
-        }
-        lineCount = lineHeight == 0 ? 0 : totalHeight / lineHeight;
-
-        // borderEdgeThickness is the y-inset on the top plus the height of the top part of the border
-        final int borderEdgeThickness = offset.y + (border == null || fontConfig.getBorderScale() < ConfigFont.FONT_BORDER_SCALE_GRANULARITY ? 0 : border.getSpriteDrawHeight(fontConfig.getBorderScale())) + fontConfig.getBorderInsetY();
-
-        final int drawableVerticalRange = getHeight() - borderEdgeThickness * 2;
-
-        // Used for scrolling when chat scrolls normally and starts from the top, or when chat scrolls reverse and starts from the bottom
-        onScreenLineCount = drawableVerticalRange / lineHeight;
-
-        // y is where the drawing begins
-        int y;
-        if (chatConfig.isChatFromBottom())
-        {
-            if (chatConfig.isReverseScrolling())
-            {
-                if (totalHeight > drawableVerticalRange)
-                {
-                    y = borderEdgeThickness;
-                }
-                else
-                {
-                    y = getHeight() - totalHeight - borderEdgeThickness;
-                }
-            }
-            else
-            {
-                y = getHeight() - totalHeight - borderEdgeThickness;
-            }
-        }
-        // else chat from top
-        else
-        {
-            if (chatConfig.isReverseScrolling())
-            {
-                y = borderEdgeThickness;
-            }
-            else
-            {
-                if (totalHeight > drawableVerticalRange)
-                {
-                    // Not all the messages fit in the given space range, so start drawing up out of bounds at a negative y. This uses just the top borderEdgeThickness's height, not both top and bottom
-                    y = (getHeight() - borderEdgeThickness) - totalHeight;
-                }
-                // If the total height of all the messages is less than or equal to the total height
-                else
-                {
-                    // Just set the y to start drawing to the borderEdgeThickness because it should be fixed to the top when there's enough room for everything
-                    y = borderEdgeThickness;
-                }
-            }
-        }
-
-        final int botLimit;
-        if (chatConfig.isReverseScrolling() && totalHeight > drawableVerticalRange)
-        {
-            botLimit = getHeight() - borderEdgeThickness - font.getLineHeightScaled();
-        }
-        else
-        {
-            botLimit = getHeight() - borderEdgeThickness;
-        }
-
-        // Draw each message in the drawMessages copy of the cache
-        for (int i = 0; i < drawMessages.size(); i++)
+        if ((infoflags & (FRAMEBITS | ALLBITS)) != 0)
         {
-            int msgIndex = chatConfig.isReverseScrolling() ? drawMessages.size() - i - 1 : i;
-            Message msg = drawMessages.get(msgIndex);
-            Color col = getUsernameColor(colorConfig, msg);
-            final boolean lastMessage = i >= drawMessages.size() - 1;
-            // The call to drawMessage in SpriteFont will determine whether to draw each character based on whether it is located at a position appropriate to be drawn on
-            Dimension dim = font.drawMessage(g2d, g2d.getFontMetrics(), msg, col, colorConfig, messageConfig, emojiConfig, emojiManager, leftEdge, y, borderEdgeThickness, botLimit, lineWrapLength, debug, debugColor, this, lastMessage);
-            y += dim.getHeight();
+            requestRepaint();
         }
+        return (infoflags & (ALLBITS | ABORT)) == 0;
     }
 
-    private static Color getUsernameColor(ConfigColor colorConfig, Message msg)
+    /**
+     * Repaint the part of the chat changed by a message revealing more of its characters, or the whole chat if the
+     * change can't be narrowed down, in the next frame
+     * 
+     * @param msg
+     *            The message that revealed more characters
+     * @param fromCursor
+     *            The draw cursor of the message before the characters were revealed
+     */
+    public void repaintRollout(Message msg, float fromCursor)
     {
-        Color col;
-        if (msg.isJoinType())
-        {
-            col = colorConfig.getHighlight();
-        }
-        else if (colorConfig.isUseTwitchColors() && msg.getPrivmsg().getColor() != null)
+        Rectangle damage = renderer.getRolloutDamage(msg, fromCursor);
+        if (damage == null)
         {
-            col = msg.getPrivmsg().getColor();
+            frameScheduler.requestRepaint();
         }
-        else
+        else if (!damage.isEmpty())
         {
-            col = colorConfig.getPalette().isEmpty() ? colorConfig.getHighlight() : colorConfig.getPalette().get(Math.abs(msg.getUsername().toLowerCase().hashCode()) % colorConfig.getPalette().size());
+            frameScheduler.requestRepaint(damage);
         }
-        return col;
     }
 
     /**
-     * Draw the border
+     * Add a message to the cache, and call method to process any censorship
      * 
-     * @param g2d
-     * @param gridWidth
-     * @param gridHeight
-     * @param offset
-     * @param color
+     * @param addition
      */
-    private void drawBorder(Graphics2D g2d, int gridWidth, int gridHeight, Point offset, Color color, boolean debug, Color debugColor)
+    public void addMessage(Message addition)
     {
-        final float scale = fontConfig.getBorderScale();
-
-        if (scale <= 0.0f)
+        if (addition.isJoinType() && !messageConfig.showJoinMessages())
         {
             return;
         }
 
-        if (debug)
+        // A chat drawn away from the control window, like a replay, has no censor
+        if (censor != null)
         {
-            g2d.setColor(debugColor);
+            censor.checkCensor(addition);
         }
 
-        for (int r = 0; r < gridHeight; r++)
+        for (Message evicted : messages.add(addition, messageConfig.getQueueSize()))
         {
-            for (int c = 0; c < gridWidth; c++)
+            renderer.getStripCache().remove(evicted);
+            if (!evicted.isCompletelyDrawn() && !(evicted.isCensored() && isCensorshipEnabled()))
             {
-                int pixelX = c * border.getSpriteDrawWidth(scale) + offset.x;
-                int pixelY = r * border.getSpriteDrawHeight(scale) + offset.y;
-
-                if (r == 0) // Top row
-                {
-                    if (c == 0) // Top left
-                    {
-                        border.draw(g2d, pixelX, pixelY, 0, scale, color);
-                    }
-                    else if (c == gridWidth - 1) // Top right
-                    {
-                        border.draw(g2d, pixelX, pixelY, 2, scale, color);
-                    }
-                    else
-                    // Top middle
-                    {
-                        border.draw(g2d, pixelX, pixelY, 1, scale, color);
-                    }
-                }
-                else if (r == gridHeight - 1) // Bottom row
-                {
-                    if (c == 0) // Bottom left
-                    {
-                        border.draw(g2d, pixelX, pixelY, 6, scale, color);
-                    }
-                    else if (c == gridWidth - 1) // Bottom right
-                    {
-                        border.draw(g2d, pixelX, pixelY, 8, scale, color);
-                    }
-                    else
-                    // Bottom middle
-                    {
-                        border.draw(g2d, pixelX, pixelY, 7, scale, color);
-                    }
-                }
-                else
-                // Middle
-                {
-                    if (c == 0) // Middle left
-                    {
-                        border.draw(g2d, pixelX, pixelY, 3, scale, color);
-                    }
-                    else if (c == gridWidth - 1) // Middle right
-                    {
-                        border.draw(g2d, pixelX, pixelY, 5, scale, color);
-                    }
-                    else
-                    // Middle middle
-                    {
-                        border.draw(g2d, pixelX, pixelY, 4, scale, color);
-                    }
-                }
-                if (debug)
-                {
-                    g2d.drawRect(pixelX, pixelY, (int) (border.getSpriteWidth() * scale), (int) (border.getSpriteHeight() * scale));
-                }
+                messageProgressor.messageTrimmed();
             }
         }
+        if (addition.isCompletelyDrawn())
+        {
+            // Censored on arrival, so it starts expiring right away
+            messageExpirer.messageCompleted(addition);
+        }
+
+        // The new message is the newest, so it's still ahead of the rollout head
+        messageProgressor.startClock(messageConfig.getMessageDelay());
+        if (censor != null && censor.isVisible())
+        {
+            censor.updateManualTable();
+        }
+
+        requestRepaint();
     }
 
     /**
-     * Add a message to the cache, and call method to process any censorship
+     * Delete the specified messages from the queue once they've expired
      * 
-     * @param addition
+     * @param expired
      */
-    synchronized public void addMessage(Message addition)
+    public void removeExpiredMessages(List<Message> expired)
     {
-        if (addition.isJoinType() && !messageConfig.showJoinMessages())
-        {
-            return;
-        }
-
-        censor.checkCensor(addition);
-
-        // Note that for a moment here, the size of messages can exceed the specified queueSize in the message config,
-        // so if another thread is accessing this, be sure to take that into consideration
-        messages.add(addition);
-        int remCount = Math.max(0, messages.size() - messageConfig.getQueueSize());
-
-        Iterator<Message> iter = messages.iterator();
-        while (iter.hasNext() && remCount > 0)
+        messages.removeAll(expired);
+        for (Message msg : expired)
         {
-            iter.next();
-            iter.remove();
-            remCount--;
+            renderer.getStripCache().remove(msg);
         }
 
-        initMessageRollout();
-        if (censor.isVisible())
+        if (censor != null && censor.isVisible())
         {
             censor.updateManualTable();
         }
 
-        repaint();
+        requestRepaint();
     }
 
     /**
      * Delete all messages from the queue to clear the chat
      */
-    synchronized public void clearChat()
+    public void clearChat()
     {
         messages.clear();
+        renderer.getStripCache().clear();
         repaint();
     }
 
@@ -607,7 +359,7 @@ public class ChatPanel extends JPanel implements MouseWheelListener
     {
         if (isLoaded())
         {
-            font.setLineScrollOffset(0);
+            renderer.resetScrollOffset();
         }
     }
 
@@ -623,23 +375,7 @@ public class ChatPanel extends JPanel implements MouseWheelListener
     {
         if (isLoaded())
         {
-            final int dir = positiveDirection ? lines : -lines;
-            if (chatConfig.isChatFromBottom())
-            {
-                font.incrementLineScrollOffset(dir, 0, lineCount);
-            }
-            else
-            {
-                final boolean screenIsOverflowing = lineCount >= onScreenLineCount;
-                if (screenIsOverflowing)
-                {
-                    font.incrementLineScrollOffset(dir, -onScreenLineCount + 1, lineCount - onScreenLineCount + 1);
-                }
-                else
-                {
-                    font.incrementLineScrollOffset(dir, lineCount == 0 ? 0 : -lineCount + 1, 1);
-                }
-            }
+            renderer.incrementScrollOffset(positiveDirection, lines);
             repaint();
         }
     }
@@ -657,24 +393,15 @@ public class ChatPanel extends JPanel implements MouseWheelListener
     }
 
     /**
-     * Get the message cache. This is used by the timer task that resides in the MessageProgressor object to increment
-     * the drawing of the messages
-     * 
-     * @return messages
-     */
-    synchronized public Message[] getMessages()
-    {
-        return messages.toArray(new Message[messages.size()]);
-    }
-
-    /**
-     * Get the actual queue of messages
+     * Get a snapshot of the message cache. This is used by the censor to check and list the messages, and by the
+     * expirer to gather up the completely drawn messages. The snapshot doesn't
+     * change, and is shared until the messages next change, so it's cheap to get as often as needed.
      * 
      * @return messages
      */
-    public ConcurrentLinkedQueue<Message> getMessageQueue()
+    public MessageSnapshot getMessages()
     {
-        return messages;
+        return messages.getSnapshot();
     }
 
     /**
@@ -685,7 +412,7 @@ public class ChatPanel extends JPanel implements MouseWheelListener
      */
     public void reloadFontFromConfig() throws IOException
     {
-        font.updateForConfigChange();
+        renderer.reloadFontFromConfig();
     }
 
     /**
@@ -695,16 +422,7 @@ public class ChatPanel extends JPanel implements MouseWheelListener
      */
     public void reloadBorderFromConfig() throws IOException
     {
-        try
-        {
-            border = new Sprite(fontConfig.getBorderFilename(), 3, 3);
-        }
-        catch (Exception e)
-        {
-            final String errorMessage = "Unable to load border sprite " + (fontConfig == null ? "for null font configuration" : "for border filename " + fontConfig.getBorderFilename());
-            logger.error(errorMessage, e);
-            border = new Sprite();
-        }
+        renderer.reloadBorderFromConfig();
     }
 
     /**
@@ -759,24 +477,59 @@ public class ChatPanel extends JPanel implements MouseWheelListener
         return emojiManager;
     }
 
+    /**
+     * Get the source of the time for the chat
+     * 
+     * @return clock
+     */
+    public ChatClock getClock()
+    {
+        return clock;
+    }
+
+    /**
+     * Schedule the removal of each completely drawn message for when it expires, called whenever messages might have
+     * been completed outside of the message rollout, like by being censored. Nothing is scheduled if messages don't
+     * expire.
+     */
     public void initExpirationTimer()
     {
-        if (messageConfig.isMessageExpirable())
-        {
-            messageExpirer.startClock();
-        }
+        messageExpirer.startClock();
     }
 
     /**
      * Attempt to restart the message rollout, called whenever some messages might be reintroduced to the drawMessage
      * after the message rollout is completed, by being uncensored for example. This call relies on the fact that the
-     * messageProgression will halt again if all the messages are complete already.
+     * messageProgression will halt again if all the messages are complete already. The rollout head is moved back to
+     * the oldest message so the reintroduced messages aren't skipped.
      */
     public void initMessageRollout()
     {
+        messages.rewindRollout();
         messageProgressor.startClock(messageConfig.getMessageDelay());
     }
 
+    /**
+     * Get the oldest message that still needs to be rolled out, used by the timer task that resides in the
+     * MessageProgressor object to increment the drawing of the messages
+     * 
+     * @return message, or null if there's nothing left to roll out
+     */
+    public Message getNextToRollOut()
+    {
+        return messages.getNextToRollOut(isCensorshipEnabled());
+    }
+
+    /**
+     * Measure how far the message rollout has fallen behind
+     * 
+     * @return backlog
+     */
+    public RolloutBacklog getRolloutBacklog()
+    {
+        return messages.getBacklog(isCensorshipEnabled(), emojiManager, messageConfig, emojiConfig);
+    }
+
     public boolean isCensorshipEnabled()
     {
         return censorConfig.isCensorshipEnabled();
@@ -793,6 +546,16 @@ public class ChatPanel extends JPanel implements MouseWheelListener
         censor.purgeMessagesForUser(username, reason);
     }
 
+    /**
+     * Get the cache of images of the messages that are done rolling out
+     * 
+     * @return stripCache
+     */
+    public MessageStripCache getStripCache()
+    {
+        return renderer.getStripCache();
+    }
+
     public String getFontGameName()
     {
         return ControlPanelFont.getFontGameName(fontConfig.getFontFilename());
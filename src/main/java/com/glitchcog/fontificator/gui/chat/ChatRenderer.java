@@ -0,0 +1,972 @@
+package com.glitchcog.fontificator.gui.chat;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.ImageObserver;
+
+import org.apache.log4j.Logger;
+
+import com.glitchcog.fontificator.bot.Message;
+import com.glitchcog.fontificator.config.ConfigCensor;
+import com.glitchcog.fontificator.config.ConfigChat;
+import com.glitchcog.fontificator.config.ConfigColor;
+import com.glitchcog.fontificator.config.ConfigEmoji;
+import com.glitchcog.fontificator.config.ConfigFont;
+import com.glitchcog.fontificator.config.ConfigMessage;
+import com.glitchcog.fontificator.config.FontificatorProperties;
+import com.glitchcog.fontificator.emoji.EmojiManager;
+import com.glitchcog.fontificator.emoji.LazyLoadEmoji;
+import com.glitchcog.fontificator.gui.chat.clock.ChatClock;
+import com.glitchcog.fontificator.sprite.MessageLayout;
+import com.glitchcog.fontificator.sprite.Sprite;
+import com.glitchcog.fontificator.sprite.SpriteFont;
+
+/**
+ * Draws the chat: the background, chroma key, border and messages. It draws onto any graphics object at any size, so it
+ * has no need of a window or a display, and can draw the chat into an image as readily as onto the chat panel. The
+ * chat panel only has to hand it its size and its messages.
+ * 
+ * @author Matt Yanos
+ */
+public class ChatRenderer
+{
+    private static final Logger logger = Logger.getLogger(ChatRenderer.class);
+
+    /**
+     * The width of the chat as of the current or most recent render
+     */
+    private int width;
+
+    /**
+     * The height of the chat as of the current or most recent render
+     */
+    private int height;
+
+    /**
+     * The sprite used to draw the border around the chat, to be displayed if the border scale is greater than zero
+     */
+    private Sprite border;
+
+    /**
+     * The number of lines for all the messages in the chat buffer. This is not the number of messages, but the number
+     * of lines the messages will take up once drawn.
+     */
+    private int lineCount;
+
+    /**
+     * The number of lines that fit on the screen between the top border and bottom border.
+     */
+    private int onScreenLineCount;
+
+    /**
+     * Configuration for the font and the border
+     */
+    private ConfigFont fontConfig;
+
+    /**
+     * Configuration for the chat, meaning whether scrolling is enabled and whether and how to draw the chroma key
+     * border
+     */
+    private ConfigChat chatConfig;
+
+    /**
+     * Configuration for which colors to use to draw the chat
+     */
+    private ConfigColor colorConfig;
+
+    /**
+     * Configuration for how to draw the messages, what parts of the messages to display, the rate to display new
+     * messages, the format for the timestamps, and the queue size
+     */
+    private ConfigMessage messageConfig;
+
+    /**
+     * Configuration for whether to include emoji in the messages
+     */
+    private ConfigEmoji emojiConfig;
+
+    /**
+     * Configuration for how to censor messages
+     */
+    private ConfigCensor censorConfig;
+
+    /**
+     * The font used to draw the chat messages
+     */
+    private SpriteFont font;
+
+    /**
+     * Manages emoji loading, caching, and access
+     */
+    private final EmojiManager emojiManager;
+
+    /**
+     * Notified as frames of animated emoji are loaded, or null if there's nothing to notify
+     */
+    private ImageObserver emojiObserver;
+
+    /**
+     * Whether to outline each character for debugging purposes
+     */
+    private boolean drawTextGrid;
+
+    private Color textGridColor;
+
+    /**
+     * Whether to outline each frame of the border for debugging purposes
+     */
+    private boolean drawBorderGrid;
+
+    private Color borderGridColor;
+
+    /**
+     * The background, chroma key and border pre-rendered together, so each render only has to copy them in. It is
+     * redrawn whenever any of the things it depends on, stored in the members below, change.
+     */
+    private BufferedImage staticLayer;
+
+    /**
+     * The versions of the font, chat and color configurations the static layer was drawn with
+     */
+    private int staticLayerFontVersion;
+
+    private int staticLayerChatVersion;
+
+    private int staticLayerColorVersion;
+
+    /**
+     * The border sprite the static layer was drawn with
+     */
+    private Sprite staticLayerBorder;
+
+    /**
+     * Whether the static layer was drawn with the background hidden, as it is when there are no messages and the
+     * configuration says to hide an empty background
+     */
+    private boolean staticLayerBackgroundHidden;
+
+    /**
+     * Whether the static layer was drawn with the border hidden
+     */
+    private boolean staticLayerBorderHidden;
+
+    /**
+     * Where the message being rolled out was drawn in the last render, used to redraw only the characters it reveals
+     * between renders. It is replaced with each render, and is null if no message is being rolled out.
+     */
+    private volatile RolloutAnchor rolloutAnchor;
+
+    /**
+     * Images of the messages that are done rolling out, so they don't have to be drawn a character at a time
+     */
+    private final MessageStripCache stripCache;
+
+    /*
+     * What the heights kept in the message store were measured with, so they're all measured again if any of it changes
+     */
+    private SpriteFont measuredFont;
+
+    private int measuredFontVersion;
+
+    private int measuredMessageVersion;
+
+    private int measuredEmojiVersion;
+
+    private int measuredLineWrapLength;
+
+    private Font measuredAwtFont;
+
+    private boolean measuredCensorshipEnabled;
+
+    /**
+     * The clock used to tell which messages have expired
+     */
+    private final ChatClock clock;
+
+    /**
+     * Construct a renderer. It can't render until its configuration is set.
+     * 
+     * @param emojiManager
+     *            Manages the emoji to draw in the messages
+     * @param clock
+     *            The clock used to tell which messages have expired
+     */
+    public ChatRenderer(EmojiManager emojiManager, ChatClock clock)
+    {
+        this.emojiManager = emojiManager;
+        this.clock = clock;
+        this.lineCount = Integer.MAX_VALUE;
+        this.onScreenLineCount = 0;
+        this.stripCache = new MessageStripCache(MessageStripCache.DEFAULT_BYTE_BUDGET);
+    }
+
+    /**
+     * Set the configuration references from the properties object. This method instantiates the font and border.
+     * 
+     * @param fProps
+     *            The properties from which to get the configuration references
+     */
+    public void setConfig(FontificatorProperties fProps)
+    {
+        logger.trace("Setting chat renderer config via fontificator properties object");
+        this.fontConfig = fProps.getFontConfig();
+        this.chatConfig = fProps.getChatConfig();
+        this.colorConfig = fProps.getColorConfig();
+        this.messageConfig = fProps.getMessageConfig();
+        this.emojiConfig = fProps.getEmojiConfig();
+        this.censorConfig = fProps.getCensorConfig();
+
+        font = new SpriteFont(fontConfig);
+        reloadFontFromConfig();
+        // This initializes the border
+        reloadBorderFromConfig();
+    }
+
+    /**
+     * Set what to notify as frames of animated emoji are loaded, and as emoji finish loading in the background
+     * 
+     * @param emojiObserver
+     */
+    public void setEmojiObserver(ImageObserver emojiObserver)
+    {
+        this.emojiObserver = emojiObserver;
+        LazyLoadEmoji.setLoadObserver(emojiObserver);
+    }
+
+    /**
+     * Set the debugging outlines to draw around characters and border frames
+     * 
+     * @param drawTextGrid
+     * @param textGridColor
+     * @param drawBorderGrid
+     * @param borderGridColor
+     */
+    public void setDebugGrids(boolean drawTextGrid, Color textGridColor, boolean drawBorderGrid, Color borderGridColor)
+    {
+        this.drawTextGrid = drawTextGrid;
+        this.textGridColor = textGridColor;
+        this.drawBorderGrid = drawBorderGrid;
+        this.borderGridColor = borderGridColor;
+    }
+
+    /**
+     * Draw the chat into the specified image, filling it
+     * 
+     * @param image
+     *            The image upon which to draw
+     * @param messages
+     *            The messages to draw
+     */
+    public void render(BufferedImage image, MessageStore messages)
+    {
+        Graphics2D g2d = image.createGraphics();
+        try
+        {
+            render(g2d, image.getWidth(), image.getHeight(), messages);
+        }
+        finally
+        {
+            g2d.dispose();
+        }
+    }
+
+    /**
+     * Draw the chat onto the specified graphics object
+     * 
+     * @param g2d
+     *            The graphics object upon which to draw
+     * @param width
+     *            The width of the area to draw the chat in
+     * @param height
+     *            The height of the area to draw the chat in
+     * @param messages
+     *            The messages to draw. Messages that are censored, expired or queued behind the message being rolled out
+     *            are skipped, and only the messages on screen are drawn.
+     */
+    public void render(Graphics2D g2d, int width, int height, MessageStore messages)
+    {
+        this.width = width;
+        this.height = height;
+
+        if (chatConfig.isAntiAlias())
+        {
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        }
+
+        // Fits in the line height.
+        boolean stillFits = true;
+        int fontSize = 0;
+        while (stillFits)
+        {
+            fontSize++;
+            g2d.setFont(new Font(g2d.getFont().getName(), Font.PLAIN, fontSize));
+            stillFits = (font.getFontHeight() - fontConfig.getBaselineOffset()) * fontConfig.getFontScale() > g2d.getFontMetrics().getStringBounds("A", 0, 1, g2d).getHeight();
+        }
+
+        logger.trace("Calulated font size: " + fontSize);
+
+        // Only the messages that are completely drawn and possibly the one message currently being drawn are measured
+        final int lineWrapLength = getLineWrapLength();
+        final DrawnMessages drawn = measureDrawn(g2d.getFontMetrics(), messages, lineWrapLength);
+
+        final boolean backgroundHidden = messageConfig.isHideEmptyBackground() && drawn.isEmpty();
+        // If border scale is zero, no border is drawn. The border grid calculations would throw a divide by zero
+        // exception with a zero scale, so they're skipped too
+        final boolean borderHidden = fontConfig.getBorderScale() <= 0.0f || (messageConfig.isHideEmptyBorder() && drawn.isEmpty());
+
+        // Draws the background color, the chroma key border and the border
+        g2d.drawImage(getStaticLayer(g2d.getDeviceConfiguration(), backgroundHidden, borderHidden), 0, 0, null);
+
+        // This offset represents how far inward in the x and y directions the messages should be drawn
+        Point offset = new Point();
+
+        if (!borderHidden)
+        {
+            final int gridWidth = getBorderGridWidth();
+            final int gridHeight = getBorderGridHeight();
+            offset = getBorderOffset(gridWidth, gridHeight);
+
+            if (drawBorderGrid)
+            {
+                drawBorderGrid(g2d, gridWidth, gridHeight, offset, borderGridColor);
+            }
+        }
+
+        drawChat(g2d, messages, drawn, offset, lineWrapLength, drawTextGrid, textGridColor);
+    }
+
+    /**
+     * Get the width the lines of the messages wrap at, which is the width inside the border
+     * 
+     * @return line wrap length
+     */
+    private int getLineWrapLength()
+    {
+        return (border == null || fontConfig.getBorderScale() <= 0.0f ? width : border.getSpriteDrawWidth(fontConfig.getBorderScale()) * (width / border.getSpriteDrawWidth(fontConfig.getBorderScale()) - 2)) - fontConfig.getBorderInsetX() * 2;
+    }
+
+    /**
+     * Measure the messages to be drawn, using the heights kept in the message store for the messages already measured,
+     * unless something that changes every height has changed since they were measured. Censored messages have no
+     * height when censorship is enabled.
+     * 
+     * @param fontMetrics
+     * @param messages
+     * @param lineWrapLength
+     * @return drawn
+     */
+    private DrawnMessages measureDrawn(final FontMetrics fontMetrics, MessageStore messages, final int lineWrapLength)
+    {
+        final boolean censorshipEnabled = censorConfig.isCensorshipEnabled();
+        final boolean remeasureAll = font != measuredFont || fontConfig.getVersion() != measuredFontVersion || messageConfig.getVersion() != measuredMessageVersion || emojiConfig.getVersion() != measuredEmojiVersion || lineWrapLength != measuredLineWrapLength || !fontMetrics.getFont().equals(measuredAwtFont) || censorshipEnabled != measuredCensorshipEnabled;
+        if (remeasureAll)
+        {
+            measuredFont = font;
+            measuredFontVersion = fontConfig.getVersion();
+            measuredMessageVersion = messageConfig.getVersion();
+            measuredEmojiVersion = emojiConfig.getVersion();
+            measuredLineWrapLength = lineWrapLength;
+            measuredAwtFont = fontMetrics.getFont();
+            measuredCensorshipEnabled = censorshipEnabled;
+            messages.invalidateHeights();
+        }
+
+        return messages.measureDrawn(censorshipEnabled, new MessageStore.HeightMeasure()
+        {
+            @Override
+            public int getHeight(Message msg)
+            {
+                if (censorshipEnabled && msg.isCensored())
+                {
+                    stripCache.remove(msg);
+                    return 0;
+                }
+                return font.getMessageDimensions(msg, fontMetrics, messageConfig, emojiConfig, emojiManager, lineWrapLength, false).height;
+            }
+        });
+    }
+
+    /**
+     * Draws a test grid for debugging purposes
+     * 
+     * @param g
+     * @param one
+     * @param two
+     * @param x
+     * @param y
+     * @param width
+     * @param height
+     * @param squareSize
+     */
+    protected void drawGrid(Graphics g, Color one, Color two, int x, int y, int width, int height, int squareSize)
+    {
+        for (int r = 0; r < height / squareSize + 1; r++)
+        {
+            for (int c = 0; c < width / squareSize + 1; c++)
+            {
+                boolean colorOne = r % 2 == 1 && c % 2 == 0 || r % 2 == 0 && c % 2 == 1;
+                g.setColor(colorOne ? one : two);
+                g.fillRect(x + c * squareSize, y + r * squareSize, squareSize, squareSize);
+            }
+        }
+    }
+
+    /**
+     * Get the background, chroma key and border drawn into a single image the size of the chat, redrawing it first if
+     * anything that affects how it looks has changed since it was last drawn
+     * 
+     * @param gc
+     *            The configuration of the device the layer will be drawn onto, so the layer can be compatible with it
+     * @param backgroundHidden
+     *            Whether to fill the whole layer with the chroma key color instead of drawing the background
+     * @param borderHidden
+     *            Whether to leave off the border
+     * @return staticLayer
+     */
+    private BufferedImage getStaticLayer(GraphicsConfiguration gc, boolean backgroundHidden, boolean borderHidden)
+    {
+        final int layerWidth = Math.max(1, width);
+        final int layerHeight = Math.max(1, height);
+
+        // @formatter:off
+        final boolean current = staticLayer != null && 
+                                staticLayer.getWidth() == layerWidth && 
+                                staticLayer.getHeight() == layerHeight && 
+                                staticLayerFontVersion == fontConfig.getVersion() && 
+                                staticLayerChatVersion == chatConfig.getVersion() && 
+                                staticLayerColorVersion == colorConfig.getVersion() && 
+                                staticLayerBorder == border && 
+                                staticLayerBackgroundHidden == backgroundHidden && 
+                                staticLayerBorderHidden == borderHidden;
+        // @formatter:on
+
+        if (current)
+        {
+            return staticLayer;
+        }
+
+        logger.trace("Redrawing static layer at " + layerWidth + "x" + layerHeight);
+
+        if (staticLayer == null || staticLayer.getWidth() != layerWidth || staticLayer.getHeight() != layerHeight)
+        {
+            staticLayer = gc == null ? new BufferedImage(layerWidth, layerHeight, BufferedImage.TYPE_INT_RGB) : gc.createCompatibleImage(layerWidth, layerHeight);
+        }
+
+        staticLayerFontVersion = fontConfig.getVersion();
+        staticLayerChatVersion = chatConfig.getVersion();
+        staticLayerColorVersion = colorConfig.getVersion();
+        staticLayerBorder = border;
+        staticLayerBackgroundHidden = backgroundHidden;
+        staticLayerBorderHidden = borderHidden;
+
+        Graphics2D layerG2d = staticLayer.createGraphics();
+        if (chatConfig.isAntiAlias())
+        {
+            layerG2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            layerG2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        }
+
+        if (backgroundHidden)
+        {
+            // If the messages are empty and the background should be hidden, draw the chroma color regardless of whether it's enabled
+            layerG2d.setColor(colorConfig.getChromaColor());
+            layerG2d.fillRect(0, 0, layerWidth, layerHeight);
+        }
+        else
+        {
+            drawBackgroundAndChroma(layerG2d);
+        }
+
+        if (!borderHidden)
+        {
+            final int gridWidth = getBorderGridWidth();
+            final int gridHeight = getBorderGridHeight();
+            drawBorder(layerG2d, gridWidth, gridHeight, getBorderOffset(gridWidth, gridHeight), colorConfig.getBorderColor());
+        }
+
+        layerG2d.dispose();
+
+        return staticLayer;
+    }
+
+    /**
+     * Get the number of border frames that fit across the chat
+     * 
+     * @return gridWidth
+     */
+    private int getBorderGridWidth()
+    {
+        return width / border.getSpriteDrawWidth(fontConfig.getBorderScale());
+    }
+
+    /**
+     * Get the number of border frames that fit down the chat
+     * 
+     * @return gridHeight
+     */
+    private int getBorderGridHeight()
+    {
+        return height / border.getSpriteDrawHeight(fontConfig.getBorderScale());
+    }
+
+    /**
+     * Get how far inward in the x and y directions the border grid is drawn, to center it in the chat
+     * 
+     * @param gridWidth
+     * @param gridHeight
+     * @return offset
+     */
+    private Point getBorderOffset(int gridWidth, int gridHeight)
+    {
+        final int leftOffset = (width - gridWidth * border.getSpriteDrawWidth(fontConfig.getBorderScale())) / 2;
+        final int topOffset = (height - gridHeight * border.getSpriteDrawHeight(fontConfig.getBorderScale())) / 2;
+        return new Point(leftOffset, topOffset);
+    }
+
+    /**
+     * Draw the background and the chroma key border
+     * 
+     * @param g2d
+     */
+    private void drawBackgroundAndChroma(Graphics2D g2d)
+    {
+        if (chatConfig.isChromaEnabled())
+        {
+            g2d.setColor(chatConfig.isChromaInvert() ? colorConfig.getBgColor() : colorConfig.getChromaColor());
+            g2d.fillRect(0, 0, width, height);
+            g2d.setColor(chatConfig.isChromaInvert() ? colorConfig.getChromaColor() : colorConfig.getBgColor());
+            Rectangle border = chatConfig.getChromaBorder();
+            g2d.fillRoundRect(Math.min(width, border.x), Math.min(height, border.y), Math.max(0, width - border.width - border.x), Math.max(0, height - border.height - border.y), chatConfig.getChromaCornerRadius(), chatConfig.getChromaCornerRadius());
+        }
+        else
+        {
+            // Just draw the background
+            g2d.setColor(colorConfig.getBgColor());
+            g2d.fillRect(0, 0, width, height);
+        }
+    }
+
+    /**
+     * Draw the words in the messages in the chat
+     * 
+     * @param g2d
+     * @param messages
+     * @param drawn
+     *            The messages to be drawn, as measured
+     * @param offset
+     * @param lineWrapLength
+     */
+    private void drawChat(Graphics2D g2d, MessageStore messages, DrawnMessages drawn, Point offset, int lineWrapLength, boolean debug, Color debugColor)
+    {
+        final int leftEdge = offset.x + (border == null || fontConfig.getBorderScale() <= 0.0f ? 0 : border.getSpriteDrawWidth(fontConfig.getBorderScale())) + fontConfig.getBorderInsetX();
+
+        // Used for scrolling
+        int lineHeight = font.getLineHeightScaled();
+        if (lineHeight == 0)
+        {
+            lineHeight = 1;
+        }
+
+        // borderEdgeThickness is the y-inset on the top plus the height of the top part of the border
+        final int borderEdgeThickness = offset.y + (border == null || fontConfig.getBorderScale() < ConfigFont.FONT_BORDER_SCALE_GRANULARITY ? 0 : border.getSpriteDrawHeight(fontConfig.getBorderScale())) + fontConfig.getBorderInsetY();
+
+        final int drawableVerticalRange = height - borderEdgeThickness * 2;
+
+        // Used for scrolling when chat scrolls normally and starts from the top, or when chat scrolls reverse and starts from the bottom
+        onScreenLineCount = drawableVerticalRange / lineHeight;
+
+        // Pick out only the messages that are at least partly between the limits. In reverse scrolling, the newest
+        // message is drawn first. If the messages changed after they were measured, they're measured again, so where
+        // they're placed always matches the heights they were placed with.
+        final boolean newestFirst = chatConfig.isReverseScrolling();
+        final int scroll = font.getLineScrollOffset() * font.getLineHeightScaled();
+        int totalHeight;
+        int y;
+        int botLimit;
+        while (true)
+        {
+            // totalHeight is the height of all the messages, without the space after the newest
+            totalHeight = drawn.isEmpty() ? 0 : drawn.getShownHeight() - fontConfig.getMessageSpacing();
+
+            // y is where the drawing begins
+            y = getChatTop(totalHeight, borderEdgeThickness, drawableVerticalRange);
+
+            if (chatConfig.isReverseScrolling() && totalHeight > drawableVerticalRange)
+            {
+                botLimit = height - borderEdgeThickness - font.getLineHeightScaled();
+            }
+            else
+            {
+                botLimit = height - borderEdgeThickness;
+            }
+
+            if (messages.placeOnScreen(drawn, borderEdgeThickness - y - scroll, botLimit - y - scroll, newestFirst))
+            {
+                break;
+            }
+            drawn = measureDrawn(g2d.getFontMetrics(), messages, lineWrapLength);
+        }
+
+        lineCount = totalHeight / lineHeight;
+
+        // The call to drawMessage in SpriteFont will determine whether to draw each character based on whether it is
+        // located at a position appropriate to be drawn on
+        final long drawTime = clock.currentTimeMillis();
+        for (int i = 0; i < drawn.getOnScreenCount(); i++)
+        {
+            Message msg = drawn.getOnScreen(i);
+            if (messageConfig.isMessageExpirable() && msg.getExpirationDeadline(messageConfig.getExpirationTime()) <= drawTime)
+            {
+                // Expired, but not removed by the message expirer yet
+                stripCache.remove(msg);
+                continue;
+            }
+            final int msgY = y + drawn.getOnScreenOffset(i);
+            Color col = getUsernameColor(colorConfig, msg);
+            stripCache.drawMessage(font, g2d, g2d.getFontMetrics(), msg, col, colorConfig, messageConfig, emojiConfig, emojiManager, leftEdge, msgY, borderEdgeThickness, botLimit, lineWrapLength, debug, debugColor, emojiObserver, msg == drawn.getNewest());
+        }
+
+        // The message being rolled out, if any, is the newest
+        RolloutAnchor anchor = null;
+        final Message newest = drawn.getNewest();
+        if (newest != null && !newest.isCompletelyDrawn() && newest.getLayout() != null)
+        {
+            final int newestY = y + (newestFirst ? 0 : drawn.getNewestOffset());
+            anchor = new RolloutAnchor(newest, newest.getLayout(), g2d.getFontMetrics(), leftEdge, newestY, font.getLineScrollOffset(), newest.getLayout().getLineCount(newest.getDrawCursor()));
+        }
+
+        rolloutAnchor = anchor;
+    }
+
+    /**
+     * Get where the drawing of the messages begins, depending on which end the chat starts from and which way it
+     * scrolls
+     * 
+     * @param totalHeight
+     *            The height of all the messages
+     * @param borderEdgeThickness
+     * @param drawableVerticalRange
+     * @return y
+     */
+    private int getChatTop(int totalHeight, int borderEdgeThickness, int drawableVerticalRange)
+    {
+        if (chatConfig.isChatFromBottom())
+        {
+            if (chatConfig.isReverseScrolling())
+            {
+                if (totalHeight > drawableVerticalRange)
+                {
+                    return borderEdgeThickness;
+                }
+                else
+                {
+                    return height - totalHeight - borderEdgeThickness;
+                }
+            }
+            else
+            {
+                return height - totalHeight - borderEdgeThickness;
+            }
+        }
+        // else chat from top
+        else
+        {
+            if (chatConfig.isReverseScrolling())
+            {
+                return borderEdgeThickness;
+            }
+            else
+            {
+                if (totalHeight > drawableVerticalRange)
+                {
+                    // Not all the messages fit in the given space range, so start drawing up out of bounds at a negative y. This uses just the top borderEdgeThickness's height, not both top and bottom
+                    return (height - borderEdgeThickness) - totalHeight;
+                }
+                // If the total height of all the messages is less than or equal to the total height
+                else
+                {
+                    // Just set the y to start drawing to the borderEdgeThickness because it should be fixed to the top when there's enough room for everything
+                    return borderEdgeThickness;
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the part of the chat changed by a message revealing more of its characters. If the message was drawn in the
+     * last render and revealing the characters didn't change how many lines it takes up, only the revealed characters
+     * changed. Otherwise, the messages may have scrolled, so the whole chat needs to be redrawn.
+     * 
+     * @param msg
+     *            The message that revealed more characters
+     * @param fromCursor
+     *            The draw cursor of the message before the characters were revealed
+     * @return The area that changed, an empty rectangle if nothing visible changed, or null if the whole chat needs to
+     *         be redrawn
+     */
+    public Rectangle getRolloutDamage(Message msg, float fromCursor)
+    {
+        final RolloutAnchor anchor = rolloutAnchor;
+        if (anchor == null || !anchor.isStill(msg, font.getLineScrollOffset()))
+        {
+            return null;
+        }
+
+        Rectangle damage = font.getRevealedBounds(anchor.fontMetrics, anchor.layout, fromCursor, msg.getDrawCursor(), emojiConfig, anchor.x, anchor.y);
+        // Only whitespace was revealed if there are no bounds, so nothing visible changed
+        return damage == null ? new Rectangle() : damage;
+    }
+
+    /**
+     * Where the message being rolled out was drawn, and how it was laid out
+     */
+    private static class RolloutAnchor
+    {
+        private final Message msg;
+
+        private final MessageLayout layout;
+
+        private final FontMetrics fontMetrics;
+
+        private final int x;
+
+        private final int y;
+
+        private final int lineScrollOffset;
+
+        private final int lineCount;
+
+        private RolloutAnchor(Message msg, MessageLayout layout, FontMetrics fontMetrics, int x, int y, int lineScrollOffset, int lineCount)
+        {
+            this.msg = msg;
+            this.layout = layout;
+            this.fontMetrics = fontMetrics;
+            this.x = x;
+            this.y = y;
+            this.lineScrollOffset = lineScrollOffset;
+            this.lineCount = lineCount;
+        }
+
+        /**
+         * Get whether the specified message would still be drawn in the same place with the same layout, meaning it is
+         * still being rolled out and hasn't grown a line or been scrolled
+         * 
+         * @param msg
+         * @param lineScrollOffset
+         * @return still anchored
+         */
+        private boolean isStill(Message msg, int lineScrollOffset)
+        {
+            return this.msg == msg && !msg.isCompletelyDrawn() && msg.getLayout() == layout && this.lineScrollOffset == lineScrollOffset && layout.getLineCount(msg.getDrawCursor()) == lineCount;
+        }
+    }
+
+    private static Color getUsernameColor(ConfigColor colorConfig, Message msg)
+    {
+        Color col = msg.getUsernameColor(colorConfig.getVersion());
+        if (col != null)
+        {
+            return col;
+        }
+
+        if (msg.isJoinType())
+        {
+            col = colorConfig.getHighlight();
+        }
+        else if (colorConfig.isUseTwitchColors() && msg.getPrivmsg().getColor() != null)
+        {
+            col = colorConfig.isQuantizeTwitchColors() ? ConfigColor.quantize(msg.getPrivmsg().getColor()) : msg.getPrivmsg().getColor();
+        }
+        else
+        {
+            col = colorConfig.getPalette().isEmpty() ? colorConfig.getHighlight() : colorConfig.getPalette().get(Math.abs(msg.getUsername().toLowerCase().hashCode()) % colorConfig.getPalette().size());
+        }
+        msg.setUsernameColor(col, colorConfig.getVersion());
+        return col;
+    }
+
+    /**
+     * Draw the border
+     * 
+     * @param g2d
+     * @param gridWidth
+     * @param gridHeight
+     * @param offset
+     * @param color
+     */
+    private void drawBorder(Graphics2D g2d, int gridWidth, int gridHeight, Point offset, Color color)
+    {
+        final float scale = fontConfig.getBorderScale();
+
+        if (scale <= 0.0f)
+        {
+            return;
+        }
+
+        for (int r = 0; r < gridHeight; r++)
+        {
+            for (int c = 0; c < gridWidth; c++)
+            {
+                int pixelX = c * border.getSpriteDrawWidth(scale) + offset.x;
+                int pixelY = r * border.getSpriteDrawHeight(scale) + offset.y;
+
+                if (r == 0) // Top row
+                {
+                    if (c == 0) // Top left
+                    {
+                        border.draw(g2d, pixelX, pixelY, 0, scale, color);
+                    }
+                    else if (c == gridWidth - 1) // Top right
+                    {
+                        border.draw(g2d, pixelX, pixelY, 2, scale, color);
+                    }
+                    else
+                    // Top middle
+                    {
+                        border.draw(g2d, pixelX, pixelY, 1, scale, color);
+                    }
+                }
+                else if (r == gridHeight - 1) // Bottom row
+                {
+                    if (c == 0) // Bottom left
+                    {
+                        border.draw(g2d, pixelX, pixelY, 6, scale, color);
+                    }
+                    else if (c == gridWidth - 1) // Bottom right
+                    {
+                        border.draw(g2d, pixelX, pixelY, 8, scale, color);
+                    }
+                    else
+                    // Bottom middle
+                    {
+                        border.draw(g2d, pixelX, pixelY, 7, scale, color);
+                    }
+                }
+                else
+                // Middle
+                {
+                    if (c == 0) // Middle left
+                    {
+                        border.draw(g2d, pixelX, pixelY, 3, scale, color);
+                    }
+                    else if (c == gridWidth - 1) // Middle right
+                    {
+                        border.draw(g2d, pixelX, pixelY, 5, scale, color);
+                    }
+                    else
+                    // Middle middle
+                    {
+                        border.draw(g2d, pixelX, pixelY, 4, scale, color);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Draw an outline around each frame of the border for debugging purposes. This is drawn over the static layer
+     * rather than into it, so toggling it doesn't require the static layer to be redrawn.
+     * 
+     * @param g2d
+     * @param gridWidth
+     * @param gridHeight
+     * @param offset
+     * @param debugColor
+     */
+    private void drawBorderGrid(Graphics2D g2d, int gridWidth, int gridHeight, Point offset, Color debugColor)
+    {
+        final float scale = fontConfig.getBorderScale();
+
+        g2d.setColor(debugColor);
+        for (int r = 0; r < gridHeight; r++)
+        {
+            for (int c = 0; c < gridWidth; c++)
+            {
+                int pixelX = c * border.getSpriteDrawWidth(scale) + offset.x;
+                int pixelY = r * border.getSpriteDrawHeight(scale) + offset.y;
+                g2d.drawRect(pixelX, pixelY, (int) (border.getSpriteWidth() * scale), (int) (border.getSpriteHeight() * scale));
+            }
+        }
+    }
+
+    /**
+     * Reset the scroll offset to zero
+     */
+    public void resetScrollOffset()
+    {
+        font.setLineScrollOffset(0);
+    }
+
+    /**
+     * Refresh the scroll offset in case of resize (only needed when chat starts at top)
+     * 
+     * @param positiveDirection
+     *            Whether the direction is up or down
+     * @param lines
+     *            how many lines to scroll
+     */
+    public void incrementScrollOffset(boolean positiveDirection, int lines)
+    {
+        final int dir = positiveDirection ? lines : -lines;
+        if (chatConfig.isChatFromBottom())
+        {
+            font.incrementLineScrollOffset(dir, 0, lineCount);
+        }
+        else
+        {
+            final boolean screenIsOverflowing = lineCount >= onScreenLineCount;
+            if (screenIsOverflowing)
+            {
+                font.incrementLineScrollOffset(dir, -onScreenLineCount + 1, lineCount - onScreenLineCount + 1);
+            }
+            else
+            {
+                font.incrementLineScrollOffset(dir, lineCount == 0 ? 0 : -lineCount + 1, 1);
+            }
+        }
+    }
+
+    /**
+     * Updates the font when there are changes to the configuration
+     */
+    public void reloadFontFromConfig()
+    {
+        font.updateForConfigChange();
+    }
+
+    /**
+     * Updates the border when there are changes to the configuration
+     */
+    public void reloadBorderFromConfig()
+    {
+        try
+        {
+            border = new Sprite(fontConfig.getBorderFilename(), 3, 3);
+        }
+        catch (Exception e)
+        {
+            final String errorMessage = "Unable to load border sprite " + (fontConfig == null ? "for null font configuration" : "for border filename " + fontConfig.getBorderFilename());
+            logger.error(errorMessage, e);
+            border = new Sprite();
+        }
+    }
+
+    /**
+     * Get the cache of images of the messages that are done rolling out
+     * 
+     * @return stripCache
+     */
+    public MessageStripCache getStripCache()
+    {
+        return stripCache;
+    }
+}
@@ -0,0 +1,325 @@
+package com.glitchcog.fontificator.gui.chat;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import org.apache.log4j.BasicConfigurator;
+import org.apache.log4j.ConsoleAppender;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+import com.glitchcog.fontificator.FontificatorMain;
+import com.glitchcog.fontificator.bot.Message;
+import com.glitchcog.fontificator.bot.MessageType;
+import com.glitchcog.fontificator.bot.TwitchPrivmsg;
+import com.glitchcog.fontificator.config.ConfigChat;
+import com.glitchcog.fontificator.config.FontificatorProperties;
+import com.glitchcog.fontificator.config.loadreport.LoadConfigReport;
+import com.glitchcog.fontificator.gui.FontificatorError;
+import com.glitchcog.fontificator.gui.chat.clock.VirtualChatClock;
+
+/**
+ * Plays a recorded chat through a chat panel kept on a virtual clock, drawing a frame at every frame of the chat's
+ * frame rate as fast as the frames can be drawn, rather than waiting for the chat to play out in real time. Nothing
+ * about the chat depends on the actual time, so the same recording and configuration always draw the same frames.
+ *
+ * A recording is a text file with a line for each message: the number of milliseconds into the recording it was
+ * posted, the username, and the message, separated by spaces. Blank lines and lines starting with # are skipped.
+ *
+ * @author Matt Yanos
+ */
+public class ChatReplay
+{
+    private static final Logger logger = Logger.getLogger(ChatReplay.class);
+
+    private static final String FRAME_PREFIX = "frame_";
+
+    private static final String FRAME_EXTENSION = "png";
+
+    /**
+     * The time the recording starts at on the virtual clock. Any time after zero will do, since a message completed at
+     * time zero counts as not completed, but a fixed one keeps the time stamps on the messages the same from one replay
+     * to the next.
+     */
+    public static final long DEFAULT_START_TIME = 1000L;
+
+    private final VirtualChatClock clock;
+
+    private final ChatPanel chat;
+
+    private final long startTime;
+
+    private final long frameMillis;
+
+    private final int width;
+
+    private final int height;
+
+    /**
+     * @param fProps
+     *            The configuration to draw the chat with
+     * @param startTime
+     *            The time the recording starts at, in milliseconds since the epoch, which must be after zero
+     * @param width
+     *            The width of each frame
+     * @param height
+     *            The height of each frame
+     * @throws IOException
+     *             If the font or border can't be loaded
+     */
+    public ChatReplay(FontificatorProperties fProps, long startTime, int width, int height) throws IOException
+    {
+        if (startTime <= 0L)
+        {
+            throw new IllegalArgumentException("A replay must start after time zero, not at " + startTime);
+        }
+        this.clock = new VirtualChatClock(startTime);
+        this.chat = new ChatPanel(clock);
+        this.chat.setConfig(fProps);
+        this.chat.setSize(width, height);
+        this.startTime = startTime;
+        this.frameMillis = 1000L / Math.max(ConfigChat.MIN_FRAME_RATE, fProps.getChatConfig().getFrameRate());
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Post a message to the chat at the current time
+     *
+     * @param username
+     * @param content
+     * @return the message posted
+     */
+    public Message post(String username, String content)
+    {
+        Message msg = new Message(MessageType.NORMAL, username, content, new TwitchPrivmsg(username), clock);
+        chat.addMessage(msg);
+        return msg;
+    }
+
+    /**
+     * Move the chat forward to the specified time into the recording, rolling out and expiring messages along the way
+     *
+     * @param offset
+     *            Milliseconds into the recording
+     */
+    public void advanceTo(long offset)
+    {
+        clock.advance(Math.max(0L, startTime + offset - clock.currentTimeMillis()));
+    }
+
+    /**
+     * Get the time into the recording
+     *
+     * @return milliseconds into the recording
+     */
+    public long getOffset()
+    {
+        return clock.currentTimeMillis() - startTime;
+    }
+
+    /**
+     * Get whether there's nothing left in the chat to roll out, expire or repaint
+     *
+     * @return idle
+     */
+    public boolean isIdle()
+    {
+        return !clock.hasScheduledTasks();
+    }
+
+    public long getFrameMillis()
+    {
+        return frameMillis;
+    }
+
+    public ChatPanel getChat()
+    {
+        return chat;
+    }
+
+    /**
+     * Draw the chat as it is now
+     *
+     * @return frame
+     */
+    public BufferedImage drawFrame()
+    {
+        BufferedImage frame = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = frame.createGraphics();
+        chat.render(g2d, width, height);
+        g2d.dispose();
+        return frame;
+    }
+
+    /**
+     * Play the recorded messages, saving a frame to the output directory every frame until every message has been
+     * posted and nothing is left to roll out or expire
+     *
+     * @param recording
+     * @param outputDirectory
+     * @return the number of frames saved
+     * @throws IOException
+     */
+    public int play(List<RecordedMessage> recording, File outputDirectory) throws IOException
+    {
+        if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs())
+        {
+            throw new IOException("Unable to create frame directory " + outputDirectory.getPath());
+        }
+
+        int frameCount = 0;
+        int next = 0;
+        while (next < recording.size() || !isIdle())
+        {
+            final long frameEnd = (long) frameCount * frameMillis;
+            while (next < recording.size() && recording.get(next).offset <= frameEnd)
+            {
+                RecordedMessage posting = recording.get(next++);
+                advanceTo(posting.offset);
+                post(posting.username, posting.content);
+            }
+            advanceTo(frameEnd);
+
+            File frameFile = new File(outputDirectory, String.format("%s%06d.%s", FRAME_PREFIX, frameCount, FRAME_EXTENSION));
+            ImageIO.write(drawFrame(), FRAME_EXTENSION, frameFile);
+            frameCount++;
+        }
+        return frameCount;
+    }
+
+    /**
+     * Read a recording, in order of when each message was posted
+     *
+     * @param file
+     * @return recording
+     * @throws IOException
+     */
+    public static List<RecordedMessage> readRecording(File file) throws IOException
+    {
+        List<RecordedMessage> recording = new ArrayList<RecordedMessage>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        try
+        {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null)
+            {
+                lineNumber++;
+                if (line.trim().isEmpty() || line.startsWith("#"))
+                {
+                    continue;
+                }
+                String[] parts = line.split(" ", 3);
+                if (parts.length < 3)
+                {
+                    throw new IOException("Line " + lineNumber + " of " + file.getName() + " needs a time, username and message");
+                }
+                try
+                {
+                    recording.add(new RecordedMessage(Long.parseLong(parts[0]), parts[1], parts[2]));
+                }
+                catch (NumberFormatException e)
+                {
+                    throw new IOException("Line " + lineNumber + " of " + file.getName() + " has an invalid time: " + parts[0]);
+                }
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+        return recording;
+    }
+
+    /**
+     * A message in a recording, along with when it was posted
+     */
+    public static class RecordedMessage
+    {
+        private final long offset;
+
+        private final String username;
+
+        private final String content;
+
+        /**
+         * @param offset
+         *            Milliseconds into the recording the message was posted
+         * @param username
+         * @param content
+         */
+        public RecordedMessage(long offset, String username, String content)
+        {
+            this.offset = offset;
+            this.username = username;
+            this.content = content;
+        }
+    }
+
+    /**
+     * Draw the frames of a recorded chat
+     *
+     * @param args
+     *            The configuration file, the recording file, the directory to save the frames to, and optionally the
+     *            width and height of the frames, which are otherwise the chat size in the configuration
+     */
+    public static void main(String[] args)
+    {
+        BasicConfigurator.configure(new ConsoleAppender(FontificatorMain.LOG_PATTERN_LAYOUT));
+        Logger.getRootLogger().setLevel(Level.INFO);
+
+        if (args.length != 3 && args.length != 5)
+        {
+            System.err.println("Usage: ChatReplay <configuration file> <recording file> <frame directory> [<width> <height>]");
+            System.exit(1);
+        }
+
+        // There's no window to show problems in, so they're just logged
+        ChatWindow.popup = new FontificatorError(null)
+        {
+            @Override
+            public void handleProblem(String description, Throwable t)
+            {
+                logger.warn(description.replaceAll("<[^>]*>", " ").trim(), t);
+            }
+        };
+
+        try
+        {
+            // Start from the defaults, because a preset only has the font and colors
+            FontificatorProperties fProps = new FontificatorProperties();
+            fProps.loadDefaultValues(true);
+            LoadConfigReport report = fProps.loadFile(args[0]);
+            if (report.isProblem())
+            {
+                throw new Exception("Unable to load configuration " + args[0] + ": " + report.getMessages());
+            }
+            final int width = args.length == 5 ? Integer.parseInt(args[3]) : fProps.getChatConfig().getWidth();
+            final int height = args.length == 5 ? Integer.parseInt(args[4]) : fProps.getChatConfig().getHeight();
+
+            List<RecordedMessage> recording = readRecording(new File(args[1]));
+            ChatReplay replay = new ChatReplay(fProps, DEFAULT_START_TIME, width, height);
+
+            final long start = System.currentTimeMillis();
+            final int frameCount = replay.play(recording, new File(args[2]));
+            final long elapsed = System.currentTimeMillis() - start;
+            logger.info("Drew " + frameCount + " frames covering " + replay.getOffset() + "ms of chat in " + elapsed + "ms");
+        }
+        catch (Exception e)
+        {
+            logger.error(e.toString(), e);
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+}
@@ -0,0 +1,174 @@
+package com.glitchcog.fontificator.gui.chat;
+
+import com.glitchcog.fontificator.bot.Message;
+
+/**
+ * The messages to be drawn in a frame, as measured by the message store: every message from the oldest up to and
+ * including the one being rolled out. It holds only the totals needed to work out where the chat starts, and then the
+ * messages that turn out to be on screen, so a frame never has to go through every message in the chat.
+ *
+ * @author Matt Yanos
+ */
+public class DrawnMessages
+{
+    /**
+     * The stamp of the message store's height index when this was measured, so the messages on screen can only be
+     * filled in if nothing has changed since
+     */
+    private final int stamp;
+
+    private final int count;
+
+    private final int totalHeight;
+
+    private final int shownHeight;
+
+    private final Message newest;
+
+    private final int newestOffset;
+
+    private Message[] onScreen;
+
+    private int[] onScreenOffsets;
+
+    private int onScreenCount;
+
+    /**
+     * @param stamp
+     * @param count
+     *            The number of messages to be drawn, including any hidden by censorship
+     * @param totalHeight
+     *            The sum of the heights of all the messages to be drawn
+     * @param shownHeight
+     *            The sum of the heights up to and including the newest message that isn't hidden, or zero if they all
+     *            are
+     * @param newest
+     *            The newest message to be drawn, or null if there are none
+     * @param newestOffset
+     *            The sum of the heights of all the messages before the newest
+     */
+    DrawnMessages(int stamp, int count, int totalHeight, int shownHeight, Message newest, int newestOffset)
+    {
+        this.stamp = stamp;
+        this.count = count;
+        this.totalHeight = totalHeight;
+        this.shownHeight = shownHeight;
+        this.newest = newest;
+        this.newestOffset = newestOffset;
+        this.onScreen = new Message[0];
+        this.onScreenOffsets = new int[0];
+        this.onScreenCount = 0;
+    }
+
+    int getStamp()
+    {
+        return stamp;
+    }
+
+    public int getCount()
+    {
+        return count;
+    }
+
+    /**
+     * Get the sum of the heights of all the messages to be drawn, including the space after each one
+     *
+     * @return total height
+     */
+    public int getTotalHeight()
+    {
+        return totalHeight;
+    }
+
+    /**
+     * Get the sum of the heights of the messages up to and including the newest one that isn't hidden, including the
+     * space after it
+     *
+     * @return shown height, or zero if there's nothing to show
+     */
+    public int getShownHeight()
+    {
+        return shownHeight;
+    }
+
+    /**
+     * Get whether every message is hidden, or there aren't any
+     *
+     * @return empty
+     */
+    public boolean isEmpty()
+    {
+        return shownHeight == 0;
+    }
+
+    public Message getNewest()
+    {
+        return newest;
+    }
+
+    /**
+     * Get the sum of the heights of all the messages before the newest
+     *
+     * @return offset
+     */
+    public int getNewestOffset()
+    {
+        return newestOffset;
+    }
+
+    /**
+     * Add a message that is on screen, in the order they're drawn
+     *
+     * @param msg
+     * @param offset
+     *            The sum of the heights of the messages drawn before it
+     */
+    void addOnScreen(Message msg, int offset)
+    {
+        if (onScreenCount == onScreen.length)
+        {
+            final int capacity = Math.max(8, onScreenCount * 2);
+            Message[] grownMessages = new Message[capacity];
+            int[] grownOffsets = new int[capacity];
+            System.arraycopy(onScreen, 0, grownMessages, 0, onScreenCount);
+            System.arraycopy(onScreenOffsets, 0, grownOffsets, 0, onScreenCount);
+            onScreen = grownMessages;
+            onScreenOffsets = grownOffsets;
+        }
+        onScreen[onScreenCount] = msg;
+        onScreenOffsets[onScreenCount] = offset;
+        onScreenCount++;
+    }
+
+    /**
+     * Get the number of messages on screen, which is only filled in once the message store has placed them
+     *
+     * @return count
+     */
+    public int getOnScreenCount()
+    {
+        return onScreenCount;
+    }
+
+    /**
+     * Get a message on screen, in the order they're drawn
+     *
+     * @param index
+     * @return message
+     */
+    public Message getOnScreen(int index)
+    {
+        return onScreen[index];
+    }
+
+    /**
+     * Get the sum of the heights of the messages drawn before the specified message on screen
+     *
+     * @param index
+     * @return offset
+     */
+    public int getOnScreenOffset(int index)
+    {
+        return onScreenOffsets[index];
+    }
+}
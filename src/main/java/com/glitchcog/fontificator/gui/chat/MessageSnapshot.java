@@ -0,0 +1,88 @@
+package com.glitchcog.fontificator.gui.chat;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.glitchcog.fontificator.bot.Message;
+
+/**
+ * The messages in the chat at one moment, from oldest to newest, which never changes once it is taken. Every thread
+ * reading the chat messages shares the latest snapshot, so none of them have to copy the messages or lock the chat to
+ * read them.
+ * 
+ * @author Matt Yanos
+ */
+public class MessageSnapshot implements Iterable<Message>
+{
+    public static final MessageSnapshot EMPTY = new MessageSnapshot(new Message[0], 0);
+
+    private final Message[] messages;
+
+    /**
+     * The version of the message store this was taken from
+     */
+    private final int version;
+
+    MessageSnapshot(Message[] messages, int version)
+    {
+        this.messages = messages;
+        this.version = version;
+    }
+
+    public int size()
+    {
+        return messages.length;
+    }
+
+    public boolean isEmpty()
+    {
+        return messages.length == 0;
+    }
+
+    /**
+     * Get the message at the specified index, where zero is the oldest
+     * 
+     * @param index
+     * @return message
+     */
+    public Message get(int index)
+    {
+        return messages[index];
+    }
+
+    public int getVersion()
+    {
+        return version;
+    }
+
+    @Override
+    public Iterator<Message> iterator()
+    {
+        return new Iterator<Message>()
+        {
+            private int index = 0;
+
+            @Override
+            public boolean hasNext()
+            {
+                return index < messages.length;
+            }
+
+            @Override
+            public Message next()
+            {
+                if (index >= messages.length)
+                {
+                    throw new NoSuchElementException();
+                }
+                return messages[index++];
+            }
+
+            @Override
+            public void remove()
+            {
+                throw new UnsupportedOperationException("Message snapshots can't be changed");
+            }
+        };
+    }
+}
@@ -0,0 +1,752 @@
+package com.glitchcog.fontificator.gui.chat;
+
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import com.glitchcog.fontificator.bot.Message;
+import com.glitchcog.fontificator.config.ConfigEmoji;
+import com.glitchcog.fontificator.config.ConfigMessage;
+import com.glitchcog.fontificator.emoji.EmojiManager;
+import com.glitchcog.fontificator.emoji.LazyLoadEmoji;
+import com.glitchcog.fontificator.sprite.MessageLayout;
+
+/**
+ * The messages in the chat, held in a ring buffer that drops the oldest messages once it's over the queue size. Changes
+ * are made one at a time under the store's own lock, and each one bumps the store's version. Readers never lock: they
+ * get an immutable snapshot of the messages, which is only copied out of the ring buffer the first time it's asked for
+ * after a change, and is then shared by every reader until the next change.
+ * <p>
+ * The store also keeps the rollout head, which points at the oldest message that might still need to be rolled out.
+ * It only moves forward past messages that are completely drawn or hidden by censorship, so finding the next message to
+ * roll out doesn't look at any message more than once, unless the head is rewound because a change to the censorship
+ * might have brought some messages back.
+ * <p>
+ * Alongside each message, the store keeps its height and the running total of the heights through it, for the messages
+ * that are drawn: every message up to the one being rolled out. These are measured by the renderer, outside of the
+ * store's lock, but only for the messages that have never been measured, the one being rolled out, and the ones measured
+ * with an emoji still loading after an emoji finishes loading. Dropping the oldest messages only moves up where the
+ * running total starts. Everything is measured again only when something that changes every height does, like the
+ * configuration or the censorship. A frame then finds where the chat starts from the totals, and searches the running
+ * totals for the messages on screen, so drawing a frame doesn't go through every message.
+ * 
+ * @author Matt Yanos
+ */
+public class MessageStore
+{
+    private static final int INITIAL_CAPACITY = 64;
+
+    private static final Message[] NONE_EVICTED = new Message[0];
+
+    private static final long[] NO_SEQUENCES = new long[0];
+
+    private static final long NONE = -1L;
+
+    /**
+     * The messages, oldest first starting at head, wrapping around the end of the array
+     */
+    private Message[] ring;
+
+    private int head;
+
+    private volatile int size;
+
+    /**
+     * The position in the order of every message ever added of the message at head
+     */
+    private long firstSequence;
+
+    /**
+     * The position in the order of every message ever added of the oldest message that might still need to be rolled
+     * out
+     */
+    private long rolloutSequence;
+
+    /**
+     * Bumped with every change to the messages
+     */
+    private volatile int version;
+
+    /**
+     * The latest snapshot taken, which is current only if its version matches the store's version
+     */
+    private volatile MessageSnapshot snapshot;
+
+    /**
+     * The height of each measured message, including the space after it, in the same slot as the message in the ring
+     */
+    private int[] heights;
+
+    /**
+     * The running total of the heights through each measured message, in the same slot as the message in the ring. It
+     * is counted from wherever it started, so it doesn't change when older messages are dropped.
+     */
+    private long[] bottoms;
+
+    /**
+     * Whether each measured message was measured with an emoji still loading
+     */
+    private boolean[] awaitingEmoji;
+
+    /**
+     * The running total of the heights before the message at head
+     */
+    private long baseBottom;
+
+    /**
+     * The position in the order of every message ever added of the oldest message not measured yet. Every message from
+     * the one at head up to it is measured.
+     */
+    private long measuredSequence;
+
+    /**
+     * The position in the order of every message ever added of the newest measured message with any height, or NONE
+     */
+    private long shownSequence;
+
+    /**
+     * The position in the order of every message ever added of the message being rolled out when the heights were last
+     * measured, or NONE, and its height then. It's measured again every time, so it isn't counted as measured.
+     */
+    private long rollingSequence;
+
+    private int rollingHeight;
+
+    /**
+     * The emoji load version when the heights were last measured
+     */
+    private int emojiLoadVersion;
+
+    /**
+     * Bumped whenever the heights are thrown out or the messages move to other positions, so heights measured before
+     * then aren't stored
+     */
+    private int heightGeneration;
+
+    /**
+     * Bumped with every change to the heights or to which messages are drawn
+     */
+    private int heightStamp;
+
+    public MessageStore()
+    {
+        this.ring = new Message[INITIAL_CAPACITY];
+        this.head = 0;
+        this.size = 0;
+        this.firstSequence = 0L;
+        this.rolloutSequence = 0L;
+        this.version = 0;
+        this.snapshot = MessageSnapshot.EMPTY;
+        this.heights = new int[INITIAL_CAPACITY];
+        this.bottoms = new long[INITIAL_CAPACITY];
+        this.awaitingEmoji = new boolean[INITIAL_CAPACITY];
+        this.baseBottom = 0L;
+        this.measuredSequence = 0L;
+        this.shownSequence = NONE;
+        this.rollingSequence = NONE;
+        this.emojiLoadVersion = LazyLoadEmoji.getLoadVersion();
+        this.heightGeneration = 0;
+        this.heightStamp = 0;
+    }
+
+    /**
+     * Get the messages as they are now. Takes a new snapshot only if the messages have changed since the last one.
+     * 
+     * @return snapshot
+     */
+    public MessageSnapshot getSnapshot()
+    {
+        final MessageSnapshot latest = snapshot;
+        if (latest.getVersion() == version)
+        {
+            return latest;
+        }
+
+        synchronized (this)
+        {
+            if (snapshot.getVersion() != version)
+            {
+                Message[] copy = new Message[size];
+                for (int i = 0; i < size; i++)
+                {
+                    copy[i] = ring[(head + i) % ring.length];
+                }
+                snapshot = new MessageSnapshot(copy, version);
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Get the number of messages
+     * 
+     * @return size
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Add a message as the newest, dropping the oldest messages until there are no more than the specified limit
+     * 
+     * @param msg
+     * @param limit
+     *            The most messages to keep
+     * @return The messages dropped to stay within the limit
+     */
+    public synchronized Message[] add(Message msg, int limit)
+    {
+        if (size == ring.length)
+        {
+            grow();
+        }
+        ring[(head + size) % ring.length] = msg;
+        size++;
+
+        final int evictCount = Math.max(0, size - Math.max(0, limit));
+        Message[] evicted = evictCount == 0 ? NONE_EVICTED : new Message[evictCount];
+        for (int i = 0; i < evictCount; i++)
+        {
+            evicted[i] = ring[head];
+            // The running totals are left as they are, and just start after the dropped message
+            if (firstSequence < measuredSequence)
+            {
+                baseBottom = bottoms[head];
+            }
+            ring[head] = null;
+            head = (head + 1) % ring.length;
+            size--;
+            firstSequence++;
+        }
+        if (evictCount > 0)
+        {
+            measuredSequence = Math.max(measuredSequence, firstSequence);
+            heightStamp++;
+        }
+
+        version++;
+        return evicted;
+    }
+
+    /**
+     * Remove the specified messages, wherever they are, keeping the rest in order
+     * 
+     * @param removals
+     */
+    public synchronized void removeAll(Collection<Message> removals)
+    {
+        if (removals.isEmpty())
+        {
+            return;
+        }
+
+        Map<Message, Boolean> removalSet = new IdentityHashMap<Message, Boolean>();
+        for (Message msg : removals)
+        {
+            removalSet.put(msg, Boolean.TRUE);
+        }
+
+        // The rollout head stays on the same message, or on the next one kept if its message is removed, and the measured
+        // heights stay with their messages
+        final long rolloutIndex = rolloutSequence - firstSequence;
+        final long measuredIndex = measuredSequence - firstSequence;
+        long keptBeforeRollout = 0L;
+        long keptBeforeMeasured = 0L;
+        int kept = 0;
+        for (int i = 0; i < size; i++)
+        {
+            final int from = (head + i) % ring.length;
+            final Message msg = ring[from];
+            if (!removalSet.containsKey(msg))
+            {
+                final int to = (head + kept) % ring.length;
+                ring[to] = msg;
+                heights[to] = heights[from];
+                awaitingEmoji[to] = awaitingEmoji[from];
+                kept++;
+                if (i < rolloutIndex)
+                {
+                    keptBeforeRollout++;
+                }
+                if (i < measuredIndex)
+                {
+                    keptBeforeMeasured++;
+                }
+            }
+        }
+        rolloutSequence = firstSequence + keptBeforeRollout;
+        for (int i = kept; i < size; i++)
+        {
+            ring[(head + i) % ring.length] = null;
+        }
+
+        if (kept != size)
+        {
+            size = kept;
+            version++;
+
+            // The messages after the first one removed have moved, so their running totals are added up again
+            measuredSequence = firstSequence + keptBeforeMeasured;
+            sumHeights();
+            rollingSequence = NONE;
+            heightGeneration++;
+            heightStamp++;
+        }
+    }
+
+    /**
+     * Remove all the messages
+     */
+    public synchronized void clear()
+    {
+        ring = new Message[INITIAL_CAPACITY];
+        head = 0;
+        firstSequence += size;
+        rolloutSequence = firstSequence;
+        size = 0;
+        version++;
+
+        heights = new int[INITIAL_CAPACITY];
+        bottoms = new long[INITIAL_CAPACITY];
+        awaitingEmoji = new boolean[INITIAL_CAPACITY];
+        clearHeights();
+    }
+
+    /**
+     * Get the oldest message that still needs to be rolled out, moving the rollout head up to it
+     * 
+     * @param censorshipEnabled
+     *            Whether censored messages are hidden, and so don't need to be rolled out
+     * @return message, or null if every message is completely drawn or hidden
+     */
+    public synchronized Message getNextToRollOut(boolean censorshipEnabled)
+    {
+        advanceRollout(censorshipEnabled);
+        return rolloutSequence < firstSequence + size ? ring[getSlot(rolloutSequence)] : null;
+    }
+
+    /**
+     * Move the rollout head up past every message that is completely drawn or hidden by censorship
+     * 
+     * @param censorshipEnabled
+     */
+    private void advanceRollout(boolean censorshipEnabled)
+    {
+        rolloutSequence = Math.max(rolloutSequence, firstSequence);
+        while (rolloutSequence < firstSequence + size)
+        {
+            final Message msg = ring[getSlot(rolloutSequence)];
+            if (!msg.isCompletelyDrawn() && !(msg.isCensored() && censorshipEnabled))
+            {
+                return;
+            }
+            rolloutSequence++;
+        }
+    }
+
+    /**
+     * Measure the messages from the rollout head on that still need to be rolled out. Only the messages from the rollout
+     * head on are copied out under the lock. They are measured after it's released, because measuring might parse their
+     * text, and messages shouldn't have to wait on that to be added.
+     *
+     * @param censorshipEnabled
+     *            Whether censored messages are hidden, and so don't need to be rolled out
+     * @param emojiManager
+     * @param messageConfig
+     * @param emojiConfig
+     * @return backlog
+     */
+    public RolloutBacklog getBacklog(boolean censorshipEnabled, EmojiManager emojiManager, ConfigMessage messageConfig, ConfigEmoji emojiConfig)
+    {
+        final Message[] pending;
+        synchronized (this)
+        {
+            final long start = Math.max(rolloutSequence, firstSequence);
+            pending = new Message[(int) (firstSequence + size - start)];
+            for (int i = 0; i < pending.length; i++)
+            {
+                pending[i] = ring[(head + (int) (start - firstSequence) + i) % ring.length];
+            }
+        }
+
+        int messageCount = 0;
+        int characterCount = 0;
+        long oldestTimestamp = Long.MAX_VALUE;
+        for (Message msg : pending)
+        {
+            if (!msg.isCompletelyDrawn() && !(msg.isCensored() && censorshipEnabled))
+            {
+                messageCount++;
+                characterCount += Math.max(0, msg.getMessageLength(emojiManager, messageConfig, emojiConfig) - (int) msg.getDrawCursor());
+                oldestTimestamp = Math.min(oldestTimestamp, msg.getTimestamp().getTime());
+            }
+        }
+        return messageCount == 0 ? RolloutBacklog.EMPTY : new RolloutBacklog(messageCount, characterCount, oldestTimestamp);
+    }
+
+    /**
+     * Move the rollout head back to the oldest message, for when a change to the censorship might have brought back
+     * messages that still need to be rolled out. The heights are all measured again too, because the censorship decides
+     * which messages have any.
+     */
+    public synchronized void rewindRollout()
+    {
+        rolloutSequence = firstSequence;
+        clearHeights();
+    }
+
+    /**
+     * Throw out the heights of all the messages, so they're all measured again, for when something that changes every
+     * height, like the font or the line wrap length, has changed
+     */
+    public synchronized void invalidateHeights()
+    {
+        clearHeights();
+    }
+
+    private void clearHeights()
+    {
+        measuredSequence = firstSequence;
+        shownSequence = NONE;
+        rollingSequence = NONE;
+        heightGeneration++;
+        heightStamp++;
+    }
+
+    /**
+     * Measure the messages to be drawn: every message from the oldest up to and including the one being rolled out.
+     * Only the messages that haven't been measured, the message being rolled out, and, once an emoji finishes loading,
+     * the messages measured with an emoji still loading are measured. They're picked out under the lock, measured after
+     * it's released, and their heights are stored under it again, unless the heights were thrown out in the meantime, in
+     * which case they're picked out again.
+     * 
+     * @param censorshipEnabled
+     *            Whether censored messages are hidden, and so don't need to be rolled out
+     * @param measure
+     *            Measures each message, giving zero for a message that is hidden
+     * @return The totals of the messages to be drawn, to be placed on screen with {@link #placeOnScreen}
+     */
+    public DrawnMessages measureDrawn(boolean censorshipEnabled, HeightMeasure measure)
+    {
+        while (true)
+        {
+            final int generation;
+            final long from;
+            final Message[] unmeasured;
+            final long rollingAt;
+            final Message rolling;
+            final int loadVersion;
+            long[] recheckSequences = NO_SEQUENCES;
+            Message[] recheck = NONE_EVICTED;
+            synchronized (this)
+            {
+                advanceRollout(censorshipEnabled);
+                measuredSequence = Math.max(measuredSequence, firstSequence);
+                final long end = firstSequence + size;
+                rollingAt = rolloutSequence < end ? rolloutSequence : NONE;
+
+                from = measuredSequence;
+                unmeasured = new Message[(int) Math.max(0L, (rollingAt == NONE ? end : rollingAt) - from)];
+                for (int i = 0; i < unmeasured.length; i++)
+                {
+                    unmeasured[i] = ring[getSlot(from + i)];
+                }
+                rolling = rollingAt == NONE ? null : ring[getSlot(rollingAt)];
+
+                // Only a finished emoji can change the height of a message already measured with one still loading
+                loadVersion = LazyLoadEmoji.getLoadVersion();
+                if (loadVersion != emojiLoadVersion)
+                {
+                    int recheckCount = 0;
+                    for (long sequence = firstSequence; sequence < measuredSequence; sequence++)
+                    {
+                        if (awaitingEmoji[getSlot(sequence)])
+                        {
+                            recheckCount++;
+                        }
+                    }
+                    recheckSequences = new long[recheckCount];
+                    recheck = new Message[recheckCount];
+                    int r = 0;
+                    for (long sequence = firstSequence; r < recheckCount; sequence++)
+                    {
+                        if (awaitingEmoji[getSlot(sequence)])
+                        {
+                            recheckSequences[r] = sequence;
+                            recheck[r] = ring[getSlot(sequence)];
+                            r++;
+                        }
+                    }
+                }
+                generation = heightGeneration;
+            }
+
+            final int[] unmeasuredHeights = new int[unmeasured.length];
+            final boolean[] unmeasuredAwaiting = new boolean[unmeasured.length];
+            for (int i = 0; i < unmeasured.length; i++)
+            {
+                unmeasuredHeights[i] = measure.getHeight(unmeasured[i]);
+                unmeasuredAwaiting[i] = isEmojiPending(unmeasured[i]);
+            }
+            final int[] recheckHeights = new int[recheck.length];
+            final boolean[] recheckAwaiting = new boolean[recheck.length];
+            for (int i = 0; i < recheck.length; i++)
+            {
+                recheckHeights[i] = measure.getHeight(recheck[i]);
+                recheckAwaiting[i] = isEmojiPending(recheck[i]);
+            }
+            final int newRollingHeight = rolling == null ? 0 : measure.getHeight(rolling);
+
+            synchronized (this)
+            {
+                if (generation != heightGeneration)
+                {
+                    continue;
+                }
+
+                emojiLoadVersion = loadVersion;
+                boolean rechecked = false;
+                for (int i = 0; i < recheck.length; i++)
+                {
+                    final long sequence = recheckSequences[i];
+                    if (sequence >= firstSequence && sequence < measuredSequence)
+                    {
+                        final int slot = getSlot(sequence);
+                        heights[slot] = recheckHeights[i];
+                        awaitingEmoji[slot] = recheckAwaiting[i];
+                        rechecked = true;
+                    }
+                }
+                if (rechecked)
+                {
+                    sumHeights();
+                }
+
+                for (int i = 0; i < unmeasured.length; i++)
+                {
+                    final long sequence = from + i;
+                    // Dropped while it was being measured, or already measured by another render
+                    if (sequence < measuredSequence)
+                    {
+                        continue;
+                    }
+                    final int slot = getSlot(sequence);
+                    heights[slot] = unmeasuredHeights[i];
+                    awaitingEmoji[slot] = unmeasuredAwaiting[i];
+                    bottoms[slot] = getBottomBefore(sequence) + unmeasuredHeights[i];
+                    if (unmeasuredHeights[i] > 0)
+                    {
+                        shownSequence = sequence;
+                    }
+                    measuredSequence = sequence + 1;
+                }
+
+                if (rollingAt != NONE && rollingAt == measuredSequence)
+                {
+                    rollingSequence = rollingAt;
+                    rollingHeight = newRollingHeight;
+                }
+                else
+                {
+                    rollingSequence = NONE;
+                }
+                heightStamp++;
+
+                return getDrawn();
+            }
+        }
+    }
+
+    /**
+     * Pick out the messages to be drawn that are at least partly on screen, in the order they're drawn, skipping any
+     * without a height. Only the messages on screen are looked at, after a binary search of the running totals for the
+     * first one.
+     * 
+     * @param drawn
+     *            The messages to be drawn, as last measured, which the messages on screen are added to
+     * @param fromHeight
+     *            The height, counting from the first message drawn, below which a message is on screen
+     * @param toHeight
+     *            The height, counting from the first message drawn, at or after which a message is off screen
+     * @param newestFirst
+     *            Whether the newest message is drawn first
+     * @return Whether the messages on screen were picked out, which they aren't if the heights or the messages drawn
+     *         have changed since they were measured, in which case they need to be measured again
+     */
+    public synchronized boolean placeOnScreen(DrawnMessages drawn, int fromHeight, int toHeight, boolean newestFirst)
+    {
+        if (drawn.getStamp() != heightStamp)
+        {
+            return false;
+        }
+
+        final int count = drawn.getCount();
+        int lo = 0;
+        int hi = count;
+        while (lo < hi)
+        {
+            final int mid = (lo + hi) >>> 1;
+            if (getRunningHeight(mid + 1, drawn, newestFirst) > fromHeight)
+            {
+                hi = mid;
+            }
+            else
+            {
+                lo = mid + 1;
+            }
+        }
+
+        for (int i = lo; i < count; i++)
+        {
+            final int offset = getRunningHeight(i, drawn, newestFirst);
+            if (offset >= toHeight)
+            {
+                break;
+            }
+            final long sequence = firstSequence + (newestFirst ? count - i - 1 : i);
+            if (getDrawnHeight(sequence) > 0)
+            {
+                drawn.addOnScreen(ring[getSlot(sequence)], offset);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the totals of the messages to be drawn, as last measured
+     * 
+     * @return drawn
+     */
+    private DrawnMessages getDrawn()
+    {
+        final boolean rolling = rollingSequence == measuredSequence;
+        final int count = (int) (measuredSequence - firstSequence) + (rolling ? 1 : 0);
+        if (count == 0)
+        {
+            return new DrawnMessages(heightStamp, 0, 0, 0, null, 0);
+        }
+
+        final long newestSequence = firstSequence + count - 1;
+        final int newestOffset = (int) (getBottomBefore(newestSequence) - baseBottom);
+        final int totalHeight = newestOffset + getDrawnHeight(newestSequence);
+        final int shownHeight;
+        if (rolling && rollingHeight > 0)
+        {
+            shownHeight = totalHeight;
+        }
+        else if (shownSequence >= firstSequence && shownSequence < measuredSequence)
+        {
+            shownHeight = (int) (bottoms[getSlot(shownSequence)] - baseBottom);
+        }
+        else
+        {
+            shownHeight = 0;
+        }
+        return new DrawnMessages(heightStamp, count, totalHeight, shownHeight, ring[getSlot(newestSequence)], newestOffset);
+    }
+
+    /**
+     * Get the total height of the first specified number of messages to be drawn, counting from one end or the other
+     * 
+     * @param number
+     * @param drawn
+     * @param newestFirst
+     * @return height
+     */
+    private int getRunningHeight(int number, DrawnMessages drawn, boolean newestFirst)
+    {
+        final int count = drawn.getCount();
+        final int fromOldest = newestFirst ? count - number : number;
+        final int offset = fromOldest == count ? drawn.getTotalHeight() : (int) (getBottomBefore(firstSequence + fromOldest) - baseBottom);
+        return newestFirst ? drawn.getTotalHeight() - offset : offset;
+    }
+
+    /**
+     * Get the height of a message to be drawn, which is either measured or being rolled out
+     * 
+     * @param sequence
+     * @return height
+     */
+    private int getDrawnHeight(long sequence)
+    {
+        return sequence == rollingSequence ? rollingHeight : heights[getSlot(sequence)];
+    }
+
+    /**
+     * Get the running total of the heights before the specified message, which must be measured or just after the last
+     * one measured
+     * 
+     * @param sequence
+     * @return bottom
+     */
+    private long getBottomBefore(long sequence)
+    {
+        return sequence == firstSequence ? baseBottom : bottoms[getSlot(sequence - 1)];
+    }
+
+    /**
+     * Add up the running totals of all the measured messages again, from their heights
+     */
+    private void sumHeights()
+    {
+        long bottom = baseBottom;
+        shownSequence = NONE;
+        for (long sequence = firstSequence; sequence < measuredSequence; sequence++)
+        {
+            final int slot = getSlot(sequence);
+            bottom += heights[slot];
+            bottoms[slot] = bottom;
+            if (heights[slot] > 0)
+            {
+                shownSequence = sequence;
+            }
+        }
+    }
+
+    private int getSlot(long sequence)
+    {
+        return (head + (int) (sequence - firstSequence)) % ring.length;
+    }
+
+    private static boolean isEmojiPending(Message msg)
+    {
+        final MessageLayout layout = msg.getLayout();
+        return layout != null && layout.isEmojiPending();
+    }
+
+    private void grow()
+    {
+        Message[] grown = new Message[ring.length * 2];
+        int[] grownHeights = new int[grown.length];
+        long[] grownBottoms = new long[grown.length];
+        boolean[] grownAwaiting = new boolean[grown.length];
+        for (int i = 0; i < size; i++)
+        {
+            final int slot = (head + i) % ring.length;
+            grown[i] = ring[slot];
+            grownHeights[i] = heights[slot];
+            grownBottoms[i] = bottoms[slot];
+            grownAwaiting[i] = awaitingEmoji[slot];
+        }
+        ring = grown;
+        heights = grownHeights;
+        bottoms = grownBottoms;
+        awaitingEmoji = grownAwaiting;
+        head = 0;
+    }
+
+    /**
+     * Measures messages for the heights kept in the store
+     */
+    public interface HeightMeasure
+    {
+        /**
+         * Get the height of the message, including the space after it
+         * 
+         * @param msg
+         * @return height, or zero if the message isn't drawn at all
+         */
+        int getHeight(Message msg);
+    }
+}
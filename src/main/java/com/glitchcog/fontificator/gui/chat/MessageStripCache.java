@@ -0,0 +1,273 @@
+package com.glitchcog.fontificator.gui.chat;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.ImageObserver;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+import com.glitchcog.fontificator.bot.Message;
+import com.glitchcog.fontificator.config.ConfigColor;
+import com.glitchcog.fontificator.config.ConfigEmoji;
+import com.glitchcog.fontificator.config.ConfigMessage;
+import com.glitchcog.fontificator.emoji.EmojiManager;
+import com.glitchcog.fontificator.sprite.MessageLayout;
+import com.glitchcog.fontificator.sprite.MessageText;
+import com.glitchcog.fontificator.sprite.SpriteCharacterKey;
+import com.glitchcog.fontificator.sprite.SpriteFont;
+
+/**
+ * Draws messages that are done rolling out by copying in an image of the whole message, drawn the first time the
+ * message is drawn completely, rather than drawing it a character at a time every repaint. The images, or strips, are
+ * redrawn when the message's layout changes, which covers changes to the font, message and emoji configuration and to
+ * the width of the chat, or when its colors change. Messages with animated emoji are always drawn a character at a time,
+ * and the total size of the strips is held under a byte budget by dropping the least recently drawn first.
+ *
+ * @author Matt Yanos
+ */
+public class MessageStripCache
+{
+    private static final Logger logger = Logger.getLogger(MessageStripCache.class);
+
+    /**
+     * The default number of bytes of message strips to keep
+     */
+    public static final long DEFAULT_BYTE_BUDGET = 32L * 1024L * 1024L;
+
+    /**
+     * The strips, in order from least to most recently drawn
+     */
+    private final LinkedHashMap<Message, Strip> strips;
+
+    private long byteBudget;
+
+    private long byteCount;
+
+    private long hits;
+
+    private long misses;
+
+    private long evictions;
+
+    public MessageStripCache(long byteBudget)
+    {
+        this.strips = new LinkedHashMap<Message, Strip>(64, 0.75f, true);
+        this.byteBudget = byteBudget;
+    }
+
+    /**
+     * Draw the message, copying in the message's strip if it can, or drawing it a character at a time if it can't. Takes
+     * the same parameters as {@link SpriteFont#drawMessage}, to which it falls back.
+     *
+     * @return The size of the bounding box of the drawn message
+     */
+    public synchronized Dimension drawMessage(SpriteFont font, Graphics2D g2d, FontMetrics fontMetrics, Message msg, Color userColor, ConfigColor colorConfig, ConfigMessage messageConfig, ConfigEmoji emojiConfig, EmojiManager emojiManager, int x_init, int y_init, int topLimit, int botLimit, int lineWrapLength, boolean debug, Color debugColor, ImageObserver emojiObserver, boolean lastMessage)
+    {
+        final Dimension dim = font.getMessageDimensions(msg, fontMetrics, messageConfig, emojiConfig, emojiManager, lineWrapLength, lastMessage);
+        final MessageLayout layout = msg.getLayout();
+
+        if (debug || !msg.isCompletelyDrawn() || dim.getHeight() == 0 || layout == null || !layout.isDrawable() || isAnimated(layout, emojiConfig))
+        {
+            strips.remove(msg);
+            return font.drawMessage(g2d, fontMetrics, msg, userColor, colorConfig, messageConfig, emojiConfig, emojiManager, x_init, y_init, topLimit, botLimit, lineWrapLength, debug, debugColor, emojiObserver, lastMessage);
+        }
+
+        // Lines of messages that hang over the top or bottom limits aren't drawn, so a strip can only be used if the whole
+        // message is between them
+        final int lineHeight = font.getLineHeightScaled();
+        final int top = y_init + font.getLineScrollOffset() * lineHeight;
+        final int lineCount = layout.getLineCount(msg.getDrawCursor());
+        if (top < topLimit || top + (lineCount - 1) * lineHeight >= botLimit)
+        {
+            return font.drawMessage(g2d, fontMetrics, msg, userColor, colorConfig, messageConfig, emojiConfig, emojiManager, x_init, y_init, topLimit, botLimit, lineWrapLength, debug, debugColor, emojiObserver, lastMessage);
+        }
+
+        Strip strip = strips.get(msg);
+        if (strip == null || !strip.isCurrent(layout, colorConfig.getVersion(), userColor, g2d.getFont()))
+        {
+            misses++;
+            if (strip != null)
+            {
+                byteCount -= strip.getByteSize();
+                strips.remove(msg);
+            }
+            strip = drawStrip(font, g2d, fontMetrics, msg, layout, userColor, colorConfig, messageConfig, emojiConfig, emojiManager, lineWrapLength, emojiObserver);
+            if (strip == null)
+            {
+                return font.drawMessage(g2d, fontMetrics, msg, userColor, colorConfig, messageConfig, emojiConfig, emojiManager, x_init, y_init, topLimit, botLimit, lineWrapLength, debug, debugColor, emojiObserver, lastMessage);
+            }
+            strips.put(msg, strip);
+            byteCount += strip.getByteSize();
+            evict();
+        }
+        else
+        {
+            hits++;
+        }
+
+        g2d.drawImage(strip.image, x_init + strip.offsetX, top + strip.offsetY, null);
+
+        return dim;
+    }
+
+    /**
+     * Draw the whole message into a new strip just big enough to hold all of its characters
+     *
+     * @return strip, or null if the message has nothing to draw
+     */
+    private Strip drawStrip(SpriteFont font, Graphics2D g2d, FontMetrics fontMetrics, Message msg, MessageLayout layout, Color userColor, ConfigColor colorConfig, ConfigMessage messageConfig, ConfigEmoji emojiConfig, EmojiManager emojiManager, int lineWrapLength, ImageObserver emojiObserver)
+    {
+        // The bounds are relative to the top left of the message, as it would be drawn with no scroll offset
+        final Rectangle bounds = font.getRevealedBounds(fontMetrics, layout, 0.0f, msg.getDrawCursor(), emojiConfig, 0, -font.getLineScrollOffset() * font.getLineHeightScaled());
+        if (bounds == null || bounds.isEmpty())
+        {
+            return null;
+        }
+
+        BufferedImage image = new BufferedImage(bounds.width, bounds.height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D stripG2d = image.createGraphics();
+        stripG2d.setRenderingHints(g2d.getRenderingHints());
+        stripG2d.setFont(g2d.getFont());
+        font.drawMessage(stripG2d, fontMetrics, msg, userColor, colorConfig, messageConfig, emojiConfig, emojiManager, -bounds.x, -bounds.y - font.getLineScrollOffset() * font.getLineHeightScaled(), Integer.MIN_VALUE, Integer.MAX_VALUE, lineWrapLength, false, null, emojiObserver, true);
+        stripG2d.dispose();
+
+        return new Strip(image, bounds.x, bounds.y, layout, colorConfig.getVersion(), userColor, g2d.getFont());
+    }
+
+    /**
+     * Get whether any of the emoji in the layout are animated, meaning the message can't be drawn from a still strip
+     *
+     * @param layout
+     * @param emojiConfig
+     * @return animated
+     */
+    private static boolean isAnimated(MessageLayout layout, ConfigEmoji emojiConfig)
+    {
+        if (!emojiConfig.isAnimationEnabled())
+        {
+            return false;
+        }
+        final MessageText text = layout.getText();
+        for (int e = 0; e < text.getEmojiCount(); e++)
+        {
+            final SpriteCharacterKey sck = text.getEmoji(e);
+            if (sck.isEmoji() && sck.getEmoji().isAnimatedGif())
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Drop the least recently drawn strips until the cache is within its budget
+     */
+    private void evict()
+    {
+        Iterator<Map.Entry<Message, Strip>> iter = strips.entrySet().iterator();
+        while (byteCount > byteBudget && iter.hasNext())
+        {
+            byteCount -= iter.next().getValue().getByteSize();
+            iter.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Drop the strip for the specified message, if there is one, like when it is censored or expires
+     *
+     * @param msg
+     */
+    public synchronized void remove(Message msg)
+    {
+        Strip strip = strips.remove(msg);
+        if (strip != null)
+        {
+            byteCount -= strip.getByteSize();
+        }
+    }
+
+    /**
+     * Drop all the strips, leaving the hit, miss and eviction counts as they are
+     */
+    public synchronized void clear()
+    {
+        strips.clear();
+        byteCount = 0L;
+    }
+
+    /**
+     * Set the number of bytes of strips to keep, dropping any strips beyond the new budget
+     *
+     * @param byteBudget
+     */
+    public synchronized void setByteBudget(long byteBudget)
+    {
+        this.byteBudget = byteBudget;
+        evict();
+        logger.debug("Message strip cache budget set to " + byteBudget + " bytes");
+    }
+
+    public synchronized long getByteBudget()
+    {
+        return byteBudget;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return strips.size() + " strips, " + (byteCount / 1024L) + " / " + (byteBudget / 1024L) + " KB, " + hits + " hits, " + misses + " misses, " + evictions + " evictions";
+    }
+
+    /**
+     * An image of a whole message, along with what it was drawn with so it can tell when it needs to be redrawn
+     */
+    private static class Strip
+    {
+        private final BufferedImage image;
+
+        /**
+         * Where the image goes relative to the top left of the message
+         */
+        private final int offsetX;
+
+        private final int offsetY;
+
+        private final MessageLayout layout;
+
+        private final int colorVersion;
+
+        private final Color userColor;
+
+        private final Font font;
+
+        private Strip(BufferedImage image, int offsetX, int offsetY, MessageLayout layout, int colorVersion, Color userColor, Font font)
+        {
+            this.image = image;
+            this.offsetX = offsetX;
+            this.offsetY = offsetY;
+            this.layout = layout;
+            this.colorVersion = colorVersion;
+            this.userColor = userColor;
+            this.font = font;
+        }
+
+        private boolean isCurrent(MessageLayout layout, int colorVersion, Color userColor, Font font)
+        {
+            return this.layout == layout && this.colorVersion == colorVersion && this.userColor.equals(userColor) && this.font.equals(font);
+        }
+
+        private long getByteSize()
+        {
+            return (long) image.getWidth() * image.getHeight() * 4L;
+        }
+    }
+}
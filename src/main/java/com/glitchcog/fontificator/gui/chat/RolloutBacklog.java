@@ -0,0 +1,62 @@
+package com.glitchcog.fontificator.gui.chat;
+
+/**
+ * How far the message rollout has fallen behind: the messages still waiting to be completely drawn, how many characters
+ * of them are left to draw, and when the oldest of them was posted
+ *
+ * @author Matt Yanos
+ */
+public class RolloutBacklog
+{
+    public static final RolloutBacklog EMPTY = new RolloutBacklog(0, 0, Long.MAX_VALUE);
+
+    private final int messageCount;
+
+    private final int characterCount;
+
+    private final long oldestTimestamp;
+
+    RolloutBacklog(int messageCount, int characterCount, long oldestTimestamp)
+    {
+        this.messageCount = messageCount;
+        this.characterCount = characterCount;
+        this.oldestTimestamp = oldestTimestamp;
+    }
+
+    public int getMessageCount()
+    {
+        return messageCount;
+    }
+
+    public int getCharacterCount()
+    {
+        return characterCount;
+    }
+
+    public boolean isEmpty()
+    {
+        return messageCount == 0;
+    }
+
+    /**
+     * Get how long the oldest message still waiting to be completely drawn has been waiting
+     *
+     * @param currentTime
+     * @return latency in milliseconds, or zero if nothing is waiting
+     */
+    public long getLatency(long currentTime)
+    {
+        return isEmpty() ? 0L : Math.max(0L, currentTime - oldestTimestamp);
+    }
+
+    /**
+     * Get a summary of the backlog for display
+     *
+     * @param currentTime
+     * @return summary
+     */
+    public String toString(long currentTime)
+    {
+        return messageCount + " messages, " + characterCount + " chars, " + String.format("%.1f", getLatency(currentTime) / 1000.0f) + " sec behind";
+    }
+}
@@ -0,0 +1,42 @@
+package com.glitchcog.fontificator.gui.chat.clock;
+
+/**
+ * The source of the time for the chat, used for message timestamps, for rolling out and expiring messages, and for
+ * scheduling the tasks that do so. Everything that depends on the passage of time in the chat reads it from here rather
+ * than from the system, so a chat can be given a clock other than the actual time when its ChatPanel is constructed,
+ * like a VirtualChatClock that lets time pass as fast or as slowly as its caller moves it.
+ * 
+ * @author Matt Yanos
+ */
+public abstract class ChatClock
+{
+    /**
+     * Get the current time, in milliseconds since the epoch
+     * 
+     * @return current time
+     */
+    public abstract long currentTimeMillis();
+
+    /**
+     * Schedule a task to run repeatedly, starting after the specified delay, with the specified period between runs,
+     * until it is cancelled
+     * 
+     * @param task
+     *            The task to run
+     * @param delay
+     *            How long to wait in milliseconds before the first run
+     * @param period
+     *            How long to wait in milliseconds between runs
+     */
+    public abstract void schedule(ClockTask task, long delay, long period);
+
+    /**
+     * Schedule a task to run once, after the specified delay, unless it is cancelled first
+     * 
+     * @param task
+     *            The task to run
+     * @param delay
+     *            How long to wait in milliseconds before running it
+     */
+    public abstract void schedule(ClockTask task, long delay);
+}
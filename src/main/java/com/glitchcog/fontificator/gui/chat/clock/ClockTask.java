@@ -0,0 +1,24 @@
+package com.glitchcog.fontificator.gui.chat.clock;
+
+/**
+ * A task scheduled to run on a ChatClock, which stops running once cancelled
+ * 
+ * @author Matt Yanos
+ */
+public abstract class ClockTask implements Runnable
+{
+    private volatile boolean cancelled;
+
+    /**
+     * Stop the task from running again. If it is in the middle of running, it finishes.
+     */
+    public void cancel()
+    {
+        cancelled = true;
+    }
+
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+}
@@ -0,0 +1,147 @@
+package com.glitchcog.fontificator.gui.chat.clock;
+
+import java.awt.Rectangle;
+
+import com.glitchcog.fontificator.config.ConfigChat;
+import com.glitchcog.fontificator.gui.chat.ChatPanel;
+
+/**
+ * Gathers up the requests to repaint the chat made by rolling out and expiring messages and by animating emoji, and
+ * repaints the chat for all of them together at most once a frame, at the frame rate set in the chat configuration.
+ * Frames are scheduled on the chat's clock only when there's something to repaint, so nothing runs while the chat is
+ * idle.
+ * 
+ * @author Matt Yanos
+ */
+public class FrameScheduler
+{
+    private final ChatPanel chat;
+
+    private final ChatClock clock;
+
+    /**
+     * For the frame rate, null until the configuration is loaded
+     */
+    private ConfigChat chatConfig;
+
+    /**
+     * Whether the whole chat needs to be repainted in the next frame
+     */
+    private boolean fullRepaint;
+
+    /**
+     * The region of the chat to be repainted in the next frame, if not the whole chat, or null if there is nothing to
+     * repaint
+     */
+    private Rectangle damage;
+
+    /**
+     * Whether the next frame is already scheduled
+     */
+    private boolean frameScheduled;
+
+    /**
+     * When the last frame was repainted, to keep the next one from coming sooner than the frame rate allows
+     */
+    private long lastFrameTime;
+
+    public FrameScheduler(ChatPanel chat, ChatClock clock)
+    {
+        this.chat = chat;
+        this.clock = clock;
+        this.lastFrameTime = Long.MIN_VALUE / 2L;
+    }
+
+    public synchronized void setConfig(ConfigChat chatConfig)
+    {
+        this.chatConfig = chatConfig;
+    }
+
+    /**
+     * Repaint the whole chat in the next frame
+     */
+    public void requestRepaint()
+    {
+        synchronized (this)
+        {
+            fullRepaint = true;
+            damage = null;
+            if (frameScheduled)
+            {
+                return;
+            }
+            frameScheduled = true;
+        }
+        scheduleFrame();
+    }
+
+    /**
+     * Repaint the specified region of the chat in the next frame
+     * 
+     * @param region
+     */
+    public void requestRepaint(Rectangle region)
+    {
+        synchronized (this)
+        {
+            if (!fullRepaint)
+            {
+                damage = damage == null ? new Rectangle(region) : damage.union(region);
+            }
+            if (frameScheduled)
+            {
+                return;
+            }
+            frameScheduled = true;
+        }
+        scheduleFrame();
+    }
+
+    /**
+     * Schedule the next frame for as soon as the frame rate allows. The clock is only read and scheduled on outside the
+     * lock on this scheduler.
+     */
+    private void scheduleFrame()
+    {
+        final long earliest;
+        synchronized (this)
+        {
+            final int frameRate = chatConfig == null ? ConfigChat.DEFAULT_FRAME_RATE : chatConfig.getFrameRate();
+            earliest = lastFrameTime + 1000L / Math.max(ConfigChat.MIN_FRAME_RATE, frameRate);
+        }
+
+        clock.schedule(new ClockTask()
+        {
+            @Override
+            public void run()
+            {
+                drawFrame();
+            }
+        }, Math.max(0L, earliest - clock.currentTimeMillis()));
+    }
+
+    private void drawFrame()
+    {
+        final long now = clock.currentTimeMillis();
+        final boolean full;
+        final Rectangle region;
+        synchronized (this)
+        {
+            full = fullRepaint;
+            region = damage;
+            fullRepaint = false;
+            damage = null;
+            frameScheduled = false;
+            lastFrameTime = now;
+        }
+
+        if (full)
+        {
+            chat.repaint();
+        }
+        else if (region != null)
+        {
+            chat.repaint(region);
+        }
+    }
+}
@@ -1,13 +1,10 @@
 package com.glitchcog.fontificator.gui.chat.clock;
 
-import java.util.Timer;
-import java.util.TimerTask;
-
 import com.glitchcog.fontificator.gui.chat.ChatPanel;
 
 /**
- * A stored reference to the chatPanek, a timer and its associated task related to doing something with messages. Also
- * sets a shutdown hook to make sure the timer thread is killed on exit
+ * A stored reference to the chatPanel, its clock and the task scheduled on it related to doing something with messages.
+ * Also sets a shutdown hook to make sure the task is cancelled on exit
  * 
  * @author Matt Yanos
  */
@@ -15,15 +12,16 @@ public abstract class MessageClock
 {
     protected ChatPanel chat;
 
-    protected Timer clock;
+    protected ChatClock clock;
 
-    protected TimerTask task;
+    protected ClockTask task;
 
     protected boolean active;
 
     public MessageClock(ChatPanel chat)
     {
         this.chat = chat;
+        this.clock = chat.getClock();
         this.active = false;
 
         Runtime.getRuntime().addShutdownHook(new Thread()
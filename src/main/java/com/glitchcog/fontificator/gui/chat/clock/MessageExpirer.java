@@ -1,46 +1,158 @@
 package com.glitchcog.fontificator.gui.chat.clock;
 
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
 
+import com.glitchcog.fontificator.bot.Message;
+import com.glitchcog.fontificator.config.ConfigMessage;
 import com.glitchcog.fontificator.gui.chat.ChatPanel;
 
 /**
- * Timer to continually repaint the chat in case a message expiration time is set
- * 
+ * Timer to remove messages from the chat at the moment they expire, in case a message expiration time is set. The
+ * completely drawn messages are kept in order of when they were completed, which is also the order they expire in
+ * because every message is displayed for the same length of time, and the timer only wakes up when the first of them
+ * expires. With nothing to expire, nothing is scheduled.
+ *
  * @author Matt Yanos
  */
 public class MessageExpirer extends MessageClock
 {
+    /**
+     * The completely drawn messages still in the chat, first to expire first
+     */
+    private final PriorityQueue<Message> deadlines;
+
+    /**
+     * When the currently scheduled task wakes up, or Long.MAX_VALUE if no task is scheduled
+     */
+    private long scheduledDeadline;
+
     public MessageExpirer(ChatPanel chat)
     {
         super(chat);
+        this.deadlines = new PriorityQueue<Message>(64, new Comparator<Message>()
+        {
+            @Override
+            public int compare(Message a, Message b)
+            {
+                return a.getCompletedTime() < b.getCompletedTime() ? -1 : (a.getCompletedTime() == b.getCompletedTime() ? 0 : 1);
+            }
+        });
+        this.scheduledDeadline = Long.MAX_VALUE;
     }
 
-    public void startClock()
+    /**
+     * Gather up all the completely drawn messages in the chat and schedule the task for when the first of them expires.
+     * Called whenever the expiration time is changed, or when messages might have been completed outside of the normal
+     * message rollout, like by being censored.
+     */
+    public synchronized void startClock()
     {
-        startClock(100L);
+        deadlines.clear();
+        for (Message msg : chat.getMessages())
+        {
+            if (msg.isCompletelyDrawn())
+            {
+                deadlines.add(msg);
+            }
+        }
+        scheduleNext();
     }
 
-    public void startClock(long messageDelay)
+    /**
+     * Wake up after the specified delay to remove any expired messages, then again when the next message expires
+     *
+     * @param delay
+     */
+    @Override
+    public synchronized void startClock(long delay)
     {
         cancelLatest();
         initTask();
-        clock = new Timer();
-        clock.schedule(task, 0L, messageDelay);
+        scheduledDeadline = clock.currentTimeMillis() + delay;
+        clock.schedule(task, delay);
+    }
+
+    /**
+     * Add a message that was just completely drawn to those waiting to expire
+     *
+     * @param msg
+     */
+    public synchronized void messageCompleted(Message msg)
+    {
+        final ConfigMessage messageConfig = chat.getMessageConfig();
+        if (messageConfig != null && messageConfig.isMessageExpirable())
+        {
+            deadlines.add(msg);
+            if (msg.getExpirationDeadline(messageConfig.getExpirationTime()) < scheduledDeadline)
+            {
+                scheduleNext();
+            }
+        }
+    }
+
+    @Override
+    public synchronized void cancelLatest()
+    {
+        super.cancelLatest();
+        scheduledDeadline = Long.MAX_VALUE;
+    }
+
+    /**
+     * Schedule the task for when the first message expires, or cancel it if there's nothing to expire
+     */
+    private void scheduleNext()
+    {
+        final ConfigMessage messageConfig = chat.getMessageConfig();
+        if (deadlines.isEmpty() || messageConfig == null || !messageConfig.isMessageExpirable())
+        {
+            cancelLatest();
+            return;
+        }
+
+        final long deadline = deadlines.peek().getExpirationDeadline(messageConfig.getExpirationTime());
+        startClock(Math.max(0L, deadline - clock.currentTimeMillis()));
+    }
+
+    /**
+     * Take all the messages that have expired by now off the deadline queue
+     *
+     * @return expired messages
+     */
+    private synchronized List<Message> pollExpired()
+    {
+        scheduledDeadline = Long.MAX_VALUE;
+
+        List<Message> expired = new ArrayList<Message>();
+        final ConfigMessage messageConfig = chat.getMessageConfig();
+        if (messageConfig == null || !messageConfig.isMessageExpirable())
+        {
+            return expired;
+        }
+
+        final long now = clock.currentTimeMillis();
+        while (!deadlines.isEmpty() && deadlines.peek().getExpirationDeadline(messageConfig.getExpirationTime()) <= now)
+        {
+            expired.add(deadlines.poll());
+        }
+        scheduleNext();
+        return expired;
     }
 
     @Override
     public void initTask()
     {
-        super.task = new TimerTask()
+        super.task = new ClockTask()
         {
             @Override
             public void run()
             {
-                if (chat != null)
+                List<Message> expired = pollExpired();
+                if (!expired.isEmpty())
                 {
-                    chat.repaint();
+                    chat.removeExpiredMessages(expired);
                 }
             }
         };
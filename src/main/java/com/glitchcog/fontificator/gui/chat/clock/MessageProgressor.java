@@ -1,26 +1,60 @@
 package com.glitchcog.fontificator.gui.chat.clock;
 
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.glitchcog.fontificator.bot.Message;
+import com.glitchcog.fontificator.config.ConfigMessage;
 import com.glitchcog.fontificator.gui.chat.ChatPanel;
+import com.glitchcog.fontificator.gui.chat.RolloutBacklog;
 
 /**
- * Timer to progress drawing messages one character at a time
- * 
+ * Timer to progress drawing messages one character at a time. If the message config sets a catch up time, the backlog
+ * of messages waiting to be drawn is measured as they are drawn, and the rollout speeds up enough to draw all of it
+ * before the oldest of it has waited that long. Any message that has waited that long anyway is completely drawn at
+ * once.
+ *
  * @author Matt Yanos
  */
 public class MessageProgressor extends MessageClock
 {
+    /**
+     * How often the backlog is measured while catching up, in milliseconds
+     */
+    private static final long BACKLOG_INTERVAL = 250L;
+
+    /**
+     * The delay between each step of the rollout
+     */
+    private long messageDelay;
+
+    /**
+     * The backlog as of the last time it was measured while catching up
+     */
+    private RolloutBacklog backlog;
+
+    private long backlogTime;
+
+    /**
+     * The number of messages completely drawn at once to catch up
+     */
+    private final AtomicLong caughtUpCount;
+
+    /**
+     * The number of messages dropped off the queue before they were completely drawn
+     */
+    private final AtomicLong trimmedCount;
+
     public MessageProgressor(ChatPanel chat)
     {
         super(chat);
+        this.backlog = RolloutBacklog.EMPTY;
+        this.caughtUpCount = new AtomicLong();
+        this.trimmedCount = new AtomicLong();
     }
 
     /**
      * Get whether something is in the process of being drawn
-     * 
+     *
      * @return somethingBeingDrawn
      */
     public boolean isSomethingBeingDrawn()
@@ -40,44 +74,108 @@ public class MessageProgressor extends MessageClock
     @Override
     public void initTask()
     {
-        super.task = new TimerTask()
+        super.task = new ClockTask()
         {
             @Override
             public void run()
             {
                 active = false;
 
-                Message[] messageArray = chat.getMessages();
-
-                for (int i = 0; i < messageArray.length; i++)
+                final ConfigMessage messageConfig = chat.getMessageConfig();
+                Message msg = chat.getNextToRollOut();
+                float minimumCharacterCount = 0.0f;
+                if (msg != null && messageConfig.isCatchUpEnabled())
                 {
-                    if (messageArray[i].isCompletelyDrawn() || (messageArray[i].isCensored() && chat.isCensorshipEnabled()))
+                    final long now = clock.currentTimeMillis();
+                    final long catchUpMillis = messageConfig.getCatchUpTime() * 1000L;
+
+                    boolean caughtUp = false;
+                    while (msg != null && now - msg.getTimestamp().getTime() >= catchUpMillis)
                     {
-                        continue;
+                        msg.setCompletelyDrawn();
+                        chat.getMessageExpirer().messageCompleted(msg);
+                        caughtUpCount.incrementAndGet();
+                        caughtUp = true;
+                        msg = chat.getNextToRollOut();
                     }
-                    else
+
+                    if (caughtUp)
                     {
-                        messageArray[i].incrementDrawCursor(chat.getEmojiManager(), chat.getMessageConfig(), chat.getEmojiConfig());
                         active = true;
-                        chat.repaint();
-                        break;
+                        chat.requestRepaint();
+                    }
+
+                    if (msg != null)
+                    {
+                        if (caughtUp || now - backlogTime >= BACKLOG_INTERVAL)
+                        {
+                            backlog = chat.getRolloutBacklog();
+                            backlogTime = now;
+                        }
+                        minimumCharacterCount = getCatchUpCharacterCount(now, catchUpMillis);
                     }
                 }
 
+                if (msg != null)
+                {
+                    final float fromCursor = msg.getDrawCursor();
+                    msg.incrementDrawCursor(chat.getEmojiManager(), messageConfig, chat.getEmojiConfig(), minimumCharacterCount);
+                    if (msg.isCompletelyDrawn())
+                    {
+                        chat.getMessageExpirer().messageCompleted(msg);
+                    }
+                    active = true;
+                    chat.repaintRollout(msg, fromCursor);
+                }
+
                 if (!active)
                 {
+                    backlog = RolloutBacklog.EMPTY;
                     cancel();
                 }
             }
         };
     }
 
+    /**
+     * Get how many characters each step needs to draw to get through the backlog before the oldest message in it has
+     * waited for the catch up time
+     *
+     * @param now
+     * @param catchUpMillis
+     * @return characters per step
+     */
+    private float getCatchUpCharacterCount(long now, long catchUpMillis)
+    {
+        final long timeLeft = catchUpMillis - backlog.getLatency(now);
+        final float stepsLeft = Math.max(1.0f, (float) timeLeft / Math.max(1L, messageDelay));
+        return backlog.getCharacterCount() / stepsLeft;
+    }
+
     public void refreshTimer(long messageDelay)
     {
+        this.messageDelay = messageDelay;
         cancelLatest();
         initTask();
-        clock = new Timer();
         clock.schedule(task, 0L, messageDelay);
     }
 
+    /**
+     * Count a message dropped off the queue before it was completely drawn
+     */
+    public void messageTrimmed()
+    {
+        trimmedCount.incrementAndGet();
+    }
+
+    public long getCaughtUpCount()
+    {
+        return caughtUpCount.get();
+    }
+
+    public long getTrimmedCount()
+    {
+        return trimmedCount.get();
+    }
+
 }
@@ -0,0 +1,83 @@
+package com.glitchcog.fontificator.gui.chat.clock;
+
+import java.util.Timer;
+import java.util.TimerTask;
+
+import org.apache.log4j.Logger;
+
+/**
+ * A clock that keeps the actual time, running its scheduled tasks on a single background timer thread
+ * 
+ * @author Matt Yanos
+ */
+public class RealChatClock extends ChatClock
+{
+    private static final Logger logger = Logger.getLogger(RealChatClock.class);
+
+    /**
+     * Runs the scheduled tasks, created when the first task is scheduled
+     */
+    private Timer timer;
+
+    @Override
+    public long currentTimeMillis()
+    {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public synchronized void schedule(ClockTask task, long delay, long period)
+    {
+        getTimer().schedule(wrap(task), delay, period);
+    }
+
+    @Override
+    public synchronized void schedule(ClockTask task, long delay)
+    {
+        getTimer().schedule(wrap(task), delay);
+    }
+
+    private Timer getTimer()
+    {
+        if (timer == null)
+        {
+            // A daemon thread, so the timer doesn't keep the program running on exit
+            timer = new Timer("Chat Clock", true);
+        }
+        return timer;
+    }
+
+    /**
+     * Wrap the task in a timer task that drops itself from the timer the next time it comes due after the task is
+     * cancelled. A task that throws is logged rather than let through, because it would stop the timer thread and with
+     * it every other task on this clock.
+     * 
+     * @param task
+     * @return timer task
+     */
+    private static TimerTask wrap(final ClockTask task)
+    {
+        return new TimerTask()
+        {
+            @Override
+            public void run()
+            {
+                if (task.isCancelled())
+                {
+                    cancel();
+                }
+                else
+                {
+                    try
+                    {
+                        task.run();
+                    }
+                    catch (RuntimeException e)
+                    {
+                        logger.error("Chat clock task failed", e);
+                    }
+                }
+            }
+        };
+    }
+}
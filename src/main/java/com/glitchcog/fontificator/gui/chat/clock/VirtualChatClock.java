@@ -0,0 +1,193 @@
+package com.glitchcog.fontificator.gui.chat.clock;
+
+import java.util.PriorityQueue;
+
+/**
+ * A clock whose time only passes when told to, running the tasks that come due along the way on the thread that moves
+ * the time forward. This makes anything that depends on the passage of time in the chat reproducible, and lets a chat
+ * be played out faster than real time, like the ChatReplay does to draw the frames of a recorded chat.
+ * 
+ * Only one thread should move the time forward. Each task is taken off the schedule under the clock's lock, but run
+ * after the lock is released, because the tasks lock whatever they work on, like the MessageExpirer, which can call
+ * back into the clock from other threads while holding its own lock.
+ * 
+ * @author Matt Yanos
+ */
+public class VirtualChatClock extends ChatClock
+{
+    /**
+     * The current time, in milliseconds since the epoch
+     */
+    private long time;
+
+    /**
+     * The scheduled tasks, in order of when they are next due
+     */
+    private final PriorityQueue<ScheduledTask> scheduled;
+
+    /**
+     * Counts the tasks scheduled, to run tasks due at the same time in the order they were scheduled
+     */
+    private long scheduleCount;
+
+    /**
+     * Construct a virtual clock starting at the specified time
+     * 
+     * @param startTime
+     *            The starting time, in milliseconds since the epoch
+     */
+    public VirtualChatClock(long startTime)
+    {
+        this.time = startTime;
+        this.scheduled = new PriorityQueue<ScheduledTask>();
+    }
+
+    @Override
+    public synchronized long currentTimeMillis()
+    {
+        return time;
+    }
+
+    @Override
+    public synchronized void schedule(ClockTask task, long delay, long period)
+    {
+        scheduled.add(new ScheduledTask(task, time + delay, period, scheduleCount++));
+    }
+
+    @Override
+    public synchronized void schedule(ClockTask task, long delay)
+    {
+        schedule(task, delay, 0L);
+    }
+
+    /**
+     * Move the time forward by the specified amount, running each task that comes due, in order, at the time it comes
+     * due
+     * 
+     * @param millis
+     *            How far to move the time forward
+     */
+    public void advance(long millis)
+    {
+        final long endTime;
+        synchronized (this)
+        {
+            endTime = time + millis;
+        }
+        runUntil(endTime);
+        synchronized (this)
+        {
+            time = Math.max(time, endTime);
+        }
+    }
+
+    /**
+     * Move the time forward to when the next task is due and run it, along with any others due at the same time
+     * 
+     * @return whether there was a task to run
+     */
+    public boolean step()
+    {
+        final long dueTime;
+        synchronized (this)
+        {
+            removeCancelled();
+            if (scheduled.isEmpty())
+            {
+                return false;
+            }
+            dueTime = scheduled.peek().dueTime;
+        }
+        runUntil(dueTime);
+        return true;
+    }
+
+    /**
+     * Get whether any tasks are scheduled
+     * 
+     * @return whether there are tasks scheduled
+     */
+    public synchronized boolean hasScheduledTasks()
+    {
+        removeCancelled();
+        return !scheduled.isEmpty();
+    }
+
+    /**
+     * Run each task due by the specified time, in order, including any scheduled by the tasks themselves
+     * 
+     * @param endTime
+     */
+    private void runUntil(long endTime)
+    {
+        ScheduledTask next;
+        while ((next = takeNext(endTime)) != null)
+        {
+            next.task.run();
+        }
+    }
+
+    /**
+     * Take the next task off the schedule if it is due by the specified time, moving the time forward to when it was
+     * due. A repeating task is put back for its next run before this one runs, and is dropped then if it's cancelled.
+     * 
+     * @param endTime
+     * @return task, or null if none is due
+     */
+    private synchronized ScheduledTask takeNext(long endTime)
+    {
+        removeCancelled();
+        if (scheduled.isEmpty() || scheduled.peek().dueTime > endTime)
+        {
+            return null;
+        }
+
+        ScheduledTask next = scheduled.poll();
+        time = Math.max(time, next.dueTime);
+        if (next.period > 0L)
+        {
+            scheduled.add(new ScheduledTask(next.task, next.dueTime + next.period, next.period, scheduleCount++));
+        }
+        return next;
+    }
+
+    private void removeCancelled()
+    {
+        while (!scheduled.isEmpty() && scheduled.peek().task.isCancelled())
+        {
+            scheduled.poll();
+        }
+    }
+
+    /**
+     * A task along with when it's next due and how often it repeats
+     */
+    private static class ScheduledTask implements Comparable<ScheduledTask>
+    {
+        private final ClockTask task;
+
+        private final long dueTime;
+
+        private final long period;
+
+        private final long order;
+
+        private ScheduledTask(ClockTask task, long dueTime, long period, long order)
+        {
+            this.task = task;
+            this.dueTime = dueTime;
+            this.period = period;
+            this.order = order;
+        }
+
+        @Override
+        public int compareTo(ScheduledTask other)
+        {
+            if (dueTime != other.dueTime)
+            {
+                return dueTime < other.dueTime ? -1 : 1;
+            }
+            return order < other.order ? -1 : (order == other.order ? 0 : 1);
+        }
+    }
+}
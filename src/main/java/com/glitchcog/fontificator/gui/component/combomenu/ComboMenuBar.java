@@ -19,6 +19,8 @@ import javax.swing.MenuSelectionManager;
 import javax.swing.UIManager;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
+import javax.swing.event.MenuEvent;
+import javax.swing.event.MenuListener;
 import javax.swing.event.PopupMenuEvent;
 import javax.swing.event.PopupMenuListener;
 
@@ -44,6 +46,11 @@ public class ComboMenuBar extends JMenuBar
 
     private HintTextField filterInput;
 
+    /**
+     * Loads the preview thumbnails of the items of a submenu while it is open, or null if the items have no thumbnails
+     */
+    private ThumbnailLoader thumbnailLoader;
+
     private class MenuVisibilityStatus
     {
         private boolean filtered;
@@ -95,6 +102,13 @@ public class ComboMenuBar extends JMenuBar
 
     public ComboMenuBar(Map<String, List<String>> menuTextMap, ActionListener al)
     {
+        this(menuTextMap, al, null);
+    }
+
+    public ComboMenuBar(Map<String, List<String>> menuTextMap, ActionListener al, ThumbnailLoader thumbnailLoader)
+    {
+        this.thumbnailLoader = thumbnailLoader;
+
         setPreferredSize(new Dimension(240, 24));
         filterInput = new HintTextField("Filter", 7);
         filterInput.getDocument().addDocumentListener(new DocumentListener()
@@ -143,7 +157,27 @@ public class ComboMenuBar extends JMenuBar
             }
             else
             {
-                JMenu item = new JMenu(label);
+                final JMenu item = new JMenu(label);
+                item.addMenuListener(new MenuListener()
+                {
+                    @Override
+                    public void menuSelected(MenuEvent e)
+                    {
+                        requestThumbnails(item);
+                    }
+
+                    @Override
+                    public void menuDeselected(MenuEvent e)
+                    {
+                        cancelThumbnails(item);
+                    }
+
+                    @Override
+                    public void menuCanceled(MenuEvent e)
+                    {
+                        cancelThumbnails(item);
+                    }
+                });
                 allMenuFolders.put(item, status);
                 allMenuItems.put(item, status);
             }
@@ -247,6 +281,44 @@ public class ComboMenuBar extends JMenuBar
         }
     }
 
+    /**
+     * Request the thumbnails of the items of a submenu that has just opened, skipping any hidden by the filter
+     * 
+     * @param menuFolder
+     */
+    private void requestThumbnails(JMenu menuFolder)
+    {
+        if (thumbnailLoader == null)
+        {
+            return;
+        }
+        for (int i = 0; i < menuFolder.getItemCount(); i++)
+        {
+            GameFontMenuItem gfmi = (GameFontMenuItem) menuFolder.getItem(i);
+            if (gfmi.isVisible())
+            {
+                thumbnailLoader.request(gfmi);
+            }
+        }
+    }
+
+    /**
+     * Drop the thumbnail requests of the items of a submenu that has just closed, if they haven't started loading yet
+     * 
+     * @param menuFolder
+     */
+    private void cancelThumbnails(JMenu menuFolder)
+    {
+        if (thumbnailLoader == null)
+        {
+            return;
+        }
+        for (int i = 0; i < menuFolder.getItemCount(); i++)
+        {
+            thumbnailLoader.cancel((GameFontMenuItem) menuFolder.getItem(i));
+        }
+    }
+
     private void applyFilter(String filterText)
     {
         resetMenu();
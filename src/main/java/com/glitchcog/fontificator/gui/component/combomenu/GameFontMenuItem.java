@@ -1,6 +1,8 @@
 package com.glitchcog.fontificator.gui.component.combomenu;
 
+import javax.swing.Icon;
 import javax.swing.JMenuItem;
+import javax.swing.SwingConstants;
 
 import com.glitchcog.fontificator.game.GameGenre;
 import com.glitchcog.fontificator.game.GameSystem;
@@ -23,6 +25,17 @@ public class GameFontMenuItem extends JMenuItem
         this.game = game;
     }
 
+    /**
+     * Show a preview thumbnail after the label, so the labels of all the items still line up
+     * 
+     * @param thumbnail
+     */
+    public void setThumbnail(Icon thumbnail)
+    {
+        setHorizontalTextPosition(SwingConstants.LEADING);
+        setIcon(thumbnail);
+    }
+
     public VideoGame getGame()
     {
         return game;
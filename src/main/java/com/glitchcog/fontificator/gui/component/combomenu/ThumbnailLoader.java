@@ -0,0 +1,313 @@
+package com.glitchcog.fontificator.gui.component.combomenu;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+import javax.swing.Icon;
+import javax.swing.ImageIcon;
+import javax.swing.SwingUtilities;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Loads the preview thumbnails of the items of a combo menu in the background. Thumbnails are only requested for the
+ * items of a submenu while it is open, and requests that haven't started yet are dropped when it closes, so scrolling
+ * through the menu never queues up work for items no longer on screen. Finished thumbnails are kept in a bounded cache
+ * of the most recently used, and, if a directory is specified, saved there so they don't need to be drawn again the
+ * next time the program runs. The menu items are only ever touched on the event dispatch thread.
+ *
+ * @author Matt Yanos
+ */
+public class ThumbnailLoader
+{
+    private static final Logger logger = Logger.getLogger(ThumbnailLoader.class);
+
+    public static final int THUMBNAIL_WIDTH = 96;
+
+    public static final int THUMBNAIL_HEIGHT = 20;
+
+    /**
+     * Increment whenever the way thumbnails are drawn changes, so thumbnails saved to disk by an older version are not
+     * used
+     */
+    private static final int THUMBNAIL_VERSION = 1;
+
+    private static final int THREAD_COUNT = 2;
+
+    private static final String THUMBNAIL_EXTENSION = "png";
+
+    private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+    /**
+     * Reserves the space of a thumbnail on a menu item until the thumbnail is loaded, so the menu doesn't change size as
+     * thumbnails come in
+     */
+    private static final Icon PLACEHOLDER = new ImageIcon(new BufferedImage(THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT, BufferedImage.TYPE_INT_ARGB));
+
+    private final ThumbnailRenderer renderer;
+
+    /**
+     * The directory to save thumbnails to, or null if they are only cached in memory
+     */
+    private final File cacheDirectory;
+
+    /**
+     * The most recently used thumbnails, in access order, keyed by thumbnail key. Synchronized on itself, because the
+     * loading threads and the event dispatch thread both use it.
+     */
+    private final Map<String, Icon> cache;
+
+    /**
+     * The thumbnails requested but not yet delivered, by menu item. Only used on the event dispatch thread.
+     */
+    private final Map<GameFontMenuItem, Future<?>> pending;
+
+    private final ExecutorService executor;
+
+    /**
+     * @param renderer
+     *            Draws the thumbnails
+     * @param cacheSize
+     *            The maximum number of thumbnails to keep in memory
+     * @param cacheDirectory
+     *            The directory to save thumbnails to, or null to only cache them in memory
+     */
+    public ThumbnailLoader(ThumbnailRenderer renderer, final int cacheSize, File cacheDirectory)
+    {
+        this.renderer = renderer;
+        this.cacheDirectory = cacheDirectory;
+        this.cache = new LinkedHashMap<String, Icon>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Icon> eldest)
+            {
+                return size() > cacheSize;
+            }
+        };
+        this.pending = new HashMap<GameFontMenuItem, Future<?>>();
+        this.executor = Executors.newFixedThreadPool(THREAD_COUNT, new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable r)
+            {
+                Thread thread = new Thread(r, "Thumbnail-" + THREAD_NUMBER.incrementAndGet());
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Give the menu item its thumbnail, right away if it's cached in memory, otherwise once it's loaded. Must be called
+     * on the event dispatch thread.
+     *
+     * @param item
+     */
+    public void request(final GameFontMenuItem item)
+    {
+        final String label = item.getText();
+        final String key = renderer.getThumbnailKey(label);
+        if (key == null || pending.containsKey(item))
+        {
+            return;
+        }
+
+        Icon icon = getCached(key);
+        if (icon != null)
+        {
+            item.setThumbnail(icon);
+            return;
+        }
+
+        if (item.getIcon() == null)
+        {
+            item.setThumbnail(PLACEHOLDER);
+        }
+
+        Future<?> future = executor.submit(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                final Icon loaded = load(key, label);
+                SwingUtilities.invokeLater(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        pending.remove(item);
+                        if (loaded != null)
+                        {
+                            item.setThumbnail(loaded);
+                        }
+                    }
+                });
+            }
+        });
+        pending.put(item, future);
+    }
+
+    /**
+     * Drop the request for the menu item's thumbnail if it hasn't started loading yet. Must be called on the event
+     * dispatch thread.
+     *
+     * @param item
+     */
+    public void cancel(GameFontMenuItem item)
+    {
+        Future<?> future = pending.get(item);
+        if (future != null && future.cancel(false))
+        {
+            pending.remove(item);
+        }
+    }
+
+    private Icon getCached(String key)
+    {
+        synchronized (cache)
+        {
+            return cache.get(key);
+        }
+    }
+
+    /**
+     * Load a thumbnail from the disk cache, or draw it if it isn't there. Called on a loading thread.
+     *
+     * @param key
+     * @param label
+     * @return icon, or null if the thumbnail couldn't be drawn
+     */
+    private Icon load(String key, String label)
+    {
+        Icon icon = getCached(key);
+        if (icon != null)
+        {
+            return icon;
+        }
+
+        File file = getCacheFile(key);
+        BufferedImage thumbnail = readCacheFile(file);
+        if (thumbnail == null)
+        {
+            try
+            {
+                thumbnail = fit(renderer.renderThumbnail(label));
+            }
+            catch (Exception e)
+            {
+                // Just a missing preview, so not important enough to warrant a popup
+                logger.error("Unable to draw thumbnail for " + label, e);
+                return null;
+            }
+            writeCacheFile(file, thumbnail);
+        }
+
+        icon = new ImageIcon(thumbnail);
+        synchronized (cache)
+        {
+            cache.put(key, icon);
+        }
+        return icon;
+    }
+
+    /**
+     * Scale an image to fit the thumbnail size, by a whole number if it's smaller so pixel art stays crisp, and place
+     * it on the left of a transparent image exactly the thumbnail size, so every item in the menu lines up
+     *
+     * @param image
+     * @return thumbnail
+     */
+    private static BufferedImage fit(BufferedImage image)
+    {
+        final float scale = Math.min(THUMBNAIL_WIDTH / (float) image.getWidth(), THUMBNAIL_HEIGHT / (float) image.getHeight());
+        final boolean enlarge = scale >= 1.0f;
+        final float drawScale = enlarge ? (float) Math.floor(scale) : scale;
+        final int drawWidth = Math.max(1, (int) (image.getWidth() * drawScale));
+        final int drawHeight = Math.max(1, (int) (image.getHeight() * drawScale));
+
+        BufferedImage thumbnail = new BufferedImage(THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = thumbnail.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, enlarge ? RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR : RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2d.drawImage(image, 0, (THUMBNAIL_HEIGHT - drawHeight) / 2, drawWidth, drawHeight, null);
+        g2d.dispose();
+        return thumbnail;
+    }
+
+    private File getCacheFile(String key)
+    {
+        if (cacheDirectory == null)
+        {
+            return null;
+        }
+        final String name = key.replaceAll("[^A-Za-z0-9_.-]", "_") + "_" + Integer.toHexString(key.hashCode()) + "_v" + THUMBNAIL_VERSION + "." + THUMBNAIL_EXTENSION;
+        return new File(cacheDirectory, name);
+    }
+
+    private BufferedImage readCacheFile(File file)
+    {
+        if (file == null || !file.isFile())
+        {
+            return null;
+        }
+        try
+        {
+            BufferedImage image = ImageIO.read(file);
+            if (image != null && image.getWidth() == THUMBNAIL_WIDTH && image.getHeight() == THUMBNAIL_HEIGHT)
+            {
+                return image;
+            }
+        }
+        catch (Exception e)
+        {
+            // The thumbnail will just be drawn again, so not important enough to warrant a popup
+            logger.error("Unable to read cached thumbnail " + file.getPath(), e);
+        }
+        return null;
+    }
+
+    private void writeCacheFile(File file, BufferedImage thumbnail)
+    {
+        if (file == null)
+        {
+            return;
+        }
+        try
+        {
+            if (!cacheDirectory.isDirectory() && !cacheDirectory.mkdirs())
+            {
+                logger.error("Unable to create thumbnail cache directory " + cacheDirectory.getPath());
+                return;
+            }
+            // Write to a temporary file first, so another run reading the cache never sees half a thumbnail
+            File temp = new File(cacheDirectory, file.getName() + ".tmp");
+            ImageIO.write(thumbnail, THUMBNAIL_EXTENSION, temp);
+            if (!temp.renameTo(file))
+            {
+                file.delete();
+                if (!temp.renameTo(file))
+                {
+                    temp.delete();
+                }
+            }
+        }
+        catch (Exception e)
+        {
+            // The thumbnail is still cached in memory, so not important enough to warrant a popup
+            logger.error("Unable to save thumbnail " + file.getPath(), e);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.glitchcog.fontificator.gui.component.combomenu;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Draws the preview thumbnail for an item of a combo menu. Thumbnails are drawn off of the event dispatch thread, so
+ * implementations must not touch any Swing components or any configuration in use by the chat.
+ *
+ * @author Matt Yanos
+ */
+public interface ThumbnailRenderer
+{
+    /**
+     * Get the key identifying the thumbnail for the menu item with the specified label. Items that look the same should
+     * have the same key, and the key should change whenever what the thumbnail would show changes, because thumbnails
+     * are cached by it, including on disk.
+     *
+     * @param label
+     * @return key, or null if the item has no thumbnail
+     */
+    public String getThumbnailKey(String label);
+
+    /**
+     * Draw the thumbnail for the menu item with the specified label at whatever size is natural for it. It will be
+     * scaled to fit the menu.
+     *
+     * @param label
+     * @return thumbnail
+     * @throws Exception
+     */
+    public BufferedImage renderThumbnail(String label) throws Exception;
+}
@@ -4,6 +4,7 @@ import javax.swing.table.DefaultTableModel;
 
 import com.glitchcog.fontificator.bot.Message;
 import com.glitchcog.fontificator.gui.chat.ChatPanel;
+import com.glitchcog.fontificator.gui.chat.MessageSnapshot;
 
 /**
  * @author Matt Yanos
@@ -41,7 +42,7 @@ public class MessageCheckListModel extends DefaultTableModel
     @Override
     public int getRowCount()
     {
-        return chat == null ? 0 : chat.getMessageQueue().size();
+        return chat == null ? 0 : chat.getMessages().size();
     }
 
     @Override
@@ -59,9 +60,13 @@ public class MessageCheckListModel extends DefaultTableModel
     @Override
     public Object getValueAt(int rowIndex, int columnIndex)
     {
-        Message[] messages = getMessages();
-        Message msg = messages[messages.length - rowIndex - 1];
-        if (columnIndex == 0)
+        Message msg = getMessage(rowIndex);
+        if (msg == null)
+        {
+            // The messages changed since the table last counted its rows
+            return null;
+        }
+        else if (columnIndex == 0)
         {
             return msg.getTimestamp();
         }
@@ -89,18 +94,30 @@ public class MessageCheckListModel extends DefaultTableModel
     {
         if (columnIndex == TOGGLE_COLUMN_INDEX)
         {
-            Message[] messages = getMessages();
-            Message msg = messages[messages.length - rowIndex - 1];
+            Message msg = getMessage(rowIndex);
+            if (msg == null)
+            {
+                return;
+            }
             msg.setCensored((Boolean)(aValue == null ? false : aValue), chat.isCensorshipEnabled());
             msg.setManualCensorship(true);
             list.revalidateTable();
             chat.repaint();
             chat.initMessageRollout();
+            chat.initExpirationTimer();
         }
     }
 
-    private Message[] getMessages()
+    /**
+     * Get the message for the row, newest first
+     * 
+     * @param rowIndex
+     * @return message, or null if there's no longer a message for the row
+     */
+    private Message getMessage(int rowIndex)
     {
-        return chat.getMessageQueue().toArray(new Message[chat.getMessageQueue().size()]);
+        MessageSnapshot messages = chat.getMessages();
+        final int index = messages.size() - rowIndex - 1;
+        return index < 0 || index >= messages.size() ? null : messages.get(index);
     }
 }
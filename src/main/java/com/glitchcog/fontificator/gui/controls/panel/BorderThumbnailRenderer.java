@@ -0,0 +1,66 @@
+package com.glitchcog.fontificator.gui.controls.panel;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Map;
+
+import com.glitchcog.fontificator.gui.component.combomenu.ThumbnailRenderer;
+import com.glitchcog.fontificator.gui.controls.panel.model.DropdownBorder;
+import com.glitchcog.fontificator.gui.controls.panel.model.DropdownLabel;
+import com.glitchcog.fontificator.sprite.Sprite;
+import com.glitchcog.fontificator.sprite.TintCache;
+
+/**
+ * Draws a small box out of a preset border, in its default tint, as the thumbnail for its item in the border preset menu. The
+ * border image is a three by three grid of corners, edges and middle, just as the chat draws it.
+ * 
+ * @author Matt Yanos
+ */
+public class BorderThumbnailRenderer implements ThumbnailRenderer
+{
+    /**
+     * The size of the box, in border grid cells
+     */
+    private static final int BOX_WIDTH = 6;
+
+    private static final int BOX_HEIGHT = 3;
+
+    private final Map<DropdownLabel, DropdownBorder> presets;
+
+    public BorderThumbnailRenderer(Map<DropdownLabel, DropdownBorder> presets)
+    {
+        this.presets = presets;
+    }
+
+    @Override
+    public String getThumbnailKey(String label)
+    {
+        DropdownBorder preset = presets.get(new DropdownLabel(label));
+        return preset == null ? null : "border," + preset.getBorderFilename() + "," + Integer.toHexString(preset.getDefaultTint().getRGB());
+    }
+
+    @Override
+    public BufferedImage renderThumbnail(String label) throws Exception
+    {
+        DropdownBorder preset = presets.get(new DropdownLabel(label));
+        Sprite border = new Sprite(preset.getBorderFilename(), 3, 3);
+        final int cellWidth = border.getSpriteWidth();
+        final int cellHeight = border.getSpriteHeight();
+
+        BufferedImage thumbnail = new BufferedImage(cellWidth * BOX_WIDTH, cellHeight * BOX_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = thumbnail.createGraphics();
+        for (int r = 0; r < BOX_HEIGHT; r++)
+        {
+            final int gridRow = r == 0 ? 0 : (r == BOX_HEIGHT - 1 ? 2 : 1);
+            for (int c = 0; c < BOX_WIDTH; c++)
+            {
+                final int gridCol = c == 0 ? 0 : (c == BOX_WIDTH - 1 ? 2 : 1);
+                Rectangle cell = new Rectangle(gridCol * cellWidth, gridRow * cellHeight, cellWidth, cellHeight);
+                border.drawUntinted(g2d, c * cellWidth, r * cellHeight, cell);
+            }
+        }
+        g2d.dispose();
+        return TintCache.createTint(thumbnail, preset.getDefaultTint());
+    }
+}
@@ -70,6 +70,11 @@ public class ControlPanelChat extends ControlPanelBase
 
     private LabeledSlider chromaCornerSlider;
 
+    /**
+     * The most times per second to redraw the chat
+     */
+    private LabeledSlider frameRateSlider;
+
     private ControlWindow ctrlWindow;
 
     /**
@@ -211,6 +216,7 @@ public class ControlPanelChat extends ControlPanelBase
         chromaEnabledBox = new JCheckBox("Enable Chroma Key Border");
         chromaInvertBox = new JCheckBox("Invert Chroma Key Border");
         chromaCornerSlider = new LabeledSlider("Corner Radius", "pixels", ConfigChat.MIN_CHROMA_CORNER_RADIUS, ConfigChat.MAX_CHROMA_CORNER_RADIUS);
+        frameRateSlider = new LabeledSlider("Frame Rate Limit", "fps", ConfigChat.MIN_FRAME_RATE, ConfigChat.MAX_FRAME_RATE);
 
         final String[] chromaLabels = new String[] { "Left", "Top", "Right", "Bottom" };
         chromaBorderInput = new LabeledInput[chromaLabels.length];
@@ -340,6 +346,15 @@ public class ControlPanelChat extends ControlPanelBase
             }
         });
 
+        frameRateSlider.addChangeListener(new ChangeListener()
+        {
+            @Override
+            public void stateChanged(ChangeEvent e)
+            {
+                config.setFrameRate(frameRateSlider.getValue());
+            }
+        });
+
         JPanel chatDimPanel = new JPanel(new GridBagLayout());
         JPanel chatOptionsPanel = new JPanel(new GridBagLayout());
         JPanel chromaDimPanel = new JPanel(new GridBagLayout());
@@ -371,6 +386,9 @@ public class ControlPanelChat extends ControlPanelBase
         coGbc.gridy++;
         chatOptionsPanel.add(chatFromBottomBox, coGbc);
         coGbc.gridy++;
+        coGbc.fill = GridBagConstraints.HORIZONTAL;
+        chatOptionsPanel.add(frameRateSlider, coGbc);
+        coGbc.gridy++;
 
         GridBagConstraints chromaGbc = new GridBagConstraints(0, 0, 1, 1, 1.0, 1.0, GridBagConstraints.CENTER, GridBagConstraints.VERTICAL, NO_INSETS, 0, 0);
         chromaGbc.gridwidth = 3;
@@ -501,6 +519,7 @@ public class ControlPanelChat extends ControlPanelBase
 
         this.chromaInvertBox.setSelected(config.isChromaInvert());
         this.chromaCornerSlider.setValue(config.getChromaCornerRadius());
+        this.frameRateSlider.setValue(config.getFrameRate());
 
         chatWindow.setChatSize(config);
 
@@ -546,6 +565,7 @@ public class ControlPanelChat extends ControlPanelBase
         config.setChromaEnabled(chromaEnabledBox.isSelected());
         inputToConfigChromaBorders();
         config.setChromaCornerRadius(chromaCornerSlider.getValue());
+        config.setFrameRate(frameRateSlider.getValue());
         config.setChromaInvert(chromaInvertBox.isSelected());
     }
 
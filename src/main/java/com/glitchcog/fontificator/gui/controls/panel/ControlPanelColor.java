@@ -62,6 +62,11 @@ public class ControlPanelColor extends ControlPanelBase
      */
     private JCheckBox useTwitchBox;
 
+    /**
+     * Checkbox to indicate whether Twitch username colors should be rounded to a limited set of colors
+     */
+    private JCheckBox quantizeTwitchBox;
+
     /**
      * Checkbox to indicate whether to color join messages
      */
@@ -103,6 +108,7 @@ public class ControlPanelColor extends ControlPanelBase
     protected void build()
     {
         useTwitchBox = new JCheckBox("Override Palette with Twitch Username Colors when Available");
+        quantizeTwitchBox = new JCheckBox("Limit Twitch Username Colors to a Reduced Set");
         joinBox = new JCheckBox("Color Join Messages");
         usernameBox = new JCheckBox("Color Usernames");
         timestampBox = new JCheckBox("Color Timestamps");
@@ -117,6 +123,11 @@ public class ControlPanelColor extends ControlPanelBase
                 if (useTwitchBox.equals(source))
                 {
                     config.setUseTwitchColors(source.isSelected());
+                    quantizeTwitchBox.setEnabled(source.isSelected());
+                }
+                else if (quantizeTwitchBox.equals(source))
+                {
+                    config.setQuantizeTwitchColors(source.isSelected());
                 }
                 else if (joinBox.equals(source))
                 {
@@ -139,6 +150,7 @@ public class ControlPanelColor extends ControlPanelBase
         };
 
         useTwitchBox.addActionListener(boxListener);
+        quantizeTwitchBox.addActionListener(boxListener);
         joinBox.addActionListener(boxListener);
         usernameBox.addActionListener(boxListener);
         timestampBox.addActionListener(boxListener);
@@ -176,6 +188,8 @@ public class ControlPanelColor extends ControlPanelBase
         palettePanel.add(palette, ppGbc);
         ppGbc.gridy++;
         palettePanel.add(useTwitchBox, ppGbc);
+        ppGbc.gridy++;
+        palettePanel.add(quantizeTwitchBox, ppGbc);
 
         GridBagConstraints optionsGbc = new GridBagConstraints(0, 0, 1, 1, 0.0, 1.0, GridBagConstraints.WEST, GridBagConstraints.NONE, DEFAULT_INSETS, 0, 0);
 
@@ -230,6 +244,8 @@ public class ControlPanelColor extends ControlPanelBase
         palette.refreshComponents();
 
         useTwitchBox.setSelected(config.isUseTwitchColors());
+        quantizeTwitchBox.setSelected(config.isQuantizeTwitchColors());
+        quantizeTwitchBox.setEnabled(config.isUseTwitchColors());
         joinBox.setSelected(config.isColorJoin());
         usernameBox.setSelected(config.isColorUsername());
         messageBox.setSelected(config.isColorMessage());
@@ -256,6 +272,7 @@ public class ControlPanelColor extends ControlPanelBase
         config.setChromaColor(chromaColorButton.getColor());
         config.setPalette(palette.getColors());
         config.setUseTwitchColors(useTwitchBox.isSelected());
+        config.setQuantizeTwitchColors(quantizeTwitchBox.isSelected());
         config.setColorJoin(joinBox.isSelected());
         config.setColorUsername(usernameBox.isSelected());
         config.setColorMessage(messageBox.isSelected());
@@ -10,10 +10,12 @@ import java.util.Random;
 
 import javax.swing.JButton;
 import javax.swing.JCheckBox;
+import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JSlider;
 import javax.swing.JToggleButton;
 import javax.swing.Timer;
+import javax.swing.border.TitledBorder;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 
@@ -24,10 +26,14 @@ import com.glitchcog.fontificator.config.FontificatorProperties;
 import com.glitchcog.fontificator.config.loadreport.LoadConfigReport;
 import com.glitchcog.fontificator.gui.DebugAppender;
 import com.glitchcog.fontificator.gui.chat.ChatWindow;
+import com.glitchcog.fontificator.gui.chat.MessageStripCache;
+import com.glitchcog.fontificator.gui.chat.clock.MessageProgressor;
 import com.glitchcog.fontificator.gui.component.ColorButton;
 import com.glitchcog.fontificator.gui.component.LabeledSlider;
 import com.glitchcog.fontificator.gui.controls.ControlWindow;
+import com.glitchcog.fontificator.sprite.Sprite;
 import com.glitchcog.fontificator.sprite.SpriteFont;
+import com.glitchcog.fontificator.sprite.TintCache;
 
 /**
  * Control Panel containing debugging options and information
@@ -61,10 +67,40 @@ public class ControlPanelDebug extends ControlPanelBase
 
     private ColorButton borderGridColorButton;
 
+    /**
+     * Sets the number of megabytes of tinted font and border images to keep
+     */
+    private LabeledSlider tintBudgetSlider;
+
+    /**
+     * Displays the statistics of the render caches
+     */
+    private JLabel tintStatsLabel;
+
+    /**
+     * Sets the number of megabytes of message strip images to keep
+     */
+    private LabeledSlider stripBudgetSlider;
+
+    /**
+     * Displays the statistics of the message strip cache
+     */
+    private JLabel stripStatsLabel;
+
+    /**
+     * Displays how far the message rollout has fallen behind
+     */
+    private JLabel rolloutStatsLabel;
+
     private Random rnd;
 
     private Timer postClock;
 
+    /**
+     * Refreshes the displayed render cache statistics while debugging
+     */
+    private Timer statsClock;
+
     // @formatter:off
     private String[] TEST_USERNAMES = new String[] { "Mario", "Luigi", "Peach", "Toad", "Bowser", "Shyguy", "Yoshi", "Birdo", "Goomba", "Koopa", 
                                                      "Link", "Zelda", "Impa", "Shiek", "Navi", "Tingle", "Error", "Bagu", "Agahnim", "Ganon", "Ganondorf", 
@@ -284,6 +320,50 @@ public class ControlPanelDebug extends ControlPanelBase
         drawTextGridBox.addActionListener(refreshListener);
         drawBorderGridBox.addActionListener(refreshListener);
 
+        final long megabyte = 1024L * 1024L;
+        tintBudgetSlider = new LabeledSlider("Tint Cache Budget ", " MB", 1, 256, (int) (TintCache.DEFAULT_BYTE_BUDGET / megabyte), 3);
+        tintBudgetSlider.addChangeListener(new ChangeListener()
+        {
+            @Override
+            public void stateChanged(ChangeEvent e)
+            {
+                if (!((JSlider) e.getSource()).getValueIsAdjusting())
+                {
+                    Sprite.getTintCache().setByteBudget(tintBudgetSlider.getValue() * megabyte);
+                    refreshStats();
+                }
+            }
+        });
+        tintStatsLabel = new JLabel();
+
+        stripBudgetSlider = new LabeledSlider("Message Strip Budget ", " MB", 1, 256, (int) (MessageStripCache.DEFAULT_BYTE_BUDGET / megabyte), 3);
+        stripBudgetSlider.addChangeListener(new ChangeListener()
+        {
+            @Override
+            public void stateChanged(ChangeEvent e)
+            {
+                if (!((JSlider) e.getSource()).getValueIsAdjusting())
+                {
+                    chat.getStripCache().setByteBudget(stripBudgetSlider.getValue() * megabyte);
+                    refreshStats();
+                }
+            }
+        });
+        stripStatsLabel = new JLabel();
+        rolloutStatsLabel = new JLabel();
+
+        statsClock = new Timer(1000, new ActionListener()
+        {
+            @Override
+            public void actionPerformed(ActionEvent e)
+            {
+                refreshStats();
+            }
+        });
+
+        JPanel statsPanel = new JPanel(new GridBagLayout());
+        statsPanel.setBorder(new TitledBorder(baseBorder, "Render Caches", TitledBorder.CENTER, TitledBorder.TOP));
+
         JPanel topPanel = new JPanel(new GridBagLayout());
         gbc.gridx = 0;
         gbc.gridy = 0;
@@ -321,6 +401,23 @@ public class ControlPanelDebug extends ControlPanelBase
         gbc.gridwidth = 4;
         gbc.weightx = 1.0;
 
+        GridBagConstraints statsGbc = new GridBagConstraints(0, 0, 1, 1, 1.0, 0.0, GridBagConstraints.WEST, GridBagConstraints.HORIZONTAL, DEFAULT_INSETS, 0, 0);
+        statsPanel.add(tintBudgetSlider, statsGbc);
+        statsGbc.gridy++;
+        statsPanel.add(tintStatsLabel, statsGbc);
+        statsGbc.gridy++;
+        statsPanel.add(stripBudgetSlider, statsGbc);
+        statsGbc.gridy++;
+        statsPanel.add(stripStatsLabel, statsGbc);
+        add(statsPanel, gbc);
+        gbc.gridy++;
+
+        JPanel rolloutPanel = new JPanel(new GridBagLayout());
+        rolloutPanel.setBorder(new TitledBorder(baseBorder, "Message Rollout", TitledBorder.CENTER, TitledBorder.TOP));
+        rolloutPanel.add(rolloutStatsLabel, new GridBagConstraints(0, 0, 1, 1, 1.0, 0.0, GridBagConstraints.WEST, GridBagConstraints.HORIZONTAL, DEFAULT_INSETS, 0, 0));
+        add(rolloutPanel, gbc);
+        gbc.gridy++;
+
         gbc.weighty = 0.1;
         CollagePanel collagePanel = new CollagePanel(chat);
         add(collagePanel, gbc);
@@ -339,6 +436,20 @@ public class ControlPanelDebug extends ControlPanelBase
         add(logBox, gbc);
     }
 
+    /**
+     * Update the displayed render cache and message rollout statistics
+     */
+    private void refreshStats()
+    {
+        tintStatsLabel.setText("Tints: " + Sprite.getTintCache().toString());
+        stripStatsLabel.setText("Message Strips: " + chat.getStripCache().toString());
+        if (chat.getMessageConfig() != null)
+        {
+            final MessageProgressor progressor = chat.getMessageProgressor();
+            rolloutStatsLabel.setText("Backlog: " + chat.getRolloutBacklog().toString(chat.getClock().currentTimeMillis()) + ", " + progressor.getCaughtUpCount() + " caught up, " + progressor.getTrimmedCount() + " trimmed undrawn");
+        }
+    }
+
     @Override
     protected void fillInputFromProperties(FontificatorProperties fProps)
     {
@@ -373,11 +484,14 @@ public class ControlPanelDebug extends ControlPanelBase
         {
             Thread.setDefaultUncaughtExceptionHandler(debugAppender);
             BasicConfigurator.configure(debugAppender);
+            refreshStats();
+            statsClock.start();
         }
         else
         {
             // Turn off everything before disabling the debug tab
             postClock.stop();
+            statsClock.stop();
             postMessagesButton.setSelected(false);
             drawTextGridBox.setSelected(false);
             drawBorderGridBox.setSelected(false);
@@ -417,7 +417,7 @@ public class ControlPanelEmoji extends ControlPanelBase
 
                     cancelEmojiWork(jobsToCancel);
 
-                    if (!jobsToRun.isEmpty() && !progressPanel.isCurrentlyRunning())
+                    if (!jobsToRun.isEmpty())
                     {
                         runEmojiWork();
                     }
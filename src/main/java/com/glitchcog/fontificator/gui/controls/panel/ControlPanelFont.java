@@ -37,6 +37,7 @@ import com.glitchcog.fontificator.gui.component.CharacterPicker;
 import com.glitchcog.fontificator.gui.component.LabeledInput;
 import com.glitchcog.fontificator.gui.component.LabeledSlider;
 import com.glitchcog.fontificator.gui.component.combomenu.ComboMenuBar;
+import com.glitchcog.fontificator.gui.component.combomenu.ThumbnailLoader;
 import com.glitchcog.fontificator.gui.controls.ControlWindow;
 import com.glitchcog.fontificator.gui.controls.panel.model.DropdownBorder;
 import com.glitchcog.fontificator.gui.controls.panel.model.DropdownFont;
@@ -59,6 +60,16 @@ public class ControlPanelFont extends ControlPanelBase
      */
     public static final DropdownLabel CUSTOM_KEY = new DropdownLabel(null, "Custom...");
 
+    /**
+     * The directory the preset menu thumbnails are saved to, so they only need to be drawn once
+     */
+    private static final String THUMBNAIL_CACHE_DIRECTORY = ".fontificator_thumbnails";
+
+    /**
+     * The maximum number of preset menu thumbnails of each kind to keep in memory
+     */
+    private static final int THUMBNAIL_CACHE_SIZE = 128;
+
     private static final Color SCALE_EVEN = Color.BLACK;
 
     private static final Color SCALE_UNEVEN = new Color(0x661033);
@@ -363,9 +374,10 @@ public class ControlPanelFont extends ControlPanelBase
 
         fontTypeCheckbox = new JCheckBox("Variable Width Characters");
         fontFilenameInput = new LabeledInput("Font Filename", 32);
-        fontPresetDropdown = new ComboMenuBar(fontMenuMap, fontAl);
+        final File thumbnailDirectory = new File(THUMBNAIL_CACHE_DIRECTORY);
+        fontPresetDropdown = new ComboMenuBar(fontMenuMap, fontAl, new ThumbnailLoader(new FontThumbnailRenderer(PRESET_FONT_FILE_MAP), THUMBNAIL_CACHE_SIZE, thumbnailDirectory));
         borderFilenameInput = new LabeledInput("Border Filename", 32);
-        borderPresetDropdown = new ComboMenuBar(borderMenuMap, borderAl);
+        borderPresetDropdown = new ComboMenuBar(borderMenuMap, borderAl, new ThumbnailLoader(new BorderThumbnailRenderer(PRESET_BORDER_FILE_MAP), THUMBNAIL_CACHE_SIZE, thumbnailDirectory));
         gridWidthInput = new LabeledInput("Grid Width", 4);
         gridHeightInput = new LabeledInput("Grid Height", 4);
         fontScaleSlider = new LabeledSlider("Font Size", "x", 1, ConfigFont.MAX_FONT_SCALE, ConfigFont.FONT_BORDER_SCALE_GRANULARITY);
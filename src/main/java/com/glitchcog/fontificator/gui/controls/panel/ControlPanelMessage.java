@@ -109,6 +109,11 @@ public class ControlPanelMessage extends ControlPanelBase
      */
     private LabeledSlider expirationTimeSlider;
 
+    /**
+     * Slider to indicate whether and how long messages can wait to be drawn before the rollout catches up
+     */
+    private LabeledSlider catchUpTimeSlider;
+
     /**
      * Checkbox to indicate whether no border should be drawn when there are no visible messages to display in it
      */
@@ -231,6 +236,39 @@ public class ControlPanelMessage extends ControlPanelBase
             }
         };
 
+        final String minCatchUpLabel = "OFF";
+        catchUpTimeSlider = new LabeledSlider("Catch Up Within ", "sec", ConfigMessage.MIN_CATCH_UP_TIME, ConfigMessage.MAX_CATCH_UP_TIME, minCatchUpLabel.length())
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected String getUnitLabelStr()
+            {
+                if (getValue() == slider.getMinimum())
+                {
+                    return padValue("", super.getUnitLabelStr().length());
+                }
+                else
+                {
+                    return super.getUnitLabelStr();
+                }
+            }
+
+            @Override
+            public String getValueString()
+            {
+                if (getValue() == slider.getMinimum())
+                {
+                    return minCatchUpLabel;
+                }
+                else
+                {
+                    return super.getValueString();
+                }
+            }
+        };
+        catchUpTimeSlider.setToolTipText("Speed up the message rollout so no message waits longer than this to be completely drawn");
+
         JLabel hideLabel = new JLabel("When No Messages Are Displayed: ");
         hideEmptyBorder = new JCheckBox("Hide Border");
         hideEmptyBackground = new JCheckBox("Hide Background");
@@ -393,12 +431,17 @@ public class ControlPanelMessage extends ControlPanelBase
                         config.setExpirationTime(expirationTimeSlider.getValue(), chat.getMessageExpirer());
                         chat.repaint();
                     }
+                    else if (catchUpTimeSlider.getSlider().equals(source))
+                    {
+                        config.setCatchUpTime(catchUpTimeSlider.getValue());
+                    }
                 }
             }
         };
 
         messageSpeedSlider.addChangeListener(cl);
         expirationTimeSlider.addChangeListener(cl);
+        catchUpTimeSlider.addChangeListener(cl);
         queueSizeSlider.addChangeListener(cl);
 
         gbc.weightx = 0.0;
@@ -455,6 +498,8 @@ public class ControlPanelMessage extends ControlPanelBase
         bGbc.gridy++;
         optionsB.add(expirationTimeSlider, bGbc);
         bGbc.gridy++;
+        optionsB.add(catchUpTimeSlider, bGbc);
+        bGbc.gridy++;
         bGbc.fill = GridBagConstraints.NONE;
         bGbc.weightx = 0.333;
         bGbc.gridwidth = 1;
@@ -568,6 +613,7 @@ public class ControlPanelMessage extends ControlPanelBase
         queueSizeSlider.setValue(config.getQueueSize());
         messageSpeedSlider.setValue(config.getMessageSpeed());
         expirationTimeSlider.setValue(config.getExpirationTime());
+        catchUpTimeSlider.setValue(config.getCatchUpTime());
         hideEmptyBorder.setSelected(config.isHideEmptyBorder());
         hideEmptyBackground.setSelected(config.isHideEmptyBackground());
         caseTypeDropdown.setSelectedItem(config.getCaseResolutionType());
@@ -579,7 +625,7 @@ public class ControlPanelMessage extends ControlPanelBase
     protected LoadConfigReport validateInput()
     {
         LoadConfigReport report = new LoadConfigReport();
-        config.validateStrings(report, timeFormatInput.getText(), Integer.toString(queueSizeSlider.getValue()), Integer.toString(messageSpeedSlider.getValue()), Integer.toString(expirationTimeSlider.getValue()));
+        config.validateStrings(report, timeFormatInput.getText(), Integer.toString(queueSizeSlider.getValue()), Integer.toString(messageSpeedSlider.getValue()), Integer.toString(expirationTimeSlider.getValue()), Integer.toString(catchUpTimeSlider.getValue()));
         return report;
     }
 
@@ -596,6 +642,7 @@ public class ControlPanelMessage extends ControlPanelBase
         config.setQueueSize(queueSizeSlider.getValue());
         config.setMessageSpeed(messageSpeedSlider.getValue(), chat.getMessageProgressor());
         config.setExpirationTime(expirationTimeSlider.getValue(), chat.getMessageExpirer());
+        config.setCatchUpTime(catchUpTimeSlider.getValue());
         config.setHideEmptyBorder(hideEmptyBorder.isSelected());
         config.setHideEmptyBackground(hideEmptyBackground.isSelected());
         config.setCaseResolutionType((UsernameCaseResolutionType) caseTypeDropdown.getSelectedItem());
@@ -35,7 +35,7 @@ import com.glitchcog.fontificator.config.loadreport.LoadConfigReport;
 import com.glitchcog.fontificator.gui.component.ColorButton;
 import com.glitchcog.fontificator.gui.controls.ControlWindow;
 import com.glitchcog.fontificator.gui.controls.panel.model.DropdownFont;
-import com.glitchcog.fontificator.sprite.SpriteCharacterKey;
+import com.glitchcog.fontificator.sprite.MessageText;
 import com.glitchcog.fontificator.sprite.SpriteFont;
 
 /**
@@ -214,12 +214,12 @@ public class ExamplePanel extends JPanel
             font = new SpriteFont(fontConfig);
             font.updateForConfigChange();
             exampleMsg = getExampleMessage(ddFont.getFontFilename(), lineFormatInput.getText());
-            SpriteCharacterKey[] text = exampleMsg.getText(null, messageConfig, emojiConfig);
+            MessageText text = exampleMsg.getText(null, messageConfig, emojiConfig);
             height += font.getLineHeightScaled();
             int msgWidth = xOffset * 2;
-            for (int c = 0; c < text.length; c++)
+            for (int c = 0; c < text.length(); c++)
             {
-                msgWidth += font.getCharacterWidth(null, text[c], emojiConfig);
+                msgWidth += font.getCharacterWidth(null, text, c, emojiConfig);
             }
             width = (int) Math.max(width, msgWidth);
         }
@@ -0,0 +1,75 @@
+package com.glitchcog.fontificator.gui.controls.panel;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.Properties;
+
+import com.glitchcog.fontificator.config.ConfigFont;
+import com.glitchcog.fontificator.config.FontType;
+import com.glitchcog.fontificator.config.loadreport.LoadConfigReport;
+import com.glitchcog.fontificator.gui.component.combomenu.ThumbnailRenderer;
+import com.glitchcog.fontificator.gui.controls.panel.model.DropdownFont;
+import com.glitchcog.fontificator.gui.controls.panel.model.DropdownLabel;
+import com.glitchcog.fontificator.sprite.SpriteFont;
+
+/**
+ * Draws a sample of a preset font, untinted on a dark background, as the thumbnail for its item in the font preset menu.
+ * Each thumbnail gets a font configuration of its own, set up the same way as for the example image, so the chat's
+ * configuration is never touched.
+ * 
+ * @author Matt Yanos
+ */
+public class FontThumbnailRenderer implements ThumbnailRenderer
+{
+    private static final String SAMPLE_TEXT = "AaBb123";
+
+    private static final Color BACKGROUND = Color.DARK_GRAY.darker();
+
+    private static final int PADDING = 2;
+
+    private final Map<DropdownLabel, DropdownFont> presets;
+
+    public FontThumbnailRenderer(Map<DropdownLabel, DropdownFont> presets)
+    {
+        this.presets = presets;
+    }
+
+    @Override
+    public String getThumbnailKey(String label)
+    {
+        DropdownFont preset = presets.get(new DropdownLabel(label));
+        return preset == null ? null : "font," + preset.getFontFilename() + "," + preset.getDefaultType();
+    }
+
+    @Override
+    public BufferedImage renderThumbnail(String label) throws Exception
+    {
+        DropdownFont preset = presets.get(new DropdownLabel(label));
+
+        ConfigFont fontConfig = new ConfigFont();
+        fontConfig.load(new Properties(), new LoadConfigReport());
+        fontConfig.setFontFilename(preset.getFontFilename());
+        fontConfig.setFontType(preset.getDefaultType());
+        fontConfig.setUnknownChar((char) 127);
+        fontConfig.setExtendedCharEnabled(false);
+        fontConfig.setCharacterKey(SpriteFont.NORMAL_ASCII_KEY);
+        fontConfig.setGridWidth(8);
+        fontConfig.setGridHeight(12);
+        fontConfig.setFontScale(1);
+        fontConfig.setSpaceWidth(25);
+        fontConfig.setCharSpacing(preset.getDefaultType() == FontType.FIXED_WIDTH ? 0 : 1);
+
+        SpriteFont font = new SpriteFont(fontConfig);
+        font.updateForConfigChange();
+
+        BufferedImage thumbnail = new BufferedImage(font.getPreviewWidth(SAMPLE_TEXT) + PADDING * 2, font.getFontHeight() + PADDING * 2, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = thumbnail.createGraphics();
+        g2d.setColor(BACKGROUND);
+        g2d.fillRect(0, 0, thumbnail.getWidth(), thumbnail.getHeight());
+        font.drawPreview(g2d, SAMPLE_TEXT, PADDING, PADDING);
+        g2d.dispose();
+        return thumbnail;
+    }
+}
@@ -5,7 +5,12 @@ import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
 
 import javax.swing.JButton;
 import javax.swing.JLabel;
@@ -26,7 +31,11 @@ import com.glitchcog.fontificator.gui.controls.panel.LogBox;
  * A panel to display progress for loading and caching emoji that sits on the bottom of the Emoji tab of the Control
  * Window. It also contains a cancel button to stop jobs currently being worked and a manual reload button for canceling
  * everything and starting all loads from scratch. This panel contains methods for adding and removing work to and from
- * the worker queue as well.
+ * the worker queue as well.<br />
+ * <br />
+ * Load jobs don't depend on each other, so several run at once, channel specific jobs first. Cache jobs need the
+ * loaded emoji, so they only start once every load job is done. The progress bar shows the progress of all the work
+ * queued since it was last idle.
  * 
  * @author Matt Yanos
  */
@@ -41,6 +50,32 @@ public class EmojiLoadProgressPanel extends JPanel
      */
     private static final String EMPTY_VALUE_TEXT = "    ";
 
+    /**
+     * The most workers run at once. Load workers each only download and parse a little JSON from their own emote API,
+     * and cache workers mostly wait on the emoji image loader, which limits how many images are fetched at once itself.
+     */
+    private static final int MAX_RUNNING_WORKERS = 4;
+
+    /**
+     * Channel specific work first, because that's what can't be used anywhere but the channel being connected to
+     */
+    private static final Comparator<EmojiWorker> WORK_ORDER = new Comparator<EmojiWorker>()
+    {
+        @Override
+        public int compare(EmojiWorker a, EmojiWorker b)
+        {
+            final EmojiJob jobA = a.getEmojiJob();
+            final EmojiJob jobB = b.getEmojiJob();
+            final boolean channelA = jobA.getType().isChannelSpecific();
+            final boolean channelB = jobB.getType().isChannelSpecific();
+            if (channelA != channelB)
+            {
+                return channelA ? -1 : 1;
+            }
+            return jobA.getType().compareTo(jobB.getType());
+        }
+    };
+
     /**
      * Visually shows the progress
      */
@@ -83,19 +118,24 @@ public class EmojiLoadProgressPanel extends JPanel
     private ConfigEmoji emojiConfig;
 
     /**
-     * List of load tasks to be executed in series
+     * Queue of load tasks to be executed, in work order
+     */
+    private PriorityQueue<EmojiWorker> workerTaskListLoad;
+
+    /**
+     * Queue of cache tasks to be executed, in work order, after all the loading is done
      */
-    private ConcurrentLinkedQueue<EmojiWorker> workerTaskListLoad;
+    private PriorityQueue<EmojiWorker> workerTaskListCache;
 
     /**
-     * List of cache tasks to be executed in series, after all the loading is done
+     * The emoji worker tasks currently being run, with the latest percent complete each has reported
      */
-    private ConcurrentLinkedQueue<EmojiWorker> workerTaskListCache;
+    private Map<EmojiWorker, Integer> runningWorkers;
 
     /**
-     * The cursor for the emoji worker task currently being run
+     * The number of worker tasks finished since the panel was last idle, for showing the progress of all the work
      */
-    private EmojiWorker currentWorker;
+    private int finishedCount;
 
     private final ControlPanelEmoji emojiControlPanel;
 
@@ -113,9 +153,10 @@ public class EmojiLoadProgressPanel extends JPanel
 
         this.emojiControlPanel = emojiControlPanel;
 
-        this.workerTaskListLoad = new ConcurrentLinkedQueue<EmojiWorker>();
-        this.workerTaskListCache = new ConcurrentLinkedQueue<EmojiWorker>();
-        this.currentWorker = null;
+        this.workerTaskListLoad = new PriorityQueue<EmojiWorker>(8, WORK_ORDER);
+        this.workerTaskListCache = new PriorityQueue<EmojiWorker>(8, WORK_ORDER);
+        this.runningWorkers = new LinkedHashMap<EmojiWorker, Integer>();
+        this.finishedCount = 0;
         this.emojiLogBox = new LogBox();
 
         this.bar = new JProgressBar(JProgressBar.HORIZONTAL, 0, 100);
@@ -137,9 +178,9 @@ public class EmojiLoadProgressPanel extends JPanel
                 JButton source = (JButton) e.getSource();
                 if (cancelButton.equals(source))
                 {
-                    if (currentWorker != null)
+                    if (isCurrentlyRunning())
                     {
-                        reset();
+                        cancelAll();
                     }
                 }
                 else if (resetButton.equals(source))
@@ -198,7 +239,7 @@ public class EmojiLoadProgressPanel extends JPanel
 
     synchronized public boolean isCurrentlyRunning()
     {
-        return currentWorker != null;
+        return !runningWorkers.isEmpty();
     }
 
     synchronized public void handleButtonEnables()
@@ -206,13 +247,13 @@ public class EmojiLoadProgressPanel extends JPanel
         cancelButton.setEnabled(isCurrentlyRunning());
         resetButton.setEnabled(emojiConfig != null && emojiConfig.isAnyWorkDone());
         final int remainingJobs = emojiControlPanel.countJobs();
-        manualButton.setEnabled(remainingJobs > 0 && currentWorker == null && workerTaskListLoad.isEmpty() && workerTaskListCache.isEmpty());
+        manualButton.setEnabled(remainingJobs > 0 && !isCurrentlyRunning() && workerTaskListLoad.isEmpty() && workerTaskListCache.isEmpty());
 
         // @formatter:off
-        logger.trace("Cancel: " + cancelButton.isEnabled() + " b/c currWork " + (currentWorker == null ? "is null" : "is NOT null") + 
+        logger.trace("Cancel: " + cancelButton.isEnabled() + " b/c " + runningWorkers.size() + " worker" + (runningWorkers.size() == 1 ? " is" : "s are") + " running" + 
         "; Reset: " + resetButton.isEnabled() + " b/c " + (emojiConfig != null && emojiConfig.isAnyWorkDone() ? "some work is done" : "no work has been done") + 
         "; Manual: " + manualButton.isEnabled() + " b/c there " + (remainingJobs == 1 ? "is" : "are") + " " + remainingJobs + " job" + (remainingJobs == 1 ? "" : "s") + " left undone and " + 
-        (currentWorker == null && workerTaskListLoad.isEmpty() && workerTaskListCache.isEmpty() ? "nothing" : "something") + " is currently running or is queued");
+        (!isCurrentlyRunning() && workerTaskListLoad.isEmpty() && workerTaskListCache.isEmpty() ? "nothing" : "something") + " is currently running or is queued");
         // @formatter:on
     }
 
@@ -227,49 +268,119 @@ public class EmojiLoadProgressPanel extends JPanel
     }
 
     /**
-     * Takes a report and updates all the display components with the appropriate information
+     * Takes a report from a worker and updates all the display components with the appropriate information
      * 
+     * @param worker
      * @param report
      */
-    synchronized public void update(EmojiWorkerReport report)
+    synchronized public void update(EmojiWorker worker, EmojiWorkerReport report)
     {
-        if (report.isCanceled())
+        final boolean finalReport = report.isComplete() || report.isError() || report.isCanceled();
+        if (!runningWorkers.containsKey(worker))
+        {
+            // Reports can trail in after a worker is done or has been canceled, which only matter for the log
+            if (finalReport)
+            {
+                emojiLogBox.log(report.getMessage());
+            }
+            return;
+        }
+
+        if (finalReport)
         {
             emojiLogBox.log(report.getMessage());
-            blankAllValues();
-            reset();
+        }
+
+        if (report.isCanceled())
+        {
+            cancelAll();
             handleButtonEnables();
         }
-        else if (report.isError())
+        else if (!report.isError())
         {
-            emojiLogBox.log(report.getMessage());
-            blankAllValues();
+            // Errors are moved on from once the worker is done
+            runningWorkers.put(worker, report.getPercentComplete());
+            showProgress();
+        }
+        repaint();
+    }
 
-            if (currentWorker != null)
-            {
-                currentWorker.haltCurrentJob();
-            }
-            currentWorker = null;
-            initiateNextWork();
+    /**
+     * Called when a load worker has put the emoji saved by the last run into the emoji manager, so they can be used
+     * right away while the worker refreshes them
+     * 
+     * @param worker
+     */
+    synchronized public void snapshotLoaded(EmojiWorker worker)
+    {
+        emojiConfig.setWorkCompleted(worker.getEmojiJob());
+        emojiLogBox.log(worker.getEmojiJob().toString() + " from the last run, refreshing...");
+        chat.repaint();
+    }
+
+    /**
+     * Called when a worker is done, whether it succeeded, failed, or was halted or canceled, to start whatever work can
+     * be started next
+     * 
+     * @param worker
+     * @param succeeded
+     */
+    synchronized public void workDone(EmojiWorker worker, boolean succeeded)
+    {
+        if (runningWorkers.remove(worker) == null)
+        {
+            // Already canceled
+            return;
         }
-        else
+
+        finishedCount++;
+        if (succeeded)
         {
-            bar.setValue(report.getPercentComplete());
-            percentValue.setText(report.getPercentText());
+            emojiConfig.setWorkCompleted(worker.getEmojiJob());
+        }
+        chat.repaint();
 
-            if (report.isComplete())
-            {
-                emojiLogBox.log(report.getMessage());
-                if (currentWorker != null)
-                {
-                    emojiConfig.setWorkCompleted(currentWorker.getEmojiJob());
-                }
-                initiateNextWork();
-            }
+        startWork();
+        if (runningWorkers.isEmpty())
+        {
+            reset();
+            handleButtonEnables();
+        }
+        else
+        {
+            showProgress();
         }
         repaint();
     }
 
+    /**
+     * Show the progress of all the work queued since the panel was last idle
+     */
+    synchronized private void showProgress()
+    {
+        int total = finishedCount + runningWorkers.size() + workerTaskListLoad.size() + workerTaskListCache.size();
+        int sum = finishedCount * 100;
+        for (Integer percent : runningWorkers.values())
+        {
+            sum += percent;
+        }
+        final int percentComplete = total == 0 ? 0 : sum / total;
+        bar.setValue(percentComplete);
+        percentValue.setText(EmojiWorkerReport.getPercentText(percentComplete));
+    }
+
+    /**
+     * Tell every running worker to cancel, and revert the panel to its ready state
+     */
+    synchronized private void cancelAll()
+    {
+        for (EmojiWorker worker : runningWorkers.keySet())
+        {
+            worker.cancel();
+        }
+        reset();
+    }
+
     /**
      * Reverts the panel to its ready state
      */
@@ -279,7 +390,8 @@ public class EmojiLoadProgressPanel extends JPanel
         blankAllValues();
         workerTaskListLoad.clear();
         workerTaskListCache.clear();
-        currentWorker = null;
+        runningWorkers.clear();
+        finishedCount = 0;
     }
 
     /**
@@ -294,16 +406,23 @@ public class EmojiLoadProgressPanel extends JPanel
     /**
      * Call to add work
      * 
-     * @param label
      * @param emojiWorker
-     * @param initialReport
      */
     synchronized public void addWorkToQueue(EmojiWorker emojiWorker)
     {
-        ConcurrentLinkedQueue<EmojiWorker> taskList = getTaskList(emojiWorker.getEmojiJob());
+        final EmojiJob job = emojiWorker.getEmojiJob();
+        for (EmojiWorker worker : runningWorkers.keySet())
+        {
+            if (!worker.isWorkTerminatedAlready() && worker.getEmojiJob().equals(job))
+            {
+                // Already running, so don't add it
+                return;
+            }
+        }
+        PriorityQueue<EmojiWorker> taskList = getTaskList(job);
         for (EmojiWorker worker : taskList)
         {
-            if (!worker.isCancelled() && worker.getEmojiJob().equals(emojiWorker.getEmojiJob()))
+            if (!worker.isCancelled() && worker.getEmojiJob().equals(job))
             {
                 // Already exists in a non-canceled way, so don't add it
                 return;
@@ -313,69 +432,87 @@ public class EmojiLoadProgressPanel extends JPanel
     }
 
     /**
-     * Call to initiate work
+     * Call to initiate work. Any work added while work is already running is also started here, if there's room for
+     * it.
      */
     synchronized public void initiateWork()
     {
-        ConcurrentLinkedQueue<EmojiWorker> taskList = getTaskList();
-        if (!taskList.isEmpty())
+        if (workerTaskListLoad.isEmpty() && workerTaskListCache.isEmpty())
+        {
+            return;
+        }
+        if (!isCurrentlyRunning())
         {
-            currentWorker = taskList.poll();
             setLocation(getParent().getLocation().x + (getParent().getWidth() - getWidth()) / 2, getParent().getLocation().y + (getParent().getHeight() - getHeight()) / 2);
             cancelButton.setEnabled(true);
-            update(currentWorker.getInitialReport());
-            currentWorker.execute();
         }
+        startWork();
+        showProgress();
     }
 
     /**
-     * Kick off the next worker when the current worker is done
+     * Start queued workers until the most that can run at once are running. Load work goes first, and cache work waits
+     * until no load work is running, because it caches what was loaded.
      */
-    synchronized private void initiateNextWork()
+    synchronized private void startWork()
     {
-        this.percentValue.setText(EMPTY_VALUE_TEXT);
-
-        ConcurrentLinkedQueue<EmojiWorker> taskList = getTaskList();
-        this.currentWorker = taskList.poll();
-
-        chat.repaint();
-        if (currentWorker == null)
+        while (runningWorkers.size() < MAX_RUNNING_WORKERS)
         {
-            reset();
-            handleButtonEnables();
+            EmojiWorker next;
+            if (!workerTaskListLoad.isEmpty())
+            {
+                next = workerTaskListLoad.poll();
+            }
+            else if (!isLoadRunning() && !workerTaskListCache.isEmpty())
+            {
+                next = workerTaskListCache.poll();
+            }
+            else
+            {
+                return;
+            }
+            runningWorkers.put(next, 0);
+            next.execute();
         }
-        else
+    }
+
+    synchronized private boolean isLoadRunning()
+    {
+        for (EmojiWorker worker : runningWorkers.keySet())
         {
-            currentWorker.execute();
+            if (worker.getEmojiJob().getOp() == EmojiOperation.LOAD)
+            {
+                return true;
+            }
         }
+        return false;
     }
 
     /**
      * Take any worker containing a job that matches the specified job off the queue of workers to be executed. Also
-     * cancels the currently running worker if it matches.
+     * halts any running worker if it matches.
      * 
      * @param job
      */
     synchronized public void removeWorkFromQueue(EmojiJob job)
     {
-        if (currentWorker != null)
+        for (EmojiWorker worker : new ArrayList<EmojiWorker>(runningWorkers.keySet()))
         {
-            if (jobMatch(job, currentWorker))
+            if (jobMatch(job, worker))
             {
                 logger.trace("Canceling " + job.toString());
-                currentWorker.haltCurrentJob();
+                worker.haltCurrentJob();
             }
         }
 
-        ConcurrentLinkedQueue<EmojiWorker> taskList = getTaskList(job);
-        for (EmojiWorker worker : taskList)
+        for (Iterator<EmojiWorker> i = getTaskList(job).iterator(); i.hasNext();)
         {
+            EmojiWorker worker = i.next();
             if (jobMatch(job, worker))
             {
                 logger.trace("Canceling " + job.toString());
                 worker.haltCurrentJob();
-                // Is this thread safe?
-                workerTaskListLoad.remove(worker);
+                i.remove();
             }
         }
     }
@@ -386,21 +523,11 @@ public class EmojiLoadProgressPanel extends JPanel
      * @param job
      * @return task list
      */
-    synchronized private ConcurrentLinkedQueue<EmojiWorker> getTaskList(EmojiJob job)
+    synchronized private PriorityQueue<EmojiWorker> getTaskList(EmojiJob job)
     {
         return job.getOp() == EmojiOperation.CACHE ? workerTaskListCache : workerTaskListLoad;
     }
 
-    /**
-     * Get a task list (load or cache) based on whether the load list is empty
-     * 
-     * @return task list
-     */
-    synchronized private ConcurrentLinkedQueue<EmojiWorker> getTaskList()
-    {
-        return workerTaskListLoad.isEmpty() ? workerTaskListCache : workerTaskListLoad;
-    }
-
     synchronized private boolean jobMatch(EmojiJob job, EmojiWorker worker)
     {
         return worker != null && worker.getEmojiJob() != null && !worker.isDone() && !worker.isCancelled() && worker.getEmojiJob().equals(job);
@@ -1,15 +1,20 @@
 package com.glitchcog.fontificator.gui.emoji;
 
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.swing.SwingUtilities;
 import javax.swing.SwingWorker;
 
 import org.apache.log4j.Logger;
 
+import com.glitchcog.fontificator.emoji.EmojiImageLoader;
 import com.glitchcog.fontificator.emoji.EmojiJob;
 import com.glitchcog.fontificator.emoji.EmojiManager;
 import com.glitchcog.fontificator.emoji.EmojiOperation;
@@ -21,6 +26,7 @@ import com.glitchcog.fontificator.emoji.loader.EmojiParser;
 import com.glitchcog.fontificator.gui.controls.panel.LogBox;
 import com.glitchcog.fontificator.gui.emoji.exception.EmojiCancelException;
 import com.glitchcog.fontificator.gui.emoji.exception.EmojiHaltException;
+import com.google.gson.stream.JsonReader;
 
 /**
  * Loads and caches emoji in a SwingWorker thread
@@ -124,6 +130,11 @@ public class EmojiWorker extends SwingWorker<Integer, EmojiWorkerReport>
 
     // @formatter:on
 
+    /**
+     * How often to report progress while waiting for emoji to be cached
+     */
+    private static final long CACHE_PROGRESS_MILLIS = 50L;
+
     private EmojiManager manager;
 
     private EmojiApiLoader loader;
@@ -132,9 +143,9 @@ public class EmojiWorker extends SwingWorker<Integer, EmojiWorkerReport>
 
     private EmojiJob job;
 
-    private boolean terminateWork;
+    private volatile boolean terminateWork;
 
-    private boolean silentlyTerminateWork;
+    private volatile boolean silentlyTerminateWork;
 
     private EmojiLoadProgressPanel progressPanel;
 
@@ -185,29 +196,85 @@ public class EmojiWorker extends SwingWorker<Integer, EmojiWorkerReport>
 
             if (EmojiOperation.LOAD == opType)
             {
-                // The proper load for the emoji
+                // Start with what this job loaded in the last run, if it was saved, so the emoji can be used right away
+                // while the job runs again to refresh them. It's read here rather than when the work is queued, to keep
+                // the file off of the event dispatch thread.
+                if (manager.loadSnapshot(job))
+                {
+                    SwingUtilities.invokeLater(new Runnable()
+                    {
+                        @Override
+                        public void run()
+                        {
+                            progressPanel.snapshotLoaded(EmojiWorker.this);
+                        }
+                    });
+                }
+
+                // Loaded into a fresh manager rather than the one in use, because the one in use may already hold these
+                // emoji from the snapshot saved by the last run, and the chat can keep using them until they're
+                // refreshed
+                EmojiManager fresh = new EmojiManager();
+
+                // The proper load for the emoji, parsed as it downloads
                 loader.prepLoad(emojiType, channel, oauth);
-                String data = runLoader(emojiType);
-                if (data != null)
+                JsonReader reader = openLoader(emojiType);
+                try
+                {
+                    if (reader != null)
+                    {
+                        parser.putJsonEmojiIntoManager(fresh, emojiType, reader);
+                    }
+                }
+                catch (InterruptedIOException e)
+                {
+                    throwIfTerminated();
+                    throw e;
+                }
+                finally
                 {
-                    parser.putJsonEmojiIntoManager(manager, emojiType, data);
+                    loader.reset();
                 }
+                finishLoader(emojiType);
 
                 // Some custom loading required for custom FFZ moderator badges
                 if (emojiType == EmojiType.FRANKERFACEZ_BADGE)
                 {
                     loader.prepLoad(FFZ_BASE_NO_EMOTES_URL + channel);
-                    String ffzRoomJson = runLoader(emojiType);
-                    parser.parseFrankerFaceZModBadge(manager, ffzRoomJson);
+                    JsonReader ffzRoomReader = openLoader(emojiType);
+                    try
+                    {
+                        if (ffzRoomReader != null)
+                        {
+                            parser.parseFrankerFaceZModBadge(fresh, ffzRoomReader);
+                        }
+                    }
+                    catch (InterruptedIOException e)
+                    {
+                        throwIfTerminated();
+                        throw e;
+                    }
+                    finally
+                    {
+                        loader.reset();
+                    }
+                    finishLoader(emojiType);
                 }
 
                 // Some custom loading required for the Twitch Prime badge
                 if (emojiType == EmojiType.TWITCH_BADGE)
                 {
-                    TypedEmojiMap tbMap = manager.getEmojiByType(EmojiType.TWITCH_BADGE);
+                    TypedEmojiMap tbMap = fresh.getEmojiByType(EmojiType.TWITCH_BADGE);
                     tbMap.put("prime", new LazyLoadEmoji("prime", TWITCH_BADGE_PRIME, EmojiType.TWITCH_BADGE));
                 }
 
+                // An empty load is most likely the emote API having trouble, so keep whatever was there before
+                if (!fresh.getEmojiByType(emojiType).isEmpty())
+                {
+                    final int changes = manager.refresh(job, fresh);
+                    logger.debug(job.toString() + " refreshed with " + changes + " change" + (changes == 1 ? "" : "s"));
+                }
+
                 Thread.sleep(1L);
             }
             else if (EmojiOperation.CACHE == opType)
@@ -255,7 +322,6 @@ public class EmojiWorker extends SwingWorker<Integer, EmojiWorkerReport>
 
                 publish(new EmojiWorkerReport("Caching " + emojiType.getDescription(), 0));
                 Thread.sleep(1L);
-                int count = 0;
                 List<LazyLoadEmoji> emojiToCache = new ArrayList<LazyLoadEmoji>();
                 for (String regex : regexes)
                 {
@@ -268,23 +334,50 @@ public class EmojiWorker extends SwingWorker<Integer, EmojiWorkerReport>
                     emojiToCache.add(emoji);
                 }
 
+                // The images are fetched by the emoji image loader, which fetches a few at a time, so this just queues
+                // them all and waits for them to finish
+                final AtomicInteger loadedCount = new AtomicInteger();
+                EmojiImageLoader.Listener listener = new EmojiImageLoader.Listener()
+                {
+                    @Override
+                    public void loaded(LazyLoadEmoji emoji)
+                    {
+                        loadedCount.incrementAndGet();
+                    }
+                };
+                final int priority = emojiType.isChannelSpecific() ? EmojiImageLoader.PRIORITY_CHANNEL : EmojiImageLoader.PRIORITY_GLOBAL;
+                int alreadyCachedCount = 0;
                 for (LazyLoadEmoji emoji : emojiToCache)
                 {
-                    if (emoji != null)
+                    if (emoji == null || !emoji.cacheImage(priority, listener))
                     {
-                        emoji.cacheImage();
+                        alreadyCachedCount++;
+                    }
+                }
+
+                while (true)
+                {
+                    final int count = alreadyCachedCount + loadedCount.get();
+                    // This is safe from divide by zero exceptions, because the count can't be less than an empty size
+                    final int percentComplete = count >= emojiToCache.size() ? 100 : (int) (100.0f * count / emojiToCache.size());
+                    if (percentComplete == 100)
+                    {
+                        break;
                     }
-                    count++;
-                    // This is safe from divide by zero exceptions, because we won't be here if emojiToCache is empty
-                    int percentComplete = (int) (100.0f * count / emojiToCache.size());
                     publish(new EmojiWorkerReport("Caching " + emojiType.getDescription(), percentComplete));
 
                     if (terminateWork)
                     {
+                        LazyLoadEmoji.cancelCaching(listener);
                         throw new EmojiCancelException();
                     }
+                    else if (silentlyTerminateWork)
+                    {
+                        LazyLoadEmoji.cancelCaching(listener);
+                        throw new EmojiHaltException();
+                    }
 
-                    Thread.sleep(1L);
+                    Thread.sleep(CACHE_PROGRESS_MILLIS);
                 }
 
                 publish(new EmojiWorkerReport(emojiType.getDescription() + " caching complete", 100));
@@ -338,54 +431,71 @@ public class EmojiWorker extends SwingWorker<Integer, EmojiWorkerReport>
     }
 
     /**
-     * Gives you back the data from a website, used to get JSON data for emoji, or for loading the FFZ donor list
+     * Open the JSON the loader was prepared for, to be parsed as it downloads. How much has been downloaded is reported
+     * a few times a second while it's parsed, which is also when the parse is stopped if the work is canceled or halted.
      * 
      * @param emojiType
-     * @return
+     * @return reader, or null if the loader wasn't prepared
      * @throws Exception
      */
-    private String runLoader(EmojiType emojiType) throws Exception
+    private JsonReader openLoader(final EmojiType emojiType) throws Exception
     {
-        String data = null;
-        if (loader.initLoad())
+        JsonReader reader = loader.initLoad(new EmojiApiLoader.ProgressListener()
         {
-            while (!loader.isLoadComplete())
+            @Override
+            public void progress(long bytesRead, long contentLength) throws IOException
             {
-                int percentComplete = loader.loadChunk();
-                // Let the thread rest so the main thread can get the publish
-                publish(new EmojiWorkerReport("Downloading " + emojiType.getDescription(), percentComplete));
-                if (terminateWork)
+                if (isWorkTerminatedAlready())
                 {
-                    throw new EmojiCancelException();
+                    // Turned back into a cancel or a halt once the parse gives up
+                    throw new InterruptedIOException(emojiType.getDescription() + " loading terminated");
                 }
-                else if (silentlyTerminateWork)
+                if (contentLength > 0L)
                 {
-                    throw new EmojiHaltException();
+                    // Not 100 until it's parsed, because 100 means complete
+                    final int percentComplete = (int) Math.min(99L, 100L * bytesRead / contentLength);
+                    publish(new EmojiWorkerReport("Downloading " + emojiType.getDescription(), percentComplete));
+                }
+                else
+                {
+                    publish(new EmojiWorkerReport("Downloading " + emojiType.getDescription() + " (" + (bytesRead / 1024L) + " KB)", 0));
                 }
-                Thread.sleep(1L);
-            }
-            data = loader.getLoadedJson();
-            loader.reset();
-            if (terminateWork)
-            {
-                throw new EmojiCancelException();
-            }
-            else if (silentlyTerminateWork)
-            {
-                throw new EmojiHaltException();
             }
+        });
 
-            publish(new EmojiWorkerReport("Parsing " + emojiType.getDescription() + " data...", 0));
+        if (reader == null)
+        {
+            logger.debug("EmojiApiLoader run for " + emojiType.getDescription() + " without required call to prepLoad.");
         }
         else
         {
-            logger.debug("EmojiApiLoader run for " + emojiType.getDescription() + " without required call to prepLoad.");
+            publish(new EmojiWorkerReport("Downloading " + emojiType.getDescription(), 0));
         }
-        publish(new EmojiWorkerReport(emojiType.getDescription() + " loading complete", 100));
+        return reader;
+    }
 
-        loader.reset();
+    /**
+     * Report the JSON opened by openLoader has been loaded, unless the work was canceled or halted meanwhile
+     * 
+     * @param emojiType
+     * @throws Exception
+     */
+    private void finishLoader(EmojiType emojiType) throws Exception
+    {
+        throwIfTerminated();
+        publish(new EmojiWorkerReport(emojiType.getDescription() + " loading complete", 100));
+    }
 
-        return data;
+    private void throwIfTerminated() throws EmojiCancelException, EmojiHaltException
+    {
+        if (terminateWork)
+        {
+            throw new EmojiCancelException();
+        }
+        else if (silentlyTerminateWork)
+        {
+            throw new EmojiHaltException();
+        }
     }
 
     @Override
@@ -395,8 +505,24 @@ public class EmojiWorker extends SwingWorker<Integer, EmojiWorkerReport>
         {
             EmojiWorkerReport latestReport = reports.get(reports.size() - 1);
             reports.clear();
-            progressPanel.update(latestReport);
+            progressPanel.update(this, latestReport);
+        }
+    }
+
+    @Override
+    protected void done()
+    {
+        boolean succeeded;
+        try
+        {
+            succeeded = !isCancelled() && Integer.valueOf(0).equals(get());
+        }
+        catch (Exception e)
+        {
+            // Canceled, halted, or failed, all of which have already been reported
+            succeeded = false;
         }
+        progressPanel.workDone(this, succeeded);
     }
 
     public void cancel()
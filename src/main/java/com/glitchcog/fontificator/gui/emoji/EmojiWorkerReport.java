@@ -72,6 +72,17 @@ public class EmojiWorkerReport
      * @return percentText
      */
     public String getPercentText()
+    {
+        return getPercentText(percentComplete);
+    }
+
+    /**
+     * Get the specified percent formatted with leading spaces and a percent sign
+     * 
+     * @param percentComplete
+     * @return percentText
+     */
+    public static String getPercentText(int percentComplete)
     {
         String ps = Integer.toString(percentComplete);
         while (ps.length() < 3)
@@ -0,0 +1,80 @@
+package com.glitchcog.fontificator.sprite;
+
+import java.awt.Color;
+
+/**
+ * The colors of a message's text, as runs of characters that are all the same color: the timestamp, the badges, the
+ * username and the content. Working out which part of the message a character is in means formatting the timestamp and
+ * the username, so it is done once and cached on the message, and only worked out again when the text, the message or
+ * color configuration, or the color of the user changes.
+ *
+ * @author Matt Yanos
+ */
+public class ColorRuns
+{
+    /**
+     * The text the runs were worked out for, compared by reference like the text of a layout
+     */
+    private final MessageText text;
+
+    private final int messageVersion;
+
+    private final int colorVersion;
+
+    private final Color userColor;
+
+    /**
+     * The index just past the last character of each run. The last run ends at Integer.MAX_VALUE, so it goes on to the
+     * end of the text.
+     */
+    private final int[] runEnds;
+
+    private final Color[] runColors;
+
+    ColorRuns(MessageText text, int messageVersion, int colorVersion, Color userColor, int[] runEnds, Color[] runColors)
+    {
+        this.text = text;
+        this.messageVersion = messageVersion;
+        this.colorVersion = colorVersion;
+        this.userColor = userColor;
+        this.runEnds = runEnds;
+        this.runColors = runColors;
+    }
+
+    /**
+     * Get whether these runs still apply to the specified text, configuration versions and user color
+     *
+     * @param text
+     * @param messageVersion
+     * @param colorVersion
+     * @param userColor
+     * @return current
+     */
+    public boolean isCurrent(MessageText text, int messageVersion, int colorVersion, Color userColor)
+    {
+        return this.text == text && this.messageVersion == messageVersion && this.colorVersion == colorVersion && (this.userColor == null ? userColor == null : this.userColor.equals(userColor));
+    }
+
+    /**
+     * Get the run the character at the specified index is in, searching forward from the specified run, so walking the
+     * text in order never goes over a run twice
+     *
+     * @param index
+     * @param fromRun
+     * @return run
+     */
+    public int getRun(int index, int fromRun)
+    {
+        int run = fromRun;
+        while (index >= runEnds[run])
+        {
+            run++;
+        }
+        return run;
+    }
+
+    public Color getColor(int run)
+    {
+        return runColors[run];
+    }
+}
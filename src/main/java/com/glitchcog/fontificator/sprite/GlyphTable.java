@@ -0,0 +1,77 @@
+package com.glitchcog.fontificator.sprite;
+
+import java.awt.Rectangle;
+
+/**
+ * The bounds of each character of a sprite font in the sprite image, indexed directly by codepoint. Everything that
+ * depends on the font configuration is worked out when the table is built: characters that aren't in the character key
+ * already point at the bounds of the unknown character, and the space already has its configured width. Looking up a
+ * character is a single array read. The table is never modified once built, so a new one is built whenever the font
+ * configuration changes.
+ *
+ * @author Matt Yanos
+ */
+public class GlyphTable
+{
+    /**
+     * The bounds to draw for each codepoint, which are the unknown character's for codepoints not in the character key
+     */
+    private final Rectangle[] bounds;
+
+    /**
+     * Whether each codepoint is in the character key, rather than drawn as the unknown character
+     */
+    private final boolean[] known;
+
+    /**
+     * The bounds of the unknown character, for codepoints past the end of the table
+     */
+    private final Rectangle unknownBounds;
+
+    /**
+     * The version of the font configuration at the time this table was built
+     */
+    private final int fontVersion;
+
+    GlyphTable(Rectangle[] bounds, boolean[] known, Rectangle unknownBounds, int fontVersion)
+    {
+        this.bounds = bounds;
+        this.known = known;
+        this.unknownBounds = unknownBounds;
+        this.fontVersion = fontVersion;
+    }
+
+    /**
+     * Get whether this table was built for the specified version of the font configuration
+     *
+     * @param fontVersion
+     * @return current
+     */
+    public boolean isCurrent(int fontVersion)
+    {
+        return this.fontVersion == fontVersion;
+    }
+
+    /**
+     * Get the bounds in the sprite image of the specified character, or of the unknown character if it isn't in the
+     * character key. The bounds returned are shared, so they must not be modified.
+     *
+     * @param codepoint
+     * @return bounds, or null if neither the character nor the unknown character is in the character key
+     */
+    public Rectangle getBounds(int codepoint)
+    {
+        return codepoint >= 0 && codepoint < bounds.length ? bounds[codepoint] : unknownBounds;
+    }
+
+    /**
+     * Get whether the specified character is in the character key
+     *
+     * @param codepoint
+     * @return known
+     */
+    public boolean isKnown(int codepoint)
+    {
+        return codepoint >= 0 && codepoint < known.length && known[codepoint];
+    }
+}
@@ -0,0 +1,264 @@
+package com.glitchcog.fontificator.sprite;
+
+/**
+ * The result of wrapping the text of a message to fit a particular width: the position of each character relative to
+ * the top left of the message and the line each character falls on. Working this out is the expensive part of drawing a
+ * message, so it is cached on the message and only recalculated when the wrap width or the configuration changes.
+ *
+ * @author Matt Yanos
+ */
+public class MessageLayout
+{
+    /**
+     * A character that is part of a word
+     */
+    static final byte BREAK_NONE = 0;
+
+    /**
+     * A character the line can be wrapped at
+     */
+    static final byte BREAK_WORD = 1;
+
+    /**
+     * A character that starts a new line
+     */
+    static final byte BREAK_LINE = 2;
+
+    /**
+     * The emoji load version of a layout that didn't measure any emoji still loading
+     */
+    static final int NO_PENDING_EMOJI = -1;
+
+    /**
+     * The font that calculated this layout
+     */
+    private final SpriteFont font;
+
+    /**
+     * The text that was laid out. Messages re-parse their text into a new one whenever the configuration changes it, so
+     * this is compared by reference.
+     */
+    private final MessageText text;
+
+    /**
+     * Whether each character of the text is part of a word, a place to wrap the line or a line break. This only depends
+     * on the text, so it is handed on to the next layout of the same text.
+     */
+    private final byte[] breakClasses;
+
+    /**
+     * The length in pixels the lines of text were wrapped to
+     */
+    private final int lineWrapLength;
+
+    /**
+     * The version of the font configuration at the time this layout was calculated
+     */
+    private final int fontVersion;
+
+    /**
+     * The version of the message configuration at the time this layout was calculated
+     */
+    private final int messageVersion;
+
+    /**
+     * The version of the emoji configuration at the time this layout was calculated
+     */
+    private final int emojiVersion;
+
+    /**
+     * The emoji load version at the time this layout was calculated, if any emoji in it were still loading and were
+     * measured at the size of the emoji loading display strategy, or NO_PENDING_EMOJI if none were. Once any emoji
+     * finishes loading, a layout that measured one still loading is out of date.
+     */
+    private final int emojiLoadVersion;
+
+    /**
+     * Whether the message can be drawn at all. It cannot if any single character is wider than the line wrap length.
+     */
+    private final boolean drawable;
+
+    /**
+     * The x position of each character relative to the left edge of the message
+     */
+    private final int[] charX;
+
+    /**
+     * The line each character is on, starting at zero
+     */
+    private final int[] charLine;
+
+    /**
+     * The width of each character, including the spacing between characters
+     */
+    private final int[] charWidth;
+
+    /**
+     * Whether each character is something to be drawn, rather than whitespace or a line break
+     */
+    private final boolean[] glyph;
+
+    /**
+     * The width of the widest line that was broken
+     */
+    private final int maxWidth;
+
+    /**
+     * Construct a layout for a message that cannot be drawn
+     */
+    MessageLayout(SpriteFont font, MessageText text, byte[] breakClasses, int lineWrapLength, int fontVersion, int messageVersion, int emojiVersion, int emojiLoadVersion)
+    {
+        this(font, text, breakClasses, lineWrapLength, fontVersion, messageVersion, emojiVersion, emojiLoadVersion, false, new int[0], new int[0], new int[0], new boolean[0], 0);
+    }
+
+    MessageLayout(SpriteFont font, MessageText text, byte[] breakClasses, int lineWrapLength, int fontVersion, int messageVersion, int emojiVersion, int emojiLoadVersion, boolean drawable, int[] charX, int[] charLine, int[] charWidth, boolean[] glyph, int maxWidth)
+    {
+        this.font = font;
+        this.text = text;
+        this.breakClasses = breakClasses;
+        this.lineWrapLength = lineWrapLength;
+        this.fontVersion = fontVersion;
+        this.messageVersion = messageVersion;
+        this.emojiVersion = emojiVersion;
+        this.emojiLoadVersion = emojiLoadVersion;
+        this.drawable = drawable;
+        this.charX = charX;
+        this.charLine = charLine;
+        this.charWidth = charWidth;
+        this.glyph = glyph;
+        this.maxWidth = maxWidth;
+    }
+
+    /**
+     * Get whether this layout still applies to the specified text, wrap length, configuration versions and emoji load
+     * version
+     *
+     * @param font
+     * @param text
+     * @param lineWrapLength
+     * @param fontVersion
+     * @param messageVersion
+     * @param emojiVersion
+     * @param emojiLoadVersion
+     * @return current
+     */
+    public boolean isCurrent(SpriteFont font, MessageText text, int lineWrapLength, int fontVersion, int messageVersion, int emojiVersion, int emojiLoadVersion)
+    {
+        return this.font == font && this.text == text && this.lineWrapLength == lineWrapLength && this.fontVersion == fontVersion && this.messageVersion == messageVersion && this.emojiVersion == emojiVersion && isEmojiLoadCurrent(emojiLoadVersion);
+    }
+
+    /**
+     * Get whether no emoji measured while still loading has finished loading since this layout was calculated
+     *
+     * @param emojiLoadVersion
+     * @return current
+     */
+    public boolean isEmojiLoadCurrent(int emojiLoadVersion)
+    {
+        return this.emojiLoadVersion == NO_PENDING_EMOJI || this.emojiLoadVersion == emojiLoadVersion;
+    }
+
+    /**
+     * Get whether any emoji in this layout were still loading when it was calculated
+     *
+     * @return pending
+     */
+    public boolean isEmojiPending()
+    {
+        return emojiLoadVersion != NO_PENDING_EMOJI;
+    }
+
+    public MessageText getText()
+    {
+        return text;
+    }
+
+    /**
+     * Get the break class of each character of the text, reusing this layout's if it was laid out from the same text
+     *
+     * @param text
+     * @return break classes
+     */
+    byte[] getBreakClasses(MessageText text)
+    {
+        return this.text == text ? breakClasses : classifyBreaks(text);
+    }
+
+    /**
+     * Sort each character of the text into part of a word, a place to wrap the line or a line break
+     *
+     * @param text
+     * @return break classes
+     */
+    static byte[] classifyBreaks(MessageText text)
+    {
+        byte[] breakClasses = new byte[text.length()];
+        for (int ci = 0; ci < breakClasses.length; ci++)
+        {
+            final char c = text.getChar(ci);
+            if (SpriteFont.LINE_BREAKS.indexOf(c) >= 0)
+            {
+                breakClasses[ci] = BREAK_LINE;
+            }
+            else if (SpriteFont.WORD_BREAKS.indexOf(c) >= 0)
+            {
+                breakClasses[ci] = BREAK_WORD;
+            }
+        }
+        return breakClasses;
+    }
+
+    public boolean isDrawable()
+    {
+        return drawable;
+    }
+
+    public int getCharX(int index)
+    {
+        return charX[index];
+    }
+
+    public int getCharLine(int index)
+    {
+        return charLine[index];
+    }
+
+    public int getCharWidth(int index)
+    {
+        return charWidth[index];
+    }
+
+    public boolean isGlyph(int index)
+    {
+        return glyph[index];
+    }
+
+    public int getMaxWidth()
+    {
+        return maxWidth;
+    }
+
+    /**
+     * Get the number of lines the portion of the message up to the specified draw cursor takes up. Lines are only
+     * counted once the character that starts them is revealed, so a message grows as it is rolled out.
+     *
+     * @param drawCursor
+     * @return line count
+     */
+    public int getLineCount(float drawCursor)
+    {
+        final int revealed = getRevealedCount(drawCursor);
+        return revealed <= 0 ? 1 : charLine[revealed - 1] + 1;
+    }
+
+    /**
+     * Get the number of characters that are drawn at the specified draw cursor
+     * 
+     * @param drawCursor
+     * @return revealed count
+     */
+    public int getRevealedCount(float drawCursor)
+    {
+        return drawCursor >= charLine.length ? charLine.length : (int) Math.ceil(drawCursor);
+    }
+}
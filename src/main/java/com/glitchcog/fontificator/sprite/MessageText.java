@@ -0,0 +1,222 @@
+package com.glitchcog.fontificator.sprite;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The text of a message packed for drawing: the codepoint of each character in an int array, with the emoji and badges
+ * kept apart in a short table of their own. A character position that holds an emoji or a badge stores the negative of
+ * one more than its place in that table instead of a codepoint, so looking up either one is a single array read, and
+ * going through the text doesn't create any objects.
+ *
+ * @author Matt Yanos
+ */
+public class MessageText
+{
+    private static final SpriteCharacterKey[] NO_EMOJI = new SpriteCharacterKey[0];
+
+    public static final MessageText EMPTY = new MessageText(new int[0], NO_EMOJI);
+
+    /**
+     * The codepoint of each character, or the negative of one more than the index of the emoji in the emoji table
+     */
+    private final int[] codes;
+
+    /**
+     * The emoji and badges in the text, in order
+     */
+    private final SpriteCharacterKey[] emoji;
+
+    private MessageText(int[] codes, SpriteCharacterKey[] emoji)
+    {
+        this.codes = codes;
+        this.emoji = emoji;
+    }
+
+    /**
+     * Get the number of characters, including emoji and badges, in the text
+     *
+     * @return length
+     */
+    public int length()
+    {
+        return codes.length;
+    }
+
+    /**
+     * Whether the character at the specified index is a character, not an emoji or a badge
+     *
+     * @param index
+     * @return isChar
+     */
+    public boolean isChar(int index)
+    {
+        return codes[index] >= 0;
+    }
+
+    /**
+     * Get the codepoint of the character at the specified index, or the placeholder codepoint of an emoji
+     *
+     * @param index
+     * @return codepoint
+     */
+    public int getCodepoint(int index)
+    {
+        final int code = codes[index];
+        return code >= 0 ? code : emoji[-code - 1].getCodepoint();
+    }
+
+    /**
+     * Get the character at the specified index as a char, which is only the high surrogate for characters outside of
+     * the basic multilingual plane
+     *
+     * @param index
+     * @return char
+     */
+    public char getChar(int index)
+    {
+        return SpriteCharacterKey.toChar(getCodepoint(index));
+    }
+
+    /**
+     * Get the emoji or badge at the specified index
+     *
+     * @param index
+     * @return emoji key, or null if the character at the index isn't an emoji or a badge
+     */
+    public SpriteCharacterKey getEmojiKey(int index)
+    {
+        final int code = codes[index];
+        return code >= 0 ? null : emoji[-code - 1];
+    }
+
+    /**
+     * Get the key for the character at the specified index. Keys for ASCII characters are shared, but a key for any
+     * other character is made new on each call, so anything going through the whole text should use the codepoints.
+     *
+     * @param index
+     * @return key
+     */
+    public SpriteCharacterKey getKey(int index)
+    {
+        final int code = codes[index];
+        return code >= 0 ? SpriteCharacterKey.valueOf(code) : emoji[-code - 1];
+    }
+
+    /**
+     * Get the number of emoji and badges in the text
+     *
+     * @return emoji count
+     */
+    public int getEmojiCount()
+    {
+        return emoji.length;
+    }
+
+    /**
+     * Get an emoji or badge by its place among the emoji and badges in the text, rather than by its character index
+     *
+     * @param emojiIndex
+     * @return emoji key
+     */
+    public SpriteCharacterKey getEmoji(int emojiIndex)
+    {
+        return emoji[emojiIndex];
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < codes.length; i++)
+        {
+            if (isChar(i))
+            {
+                sb.appendCodePoint(codes[i]);
+            }
+            else
+            {
+                sb.append(getEmojiKey(i).toString());
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Builds up a message text one piece at a time, so the whole of it only needs to be copied once at the end
+     *
+     * @author Matt Yanos
+     */
+    public static class Builder
+    {
+        private static final int INITIAL_CAPACITY = 128;
+
+        private int[] codes;
+
+        private int length;
+
+        private List<SpriteCharacterKey> emoji;
+
+        public Builder()
+        {
+            this.codes = new int[INITIAL_CAPACITY];
+            this.length = 0;
+            this.emoji = null;
+        }
+
+        /**
+         * Add each codepoint of the specified string
+         *
+         * @param str
+         * @return this builder
+         */
+        public Builder append(String str)
+        {
+            int i = 0;
+            while (i < str.length())
+            {
+                final int codepoint = str.codePointAt(i);
+                add(codepoint);
+                i += Character.charCount(codepoint);
+            }
+            return this;
+        }
+
+        /**
+         * Add an emoji or a badge, or just the codepoint of a key that's a character
+         *
+         * @param key
+         * @return this builder
+         */
+        public Builder append(SpriteCharacterKey key)
+        {
+            if (key.isChar())
+            {
+                add(key.getCodepoint());
+                return this;
+            }
+            if (emoji == null)
+            {
+                emoji = new ArrayList<SpriteCharacterKey>();
+            }
+            emoji.add(key);
+            add(-emoji.size());
+            return this;
+        }
+
+        private void add(int code)
+        {
+            if (length == codes.length)
+            {
+                codes = Arrays.copyOf(codes, codes.length * 2);
+            }
+            codes[length++] = code;
+        }
+
+        public MessageText build()
+        {
+            return new MessageText(Arrays.copyOf(codes, length), emoji == null ? NO_EMOJI : emoji.toArray(new SpriteCharacterKey[emoji.size()]));
+        }
+    }
+}
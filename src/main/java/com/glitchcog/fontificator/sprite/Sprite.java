@@ -4,16 +4,12 @@ import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
-import java.awt.image.BufferedImageOp;
-import java.awt.image.ColorModel;
-import java.awt.image.LookupOp;
-import java.awt.image.ShortLookupTable;
-import java.awt.image.WritableRaster;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.imageio.ImageIO;
 
@@ -30,9 +26,28 @@ public class Sprite
 {
     private static final Logger logger = Logger.getLogger(Sprite.class);
 
+    /**
+     * The tinted frames and characters of all sprites, shared so a single byte budget covers every font and border
+     */
+    private static final TintCache tintCache = new TintCache(TintCache.DEFAULT_BYTE_BUDGET);
+
+    /**
+     * The source of the IDs that tell the tints of one sprite from another in the tint cache
+     */
+    private static final AtomicInteger ID_SOURCE = new AtomicInteger();
+
+    /**
+     * Identifies the tints of this sprite in the tint cache
+     */
+    private final int id = ID_SOURCE.incrementAndGet();
+
     private BufferedImage img;
 
-    private Map<Color, BufferedImage> coloredImgs;
+    /**
+     * The bounds of the characters in this sprite calculated by sprite fonts, keyed by everything the bounds depend on
+     * apart from the image, so they're only calculated once for each way the sprite is used
+     */
+    private final Map<String, Map<Integer, Rectangle>> characterBounds = new HashMap<String, Map<Integer, Rectangle>>();
 
     /**
      * The number of frames that make up the width of the image grid
@@ -54,10 +69,6 @@ public class Sprite
      */
     protected int pixelHeight;
 
-    private ShortLookupTable swapTable;
-
-    private BufferedImageOp swapOp;
-
     /**
      * An empty sprite to use if an image file won't load
      */
@@ -68,8 +79,6 @@ public class Sprite
         this.pixelWidth = 8;
         this.pixelHeight = 8;
         img = new BufferedImage(pixelWidth, pixelHeight, BufferedImage.TYPE_INT_ARGB);
-        coloredImgs = new HashMap<Color, BufferedImage>();
-        setupSwap();
     }
 
     /**
@@ -88,8 +97,6 @@ public class Sprite
         this(filename);
         logger.trace("Sprite grid specified: (" + gridWidth + "x" + gridHeight + ")");
         setGridDimensions(gridWidth, gridHeight);
-        setupSwap();
-        addToColorCache(Color.WHITE);
     }
 
     /**
@@ -102,25 +109,17 @@ public class Sprite
     {
         logger.trace("Loading sprite from " + fontSpriteFilename);
 
-        coloredImgs = new HashMap<Color, BufferedImage>();
-
         setImage(fontSpriteFilename);
-
-        setupSwap();
     }
 
-    private void setupSwap()
+    /**
+     * Get the cache of tinted frames and characters shared by all sprites
+     * 
+     * @return tintCache
+     */
+    public static TintCache getTintCache()
     {
-        short[][] lookupArray = new short[4][256];
-        for (int i = 0; i < lookupArray.length; i++)
-        {
-            for (short c = 0; c < lookupArray[i].length; c++)
-            {
-                lookupArray[i][c] = c;
-            }
-        }
-        swapTable = new ShortLookupTable(0, lookupArray);
-        swapOp = new LookupOp(swapTable, null);
+        return tintCache;
     }
 
     private boolean setImage(String filename) throws IOException
@@ -164,6 +163,30 @@ public class Sprite
         return img;
     }
 
+    /**
+     * Get the character bounds previously calculated for this sprite
+     * 
+     * @param boundsKey
+     *            The font type, grid dimensions and character key the bounds were calculated with
+     * @return character bounds, or null if they haven't been calculated
+     */
+    public synchronized Map<Integer, Rectangle> getCharacterBounds(String boundsKey)
+    {
+        return characterBounds.get(boundsKey);
+    }
+
+    /**
+     * Keep character bounds calculated for this sprite, so they needn't be calculated again
+     * 
+     * @param boundsKey
+     *            The font type, grid dimensions and character key the bounds were calculated with
+     * @param bounds
+     */
+    public synchronized void putCharacterBounds(String boundsKey, Map<Integer, Rectangle> bounds)
+    {
+        characterBounds.put(boundsKey, bounds);
+    }
+
     public void setGridDimensions(ConfigFont config)
     {
         setGridDimensions(config.getGridWidth(), config.getGridHeight());
@@ -249,45 +272,12 @@ public class Sprite
         return (int) (pixelHeight * scale);
     }
 
-    private static BufferedImage copyImage(BufferedImage bi)
-    {
-        ColorModel cm = bi.getColorModel();
-        WritableRaster raster = bi.copyData(null);
-        return new BufferedImage(cm, raster, cm.isAlphaPremultiplied(), null);
-    }
-
-    private BufferedImage addToColorCache(Color drawColor)
-    {
-        for (short i = 0; i < 256; i++)
-        {
-            swapTable.getTable()[0][i] = (short) ((i / 255.0f) * drawColor.getRed());
-            swapTable.getTable()[1][i] = (short) ((i / 255.0f) * drawColor.getGreen());
-            swapTable.getTable()[2][i] = (short) ((i / 255.0f) * drawColor.getBlue());
-        }
-        BufferedImage coloredImg = copyImage(img);
-        coloredImg = swapOp.filter(img, coloredImg);
-
-        coloredImgs.put(drawColor, coloredImg);
-
-        return coloredImg;
-    }
-
     public void draw(Graphics2D g2d, int x, int y, int frame, float scale, Color color)
     {
         int sourceX = (frame % gridWidth) * pixelWidth;
         int sourceY = (frame / gridWidth) * pixelHeight;
 
-        BufferedImage drawImg = coloredImgs.get(color);
-        if (drawImg == null)
-        {
-            drawImg = addToColorCache(color);
-            coloredImgs.put(color, drawImg);
-        }
-        g2d.drawImage(drawImg, x, y, x + (int) (pixelWidth * scale), y + (int) (pixelHeight * scale), sourceX, sourceY, sourceX + pixelWidth, sourceY + pixelHeight, null);
-
-        // Crops the image before anti-aliasing is applied, so pixels on the edges of cropping lines don't bleed over, but it's slow!
-        // final BufferedImage bi = drawImg.getSubimage(sourceX, sourceY, pixelWidth, pixelHeight);
-        // g2d.drawImage(bi, x, y, (int) (pixelWidth * scale), (int) (pixelHeight * scale), null);
+        drawTinted(g2d, x, y, (int) (pixelWidth * scale), (int) (pixelHeight * scale), sourceX, sourceY, pixelWidth, pixelHeight, color);
     }
 
     /**
@@ -304,17 +294,66 @@ public class Sprite
 
     public void draw(Graphics2D g2d, int x, int y, int w, int h, Rectangle source, float scale, Color color)
     {
-        BufferedImage drawImg = coloredImgs.get(color);
-        if (drawImg == null)
+        drawTinted(g2d, x, y, (int) (w * scale), (int) (h * scale), source.x, source.y, source.width, source.height, color);
+    }
+
+    /**
+     * Draw a region of the sprite image as it is, without tinting it, at its own size. Nothing is added to the tint
+     * cache, so this is for one-off drawing like previews.
+     * 
+     * @param g2d
+     * @param x
+     * @param y
+     * @param source
+     */
+    public void drawUntinted(Graphics2D g2d, int x, int y, Rectangle source)
+    {
+        g2d.drawImage(img, x, y, x + source.width, y + source.height, source.x, source.y, source.x + source.width, source.y + source.height, null);
+    }
+
+    /**
+     * Draw a region of the sprite image, tinted the specified color, stretched to the specified destination size. Only
+     * the region is tinted and cached, and because it's cropped before it's scaled, pixels on the edges of the region
+     * don't bleed over when anti-aliasing is on.
+     * 
+     * @param g2d
+     * @param x
+     * @param y
+     * @param drawWidth
+     * @param drawHeight
+     * @param sourceX
+     * @param sourceY
+     * @param sourceWidth
+     * @param sourceHeight
+     * @param color
+     */
+    private void drawTinted(Graphics2D g2d, int x, int y, int drawWidth, int drawHeight, int sourceX, int sourceY, int sourceWidth, int sourceHeight, Color color)
+    {
+        // Any part of the region that hangs off the image has nothing in it to draw, so clip it off along with the
+        // corresponding part of the destination
+        final int clipX = Math.max(sourceX, 0);
+        final int clipY = Math.max(sourceY, 0);
+        final int clipWidth = Math.min(sourceX + sourceWidth, img.getWidth()) - clipX;
+        final int clipHeight = Math.min(sourceY + sourceHeight, img.getHeight()) - clipY;
+        if (clipWidth <= 0 || clipHeight <= 0)
+        {
+            return;
+        }
+
+        if (clipWidth != sourceWidth || clipHeight != sourceHeight)
         {
-            drawImg = addToColorCache(color);
-            coloredImgs.put(color, drawImg);
+            final float scaleX = drawWidth / (float) sourceWidth;
+            final float scaleY = drawHeight / (float) sourceHeight;
+            final int drawX = x + (int) ((clipX - sourceX) * scaleX);
+            final int drawY = y + (int) ((clipY - sourceY) * scaleY);
+            drawWidth = x + (int) ((clipX + clipWidth - sourceX) * scaleX) - drawX;
+            drawHeight = y + (int) ((clipY + clipHeight - sourceY) * scaleY) - drawY;
+            x = drawX;
+            y = drawY;
         }
-        g2d.drawImage(drawImg, x, y, x + (int) (w * scale), y + (int) (h * scale), source.x, source.y, source.x + source.width, source.y + source.height, null);
 
-        // Crops the image before anti-aliasing is applied, so pixels on the edges of cropping lines don't bleed over, but it's slow!
-        // final BufferedImage bi = drawImg.getSubimage(source.x, source.y, source.width, source.height);
-        // g2d.drawImage(bi, x, y, (int) (w * scale), (int) (h * scale), null);
+        BufferedImage tint = tintCache.getTint(id, img, color, clipX, clipY, clipWidth, clipHeight);
+        g2d.drawImage(tint, x, y, x + drawWidth, y + drawHeight, 0, 0, clipWidth, clipHeight, null);
     }
 
 }
@@ -12,14 +12,22 @@ import com.glitchcog.fontificator.emoji.LazyLoadEmoji;
 public class SpriteCharacterKey
 {
     /**
-     * The character this represents
+     * Shared keys for the ASCII characters, which are most of the characters of most messages
      */
-    private int codepoint;
+    private static final SpriteCharacterKey[] ASCII_KEYS = new SpriteCharacterKey[128];
+
+    static
+    {
+        for (int c = 0; c < ASCII_KEYS.length; c++)
+        {
+            ASCII_KEYS[c] = new SpriteCharacterKey(c);
+        }
+    }
 
     /**
-     * Whether the character falls outside of the inclusive ASCII range 32-127
+     * The character this represents
      */
-    private boolean extended;
+    private int codepoint;
 
     /**
      * The emoji this character represents
@@ -73,23 +81,48 @@ public class SpriteCharacterKey
     private SpriteCharacterKey(int codepoint, LazyLoadEmoji emoji, boolean badge)
     {
         this.codepoint = codepoint;
-        /* not-great: Take code point and toss surrogate pair, if present, to check if in ascii set */
-        this.extended = !SpriteFont.NORMAL_ASCII_KEY.contains(Character.toString(Character.toChars(this.codepoint)[0]));
         this.emoji = emoji;
         this.badge = badge;
     }
 
+    /**
+     * Get a key for the specified character, which is a shared one for characters in the ASCII range
+     * 
+     * @param codepoint
+     * @return key
+     */
+    public static SpriteCharacterKey valueOf(int codepoint)
+    {
+        return codepoint >= 0 && codepoint < ASCII_KEYS.length ? ASCII_KEYS[codepoint] : new SpriteCharacterKey(codepoint);
+    }
+
     /**
      * Get the character as a char, assuming this represents a character instead of emoji
      * 
      * @return char
      */
     public char getChar()
+    {
+        return toChar(codepoint);
+    }
+
+    /**
+     * Get the specified codepoint as a char
+     * 
+     * @param codepoint
+     * @return char
+     */
+    static char toChar(int codepoint)
     {
         // Not a pretty compromise.  Basically get the broken half a code point when trying to getChar() something that
         // isn't in the BMP.  This is mostly OK.
         // Ideally this would throw an exception if !Character.isBmpCodePoint(this.codepoint)
-        return Character.toChars(this.codepoint)[0];
+        if (codepoint < Character.MIN_SUPPLEMENTARY_CODE_POINT)
+        {
+            return (char) codepoint;
+        }
+        // The high surrogate, worked out rather than taken from Character.toChars so it doesn't allocate an array
+        return (char) ((codepoint >>> 10) + (Character.MIN_HIGH_SURROGATE - (Character.MIN_SUPPLEMENTARY_CODE_POINT >>> 10)));
     }
 
     /**
@@ -153,7 +186,18 @@ public class SpriteCharacterKey
      */
     public boolean isExtended()
     {
-        return extended;
+        return isExtended(codepoint);
+    }
+
+    /**
+     * Whether the specified character falls outside of the inclusive ASCII range 32-127
+     * 
+     * @param codepoint
+     * @return extended
+     */
+    public static boolean isExtended(int codepoint)
+    {
+        return SpriteFont.NORMAL_ASCII_KEY.indexOf(toChar(codepoint)) < 0;
     }
 
     public Color getEmojiBgColor()
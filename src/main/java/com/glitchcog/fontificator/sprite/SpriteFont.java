@@ -7,6 +7,7 @@ import java.awt.Graphics2D;
 import java.awt.Image;
 import java.awt.Rectangle;
 import java.awt.image.ImageObserver;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -42,6 +43,12 @@ public class SpriteFont
 
     protected Map<Integer, Rectangle> characterBounds;
 
+    /**
+     * The character bounds resolved into a table indexed by codepoint, for looking up characters as they're measured
+     * and drawn
+     */
+    private volatile GlyphTable glyphs;
+
     /**
      * Characters that can be line breaks for wrapping to the next line
      */
@@ -68,13 +75,14 @@ public class SpriteFont
     }
 
     /**
-     * Get the dimensions of an emoji image
+     * Get the dimensions of an emoji image, packed into a long so getting them doesn't allocate anything. Unpack them
+     * with {@link #getEmojiWidth(long)} and {@link #getEmojiHeight(long)}.
      * 
-     * @param img
+     * @param c
      * @param emojiConfig
-     * @return
+     * @return packed dimensions
      */
-    private int[] getEmojiDimensions(SpriteCharacterKey c, ConfigEmoji emojiConfig)
+    private long getEmojiDimensions(SpriteCharacterKey c, ConfigEmoji emojiConfig)
     {
         LazyLoadEmoji emoji = c.getEmoji();
         Image img = emoji.getImage(emojiConfig.isAnimationEnabled());
@@ -96,7 +104,7 @@ public class SpriteFont
                 // Do not use the emoji scaling below because it's a character, not an emoji
                 // We can pass a null in for the FontMetrics, because we know the unknown character falls within the
                 // non-extended range
-                return new int[] { getCharacterWidth(null, new SpriteCharacterKey(config.getUnknownChar()), emojiConfig), 1 };
+                return packEmojiDimensions(getGlyphWidth(null, config.getUnknownChar()), 1);
             case NOTHING:
             default:
                 iw = 0;
@@ -126,7 +134,22 @@ public class SpriteFont
             h = eScale * ih;
         }
 
-        return new int[] { (int) w, (int) h };
+        return packEmojiDimensions((int) w, (int) h);
+    }
+
+    private static long packEmojiDimensions(int width, int height)
+    {
+        return ((long) width << 32) | (height & 0xFFFFFFFFL);
+    }
+
+    private static int getEmojiWidth(long dimensions)
+    {
+        return (int) (dimensions >> 32);
+    }
+
+    private static int getEmojiHeight(long dimensions)
+    {
+        return (int) dimensions;
     }
 
     /**
@@ -137,67 +160,98 @@ public class SpriteFont
      */
     public int getCharacterWidth(FontMetrics fontMetrics, SpriteCharacterKey c, ConfigEmoji emojiConfig)
     {
-        if (c.isChar())
-        {
-            int baseWidth;
+        return c.isChar() ? getGlyphWidth(fontMetrics, c.getCodepoint()) : getEmojiCharacterWidth(c, emojiConfig);
+    }
+
+    /**
+     * Return how wide the character at the specified index of the text is in pixels, without making a key for it
+     * 
+     * @param fontMetrics
+     * @param text
+     * @param index
+     * @param emojiConfig
+     * @return character width
+     */
+    public int getCharacterWidth(FontMetrics fontMetrics, MessageText text, int index, ConfigEmoji emojiConfig)
+    {
+        return text.isChar(index) ? getGlyphWidth(fontMetrics, text.getCodepoint(index)) : getEmojiCharacterWidth(text.getEmojiKey(index), emojiConfig);
+    }
+
+    private int getGlyphWidth(FontMetrics fontMetrics, int codepoint)
+    {
+        int baseWidth;
 
-            // Extended characters are enabled
-            if (c.isExtended())
+        // Extended characters are enabled
+        if (SpriteCharacterKey.isExtended(codepoint))
+        {
+            if (config.isExtendedCharEnabled())
             {
-                if (config.isExtendedCharEnabled())
-                {
-                    // Return string width of extended char
-                    baseWidth = fontMetrics.charWidth(c.getCodepoint());
-                    // Don't include scale in this calculation, because it's already built into the font size
-                    return (int) (baseWidth + config.getCharSpacing() * config.getFontScale());
-                }
-                // The extended character should be replaced with the unknown character
-                else
-                {
-                    baseWidth = getCharacterBounds(config.getUnknownChar()).width;
-                }
+                // Return string width of extended char
+                baseWidth = fontMetrics.charWidth(codepoint);
+                // Don't include scale in this calculation, because it's already built into the font size
+                return (int) (baseWidth + config.getCharSpacing() * config.getFontScale());
             }
-            // It's a normal character
+            // The extended character should be replaced with the unknown character
             else
             {
-                // Character
-                baseWidth = getCharacterBounds(c.getCodepoint()).width;
+                baseWidth = getCharacterBounds(config.getUnknownChar()).width;
             }
-            return (int) ((baseWidth + config.getCharSpacing()) * config.getFontScale());
         }
+        // It's a normal character
         else
         {
-            // Emoji
-            int[] eDim = getEmojiDimensions(c, emojiConfig);
-            final int charSpacing = (int) (config.getCharSpacing() * config.getFontScale());
-            final int extraSpacing = (c.getEmoji().getType().isBadge() ? Math.max(charSpacing, (int) (BADGE_MINIMUM_SPACING_PIXELS * config.getFontScale())) : charSpacing);
-            return eDim[0] + extraSpacing;
+            // Character
+            baseWidth = getCharacterBounds(codepoint).width;
         }
+        return (int) ((baseWidth + config.getCharSpacing()) * config.getFontScale());
+    }
 
+    private int getEmojiCharacterWidth(SpriteCharacterKey c, ConfigEmoji emojiConfig)
+    {
+        final long eDim = getEmojiDimensions(c, emojiConfig);
+        final int charSpacing = (int) (config.getCharSpacing() * config.getFontScale());
+        final int extraSpacing = (c.getEmoji().getType().isBadge() ? Math.max(charSpacing, (int) (BADGE_MINIMUM_SPACING_PIXELS * config.getFontScale())) : charSpacing);
+        return getEmojiWidth(eDim) + extraSpacing;
     }
 
     public void calculateCharacterDimensions()
     {
-        // Start from scratch
-        characterBounds.clear();
-
-        // For fixed width, just put the same sized box for all characters. The
-        // only difference is the location on the sprite grid
-        switch (config.getFontType())
+        glyphs = null;
+
+        // The bounds only depend on the sprite, the font type, the grid and the character key, so they're kept on the
+        // sprite and reused whenever the font is set back to the same ones
+        final Sprite sprite = sprites.getSprite(config);
+        final String boundsKey = config.getFontType() + "," + config.getGridWidth() + "," + config.getGridHeight() + "," + config.getCharacterKey();
+        Map<Integer, Rectangle> bounds = sprite.getCharacterBounds(boundsKey);
+        if (bounds == null)
         {
-        case FIXED_WIDTH:
-            calculateFixedCharacterDimensions();
-            break;
-        case VARIABLE_WIDTH:
-            calculateVariableCharacterDimensions();
-            break;
-        default:
-            logger.error("Unknown font type: " + config.getFontType());
-            break;
+            // Start from scratch
+            bounds = new HashMap<Integer, Rectangle>();
+
+            // For fixed width, just put the same sized box for all characters. The
+            // only difference is the location on the sprite grid
+            switch (config.getFontType())
+            {
+            case FIXED_WIDTH:
+                calculateFixedCharacterDimensions(bounds);
+                break;
+            case VARIABLE_WIDTH:
+                calculateVariableCharacterDimensions(bounds);
+                break;
+            default:
+                logger.error("Unknown font type: " + config.getFontType());
+                break;
+            }
+
+            bounds = Collections.unmodifiableMap(bounds);
+            sprite.putCharacterBounds(boundsKey, bounds);
         }
+        characterBounds = bounds;
+
+        glyphs = buildGlyphTable();
     }
 
-    private void calculateFixedCharacterDimensions()
+    private void calculateFixedCharacterDimensions(Map<Integer, Rectangle> characterBounds)
     {
         final int spriteWidth = sprites.getSprite(config).getSpriteWidth();
         final int spriteHeight = sprites.getSprite(config).getSpriteHeight();
@@ -218,10 +272,9 @@ public class SpriteFont
     /**
      * Go through each character and determine how wide it is based on the non transparent pixels
      */
-    private void calculateVariableCharacterDimensions()
+    private void calculateVariableCharacterDimensions(Map<Integer, Rectangle> characterBounds)
     {
         logger.trace("Calculating character dimensions");
-        characterBounds.clear();
 
         Sprite sprite = sprites.getSprite(config);
 
@@ -314,18 +367,126 @@ public class SpriteFont
      */
     public Rectangle getCharacterBounds(int c)
     {
-        if (!config.getCharacterKey().contains(new String(Character.toChars(c))))
+        return getGlyphs().getBounds(c);
+    }
+
+    /**
+     * Get the table of character bounds, building it again first if the font configuration has changed since it was
+     * built
+     * 
+     * @return glyph table
+     */
+    private GlyphTable getGlyphs()
+    {
+        GlyphTable table = glyphs;
+        if (table == null || !table.isCurrent(config.getVersion()))
+        {
+            table = buildGlyphTable();
+            glyphs = table;
+        }
+        return table;
+    }
+
+    /**
+     * Resolve the calculated character bounds into a table indexed by codepoint, with the unknown character in place of
+     * every character not in the character key, and the space set to its configured width
+     * 
+     * @return glyph table
+     */
+    private GlyphTable buildGlyphTable()
+    {
+        // Read the version before the work is done, so any change made while building will have it built again
+        final int fontVersion = config.getVersion();
+        final String key = config.getCharacterKey();
+
+        int length = 0;
+        for (int i = 0; i < key.length(); i++)
         {
-            c = config.getUnknownChar();
+            length = Math.max(length, key.charAt(i) + 1);
         }
 
-        if (FontType.VARIABLE_WIDTH.equals(config.getFontType()) && c == ' ')
+        Rectangle[] bounds = new Rectangle[length];
+        boolean[] known = new boolean[length];
+        for (int i = 0; i < key.length(); i++)
         {
-            Rectangle spaceBounds = characterBounds.get(c);
-            spaceBounds.width = (int) (sprites.getSprite(config).getSpriteWidth() * (config.getSpaceWidth() / 100.0f));
+            final char c = key.charAt(i);
+            Rectangle charBounds = characterBounds.get((int) c);
+            if (charBounds != null && c == ' ' && FontType.VARIABLE_WIDTH.equals(config.getFontType()))
+            {
+                charBounds = new Rectangle(charBounds);
+                charBounds.width = (int) (sprites.getSprite(config).getSpriteWidth() * (config.getSpaceWidth() / 100.0f));
+            }
+            bounds[c] = charBounds;
+            known[c] = charBounds != null;
+        }
+
+        final int unknownChar = config.getUnknownChar();
+        final Rectangle unknownBounds = unknownChar < length && known[unknownChar] ? bounds[unknownChar] : null;
+        for (int c = 0; c < length; c++)
+        {
+            if (!known[c])
+            {
+                bounds[c] = unknownBounds;
+            }
         }
 
-        return characterBounds.get(c);
+        return new GlyphTable(bounds, known, unknownBounds, fontVersion);
+    }
+
+    /**
+     * Get the width of a string drawn by drawPreview
+     * 
+     * @param str
+     * @return width
+     */
+    public int getPreviewWidth(String str)
+    {
+        final GlyphTable table = getGlyphs();
+        int width = 0;
+        int i = 0;
+        while (i < str.length())
+        {
+            final int codepoint = str.codePointAt(i);
+            final Rectangle bounds = getPreviewBounds(table, codepoint);
+            width += (bounds == null ? 0 : bounds.width) + config.getCharSpacing();
+            i += Character.charCount(codepoint);
+        }
+        return width;
+    }
+
+    /**
+     * Draw a string on a single line as a preview of the font, at the font's own size, untinted, and without any of the
+     * formatting of a message. Anything that isn't in the character key is drawn as the unknown character, whatever the
+     * extended character setting.
+     * 
+     * @param g2d
+     * @param str
+     * @param x
+     * @param y
+     */
+    public void drawPreview(Graphics2D g2d, String str, int x, int y)
+    {
+        final GlyphTable table = getGlyphs();
+        final Sprite sprite = sprites.getSprite(config);
+        int charX = x + config.getCharSpacing() / 2;
+        int i = 0;
+        while (i < str.length())
+        {
+            final int codepoint = str.codePointAt(i);
+            final Rectangle bounds = getPreviewBounds(table, codepoint);
+            if (bounds != null)
+            {
+                sprite.drawUntinted(g2d, charX, y, bounds);
+                charX += bounds.width;
+            }
+            charX += config.getCharSpacing();
+            i += Character.charCount(codepoint);
+        }
+    }
+
+    private Rectangle getPreviewBounds(GlyphTable table, int codepoint)
+    {
+        return table.getBounds(!SpriteCharacterKey.isExtended(codepoint) && table.isKnown(codepoint) ? codepoint : config.getUnknownChar());
     }
 
     /**
@@ -397,8 +558,7 @@ public class SpriteFont
     }
 
     /**
-     * Do a mock drawing of the string to determine the dimensions of the bounding box that would surround the drawn
-     * message
+     * Get the dimensions of the bounding box that would surround the drawn message
      * 
      * @param message
      * @param messageConfig
@@ -412,9 +572,160 @@ public class SpriteFont
         return drawMessage(null, fontMetrics, message, null, null, messageConfig, emojiConfig, emojiManager, 0, 0, 0, 0, lineWrapLength, false, null, null, lastMessage);
     }
 
+    /**
+     * Get the layout of the message wrapped to the specified length, using the one cached on the message if it is still
+     * current, or calculating and caching a new one if it is not
+     * 
+     * @param msg
+     * @param fontMetrics
+     * @param messageConfig
+     * @param emojiConfig
+     * @param emojiManager
+     * @param lineWrapLength
+     * @return layout
+     */
+    public MessageLayout getMessageLayout(Message msg, FontMetrics fontMetrics, ConfigMessage messageConfig, ConfigEmoji emojiConfig, EmojiManager emojiManager, int lineWrapLength)
+    {
+        MessageText text = msg.getText(emojiManager, messageConfig, emojiConfig);
+
+        MessageLayout layout = msg.getLayout();
+        if (layout == null || !layout.isCurrent(this, text, lineWrapLength, config.getVersion(), messageConfig.getVersion(), emojiConfig.getVersion(), LazyLoadEmoji.getLoadVersion()))
+        {
+            final byte[] breakClasses = layout == null ? MessageLayout.classifyBreaks(text) : layout.getBreakClasses(text);
+            layout = layoutMessage(text, breakClasses, fontMetrics, messageConfig, emojiConfig, lineWrapLength);
+            msg.setLayout(layout);
+        }
+        return layout;
+    }
+
+    /**
+     * Do a mock drawing of the text to determine where each character goes once the lines are wrapped. The width of each
+     * character is measured once, and the lines are wrapped in a single pass over those widths.
+     * 
+     * @param text
+     * @param breakClasses
+     *            Whether each character is part of a word, a place to wrap the line or a line break
+     * @param fontMetrics
+     * @param messageConfig
+     * @param emojiConfig
+     * @param lineWrapLength
+     * @return layout
+     */
+    private MessageLayout layoutMessage(MessageText text, byte[] breakClasses, FontMetrics fontMetrics, ConfigMessage messageConfig, ConfigEmoji emojiConfig, int lineWrapLength)
+    {
+        // Read the versions before the work is done, so any change made during the layout will invalidate it
+        final int fontVersion = config.getVersion();
+        final int messageVersion = messageConfig.getVersion();
+        final int emojiVersion = emojiConfig.getVersion();
+        final int loadVersion = LazyLoadEmoji.getLoadVersion();
+
+        final int length = text.length();
+        int[] charWidths = new int[length];
+        int maxCharWidth = 0;
+        boolean emojiPending = false;
+        for (int c = 0; c < length; c++)
+        {
+            charWidths[c] = getCharacterWidth(fontMetrics, text, c, emojiConfig);
+            maxCharWidth = Math.max(maxCharWidth, charWidths[c]);
+            final SpriteCharacterKey emojiKey = text.getEmojiKey(c);
+            if (emojiKey != null && emojiKey.getEmoji().isImagePending(emojiConfig.isAnimationEnabled()))
+            {
+                emojiPending = true;
+            }
+        }
+        // An emoji measured while it was still loading will be a different size once it's loaded
+        final int emojiLoadVersion = emojiPending ? loadVersion : MessageLayout.NO_PENDING_EMOJI;
+        if (maxCharWidth > lineWrapLength)
+        {
+            return new MessageLayout(this, text, breakClasses, lineWrapLength, fontVersion, messageVersion, emojiVersion, emojiLoadVersion);
+        }
+
+        int[] charX = new int[length];
+        int[] charLine = new int[length];
+        boolean[] glyph = new boolean[length];
+
+        // Before the lines are wrapped, charX holds the width of the rest of the word from each character on, worked out
+        // backwards from the end of the text. Each is read just before it is overwritten by the character's x position.
+        int restOfWord = 0;
+        for (int ci = length - 1; ci >= 0; ci--)
+        {
+            restOfWord = breakClasses[ci] == MessageLayout.BREAK_NONE ? restOfWord + charWidths[ci] : 0;
+            charX[ci] = restOfWord;
+        }
+
+        // x is relative to the left edge of the message
+        int x = 0;
+        int line = 0;
+
+        int maxWidth = 0;
+        int width = 0;
+
+        boolean forcedBreak = false;
+
+        // Go through each character in the text
+        for (int ci = 0; ci < length; ci++)
+        {
+            // If the character is a line return, go to the next line
+            if (breakClasses[ci] == MessageLayout.BREAK_LINE)
+            {
+                charX[ci] = 0;
+                x = 0;
+                maxWidth = Math.max(maxWidth, width);
+                width = 0;
+                line++;
+            }
+            // If it's not a line return, look forward into the text to find if
+            // the next word fits
+            else if (breakClasses[ci] == MessageLayout.BREAK_WORD)
+            {
+                charX[ci] = x;
+                x += charWidths[ci];
+                width += charWidths[ci];
+                forcedBreak = false;
+            }
+            else
+            {
+                final int currentWordPixelWidth = charX[ci];
+
+                // The next word doesn't fit, but it doesn't exceed the length
+                // of a full line, so hit return
+                if (x + currentWordPixelWidth >= lineWrapLength && !forcedBreak && currentWordPixelWidth < lineWrapLength)
+                {
+                    x = 0;
+                    maxWidth = Math.max(maxWidth, width);
+                    width = 0;
+                    line++;
+                }
+                // The next word doesn't even fit on its own line, so it needs a
+                // forced break at the end of the line
+                else if (x + currentWordPixelWidth >= lineWrapLength)
+                {
+                    forcedBreak = true;
+                    final int remainderOfTheLine = lineWrapLength - x;
+                    if (charWidths[ci] > remainderOfTheLine)
+                    {
+                        x = 0;
+                        maxWidth = Math.max(maxWidth, width);
+                        width = 0;
+                        line++;
+                    }
+                }
+
+                // Whether or not it started a new line, the character goes at x
+                glyph[ci] = true;
+                charX[ci] = x;
+                x += charWidths[ci];
+                width += charWidths[ci];
+            }
+            charLine[ci] = line;
+        }
+
+        return new MessageLayout(this, text, breakClasses, lineWrapLength, fontVersion, messageVersion, emojiVersion, emojiLoadVersion, true, charX, charLine, charWidths, glyph, maxWidth);
+    }
+
     /**
      * @param g2d
-     *            The graphics object upon which to draw
+     *            The graphics object upon which to draw, or null to just measure the message
      * @param fontMetrics
      *            The actual font metrics of the JPanel drawing this SpriteFont, used to draw extended characters
      * @param msg
@@ -458,263 +769,282 @@ public class SpriteFont
             return new Dimension();
         }
 
-        SpriteCharacterKey[] text = msg.getText(emojiManager, messageConfig, emojiConfig);
-
-        int maxCharWidth = 0;
-        for (int c = 0; c < text.length; c++)
-        {
-            maxCharWidth = Math.max(maxCharWidth, getCharacterWidth(fontMetrics, text[c], emojiConfig));
-        }
-        if (maxCharWidth > lineWrapLength)
+        MessageLayout layout = getMessageLayout(msg, fontMetrics, messageConfig, emojiConfig, emojiManager, lineWrapLength);
+        if (!layout.isDrawable())
         {
             return new Dimension();
         }
 
+        final MessageText text = layout.getText();
+        final float drawCursor = msg.getDrawCursor();
+        final int lineHeight = getLineHeightScaled();
+        final int lineCount = layout.getLineCount(drawCursor);
+
         // Because the letters are set back by this amount to divide up the
         // spacing between their left and right sides
-        x_init -= config.getCharSpacing() / 2;
-
-        int x = x_init;
-        int y = y_init;
-
-        int height = getLineHeightScaled();
-        int maxWidth = 0;
-        int width = 0;
-
-        y += lineScrollOffset * height;
+        final int left = x_init - config.getCharSpacing() / 2;
+        final int top = y_init + lineScrollOffset * lineHeight;
 
-        boolean forcedBreak = false;
-
-        Color color = Color.WHITE;
-
-        // Go through each character in the text
-        for (int ci = 0; ci < text.length; ci++)
+        // Only go through the characters if some part of the message is between the limits
+        if (g2d != null && top + (lineCount - 1) * lineHeight >= topLimit && top < botLimit)
         {
-            if (colorConfig != null)
-            {
-                color = getFontColor(msg, ci, messageConfig, colorConfig, userColor);
-            }
-
-            // If the character is a line return, go to the next line
-            if (LINE_BREAKS.contains(String.valueOf(text[ci].getChar())))
-            {
-                x = x_init;
-                maxWidth = Math.max(maxWidth, width);
-                width = 0;
-                y += getLineHeightScaled();
-                if (ci < msg.getDrawCursor())
-                {
-                    height += getLineHeightScaled();
-                }
-            }
-            // If it's not a line return, look forward into the text to find if
-            // the next word fits
-            else if (WORD_BREAKS.contains(String.valueOf(text[ci].getChar())))
-            {
-                int charWidth = getCharacterWidth(fontMetrics, text[ci], emojiConfig);
-                x += charWidth;
-                width += charWidth;
-                forcedBreak = false;
-            }
-            else
+            final ColorRuns runs = colorConfig == null ? null : getColorRuns(msg, text, messageConfig, colorConfig, userColor);
+            int run = 0;
+            Color color = Color.WHITE;
+            for (int ci = 0; ci < text.length() && ci < drawCursor; ci++)
             {
-                int currentWordPixelWidth = 0;
-                for (int nwc = 0; nwc < text.length - ci && !WORD_BREAKS.contains(String.valueOf(text[ci + nwc].getChar())); nwc++)
+                final int y = top + layout.getCharLine(ci) * lineHeight;
+                if (layout.isGlyph(ci) && y >= topLimit && y < botLimit)
                 {
-                    currentWordPixelWidth += getCharacterWidth(fontMetrics, text[ci + nwc], emojiConfig);
-                }
-                int distanceAlreadyFilled = x - x_init;
-
-                // The next word fits
-                if (distanceAlreadyFilled + currentWordPixelWidth < lineWrapLength)
-                {
-                    if (g2d != null && y >= topLimit && y < botLimit && ci < msg.getDrawCursor())
-                    {
-                        drawCharacter(g2d, fontMetrics, text[ci], x, y, emojiConfig, color, debug, debugColor, emojiObserver);
-                    }
-                    int charWidth = getCharacterWidth(fontMetrics, text[ci], emojiConfig);
-                    x += charWidth;
-                    width += charWidth;
-                }
-                // The next word doesn't fit, but it doesn't exceed the length
-                // of a full line, so hit return
-                else if (!forcedBreak && currentWordPixelWidth < lineWrapLength)
-                {
-                    x = x_init;
-                    maxWidth = Math.max(maxWidth, width);
-                    width = 0;
-                    y += getLineHeightScaled();
-                    if (ci < msg.getDrawCursor())
-                    {
-                        height += getLineHeightScaled();
-                    }
-                    if (g2d != null && y >= topLimit && y < botLimit && ci < msg.getDrawCursor())
+                    if (runs != null)
                     {
-                        drawCharacter(g2d, fontMetrics, text[ci], x, y, emojiConfig, color, debug, debugColor, emojiObserver);
+                        run = runs.getRun(ci, run);
+                        color = runs.getColor(run);
                     }
-                    int charWidth = getCharacterWidth(fontMetrics, text[ci], emojiConfig);
-                    x += charWidth;
-                    width += charWidth;
-                }
-                // The next word doesn't even fit on its own line, so it needs a
-                // forced break at the end of the line
-                else
-                {
-                    forcedBreak = true;
-                    distanceAlreadyFilled = x - x_init;
-                    final int remainderOfTheLine = lineWrapLength - distanceAlreadyFilled;
-                    int charWidth = getCharacterWidth(fontMetrics, text[ci], emojiConfig);
-                    if (charWidth > remainderOfTheLine)
+                    if (text.isChar(ci))
                     {
-                        x = x_init;
-                        maxWidth = Math.max(maxWidth, width);
-                        width = 0;
-                        y += getLineHeightScaled();
-                        if (ci < msg.getDrawCursor())
-                        {
-                            height += getLineHeightScaled();
-                        }
+                        drawGlyph(g2d, fontMetrics, text.getCodepoint(ci), left + layout.getCharX(ci), y, color, debug, debugColor);
                     }
-
-                    if (g2d != null && y >= topLimit && y < botLimit && ci < msg.getDrawCursor())
+                    else
                     {
-                        drawCharacter(g2d, fontMetrics, text[ci], x, y, emojiConfig, color, debug, debugColor, emojiObserver);
+                        drawEmoji(g2d, fontMetrics, text.getEmojiKey(ci), left + layout.getCharX(ci), y, emojiConfig, color, debug, debugColor, emojiObserver);
                     }
-                    x += charWidth;
-                    width += charWidth;
                 }
             }
         }
 
+        int height = lineCount * lineHeight;
         if (!lastMessage)
         {
             height += config.getMessageSpacing();
         }
 
-        return new Dimension(maxWidth, height);
+        return new Dimension(layout.getMaxWidth(), height);
     }
 
-    private void drawCharacter(Graphics2D g2d, FontMetrics fontMetrics, SpriteCharacterKey sck, int x, int y, ConfigEmoji emojiConfig, Color color, boolean debug, Color debugColor, ImageObserver emojiObserver)
+    /**
+     * Get the bounding box of the characters revealed when a message's draw cursor moves from one position to another,
+     * for a message drawn at the specified position. This is the only part of the screen that changes as a message is
+     * rolled out, so long as the number of lines the message takes up stays the same.
+     * 
+     * @param fontMetrics
+     *            The actual font metrics of the JPanel drawing this SpriteFont, used to measure extended characters
+     * @param layout
+     *            The layout of the message
+     * @param fromCursor
+     *            The draw cursor before the characters were revealed
+     * @param toCursor
+     *            The draw cursor after the characters were revealed
+     * @param emojiConfig
+     * @param x_init
+     *            The left edge x coordinate the message is drawn from
+     * @param y_init
+     *            The top edge y coordinate the message is drawn from
+     * @return The bounding box of the revealed characters, or null if no glyphs were revealed
+     */
+    public Rectangle getRevealedBounds(FontMetrics fontMetrics, MessageLayout layout, float fromCursor, float toCursor, ConfigEmoji emojiConfig, int x_init, int y_init)
     {
-        final int drawX = x + config.getCharSpacing() / 2;
-        int drawY = y;
-
-        if (sck.isChar())
+        final MessageText text = layout.getText();
+        final int lineHeight = getLineHeightScaled();
+        final int textHeight = Math.max(Math.max(lineHeight, sprites.getSprite(config).getSpriteDrawHeight(config.getFontScale())), fontMetrics.getHeight());
+        final int left = x_init - config.getCharSpacing() / 2;
+        final int top = y_init + lineScrollOffset * lineHeight;
+
+        Rectangle bounds = null;
+        for (int ci = layout.getRevealedCount(fromCursor); ci < layout.getRevealedCount(toCursor); ci++)
         {
-            final boolean validNormalChar = !sck.isExtended() && characterBounds.containsKey(sck.getCodepoint());
-            final boolean drawUnknownChar = !validNormalChar && !config.isExtendedCharEnabled();
+            if (!layout.isGlyph(ci))
+            {
+                continue;
+            }
 
-            // If the option to draw the unknown character in place of anything out of range is enabled,
-            // then switch out the SpriteCharacterKey with one given the selected unknown character
-            if (drawUnknownChar)
+            final int x = left + layout.getCharX(ci);
+            final int y = top + layout.getCharLine(ci) * lineHeight;
+            Rectangle charBounds = new Rectangle(x, y, layout.getCharWidth(ci) + config.getCharSpacing(), textHeight);
+            final SpriteCharacterKey emojiKey = text.getEmojiKey(ci);
+            if (emojiKey != null && emojiKey.isEmoji())
             {
-                sck = new SpriteCharacterKey(config.getUnknownChar());
+                // Emoji are centered on the line, so they can hang over it
+                final long eDim = getEmojiDimensions(emojiKey, emojiConfig);
+                charBounds.add(new Rectangle(x + config.getCharSpacing() / 2, getEmojiTop(emojiKey, y, getEmojiHeight(eDim), emojiConfig), getEmojiWidth(eDim) + 1, getEmojiHeight(eDim) + 1));
             }
 
-            // Draw either a valid normal ASCII character, or draw the selected unknown replacement character
-            if (validNormalChar || drawUnknownChar)
+            if (bounds == null)
             {
-                Rectangle bounds = characterBounds.get(sck.getCodepoint());
-                sprites.getSprite(config).draw(g2d, drawX, drawY, bounds.width, bounds.height, bounds, config.getFontScale(), color);
-                if (debug)
-                {
-                    g2d.setColor(debugColor);
-                    g2d.drawRect(drawX, drawY, (int) (bounds.width * config.getFontScale()), (int) (bounds.height * config.getFontScale()));
-                }
+                bounds = charBounds;
             }
-            // The character is invalid, and drawing the unknown char is not selected, so draw the extended characters
             else
             {
-                g2d.setColor(color);
-                g2d.drawString(sck.toString(), drawX, drawY + (fontMetrics.getHeight() - fontMetrics.getDescent()) - config.getBaselineOffset() * config.getFontScale());
+                bounds.add(charBounds);
             }
         }
+
+        if (bounds != null)
+        {
+            // Pad by a pixel for any anti-aliasing that bleeds over the edges
+            bounds.grow(1, 1);
+        }
+
+        return bounds;
+    }
+
+    /**
+     * Get the y coordinate of the top of an emoji drawn on the line at the specified y coordinate, which centers the
+     * emoji on the line
+     * 
+     * @param sck
+     * @param y
+     * @param emojiHeight
+     * @param emojiConfig
+     * @return emoji top
+     */
+    private int getEmojiTop(SpriteCharacterKey sck, int y, int emojiHeight, ConfigEmoji emojiConfig)
+    {
+        // yOffset is to center the emoji on the line
+        int yOffset = (int) (sprites.getSprite(config).getSpriteDrawHeight(config.getFontScale()) / 2 - config.getBaselineOffset() * config.getFontScale()) - (sck.isBadge() ? emojiConfig.getBadgeHeightOffset() : 0);
+        return y + yOffset - emojiHeight / 2;
+    }
+
+    private void drawGlyph(Graphics2D g2d, FontMetrics fontMetrics, int codepoint, int x, int y, Color color, boolean debug, Color debugColor)
+    {
+        final int drawX = x + config.getCharSpacing() / 2;
+
+        final GlyphTable table = getGlyphs();
+        final boolean validNormalChar = !SpriteCharacterKey.isExtended(codepoint) && table.isKnown(codepoint);
+        final boolean drawUnknownChar = !validNormalChar && !config.isExtendedCharEnabled();
+
+        // If the option to draw the unknown character in place of anything out of range is enabled,
+        // then switch out the codepoint with the selected unknown character
+        if (drawUnknownChar)
+        {
+            codepoint = config.getUnknownChar();
+        }
+
+        // Draw either a valid normal ASCII character, or draw the selected unknown replacement character
+        if (validNormalChar || drawUnknownChar)
+        {
+            Rectangle bounds = table.getBounds(codepoint);
+            sprites.getSprite(config).draw(g2d, drawX, y, bounds.width, bounds.height, bounds, config.getFontScale(), color);
+            if (debug)
+            {
+                g2d.setColor(debugColor);
+                g2d.drawRect(drawX, y, (int) (bounds.width * config.getFontScale()), (int) (bounds.height * config.getFontScale()));
+            }
+        }
+        // The character is invalid, and drawing the unknown char is not selected, so draw the extended characters
         else
         {
-            int[] eDim = getEmojiDimensions(sck, emojiConfig);
-            // yOffset is to center the emoji on the line
-            int yOffset = (int) (sprites.getSprite(config).getSpriteDrawHeight(config.getFontScale()) / 2 - config.getBaselineOffset() * config.getFontScale()) - (sck.isBadge() ? emojiConfig.getBadgeHeightOffset() : 0);
-            drawY += yOffset - eDim[1] / 2;
-            Image eImage = sck.getEmoji().getImage(emojiConfig.isAnimationEnabled());
-            if (eImage == null)
+            g2d.setColor(color);
+            g2d.drawString(new String(Character.toChars(codepoint)), drawX, y + (fontMetrics.getHeight() - fontMetrics.getDescent()) - config.getBaselineOffset() * config.getFontScale());
+        }
+    }
+
+    private void drawEmoji(Graphics2D g2d, FontMetrics fontMetrics, SpriteCharacterKey sck, int x, int y, ConfigEmoji emojiConfig, Color color, boolean debug, Color debugColor, ImageObserver emojiObserver)
+    {
+        final int drawX = x + config.getCharSpacing() / 2;
+
+        final long eDim = getEmojiDimensions(sck, emojiConfig);
+        final int eWidth = getEmojiWidth(eDim);
+        final int eHeight = getEmojiHeight(eDim);
+        final int drawY = getEmojiTop(sck, y, eHeight, emojiConfig);
+        Image eImage = sck.getEmoji().getImage(emojiConfig.isAnimationEnabled());
+        if (eImage == null)
+        {
+            // If the image is null, then it's not loaded, so do the backup display strategy
+            g2d.setColor(color);
+            switch (emojiConfig.getDisplayStrategy())
             {
-                // If the image is null, then it's not loaded, so do the backup display strategy
-                g2d.setColor(color);
-                switch (emojiConfig.getDisplayStrategy())
-                {
-                case BOX_FILL:
-                    g2d.fillRect(drawX, drawY, eDim[0] + 1, eDim[1] + 1);
-                    break;
-                case BOX_FRAME:
-                    g2d.drawRect(drawX, drawY, eDim[0], eDim[1]);
-                    break;
-                case UNKNOWN:
-                    drawCharacter(g2d, fontMetrics, new SpriteCharacterKey(config.getUnknownChar()), x, y, emojiConfig, color, debug, debugColor, emojiObserver);
-                    break;
-                case SPACE:
-                case NOTHING:
-                default:
-                    break;
-                }
+            case BOX_FILL:
+                g2d.fillRect(drawX, drawY, eWidth + 1, eHeight + 1);
+                break;
+            case BOX_FRAME:
+                g2d.drawRect(drawX, drawY, eWidth, eHeight);
+                break;
+            case UNKNOWN:
+                drawGlyph(g2d, fontMetrics, config.getUnknownChar(), x, y, color, debug, debugColor);
+                break;
+            case SPACE:
+            case NOTHING:
+            default:
+                break;
             }
-            else
+        }
+        else
+        {
+            // Draw a color square background for the emoji (for FrankerFaceZ badges)
+            if (sck.getEmoji().isColoringRequired())
             {
-                // Draw a color square background for the emoji (for FrankerFaceZ badges)
-                if (sck.getEmoji().isColoringRequired())
-                {
-                    g2d.setColor(sck.getEmojiBgColor());
-                    g2d.fillRect(drawX, drawY, eDim[0] + 1, eDim[1] + 1);
-                }
-                // Draw the emoji image
-                g2d.drawImage(eImage, drawX, drawY, eDim[0], eDim[1], emojiObserver);
+                g2d.setColor(sck.getEmojiBgColor());
+                g2d.fillRect(drawX, drawY, eWidth + 1, eHeight + 1);
             }
+            // Draw the emoji image
+            g2d.drawImage(eImage, drawX, drawY, eWidth, eHeight, emojiObserver);
         }
     }
 
     /**
-     * If the change to the next character requires a change to the color of the text, this method will set the
-     * appropriate color
+     * Get the colors of the text of the message, using the ones cached on the message if they are still current, or
+     * working them out and caching them if they are not
      * 
      * @param msg
-     * @param c
+     * @param text
+     *            The text of the message as it is to be drawn
+     * @param messageConfig
+     * @param colorConfig
+     * @param userColor
+     *            The color unique to the sender of the message
+     * @return color runs
+     */
+    public ColorRuns getColorRuns(Message msg, MessageText text, ConfigMessage messageConfig, ConfigColor colorConfig, Color userColor)
+    {
+        ColorRuns runs = msg.getColorRuns();
+        if (runs == null || !runs.isCurrent(text, messageConfig.getVersion(), colorConfig.getVersion(), userColor))
+        {
+            runs = colorMessage(msg, text, messageConfig, colorConfig, userColor);
+            msg.setColorRuns(runs);
+        }
+        return runs;
+    }
+
+    /**
+     * Work out the color of each part of the message: the timestamp, then the badges, the username and the content
+     * 
+     * @param msg
+     * @param text
      * @param messageConfig
      * @param colorConfig
      * @param userColor
+     * @return color runs
      */
-    public Color getFontColor(Message msg, int c, ConfigMessage messageConfig, ConfigColor colorConfig, Color userColor)
+    private ColorRuns colorMessage(Message msg, MessageText text, ConfigMessage messageConfig, ConfigColor colorConfig, Color userColor)
     {
-        boolean timestampIndexEncountered = messageConfig.showTimestamps() && c < msg.getIndexTimestamp(messageConfig);
+        final int messageVersion = messageConfig.getVersion();
+        final int colorVersion = colorConfig.getVersion();
+
+        final int timestampEnd = messageConfig.showTimestamps() ? msg.getIndexTimestamp(messageConfig) : 0;
 
         if (msg.isJoinType())
         {
-            if (timestampIndexEncountered)
-            {
-                return colorConfig.isColorJoin() && colorConfig.isColorTimestamp() ? colorConfig.getHighlight() : colorConfig.getFgColor();
-            }
-            else
-            {
-                return colorConfig.isColorJoin() ? colorConfig.getHighlight() : colorConfig.getFgColor();
-            }
+            final Color timestampColor = colorConfig.isColorJoin() && colorConfig.isColorTimestamp() ? colorConfig.getHighlight() : colorConfig.getFgColor();
+            final Color joinColor = colorConfig.isColorJoin() ? colorConfig.getHighlight() : colorConfig.getFgColor();
+            return new ColorRuns(text, messageVersion, colorVersion, userColor, new int[] { timestampEnd, Integer.MAX_VALUE }, new Color[] { timestampColor, joinColor });
         }
-        else
+
+        final Color timestampColor = colorConfig.isColorTimestamp() ? userColor : colorConfig.getFgColor();
+        final Color usernameColor = colorConfig.isColorUsername() ? userColor : colorConfig.getFgColor();
+        final Color contentColor = colorConfig.isColorMessage() || MessageType.ACTION.equals(msg.getType()) ? userColor : colorConfig.getFgColor();
+
+        // The badges are between the timestamp and the username, and are colored like the content
+        int usernameStart = timestampEnd;
+        int usernameEnd = timestampEnd;
+        if (messageConfig.showUsernames())
         {
-            if (timestampIndexEncountered)
-            {
-                return colorConfig.isColorTimestamp() ? userColor : colorConfig.getFgColor();
-            }
-            else if (messageConfig.showUsernames() && c >= msg.getIndexUsername(messageConfig)[0] && c < msg.getIndexUsername(messageConfig)[1])
-            {
-                return colorConfig.isColorUsername() ? userColor : colorConfig.getFgColor();
-            }
-            else if (colorConfig.isColorMessage() || MessageType.ACTION.equals(msg.getType()))
-            {
-                return userColor;
-            }
-            else
-            {
-                return colorConfig.getFgColor();
-            }
+            final int[] usernameIndex = msg.getIndexUsername(messageConfig);
+            usernameStart = Math.max(timestampEnd, usernameIndex[0]);
+            usernameEnd = Math.max(usernameStart, usernameIndex[1]);
         }
+
+        return new ColorRuns(text, messageVersion, colorVersion, userColor, new int[] { timestampEnd, usernameStart, usernameEnd, Integer.MAX_VALUE }, new Color[] { timestampColor, contentColor, usernameColor, contentColor });
     }
 
 }
@@ -0,0 +1,251 @@
+package com.glitchcog.fontificator.sprite;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.LookupOp;
+import java.awt.image.ShortLookupTable;
+import java.awt.image.WritableRaster;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+/**
+ * A cache of tinted copies of individual sprite frames and characters, keyed off of the sprite, the tint color and the
+ * region of the sprite image. Only the regions actually drawn are tinted, rather than whole sprite sheets, and the total
+ * size of the cached images is held under a byte budget by evicting the least recently drawn tints first.
+ *
+ * @author Matt Yanos
+ */
+public class TintCache
+{
+    private static final Logger logger = Logger.getLogger(TintCache.class);
+
+    /**
+     * The default number of bytes of tinted images to keep
+     */
+    public static final long DEFAULT_BYTE_BUDGET = 32L * 1024L * 1024L;
+
+    /**
+     * The tinted images, in order from least to most recently drawn
+     */
+    private final LinkedHashMap<TintKey, BufferedImage> tints;
+
+    /**
+     * Reused to look up tints, so drawing something already in the cache doesn't allocate a key
+     */
+    private final TintKey probe;
+
+    private long byteBudget;
+
+    private long byteCount;
+
+    private long hits;
+
+    private long misses;
+
+    private long evictions;
+
+    public TintCache(long byteBudget)
+    {
+        this.tints = new LinkedHashMap<TintKey, BufferedImage>(256, 0.75f, true);
+        this.probe = new TintKey();
+        this.byteBudget = byteBudget;
+    }
+
+    /**
+     * Get the specified region of the source image tinted with the specified color, creating and caching it if it isn't
+     * already cached
+     *
+     * @param spriteId
+     *            Uniquely identifies the source image
+     * @param source
+     *            The whole sprite image
+     * @param color
+     *            The color to tint the region
+     * @param x
+     * @param y
+     * @param width
+     * @param height
+     * @return tinted region
+     */
+    public synchronized BufferedImage getTint(int spriteId, BufferedImage source, Color color, int x, int y, int width, int height)
+    {
+        probe.set(spriteId, color.getRGB(), x, y, width, height);
+        BufferedImage tint = tints.get(probe);
+        if (tint != null)
+        {
+            hits++;
+            return tint;
+        }
+
+        misses++;
+        tint = createTint(source.getSubimage(x, y, width, height), color);
+        tints.put(new TintKey(probe), tint);
+        byteCount += getByteSize(tint);
+        evict();
+        return tint;
+    }
+
+    /**
+     * Evict the least recently used tints until the cache is within its budget, but never evict the most recently added
+     */
+    private void evict()
+    {
+        Iterator<Map.Entry<TintKey, BufferedImage>> iter = tints.entrySet().iterator();
+        while (byteCount > byteBudget && tints.size() > 1 && iter.hasNext())
+        {
+            byteCount -= getByteSize(iter.next().getValue());
+            iter.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Make a copy of an image tinted the specified color, without caching it
+     * 
+     * @param region
+     * @param color
+     * @return tint
+     */
+    public static BufferedImage createTint(BufferedImage region, Color color)
+    {
+        short[][] lookupArray = new short[4][256];
+        for (short i = 0; i < 256; i++)
+        {
+            lookupArray[0][i] = (short) ((i / 255.0f) * color.getRed());
+            lookupArray[1][i] = (short) ((i / 255.0f) * color.getGreen());
+            lookupArray[2][i] = (short) ((i / 255.0f) * color.getBlue());
+            lookupArray[3][i] = i;
+        }
+        LookupOp tintOp = new LookupOp(new ShortLookupTable(0, lookupArray), null);
+
+        ColorModel cm = region.getColorModel();
+        WritableRaster raster = cm.createCompatibleWritableRaster(region.getWidth(), region.getHeight());
+        BufferedImage tint = new BufferedImage(cm, raster, cm.isAlphaPremultiplied(), null);
+        return tintOp.filter(region, tint);
+    }
+
+    private static long getByteSize(BufferedImage img)
+    {
+        return (long) img.getWidth() * img.getHeight() * img.getColorModel().getPixelSize() / 8L;
+    }
+
+    /**
+     * Set the number of bytes of tinted images to keep, evicting any tints beyond the new budget
+     *
+     * @param byteBudget
+     */
+    public synchronized void setByteBudget(long byteBudget)
+    {
+        this.byteBudget = byteBudget;
+        evict();
+        logger.debug("Tint cache budget set to " + byteBudget + " bytes");
+    }
+
+    public synchronized long getByteBudget()
+    {
+        return byteBudget;
+    }
+
+    public synchronized long getByteCount()
+    {
+        return byteCount;
+    }
+
+    public synchronized long getHits()
+    {
+        return hits;
+    }
+
+    public synchronized long getMisses()
+    {
+        return misses;
+    }
+
+    public synchronized long getEvictions()
+    {
+        return evictions;
+    }
+
+    /**
+     * Empty the cache, leaving the hit, miss and eviction counts as they are
+     */
+    public synchronized void clear()
+    {
+        tints.clear();
+        byteCount = 0L;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return tints.size() + " tints, " + (byteCount / 1024L) + " / " + (byteBudget / 1024L) + " KB, " + hits + " hits, " + misses + " misses, " + evictions + " evictions";
+    }
+
+    /**
+     * Identifies a region of a sprite tinted a particular color
+     */
+    private static class TintKey
+    {
+        private int spriteId;
+
+        private int rgb;
+
+        private int x;
+
+        private int y;
+
+        private int width;
+
+        private int height;
+
+        private TintKey()
+        {
+        }
+
+        private TintKey(TintKey copy)
+        {
+            set(copy.spriteId, copy.rgb, copy.x, copy.y, copy.width, copy.height);
+        }
+
+        private void set(int spriteId, int rgb, int x, int y, int width, int height)
+        {
+            this.spriteId = spriteId;
+            this.rgb = rgb;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            final int prime = 31;
+            int result = 1;
+            result = prime * result + spriteId;
+            result = prime * result + rgb;
+            result = prime * result + x;
+            result = prime * result + y;
+            result = prime * result + width;
+            result = prime * result + height;
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj)
+                return true;
+            if (obj == null)
+                return false;
+            if (getClass() != obj.getClass())
+                return false;
+            TintKey other = (TintKey) obj;
+            return spriteId == other.spriteId && rgb == other.rgb && x == other.x && y == other.y && width == other.width && height == other.height;
+        }
+    }
+}